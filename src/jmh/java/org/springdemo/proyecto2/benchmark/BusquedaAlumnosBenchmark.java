@@ -0,0 +1,108 @@
+package org.springdemo.proyecto2.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.dto.CoincidenciaAlumno;
+import org.springdemo.proyecto2.repository.AlumnoRepository;
+import org.springdemo.proyecto2.service.AlumnoIndiceBusqueda;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Búsquedas de GET /api/alumnos/search sobre el índice en memoria, sin Spring ni base de datos.
+// Los nombres se arman combinando listas con tildes, con nombres y apellidos dobles; el segundo apellido
+// se inventa con sílabas para que haya palabras poco repetidas (unas dos mil distintas en total).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BusquedaAlumnosBenchmark {
+
+    private static final String[] NOMBRES = {"José", "María", "Juan", "Ana", "Luis", "Lucía", "Carlos", "Sofía",
+            "Miguel", "Elena", "Íñigo", "Valentina", "Mateo", "Camila", "Javier", "Martina", "Andrés", "Ángela"};
+
+    private static final String[] APELLIDOS = {"García", "Pérez", "González", "Martínez", "López", "Rodríguez",
+            "Fernández", "Sánchez", "Romero", "Torres", "Díaz", "Álvarez", "Ruiz", "Moreno", "Muñoz", "Núñez"};
+
+    private static final String[] SILABAS = {"ba", "ce", "di", "fo", "gu", "la", "me", "ni", "po", "ri", "sa", "to"};
+
+    @Param({"1000000"})
+    public int totalAlumnos;
+
+    private AlumnoIndiceBusqueda indiceBusqueda;
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(20241201L);
+        // Repositorio que entrega bloques generados al vuelo, en orden de ID
+        AlumnoRepository alumnoRepository = (AlumnoRepository) Proxy.newProxyInstance(
+                AlumnoRepository.class.getClassLoader(), new Class<?>[]{AlumnoRepository.class},
+                (proxy, metodo, argumentos) -> {
+                    long despuesDeId = (Long) argumentos[0];
+                    int limite = (Integer) argumentos[1];
+                    List<AlumnoVista> bloque = new ArrayList<>(limite);
+                    for (long id = despuesDeId + 1; id <= Math.min(totalAlumnos, despuesDeId + limite); id++) {
+                        bloque.add(new AlumnoVista(id, nombre(random), apellido(random), 20, "Arte", 0L));
+                    }
+                    return bloque;
+                });
+        indiceBusqueda = new AlumnoIndiceBusqueda(alumnoRepository);
+        indiceBusqueda.construir();
+    }
+
+    private static String nombre(Random random) {
+        String nombre = NOMBRES[random.nextInt(NOMBRES.length)];
+        return random.nextInt(4) == 0 ? nombre + " " + NOMBRES[random.nextInt(NOMBRES.length)] : nombre;
+    }
+
+    // Primer apellido de la lista (a veces con una variante inventada) y segundo apellido inventado
+    private static String apellido(Random random) {
+        String primero = APELLIDOS[random.nextInt(APELLIDOS.length)];
+        if (random.nextInt(3) == 0) {
+            primero += SILABAS[random.nextInt(SILABAS.length)];
+        }
+        StringBuilder segundo = new StringBuilder("V");
+        for (int i = 0; i < 3; i++) {
+            segundo.append(SILABAS[random.nextInt(SILABAS.length)]);
+        }
+        return primero + " " + segundo;
+    }
+
+    // Prefijo de una letra: la consulta con más coincidencias
+    @Benchmark
+    public List<CoincidenciaAlumno> prefijoCorto() {
+        return indiceBusqueda.buscar("m", 10);
+    }
+
+    @Benchmark
+    public List<CoincidenciaAlumno> nombreYApellidoSinTildes() {
+        return indiceBusqueda.buscar("jose gonzalez", 10);
+    }
+
+    @Benchmark
+    public List<CoincidenciaAlumno> prefijosDeTresPalabras() {
+        return indiceBusqueda.buscar("ang mun vbace", 10);
+    }
+
+    // Un error de tipeo en una palabra de 8 letras
+    @Benchmark
+    public List<CoincidenciaAlumno> conErrorDeTipeo() {
+        return indiceBusqueda.buscar("Fernandes", 10);
+    }
+
+    // Palabras comunes que casi nunca aparecen juntas: llega al tope de candidatos
+    @Benchmark
+    public List<CoincidenciaAlumno> combinacionRara() {
+        return indiceBusqueda.buscar("angela valentina martina", 10);
+    }
+
+    @Benchmark
+    public List<CoincidenciaAlumno> sinResultados() {
+        return indiceBusqueda.buscar("xyzw", 10);
+    }
+}
@@ -0,0 +1,43 @@
+package org.springdemo.proyecto2.benchmark;
+
+import org.springdemo.proyecto2.Proyecto2Application;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.repository.AlumnoRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Levanta la aplicación contra H2 en memoria (perfil "h2") para los benchmarks que necesitan Spring.
+// Siempre como aplicación web (SecurityConfig necesita HttpSecurity), con Tomcat en un puerto libre.
+final class ContextoBenchmark {
+
+    private ContextoBenchmark() {
+    }
+
+    static ConfigurableApplicationContext iniciar() {
+        return new SpringApplicationBuilder(Proyecto2Application.class)
+                .profiles("h2")
+                .properties("spring.devtools.restart.enabled=false",
+                            "spring.main.banner-mode=off",
+                            "server.port=0",
+                            "logging.level.root=WARN")
+                .run();
+    }
+
+    // Carga la tabla con insertarLote para no medir el tiempo de preparación
+    static void cargarAlumnos(ConfigurableApplicationContext contexto, int cantidad) {
+        AlumnoRepository repositorio = contexto.getBean(AlumnoRepository.class);
+        repositorio.deleteAllInBatch();
+        for (int desde = 0; desde < cantidad; desde += 1_000) {
+            repositorio.insertarLote(generarAlumnos(desde, Math.min(cantidad, desde + 1_000)));
+        }
+    }
+
+    static List<Alumno> generarAlumnos(int desde, int hasta) {
+        return IntStream.range(desde, hasta)
+                        .mapToObj(i -> new Alumno(null, "Nombre" + i, "Apellido" + i, 18 + i % 40, "Curso" + i % 12))
+                        .toList();
+    }
+}
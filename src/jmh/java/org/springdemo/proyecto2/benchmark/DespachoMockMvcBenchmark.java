@@ -0,0 +1,62 @@
+package org.springdemo.proyecto2.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// Petición completa sin red: filtros de seguridad, DispatcherServlet, controlador, servicio, H2 y Jackson
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DespachoMockMvcBenchmark {
+
+    private static final int TOTAL_ALUMNOS = 1_000;
+
+    private ConfigurableApplicationContext contexto;
+
+    private MockMvc mockMvc;
+
+    @Setup
+    public void preparar() {
+        contexto = ContextoBenchmark.iniciar();
+        ContextoBenchmark.cargarAlumnos(contexto, TOTAL_ALUMNOS);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) contexto)
+                                 .apply(springSecurity())
+                                 .build();
+    }
+
+    @TearDown
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse alumnoPorId() throws Exception {
+        return mockMvc.perform(get("/api/alumnos/{id}", TOTAL_ALUMNOS / 2).accept(MediaType.APPLICATION_JSON))
+                      .andReturn().getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse paginaDeAlumnos() throws Exception {
+        return mockMvc.perform(get("/api/alumnos").param("limit", "50").accept(MediaType.APPLICATION_JSON))
+                      .andReturn().getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse alumnoNoEncontrado() throws Exception {
+        return mockMvc.perform(get("/api/alumnos/{id}", TOTAL_ALUMNOS * 10).accept(MediaType.APPLICATION_JSON))
+                      .andReturn().getResponse();
+    }
+}
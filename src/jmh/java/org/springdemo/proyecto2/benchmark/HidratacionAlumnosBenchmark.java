@@ -0,0 +1,106 @@
+package org.springdemo.proyecto2.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springdemo.proyecto2.dto.AlumnoFila;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.repository.AlumnoRepository;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Consultas del repositorio contra H2: lectura del ResultSet + armado de entidades o proyecciones.
+// Fuera de una transacción cada llamada usa un EntityManager nuevo, así que no hay primer nivel de cache.
+// Las asignaciones por operación se ven con el perfilador gc de JMH (-prof gc).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HidratacionAlumnosBenchmark {
+
+    private static final int TOTAL_ALUMNOS = 100_000;
+
+    private ConfigurableApplicationContext contexto;
+
+    private AlumnoRepository alumnoRepository;
+
+    @Setup
+    public void preparar() {
+        contexto = ContextoBenchmark.iniciar();
+        ContextoBenchmark.cargarAlumnos(contexto, TOTAL_ALUMNOS);
+        alumnoRepository = contexto.getBean(AlumnoRepository.class);
+    }
+
+    @TearDown
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<Alumno> todosLosAlumnos() {
+        return alumnoRepository.findAll();
+    }
+
+    @Benchmark
+    public List<Alumno> paginaPorCursor() {
+        return alumnoRepository.findAlumnosDespuesDeId(0L, 50);
+    }
+
+    @Benchmark
+    public List<Alumno> alumnosPorCurso() {
+        return alumnoRepository.findAlumnosByCursoQuery("Curso3");
+    }
+
+    @Benchmark
+    public List<Alumno> alumnosPorRangoEdad() {
+        return alumnoRepository.findAlumnosByRangoEdad(20, 25);
+    }
+
+    // Proyecciones de solo lectura (sin entidades gestionadas)
+
+    // Todo el listado de index.html por bloques de 500, como lo recorre /todos
+    @Benchmark
+    public void filasDelListado(Blackhole blackhole) {
+        long despuesDeId = 0L;
+        List<AlumnoFila> bloque;
+        do {
+            bloque = alumnoRepository.findFilasDespuesDeId(despuesDeId, 500);
+            bloque.forEach(blackhole::consume);
+            despuesDeId = bloque.isEmpty() ? despuesDeId : bloque.get(bloque.size() - 1).id();
+        } while (bloque.size() == 500);
+    }
+
+    // Una página de la vista paginada de index.html, a mitad de la tabla y ordenada por apellido
+    @Benchmark
+    public Page<AlumnoFila> paginaDelListado() {
+        return alumnoRepository.findFilas(PageRequest.of(TOTAL_ALUMNOS / 100, 50,
+                                                         Sort.by("apellido").and(Sort.by("id"))));
+    }
+
+    @Benchmark
+    public List<AlumnoVista> paginaDeVistas() {
+        return alumnoRepository.findVistasDespuesDeId(0L, 50);
+    }
+
+    @Benchmark
+    public List<AlumnoVista> vistasPorCurso() {
+        return alumnoRepository.findVistasByCurso("Curso3");
+    }
+
+    @Benchmark
+    public List<AlumnoVista> vistasPorRangoEdad() {
+        return alumnoRepository.findVistasByRangoEdad(20, 25);
+    }
+
+    @Benchmark
+    public Alumno alumnoPorId() {
+        return alumnoRepository.findAlumnoByIdQuery(TOTAL_ALUMNOS / 2L);
+    }
+}
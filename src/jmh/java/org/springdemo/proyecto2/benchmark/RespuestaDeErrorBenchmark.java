@@ -0,0 +1,52 @@
+package org.springdemo.proyecto2.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springdemo.proyecto2.controller.AlumnoRestControllers;
+import org.springdemo.proyecto2.service.AlumnoService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Camino de error del controlador: excepción del servicio -> mapa "error"/"detalles" -> ResponseEntity
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RespuestaDeErrorBenchmark {
+
+    private static final long ID_INEXISTENTE = 99L;
+
+    private AlumnoRestControllers controlador;
+
+    private RuntimeException excepcion;
+
+    @Setup
+    public void preparar() {
+        // Servicio que siempre falla como el real cuando no existe el ID (sin el costo de un mock de Mockito)
+        AlumnoService alumnoService = (AlumnoService) Proxy.newProxyInstance(
+                AlumnoService.class.getClassLoader(), new Class<?>[]{AlumnoService.class},
+                (proxy, metodo, argumentos) -> {
+                    throw new RuntimeException("Alumno no encontrado con ID: " + argumentos[0]);
+                });
+        controlador = new AlumnoRestControllers();
+        ReflectionTestUtils.setField(controlador, "alumnoService", alumnoService);
+        excepcion = new RuntimeException("Alumno no encontrado con ID: " + ID_INEXISTENTE);
+    }
+
+    @Benchmark
+    public Map<String, String> manejadorDeExcepciones() {
+        return controlador.handleNotFoundException(excepcion);
+    }
+
+    @Benchmark
+    public ResponseEntity<Object> alumnoNoEncontrado() {
+        return controlador.obtenerAlumnoPorId(ID_INEXISTENTE, new ServletWebRequest(new MockHttpServletRequest()));
+    }
+}
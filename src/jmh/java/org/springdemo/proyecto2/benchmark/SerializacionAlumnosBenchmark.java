@@ -0,0 +1,94 @@
+package org.springdemo.proyecto2.benchmark;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+// Costo de convertir List<Alumno> en cada formato que negocia el controlador, y de comprimirlo con gzip
+// como lo hace Tomcat (server.compression). El tamaño de cada respuesta sale en los resultados como ·bytes
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacionAlumnosBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int cantidad;
+
+    @Param({"json", "smile", "cbor"})
+    private String formato;
+
+    private List<Alumno> alumnos;
+
+    private ObjectWriter escritor;
+
+    // Contador auxiliar de JMH: el tamaño de la respuesta que arma cada benchmark (con gzip en serializarYComprimir)
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Tamano {
+        public long bytes;
+        private boolean anotar;
+        private int medidas;
+
+        // JMH suma el contador de todas las iteraciones medidas: el tamaño se anota solo en la primera
+        @Setup(Level.Iteration)
+        public void iniciarIteracion(IterationParams iteracion) {
+            bytes = 0;
+            anotar = iteracion.getType() == IterationType.MEASUREMENT && medidas++ == 0;
+        }
+
+        void anotar(byte[] respuesta) {
+            if (anotar) {
+                bytes = respuesta.length;
+            }
+        }
+    }
+
+    @Setup
+    public void preparar() throws IOException {
+        // Mismo constructor que usa Spring Boot para el ObjectMapper de la aplicación (ver FormatosBinariosConfig)
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        ObjectMapper objectMapper = switch (formato) {
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            default -> builder.build();
+        };
+        escritor = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Alumno.class));
+        alumnos = IntStream.range(0, cantidad)
+                           .mapToObj(i -> new Alumno((long) i + 1, "Nombre" + i, "Apellido" + i, 18 + i % 40, "Curso" + i % 12, 0L))
+                           .toList();
+    }
+
+    @Benchmark
+    public byte[] serializarLista(Tamano tamano) throws IOException {
+        byte[] respuesta = escritor.writeValueAsBytes(alumnos);
+        tamano.anotar(respuesta);
+        return respuesta;
+    }
+
+    @Benchmark
+    public byte[] serializarYComprimir(Tamano tamano) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+            escritor.writeValue(gzip, alumnos);
+        }
+        byte[] respuesta = salida.toByteArray();
+        tamano.anotar(respuesta);
+        return respuesta;
+    }
+}
@@ -2,8 +2,11 @@ package org.springdemo.proyecto2;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+//conciliación periódica de AlumnoEstadisticas
+@EnableScheduling
 public class Proyecto2Application {
 
     public static void main(String[] args) {
@@ -0,0 +1,78 @@
+package org.springdemo.proyecto2.config;
+
+import org.springdemo.proyecto2.dto.AlumnoCursoEdad;
+import org.springdemo.proyecto2.dto.AlumnoFila;
+import org.springdemo.proyecto2.dto.AlumnoParcial;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.dto.CoincidenciaAlumno;
+import org.springdemo.proyecto2.dto.ConteoCursoEdad;
+import org.springdemo.proyecto2.dto.DeltaAlumnos;
+import org.springdemo.proyecto2.dto.ErrorDeFila;
+import org.springdemo.proyecto2.dto.EstadisticasAlumnos;
+import org.springdemo.proyecto2.dto.EstadoImportacion;
+import org.springdemo.proyecto2.dto.HuellaAlumnos;
+import org.springdemo.proyecto2.dto.PaginaAlumnos;
+import org.springdemo.proyecto2.dto.ResultadoLote;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.model.AlumnoEliminado;
+import org.springdemo.proyecto2.model.SecuenciaCambios;
+import org.springframework.aop.SpringProxy;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.DecoratingProxy;
+
+import java.util.List;
+
+//Lo que el análisis de Spring AOT no deduce solo y la imagen nativa necesita (mvn -Pnative native:compile)
+//con la JVM no cambia nada: las pistas solo se usan al generar la imagen
+@Configuration
+@ImportRuntimeHints(AotConfig.Pistas.class)
+public class AotConfig {
+
+    //JSON de entrada y salida de la API: los controladores devuelven ResponseEntity<Object>, así que los tipos
+    //no se ven en las firmas; también los lee Thymeleaf (AlumnoFila en index.html)
+    static final List<Class<?>> JSON = List.of(Alumno.class, AlumnoParcial.class, AlumnoFila.class, AlumnoVista.class,
+                                               AlumnoCursoEdad.class, CoincidenciaAlumno.class, DeltaAlumnos.class,
+                                               ErrorDeFila.class, EstadisticasAlumnos.class, EstadoImportacion.class,
+                                               PaginaAlumnos.class, ResultadoLote.class);
+
+    //Proyecciones por interfaz de las consultas nativas de AlumnoRepository: Spring Data arma un proxy JDK
+    //con estas interfaces además de la proyección
+    static final List<Class<?>> PROYECCIONES = List.of(ConteoCursoEdad.class, HuellaAlumnos.class);
+
+    static class Pistas implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), JSON.toArray(Class<?>[]::new));
+
+            PROYECCIONES.forEach(proyeccion -> {
+                hints.proxies().registerJdkProxy(TypeReference.of(proyeccion), TypeReference.of(SpringProxy.class),
+                                                 TypeReference.of(Advised.class), TypeReference.of(DecoratingProxy.class));
+                //los getters se llaman por reflexión sobre el Tuple de la fila
+                hints.reflection().registerType(proyeccion, MemberCategory.INVOKE_PUBLIC_METHODS);
+            });
+
+            //Las consultas nativas devuelven filas de alumnos que Hibernate arma por reflexión;
+            //las otras dos entidades solo aparecen en SQL nativo (alumnos_secuencia y alumnos_eliminados)
+            for (Class<?> entidad : List.of(Alumno.class, AlumnoEliminado.class, SecuenciaCambios.class)) {
+                hints.reflection().registerType(entidad, MemberCategory.DECLARED_FIELDS,
+                                                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                                                MemberCategory.INVOKE_DECLARED_METHODS);
+            }
+
+            //Plantillas de Thymeleaf, datos iniciales de Hibernate, la configuración de la caché de segundo nivel
+            //y las tablas de los shards
+            hints.resources().registerPattern("templates/*.html");
+            hints.resources().registerPattern("import.sql");
+            hints.resources().registerPattern("cache-hibernate.conf");
+            hints.resources().registerPattern("shard-esquema.sql");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.springdemo.proyecto2.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+//Cachés en memoria de la aplicación (Caffeine)
+//recordStats publica aciertos, fallos y desalojos en /actuator/metrics (cache.gets, cache.evictions)
+//modo asíncrono: la caché guarda futuros, ver AlumnoCache
+@Configuration
+public class CacheConfig {
+
+    public static final String CACHE_ALUMNOS = "alumnos";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${alumnos.cache.spec}") String especificacion) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(CACHE_ALUMNOS);
+        cacheManager.setCaffeine(Caffeine.from(especificacion).recordStats());
+        cacheManager.setAllowNullValues(false);
+        cacheManager.setAsyncCacheMode(true);
+        return cacheManager;
+    }
+}
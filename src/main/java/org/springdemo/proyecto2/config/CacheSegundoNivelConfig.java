@@ -0,0 +1,28 @@
+package org.springdemo.proyecto2.config;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Caching;
+import java.net.URI;
+
+//Caché de segundo nivel de Hibernate: el CacheManager de JCache se crea acá con hibernate.javax.cache.uri y se le
+//pasa armado. Si no, Hibernate convierte la URI en la URL del recurso y, dentro de un jar (jar:...), Caffeine no la
+//sabe leer y arranca sin las regiones de cache-hibernate.conf (con missing_cache_strategy=fail, no arranca)
+@Configuration
+public class CacheSegundoNivelConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheSegundoNivel() {
+        return propiedades -> {
+            Object uri = propiedades.remove(ConfigSettings.CONFIG_URI);
+            if (uri != null) {
+                propiedades.put(ConfigSettings.CACHE_MANAGER,
+                                Caching.getCachingProvider((String) propiedades.get(ConfigSettings.PROVIDER))
+                                       .getCacheManager(URI.create(uri.toString()), getClass().getClassLoader()));
+            }
+        };
+    }
+}
@@ -0,0 +1,238 @@
+package org.springdemo.proyecto2.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springdemo.proyecto2.service.AlumnoEvento;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+//Entrega conexiones de una réplica dentro de las transacciones readOnly y de la primaria en el resto.
+//Una réplica que falla al dar una conexión o en la verificación periódica deja de usarse hasta que
+//vuelve a responder; sin réplicas disponibles las lecturas van a la primaria.
+//Decide al pedir la conexión: por eso va detrás de un LazyConnectionDataSourceProxy (ver ReplicasConfig).
+//Lo que se lee para guardarlo en una caché (paraCache) va a la primaria durante el atraso máximo después de
+//cada escritura: una réplica atrasada devolvería la fila de antes y la caché la serviría hasta que expire.
+//Lo que se carga para mantenerlo con los eventos de cada escritura (enPrimaria) va siempre a la primaria
+public class DataSourceReplicado extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DataSourceReplicado.class);
+
+    // Peticiones que deben leer lo que escribieron (ver LecturaPropiaFilter)
+    private static final ThreadLocal<Boolean> PRIMARIA_FORZADA = new ThreadLocal<>();
+
+    // Cargas que van a quedar en una caché (AlumnoCache, listados por curso y por edad)
+    private static final ThreadLocal<Boolean> CARGA_DE_CACHE = new ThreadLocal<>();
+
+    public enum Seleccion {
+        // Una réplica tras otra
+        RONDA,
+        // La réplica con menos conexiones en uso en su pool
+        MENOS_CONEXIONES
+    }
+
+    private final DataSource primaria;
+    private final List<Replica> replicas;
+    private final Seleccion seleccion;
+    private final AtomicInteger siguiente = new AtomicInteger();
+    private final long atrasoMaximoNanos;
+    private volatile long ultimaEscritura;
+    private volatile boolean huboEscritura;
+    // La verificación espera hasta el connectionTimeout por cada réplica caída: con su propio
+    // hilo no demora las demás tareas del scheduler de Spring
+    private ScheduledExecutorService verificador;
+
+    public DataSourceReplicado(DataSource primaria, List<? extends DataSource> replicas, Seleccion seleccion) {
+        this(primaria, replicas, seleccion, Duration.ZERO);
+    }
+
+    public DataSourceReplicado(DataSource primaria, List<? extends DataSource> replicas, Seleccion seleccion,
+                               Duration atrasoMaximo) {
+        this.primaria = primaria;
+        this.replicas = IntStream.range(0, replicas.size())
+                                 .mapToObj(i -> new Replica("replica-" + (i + 1), replicas.get(i)))
+                                 .toList();
+        this.seleccion = seleccion;
+        this.atrasoMaximoNanos = atrasoMaximo.toNanos();
+    }
+
+    public static void forzarPrimaria(boolean forzar) {
+        if (forzar) {
+            PRIMARIA_FORZADA.set(Boolean.TRUE);
+        } else {
+            PRIMARIA_FORZADA.remove();
+        }
+    }
+
+    public static boolean primariaForzada() {
+        return PRIMARIA_FORZADA.get() != null;
+    }
+
+    // Sin réplicas no cambia nada: CARGA_DE_CACHE solo lo mira getConnection
+    public static <T> T paraCache(Supplier<T> carga) {
+        if (CARGA_DE_CACHE.get() != null) {
+            return carga.get();
+        }
+        CARGA_DE_CACHE.set(Boolean.TRUE);
+        try {
+            return carga.get();
+        } finally {
+            CARGA_DE_CACHE.remove();
+        }
+    }
+
+    // Índices en memoria que se cargan (o se verifican) y después se mantienen con los AlumnoEvento: lo que
+    // una réplica atrasada no vio ya no llega como evento y faltaría hasta la próxima reconstrucción
+    public static <T> T enPrimaria(Supplier<T> lectura) {
+        if (PRIMARIA_FORZADA.get() != null) {
+            return lectura.get();
+        }
+        PRIMARIA_FORZADA.set(Boolean.TRUE);
+        try {
+            return lectura.get();
+        } finally {
+            PRIMARIA_FORZADA.remove();
+        }
+    }
+
+    // Después del commit, igual que las invalidaciones de las cachés
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarAlumno(AlumnoEvento evento) {
+        ultimaEscritura = System.nanoTime();
+        huboEscritura = true;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || PRIMARIA_FORZADA.get() != null
+            || (CARGA_DE_CACHE.get() != null && dentroDelAtraso())) {
+            return primaria.getConnection();
+        }
+        Replica replica = elegir();
+        if (replica == null) {
+            return primaria.getConnection();
+        }
+        try {
+            return replica.dataSource.getConnection();
+        } catch (SQLException e) {
+            expulsar(replica, e);
+            return primaria.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Las réplicas usan el usuario de su configuración");
+    }
+
+    // Réplicas que se están usando, para la métrica alumnos.replicas.disponibles
+    public int replicasDisponibles() {
+        return (int) replicas.stream().filter(replica -> replica.disponible).count();
+    }
+
+    private boolean dentroDelAtraso() {
+        return huboEscritura && System.nanoTime() - ultimaEscritura < atrasoMaximoNanos;
+    }
+
+    private Replica elegir() {
+        List<Replica> disponibles = replicas.stream().filter(replica -> replica.disponible).toList();
+        if (disponibles.isEmpty()) {
+            return null;
+        }
+        return switch (seleccion) {
+            case RONDA -> disponibles.get(Math.floorMod(siguiente.getAndIncrement(), disponibles.size()));
+            case MENOS_CONEXIONES -> disponibles.stream()
+                                                .min(Comparator.comparingInt(Replica::conexionesActivas))
+                                                .orElseThrow();
+        };
+    }
+
+    public synchronized void iniciarVerificacion(Duration intervalo) {
+        if (verificador == null) {
+            verificador = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("verificacion-replicas").daemon().factory());
+            // Una excepción que se escapa cancelaría las verificaciones siguientes
+            verificador.scheduleWithFixedDelay(() -> {
+                try {
+                    verificar();
+                } catch (RuntimeException e) {
+                    log.warn("No se pudieron verificar las réplicas", e);
+                }
+            }, intervalo.toMillis(), intervalo.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Vuelve a admitir las réplicas que responden y saca las que no
+    public void verificar() {
+        for (Replica replica : replicas) {
+            try (Connection conexion = replica.dataSource.getConnection()) {
+                if (!conexion.isValid(1)) {
+                    throw new SQLException("La conexión no es válida");
+                }
+                if (!replica.disponible) {
+                    replica.disponible = true;
+                    log.info("La réplica {} vuelve a recibir lecturas", replica.nombre);
+                }
+            } catch (SQLException e) {
+                expulsar(replica, e);
+            }
+        }
+    }
+
+    private void expulsar(Replica replica, SQLException causa) {
+        if (replica.disponible) {
+            replica.disponible = false;
+            log.warn("La réplica {} deja de recibir lecturas: {}", replica.nombre, causa.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (verificador != null) {
+                verificador.shutdownNow();
+            }
+        }
+        replicas.stream()
+                .map(replica -> replica.dataSource)
+                .filter(HikariDataSource.class::isInstance)
+                .forEach(dataSource -> ((HikariDataSource) dataSource).close());
+    }
+
+    private static final class Replica {
+        private final String nombre;
+        private final DataSource dataSource;
+        private volatile boolean disponible = true;
+
+        Replica(String nombre, DataSource dataSource) {
+            this.nombre = nombre;
+            this.dataSource = dataSource;
+        }
+
+        // El pool de Hikari se crea con la primera conexión: hasta entonces no tiene conexiones en uso
+        int conexionesActivas() {
+            if (dataSource instanceof HikariDataSource hikari) {
+                HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+                return pool == null ? 0 : pool.getActiveConnections();
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.springdemo.proyecto2.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+//Las respuestas de la API también salen en CBOR o Smile si el cliente las pide con Accept.
+//Spring MVC ya agrega estos convertidores cuando encuentra las librerías, pero con un ObjectMapper propio:
+//estos usan el builder de Spring Boot (spring.jackson.*, módulos), así que el contenido es el mismo que en JSON.
+//Reemplazan a los de Spring en su lugar, detrás del de JSON: sin Accept, o con */*, se sigue respondiendo JSON
+@Configuration
+public class FormatosBinariosConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,49 @@
+package org.springdemo.proyecto2.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+//Lectura de lo propio con réplicas: una petición que escribe deja una cookie que dura alumnos.replicas.lectura-propia,
+//y mientras el cliente la envíe sus lecturas van a la primaria aunque la réplica todavía no tenga su escritura.
+//La cookie se agrega antes de atender la petición porque después la respuesta ya puede estar enviada.
+//Solo cubre el hilo de la petición: lo que corre en otro hilo (la exportación) sigue yendo a las réplicas
+public class LecturaPropiaFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "alumnos-escritura";
+
+    private static final Set<String> METODOS_DE_LECTURA = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final int segundos;
+
+    public LecturaPropiaFilter(Duration duracion) {
+        this.segundos = (int) Math.max(1, duracion.toSeconds());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean escribe = !METODOS_DE_LECTURA.contains(request.getMethod());
+        if (escribe) {
+            Cookie cookie = new Cookie(COOKIE, "1");
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge(segundos);
+            response.addCookie(cookie);
+        }
+        DataSourceReplicado.forzarPrimaria(escribe || WebUtils.getCookie(request, COOKIE) != null);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            DataSourceReplicado.forzarPrimaria(false);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.springdemo.proyecto2.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+//hibernate-micrometer publica por región solo la caché de entidades (hibernate.second.level.cache.*);
+//de la caché de consultas da los totales. Estas son las de cada región de consultas (cache-hibernate.conf):
+//hibernate.cache.query.region.requests{region, result=hit|miss} y hibernate.cache.query.region.puts{region}
+@Component
+public class MetricasCacheConsultas implements MeterBinder {
+
+    static final List<String> REGIONES = List.of("alumnos-consultas");
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public MetricasCacheConsultas(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (String region : REGIONES) {
+            contador(estadisticas, region, "hibernate.cache.query.region.requests", CacheRegionStatistics::getHitCount)
+                    .tag("result", "hit").register(registry);
+            contador(estadisticas, region, "hibernate.cache.query.region.requests", CacheRegionStatistics::getMissCount)
+                    .tag("result", "miss").register(registry);
+            contador(estadisticas, region, "hibernate.cache.query.region.puts", CacheRegionStatistics::getPutCount)
+                    .register(registry);
+        }
+    }
+
+    // Hibernate crea la región con la primera consulta que la usa: hasta entonces cuenta 0
+    private static FunctionCounter.Builder<Statistics> contador(Statistics estadisticas, String region,
+                                                               String nombre, ToLongFunction<CacheRegionStatistics> valor) {
+        return FunctionCounter.builder(nombre, estadisticas, e -> {
+                                  CacheRegionStatistics deLaRegion = e.getQueryRegionStatistics(region);
+                                  return deLaRegion == null ? 0 : valor.applyAsLong(deLaRegion);
+                              })
+                              .tag("region", region);
+    }
+}
@@ -0,0 +1,89 @@
+package org.springdemo.proyecto2.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+//Réplicas de lectura (alumnos.replicas.habilitadas=true): las transacciones readOnly van a alumnos.replicas.urls
+//y el resto a spring.datasource.url. Cada réplica tiene su propio pool, del mismo tamaño que el de la primaria.
+//LazyConnectionDataSourceProxy demora la conexión real hasta la primera sentencia: cuando el
+//JpaTransactionManager pide la conexión todavía no marcó la transacción como readOnly
+@Configuration
+@ConditionalOnProperty(name = "alumnos.replicas.habilitadas", havingValue = "true")
+public class ReplicasConfig {
+
+    //la primaria con las propiedades spring.datasource.* de siempre
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primariaDataSource(DataSourceProperties propiedades) {
+        HikariDataSource primaria = propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primaria.setPoolName("primaria");
+        return primaria;
+    }
+
+    @Bean
+    public DataSourceReplicado dataSourceReplicado(HikariDataSource primariaDataSource,
+                                                   @Value("${alumnos.replicas.urls}") List<String> urls,
+                                                   @Value("${alumnos.replicas.username:${spring.datasource.username}}") String usuario,
+                                                   @Value("${alumnos.replicas.password:${spring.datasource.password}}") String contrasena,
+                                                   @Value("${alumnos.replicas.seleccion:ronda}") String seleccion,
+                                                   @Value("${alumnos.replicas.verificacion:PT5S}") Duration verificacion,
+                                                   @Value("${alumnos.replicas.atraso-maximo:PT5S}") Duration atrasoMaximo,
+                                                   MeterRegistry meterRegistry) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url);
+            replica.setUsername(usuario);
+            replica.setPassword(contrasena);
+            replica.setDriverClassName(primariaDataSource.getDriverClassName());
+            replica.setMaximumPoolSize(primariaDataSource.getMaximumPoolSize());
+            replica.setConnectionTimeout(primariaDataSource.getConnectionTimeout());
+            replica.setReadOnly(true);
+            //hikaricp.connections.* con pool=replica-N
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(replica);
+        }
+        DataSourceReplicado dataSourceReplicado = new DataSourceReplicado(
+                primariaDataSource, replicas, DataSourceReplicado.Seleccion.valueOf(seleccion.toUpperCase().replace('-', '_')),
+                atrasoMaximo);
+        dataSourceReplicado.iniciarVerificacion(verificacion);
+        Gauge.builder("alumnos.replicas.disponibles", dataSourceReplicado, DataSourceReplicado::replicasDisponibles)
+             .description("Réplicas que están recibiendo lecturas")
+             .register(meterRegistry);
+        return dataSourceReplicado;
+    }
+
+    //el DataSource que usan JPA y los repositorios
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceReplicado dataSourceReplicado) {
+        return new LazyConnectionDataSourceProxy(dataSourceReplicado);
+    }
+
+    //con alumnos.replicas.lectura-propia=0 no se fuerza la primaria después de escribir
+    @Bean
+    public FilterRegistrationBean<LecturaPropiaFilter> lecturaPropiaFilter(
+            @Value("${alumnos.replicas.lectura-propia:PT5S}") Duration duracion) {
+        FilterRegistrationBean<LecturaPropiaFilter> registro = new FilterRegistrationBean<>(new LecturaPropiaFilter(duracion));
+        registro.setEnabled(!duracion.isZero());
+        return registro;
+    }
+}
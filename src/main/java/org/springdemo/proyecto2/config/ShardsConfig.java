@@ -0,0 +1,54 @@
+package org.springdemo.proyecto2.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springdemo.proyecto2.repository.AlumnoShards;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Shards (alumnos.shards.habilitados=true): la tabla alumnos se reparte entre las bases de alumnos.shards.urls y
+//AlumnoServiceImpl la usa con AlumnoShards en lugar de AlumnoAlmacenJpa. spring.datasource.url sigue existiendo para lo que no se
+//reparte (Hibernate arranca contra ella) pero ya no guarda alumnos.
+//El número de cada shard es su posición en alumnos.shards.urls y va dentro de cada ID: se pueden agregar URLs al
+//final, pero no quitarlas ni cambiarlas de orden. Las filas existentes no se mueven al agregar un shard
+@Configuration
+@ConditionalOnProperty(name = "alumnos.shards.habilitados", havingValue = "true")
+public class ShardsConfig {
+
+    @Bean
+    public AlumnoShards alumnoShards(@Value("${alumnos.shards.urls}") List<String> urls,
+                                     @Value("${alumnos.shards.username:${spring.datasource.username}}") String usuario,
+                                     @Value("${alumnos.shards.password:${spring.datasource.password}}") String contrasena,
+                                     @Value("${alumnos.shards.particion:id}") String particion,
+                                     @Value("${alumnos.shards.bloque-ids:1000}") int bloqueIds,
+                                     @Value("${alumnos.shards.tamano-pool:10}") int tamanoPool,
+                                     @Value("${alumnos.shards.profundidad-maxima:10000}") int profundidadMaxima,
+                                     @Value("${alumnos.shards.crear-esquema:true}") boolean crearEsquema,
+                                     MeterRegistry meterRegistry) {
+        List<HikariDataSource> bases = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource base = new HikariDataSource();
+            base.setPoolName("shard-" + bases.size());
+            base.setJdbcUrl(url);
+            base.setUsername(usuario);
+            base.setPassword(contrasena);
+            base.setMaximumPoolSize(tamanoPool);
+            //hikaricp.connections.* con pool=shard-N
+            base.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            bases.add(base);
+        }
+        if (crearEsquema) {
+            ResourceDatabasePopulator esquema = new ResourceDatabasePopulator(new ClassPathResource("shard-esquema.sql"));
+            bases.forEach(esquema::execute);
+        }
+        return new AlumnoShards(bases, AlumnoShards.Particion.valueOf(particion.toUpperCase()), bloqueIds, profundidadMaxima);
+    }
+}
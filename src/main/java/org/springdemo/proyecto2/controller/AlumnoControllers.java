@@ -1,9 +1,12 @@
 package org.springdemo.proyecto2.controller;
 
 import org.springframework.ui.Model;
+import org.springdemo.proyecto2.dto.AlumnoFila;
 import org.springdemo.proyecto2.service.AlumnoService;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 @Controller
 public class AlumnoControllers {
@@ -14,11 +17,50 @@ public class AlumnoControllers {
         this.alumnoService = alumnoService;
     }
 
+    // Una página del listado: /?pagina=0&tamano=50&orden=apellido&direccion=desc
+    // Los parámetros vienen de un enlace: un número que no se entiende se toma como si no estuviera,
+    // igual que una columna o dirección desconocida, en lugar de responder la página de error
     @GetMapping("/")
-    public String index(Model model) {
-        model.addAttribute("alumnos", alumnoService.obtenerTodosLosAlumnos());
+    public String index(@RequestParam(required = false) String pagina,
+                        @RequestParam(required = false) String tamano,
+                        @RequestParam(defaultValue = "id") String orden,
+                        @RequestParam(defaultValue = "asc") String direccion,
+                        Model model) {
+        Integer numeroDePagina = numero(pagina);
+        Page<AlumnoFila> alumnos = alumnoService.obtenerPaginaDelListado(numeroDePagina == null ? 0 : numeroDePagina,
+                                                                         numero(tamano), orden, direccion);
+        model.addAttribute("alumnos", alumnos);
+        model.addAttribute("completo", false);
+        // Con shards las páginas del medio de un listado grande no se pueden ordenar: Anterior y Siguiente
+        // solo llevan hasta donde se puede, y una página más adentro pedida a mano lo avisa en lugar de salir vacía
+        long total = alumnos.getTotalElements();
+        model.addAttribute("fueraDeAlcance", alumnos.getNumber() < alumnos.getTotalPages()
+                                             && !alumnoService.puedeMostrarPaginaDelListado(alumnos.getPageable(), total));
+        model.addAttribute("anteriorAlcanzable", alumnos.hasPrevious()
+                                                 && alumnoService.puedeMostrarPaginaDelListado(alumnos.previousPageable(), total));
+        model.addAttribute("siguienteAlcanzable", alumnos.hasNext()
+                                                  && alumnoService.puedeMostrarPaginaDelListado(alumnos.nextPageable(), total));
         return "index";
 
     }
 
+    private static Integer numero(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(valor.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Todos los alumnos en orden de ID: la tabla se escribe mientras se leen los bloques
+    @GetMapping("/todos")
+    public String todos(Model model) {
+        model.addAttribute("alumnos", alumnoService.recorrerListadoDeAlumnos());
+        model.addAttribute("completo", true);
+        return "index";
+    }
+
     }
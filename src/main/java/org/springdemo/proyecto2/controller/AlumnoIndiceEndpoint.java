@@ -0,0 +1,35 @@
+package org.springdemo.proyecto2.controller;
+
+import org.springdemo.proyecto2.service.AlumnoIndiceMemoria;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+//GET /actuator/indicealumnos compara el índice en memoria con la base de datos
+//POST /actuator/indicealumnos lo vuelve a construir desde cero
+@Component
+@ConditionalOnExpression("${alumnos.indice-memoria.habilitado:false} and !${alumnos.shards.habilitados:false}")
+@Endpoint(id = "indicealumnos")
+public class AlumnoIndiceEndpoint {
+
+    private final AlumnoIndiceMemoria indiceMemoria;
+
+    public AlumnoIndiceEndpoint(AlumnoIndiceMemoria indiceMemoria) {
+        this.indiceMemoria = indiceMemoria;
+    }
+
+    @ReadOperation
+    public Map<String, Object> verificar() {
+        return indiceMemoria.verificarConsistencia();
+    }
+
+    @WriteOperation
+    public Map<String, Object> reconstruir() {
+        indiceMemoria.construir();
+        return indiceMemoria.verificarConsistencia();
+    }
+}
@@ -1,12 +1,44 @@
 package org.springdemo.proyecto2.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import org.springdemo.proyecto2.dto.AlumnoParcial;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.dto.CoincidenciaAlumno;
+import org.springdemo.proyecto2.dto.EstadoImportacion;
+import org.springdemo.proyecto2.dto.PaginaAlumnos;
+import org.springdemo.proyecto2.dto.ResultadoLote;
 import org.springdemo.proyecto2.model.Alumno;
 import org.springdemo.proyecto2.service.AlumnoService;
+import org.springdemo.proyecto2.service.EscrituraAgrupada;
+import org.springdemo.proyecto2.service.FeedCambiosAlumnos;
+import org.springdemo.proyecto2.service.ImportacionAlumnos;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,10 +47,28 @@ import java.util.Map;
 @RequestMapping("/api/alumnos")
 public class AlumnoRestControllers {
 
+    // Formatos binarios de FormatosBinariosConfig y el sufijo de su ETag
+    private static final Map<MediaType, String> FORMATOS_BINARIOS = Map.of(
+            MediaType.APPLICATION_CBOR, "cbor",
+            new MediaType("application", "x-jackson-smile"), "smile");
+
     //Inyección del servicio de alumnos
     @Autowired
     private AlumnoService alumnoService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ImportacionAlumnos importacionAlumnos;
+
+    @Autowired
+    private FeedCambiosAlumnos feedCambiosAlumnos;
+
+    // Solo existe con alumnos.escritura-agrupada.habilitada=true
+    @Autowired(required = false)
+    private EscrituraAgrupada escrituraAgrupada;
+
     // Manejador global de excepciones para este controlador
     @ResponseStatus(HttpStatus.NOT_FOUND)
     @ExceptionHandler(RuntimeException.class)
@@ -28,26 +78,138 @@ public class AlumnoRestControllers {
         return error;
     }
 
-    //Obtiene todos los alumnos
+    //Obtiene los alumnos paginados por cursor (?after=<cursor>&limit=N)
     @GetMapping
-    public ResponseEntity<List<Alumno>> obtenerTodosLosAlumnos() {
+    public ResponseEntity<Object> obtenerTodosLosAlumnos(
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            WebRequest request) {
         try {
-            List<Alumno> alumnos = alumnoService.obtenerTodosLosAlumnos();
-            if (alumnos.isEmpty()) {
+            String etag = etagDelFormato(alumnoService.calcularEtagPagina(after, limit), request);
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
+            PaginaAlumnos pagina = alumnoService.obtenerAlumnosPaginados(after, limit);
+            if (pagina.alumnos().isEmpty()) {
                 return ResponseEntity.noContent().build();
             }
-            return ResponseEntity.ok(alumnos);
+            return conEtag(etag).body(pagina);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Parámetros de paginación inválidos");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    //Cambios desde un token de sincronización (?since=): alumnos nuevos o modificados e IDs eliminados, de a ?limit=.
+    //Sin since devuelve solo el token actual; 410 si el token es más viejo que las bajas guardadas (recargar todo).
+    //Con shards el token lleva una posición por shard
+    @GetMapping("/delta")
+    public ResponseEntity<Object> obtenerCambios(@RequestParam(name = "since", required = false) String since,
+                                                 @RequestParam(name = "limit", required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok()
+                                 .cacheControl(CacheControl.noStore())
+                                 .body(alumnoService.obtenerCambiosDesde(since, limit));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Parámetros de sincronización inválidos");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IllegalStateException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "El token de sincronización venció");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.status(HttpStatus.GONE).body(response);
+        }
+    }
+
+    //Exporta todos los alumnos como NDJSON (un objeto JSON por línea) sin armar la lista en memoria
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarAlumnos() {
+        // Sin flush por fila: el generador vacía su búfer cuando se llena
+        ObjectWriter escritor = objectMapper.writerFor(Alumno.class)
+                                            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody cuerpo = salida -> {
+            try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+                generador.setRootValueSeparator(null);
+                alumnoService.exportarAlumnos(alumno -> {
+                    try {
+                        escritor.writeValue(generador, alumno);
+                        generador.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                             .contentType(MediaType.APPLICATION_NDJSON)
+                             .body(cuerpo);
+    }
+
+    //Feed de altas (created), modificaciones (updated) y bajas (deleted) como Server-Sent Events. Con Last-Event-ID
+    //sigue desde el último evento recibido; un evento resync pide volver a leer la lista y reconectarse con su id
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> seguirCambios(@RequestHeader(name = "Last-Event-ID", required = false) String ultimoId) {
+        try {
+            return ResponseEntity.ok()
+                                 .cacheControl(CacheControl.noStore())
+                                 // Que un proxy (nginx) no junte los eventos antes de reenviarlos
+                                 .header("X-Accel-Buffering", "no")
+                                 .body(feedCambiosAlumnos.suscribir(ultimoId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                 .header(HttpHeaders.RETRY_AFTER, "30")
+                                 .build();
+        }
+    }
+
+    //Busca alumnos por nombre o apellido (?q=gonz&limit=10); una lista vacía no es un error
+    @GetMapping("/search")
+    public ResponseEntity<Object> buscarAlumnos(@RequestParam(name = "q", required = false) String q,
+                                                @RequestParam(name = "limit", required = false) Integer limit) {
+        try {
+            List<CoincidenciaAlumno> coincidencias = alumnoService.buscarAlumnos(q, limit);
+            return ResponseEntity.ok(coincidencias);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Parámetros de búsqueda inválidos");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IllegalStateException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "La búsqueda no está disponible");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Object> obtenerEstadisticas() {
+        try {
+            return ResponseEntity.ok(alumnoService.obtenerEstadisticas());
+        } catch (IllegalStateException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Las estadísticas no están disponibles");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+    }
+
     //Obtiene un alumno por su ID
     @GetMapping("/{id}")
-    public ResponseEntity<Object> obtenerAlumnoPorId(@PathVariable Long id) {
+    public ResponseEntity<Object> obtenerAlumnoPorId(@PathVariable Long id, WebRequest request) {
         try {
             Alumno alumno = alumnoService.obtenerAlumnoPorId(id);
-            return ResponseEntity.ok(alumno);
+            String etag = etagDelFormato(etagDeVersion(alumno), request);
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
+            return conEtag(etag).body(alumno);
         } catch (RuntimeException e) {
             Map<String, String> response = new HashMap<>();
             response.put("error", "No se encontró el alumno con ID: " + id);
@@ -60,8 +222,31 @@ public class AlumnoRestControllers {
     @PostMapping
     public ResponseEntity<Object> crearAlumno(@RequestBody Alumno alumno) {
         try {
-            Alumno nuevoAlumno = alumnoService.guardarAlumno(alumno);
+            // Con la escritura agrupada el alta espera el commit compartido sin tomar una conexión
+            Alumno nuevoAlumno = escrituraAgrupada != null
+                    ? escrituraAgrupada.guardar(alumno)
+                    : alumnoService.guardarAlumno(alumno);
             return ResponseEntity.status(HttpStatus.CREATED).body(nuevoAlumno);
+        } catch (TaskRejectedException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Demasiadas altas simultáneas");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                                 .header(HttpHeaders.RETRY_AFTER, "1")
+                                 .body(response);
+        } catch (IllegalStateException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "No se pudo confirmar el alta");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        } catch (DataAccessException e) {
+            // Una restricción de la tabla es un problema del alta (400); cualquier otro error es de la base (503)
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Error al crear el alumno");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.status(e instanceof DataIntegrityViolationException
+                                                 ? HttpStatus.BAD_REQUEST : HttpStatus.SERVICE_UNAVAILABLE)
+                                 .body(response);
         } catch (Exception e) {
             Map<String, String> response = new HashMap<>();
             response.put("error", "Error al crear el alumno");
@@ -70,12 +255,107 @@ public class AlumnoRestControllers {
         }
     }
 
+    //Crea muchos alumnos de una vez: acepta un arreglo JSON o NDJSON y lo lee como flujo
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<Object> crearAlumnosEnLote(InputStream cuerpo) {
+        try (MappingIterator<Alumno> alumnos = objectMapper.readerFor(Alumno.class).readValues(cuerpo)) {
+            List<ResultadoLote> resultados = alumnoService.guardarAlumnosEnLote(alumnos);
+            boolean todosExitosos = resultados.stream().allMatch(ResultadoLote::esExitoso);
+            return ResponseEntity.status(todosExitosos ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS)
+                                 .body(resultados);
+        } catch (IOException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Error al leer los alumnos");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    //Importa alumnos desde un archivo CSV o NDJSON (parte "archivo") en segundo plano; responde 202 con el ID
+    //de la importación. formato=csv|ndjson si no se deduce de la extensión o del tipo de contenido
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Object> importarAlumnos(@RequestParam("archivo") MultipartFile archivo,
+                                                  @RequestParam(name = "formato", required = false) String formato) {
+        try {
+            EstadoImportacion estado = importacionAlumnos.iniciar(archivo, formato);
+            return ResponseEntity.accepted()
+                                 .location(URI.create("/api/alumnos/import/" + estado.id()))
+                                 .body(estado);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Archivo de importación inválido");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IllegalStateException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "No se aceptan más importaciones por ahora");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        } catch (IOException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Error al recibir el archivo");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    //Avance de una importación: filas leídas, insertadas, rechazadas y el error de cada fila rechazada
+    @GetMapping("/import/{id}")
+    public ResponseEntity<Object> obtenerImportacion(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(importacionAlumnos.obtener(id));
+        } catch (RuntimeException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "No se encontró la importación con ID: " + id);
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+    }
+
     //Actualizar un alumno existente
     @PutMapping("/{id}")
-    public ResponseEntity<Object> actualizarAlumno(@PathVariable Long id, @RequestBody Alumno alumno) {
+    public ResponseEntity<Object> actualizarAlumno(@PathVariable Long id, @RequestBody Alumno alumno,
+                                                   @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                   WebRequest request) {
         try {
-            Alumno alumnoActualizado = alumnoService.actualizarAlumno(id, alumno);
-            return ResponseEntity.ok(alumnoActualizado);
+            Alumno alumnoActualizado = alumnoService.actualizarAlumno(id, alumno, versionDeIfMatch(ifMatch));
+            return conEtag(etagDelFormato(etagDeVersion(alumnoActualizado), request)).body(alumnoActualizado);
+        } catch (OptimisticLockingFailureException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "El alumno fue modificado por otra petición");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Encabezado If-Match inválido");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (RuntimeException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Error al actualizar el alumno");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+    }
+
+    //Actualiza solo los campos enviados
+    @PatchMapping("/{id}")
+    public ResponseEntity<Object> actualizarAlumnoParcialmente(@PathVariable Long id, @RequestBody AlumnoParcial cambios,
+                                                               @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                               WebRequest request) {
+        try {
+            Alumno alumnoActualizado = alumnoService.actualizarAlumnoParcialmente(id, cambios, versionDeIfMatch(ifMatch));
+            return conEtag(etagDelFormato(etagDeVersion(alumnoActualizado), request)).body(alumnoActualizado);
+        } catch (OptimisticLockingFailureException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "El alumno fue modificado por otra petición");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Error al actualizar el alumno");
+            response.put("detalles", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         } catch (RuntimeException e) {
             Map<String, String> response = new HashMap<>();
             response.put("error", "Error al actualizar el alumno");
@@ -101,15 +381,21 @@ public class AlumnoRestControllers {
 
     //Busca un alumno por curso
     @GetMapping("/curso/{curso}")
-    public ResponseEntity<Object> obtenerAlumnosPorCurso(@PathVariable String curso) {
+    public ResponseEntity<Object> obtenerAlumnosPorCurso(@PathVariable String curso, WebRequest request) {
         try {
-            List<Alumno> alumnos = alumnoService.obtenerAlumnosPorCurso(curso);
+            String etag = etagDelFormato(alumnoService.calcularEtagPorCurso(curso), request);
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
+            List<AlumnoVista> alumnos = alumnoService.obtenerAlumnosPorCurso(curso);
             if (alumnos.isEmpty()) {
                 Map<String, String> response = new HashMap<>();
                 response.put("mensaje", "No se encontraron alumnos en el curso: " + curso);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
             }
-            return ResponseEntity.ok(alumnos);
+            return conEtag(etag).body(alumnos);
+        } catch (IllegalStateException e) {
+            return consultaDemorada(e);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -119,18 +405,100 @@ public class AlumnoRestControllers {
     @GetMapping("/edad/{edadMinima}-{edadMaxima}")
     public ResponseEntity<Object> obtenerAlumnosPorRangoEdad(
             @PathVariable int edadMinima,
-            @PathVariable int edadMaxima) {
+            @PathVariable int edadMaxima,
+            WebRequest request) {
         try {
-            List<Alumno> alumnos = alumnoService.obtenerAlumnosPorRangoEdad(edadMinima, edadMaxima);
+            String etag = etagDelFormato(alumnoService.calcularEtagPorRangoEdad(edadMinima, edadMaxima), request);
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
+            List<AlumnoVista> alumnos = alumnoService.obtenerAlumnosPorRangoEdad(edadMinima, edadMaxima);
             if (alumnos.isEmpty()) {
                 Map<String, String> response = new HashMap<>();
                 response.put("mensaje", "No se encontraron alumnos en el rango de edad: " + edadMinima + " - " + edadMaxima);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
             }
-            return ResponseEntity.ok(alumnos);
+            return conEtag(etag).body(alumnos);
+        } catch (IllegalStateException e) {
+            return consultaDemorada(e);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
-}
+    // Se venció la espera a la misma consulta hecha por otra petición (ConsultasCompartidas)
+    private static ResponseEntity<Object> consultaDemorada(IllegalStateException e) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", "La consulta está tardando demasiado");
+        response.put("detalles", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+
+    // no-cache (en lugar del no-store que pone Spring Security) para que el cliente
+    // guarde la respuesta y la revalide con If-None-Match
+    // Vary: Accept porque el cuerpo depende del formato pedido
+    private static ResponseEntity.BodyBuilder conEtag(String etag) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT);
+    }
+
+    // Cada formato es otra representación y necesita su propio ETag: si JSON y CBOR compartieran uno,
+    // una caché que revalida con If-None-Match podría devolver el JSON guardado a quien pidió CBOR.
+    // JSON queda igual ("3"), los binarios llevan el formato ("3-cbor")
+    private static String etagDelFormato(String etag, WebRequest request) {
+        String formato = formatoBinarioPedido(request.getHeader(HttpHeaders.ACCEPT));
+        return formato == null ? etag : etag.substring(0, etag.length() - 1) + "-" + formato + "\"";
+    }
+
+    // El formato que va a elegir Spring: el primer tipo aceptado que coincide con JSON, CBOR o Smile,
+    // en ese orden de preferencia; null es JSON
+    private static String formatoBinarioPedido(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return null;
+        }
+        List<MediaType> aceptados;
+        try {
+            aceptados = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        MimeTypeUtils.sortBySpecificity(aceptados);
+        for (MediaType aceptado : aceptados) {
+            if (aceptado.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return null;
+            }
+            for (Map.Entry<MediaType, String> formato : FORMATOS_BINARIOS.entrySet()) {
+                if (aceptado.isCompatibleWith(formato.getKey())) {
+                    return formato.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String etagDeVersion(Alumno alumno) {
+        return "\"" + alumno.getVersion() + "\"";
+    }
+
+    // If-Match: "3" -> 3; sin encabezado o con * se acepta cualquier versión
+    private static Long versionDeIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String valor = ifMatch.trim();
+        if (valor.startsWith("W/")) {
+            valor = valor.substring(2);
+        }
+        valor = valor.replace("\"", "");
+        // sin el formato de etagDelFormato: "3-cbor" -> 3
+        int guion = valor.indexOf('-');
+        if (guion > 0) {
+            valor = valor.substring(0, guion);
+        }
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match no corresponde a una versión: " + ifMatch);
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,5 @@
+package org.springdemo.proyecto2.dto;
+
+// Lo único que necesitan las estadísticas de cada alumno; la versión ordena los eventos que llegan después
+public record AlumnoCursoEdad(Long id, String curso, int edad, Long version) {
+}
@@ -0,0 +1,5 @@
+package org.springdemo.proyecto2.dto;
+
+// Fila de la tabla de index.html: solo las columnas que se muestran (sin version)
+public record AlumnoFila(Long id, String nombre, String apellido, int edad, String curso) {
+}
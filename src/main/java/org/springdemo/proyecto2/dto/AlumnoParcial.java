@@ -0,0 +1,9 @@
+package org.springdemo.proyecto2.dto;
+
+// Cuerpo de PATCH /api/alumnos/{id}: los campos en null no se modifican
+public record AlumnoParcial(String nombre, String apellido, Integer edad, String curso) {
+
+    public boolean estaVacio() {
+        return nombre == null && apellido == null && edad == null && curso == null;
+    }
+}
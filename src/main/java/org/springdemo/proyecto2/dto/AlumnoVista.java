@@ -0,0 +1,13 @@
+package org.springdemo.proyecto2.dto;
+
+import org.springdemo.proyecto2.model.Alumno;
+
+// Alumno de solo lectura para los listados de la API: mismo JSON que Alumno, pero se arma
+// directo desde las columnas (SELECT new ...), sin entidad gestionada ni copia para dirty checking
+public record AlumnoVista(Long id, String nombre, String apellido, int edad, String curso, Long version) {
+
+    public static AlumnoVista de(Alumno alumno) {
+        return new AlumnoVista(alumno.getId(), alumno.getNombre(), alumno.getApellido(),
+                               alumno.getEdad(), alumno.getCurso(), alumno.getVersion());
+    }
+}
@@ -0,0 +1,5 @@
+package org.springdemo.proyecto2.dto;
+
+// Resultado de GET /api/alumnos/search: puntaje 1.0 significa que todas las palabras coincidieron exactas
+public record CoincidenciaAlumno(Long id, String nombre, String apellido, double puntaje) {
+}
@@ -0,0 +1,11 @@
+package org.springdemo.proyecto2.dto;
+
+// Una fila del GROUP BY curso, edad con el que se concilian las estadísticas en memoria
+public interface ConteoCursoEdad {
+
+    String getCurso();
+
+    Number getEdad();
+
+    Number getTotal();
+}
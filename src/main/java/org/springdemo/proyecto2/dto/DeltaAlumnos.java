@@ -0,0 +1,110 @@
+package org.springdemo.proyecto2.dto;
+
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.model.AlumnoEliminado;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+// Cambios desde un token de sincronización: los alumnos dados de alta o modificados (con sus datos actuales)
+// y los IDs eliminados. El cliente guarda siguienteToken y lo manda en ?since=; con hayMas pide enseguida otra vez.
+// El token lleva una posición por base: una con la base principal, una por shard con alumnos.shards.habilitados=true
+public record DeltaAlumnos(List<Alumno> alumnos, List<Long> eliminados, String siguienteToken, boolean hayMas) {
+
+    private static final String PREFIJO = "delta:";
+
+    // Posición en el orden (secuencia, id) de los cambios; id = Long.MAX_VALUE cubre toda la secuencia
+    public record Posicion(long secuencia, long id) implements Comparable<Posicion> {
+
+        @Override
+        public int compareTo(Posicion otra) {
+            int porSecuencia = Long.compare(secuencia, otra.secuencia);
+            return porSecuencia != 0 ? porSecuencia : Long.compare(id, otra.id);
+        }
+    }
+
+    // Un alta o modificación (alumno) o una baja (eliminado, el ID) en su posición
+    public record Cambio(Posicion posicion, Alumno alumno, Long eliminado) {
+    }
+
+    // Intercala alumnos y bajas de una misma base, cada lista ya en orden (secuencia, id), hasta limite cambios.
+    // Si cada lista trae limite filas, los primeros limite cambios intercalados son los primeros de la base
+    public static List<Cambio> intercalar(List<Alumno> cambiados, List<AlumnoEliminado> eliminados, int limite) {
+        List<Cambio> cambios = new ArrayList<>(Math.min(limite, cambiados.size() + eliminados.size()));
+        int a = 0;
+        int e = 0;
+        while (cambios.size() < limite && (a < cambiados.size() || e < eliminados.size())) {
+            Posicion deAlumno = a < cambiados.size()
+                    ? new Posicion(cambiados.get(a).getSecuencia(), cambiados.get(a).getId()) : null;
+            Posicion deEliminado = e < eliminados.size()
+                    ? new Posicion(eliminados.get(e).getSecuencia(), eliminados.get(e).getId()) : null;
+            if (deEliminado == null || (deAlumno != null && deAlumno.compareTo(deEliminado) < 0)) {
+                cambios.add(new Cambio(deAlumno, cambiados.get(a++), null));
+            } else {
+                cambios.add(new Cambio(deEliminado, null, eliminados.get(e++).getId()));
+            }
+        }
+        return cambios;
+    }
+
+    public static DeltaAlumnos de(List<Cambio> cambios, String siguienteToken, boolean hayMas) {
+        List<Alumno> alumnos = new ArrayList<>();
+        List<Long> eliminados = new ArrayList<>();
+        cambios.forEach(cambio -> {
+            if (cambio.alumno() != null) {
+                alumnos.add(cambio.alumno());
+            } else {
+                eliminados.add(cambio.eliminado());
+            }
+        });
+        return new DeltaAlumnos(List.copyOf(alumnos), List.copyOf(eliminados), siguienteToken, hayMas);
+    }
+
+    public static String codificarToken(Posicion posicion) {
+        return codificarToken(List.of(posicion));
+    }
+
+    // Las posiciones separadas por coma, en el orden de las bases
+    public static String codificarToken(List<Posicion> posiciones) {
+        StringBuilder valor = new StringBuilder(PREFIJO);
+        posiciones.forEach(posicion -> valor.append(valor.length() > PREFIJO.length() ? "," : "")
+                                            .append(posicion.secuencia()).append(':').append(posicion.id()));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Un token de una sola base
+    public static Posicion decodificarToken(String token) {
+        List<Posicion> posiciones = decodificarPosiciones(token);
+        if (posiciones.size() != 1) {
+            throw new IllegalArgumentException("Token de sincronización inválido: " + token);
+        }
+        return posiciones.get(0);
+    }
+
+    public static List<Posicion> decodificarPosiciones(String token) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!valor.startsWith(PREFIJO)) {
+                throw new IllegalArgumentException("Token de sincronización inválido: " + token);
+            }
+            List<Posicion> posiciones = new ArrayList<>();
+            for (String parte : valor.substring(PREFIJO.length()).split(",")) {
+                String[] numeros = parte.split(":");
+                if (numeros.length != 2) {
+                    throw new IllegalArgumentException("Token de sincronización inválido: " + token);
+                }
+                Posicion posicion = new Posicion(Long.parseLong(numeros[0]), Long.parseLong(numeros[1]));
+                if (posicion.secuencia() < 0 || posicion.id() < 0) {
+                    throw new IllegalArgumentException("Token de sincronización inválido: " + token);
+                }
+                posiciones.add(posicion);
+            }
+            return posiciones;
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException también es IllegalArgumentException
+            throw new IllegalArgumentException("Token de sincronización inválido: " + token, e);
+        }
+    }
+}
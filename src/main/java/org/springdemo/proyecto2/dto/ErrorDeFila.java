@@ -0,0 +1,5 @@
+package org.springdemo.proyecto2.dto;
+
+// Fila rechazada de una importación: fila es el número de línea en el archivo (la cabecera del CSV es la 1)
+public record ErrorDeFila(long fila, String error) {
+}
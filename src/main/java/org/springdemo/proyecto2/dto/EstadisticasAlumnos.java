@@ -0,0 +1,12 @@
+package org.springdemo.proyecto2.dto;
+
+import java.util.Map;
+
+// Respuesta de GET /api/alumnos/stats. Sin alumnos, edadMinima, edadPromedio y edadMaxima son null
+public record EstadisticasAlumnos(long total,
+                                  Map<String, Long> porCurso,
+                                  Map<Integer, Long> histogramaEdad,
+                                  Integer edadMinima,
+                                  Double edadPromedio,
+                                  Integer edadMaxima) {
+}
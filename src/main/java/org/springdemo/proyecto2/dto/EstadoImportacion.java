@@ -0,0 +1,21 @@
+package org.springdemo.proyecto2.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+// Respuesta de POST /api/alumnos/import y GET /api/alumnos/import/{id}.
+// estado: EN_COLA, EN_CURSO, TERMINADA o FALLIDA (el archivo no se pudo leer o falló la base de datos; error dice por qué).
+// filasLeidas = insertados + rechazados + las que todavía esperan su lote.
+// errores guarda los primeros rechazos; erroresOmitidos cuenta los que ya no entraron
+public record EstadoImportacion(String id,
+                                String formato,
+                                String estado,
+                                long filasLeidas,
+                                long insertados,
+                                long rechazados,
+                                List<ErrorDeFila> errores,
+                                long erroresOmitidos,
+                                Instant creada,
+                                Instant terminada,
+                                String error) {
+}
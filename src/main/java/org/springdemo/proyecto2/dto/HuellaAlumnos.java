@@ -0,0 +1,43 @@
+package org.springdemo.proyecto2.dto;
+
+// Resumen barato de un conjunto de filas para armar el ETag de un listado:
+// un alta o baja cambia el total y la suma de IDs, una modificación cambia la suma de versiones
+public interface HuellaAlumnos {
+
+    Number getTotal();
+
+    Number getSumaIds();
+
+    Number getSumaVersiones();
+
+    // La misma huella calculada sin consulta, sobre filas que ya están en memoria
+    static HuellaAlumnos de(long total, long sumaIds, long sumaVersiones) {
+        return new Calculada(total, sumaIds, sumaVersiones);
+    }
+
+    // Débil: dice que el listado no cambió, no que los bytes sean los mismos (Tomcat no comprime
+    // respuestas con ETag fuerte, porque el cuerpo comprimido ya no coincidiría con él)
+    default String comoEtag() {
+        return "W/\"" + Long.toHexString(getTotal().longValue())
+                + "-" + Long.toHexString(getSumaIds().longValue())
+                + "-" + Long.toHexString(getSumaVersiones().longValue()) + "\"";
+    }
+
+    record Calculada(long total, long sumaIds, long sumaVersiones) implements HuellaAlumnos {
+
+        @Override
+        public Number getTotal() {
+            return total;
+        }
+
+        @Override
+        public Number getSumaIds() {
+            return sumaIds;
+        }
+
+        @Override
+        public Number getSumaVersiones() {
+            return sumaVersiones;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.springdemo.proyecto2.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+// Página de alumnos obtenida por cursor (keyset): el cliente solo ve un token opaco
+// y lo devuelve en ?after= para pedir la página siguiente
+public record PaginaAlumnos(List<AlumnoVista> alumnos, String siguienteCursor) {
+
+    private static final String PREFIJO = "id:";
+
+    // Codifica el último ID de la página como cursor opaco
+    public static String codificarCursor(Long ultimoId) {
+        String valor = PREFIJO + ultimoId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Decodifica el cursor recibido; un cursor nulo o vacío significa "desde el principio"
+    public static long decodificarCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!valor.startsWith(PREFIJO)) {
+                throw new IllegalArgumentException("Cursor inválido: " + cursor);
+            }
+            return Long.parseLong(valor.substring(PREFIJO.length()));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException también es IllegalArgumentException
+            throw new IllegalArgumentException("Cursor inválido: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.springdemo.proyecto2.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// Resultado de un lote de la carga masiva: cada lote se confirma en su propia transacción.
+// datosInvalidos distingue un lote que la base de datos rechazó por sus filas (una restricción, un valor
+// demasiado largo) de uno que falló por la base misma (conexión, bloqueo, tiempo de espera)
+public record ResultadoLote(int lote, int recibidos, int insertados, Long primerId, Long ultimoId, String error,
+                            @JsonIgnore boolean datosInvalidos) {
+
+    public static ResultadoLote exitoso(int lote, int recibidos, int insertados, Long primerId, Long ultimoId) {
+        return new ResultadoLote(lote, recibidos, insertados, primerId, ultimoId, null, false);
+    }
+
+    public static ResultadoLote fallido(int lote, int recibidos, String error) {
+        return new ResultadoLote(lote, recibidos, 0, null, null, error, false);
+    }
+
+    public static ResultadoLote rechazado(int lote, int recibidos, String error) {
+        return new ResultadoLote(lote, recibidos, 0, null, null, error, true);
+    }
+
+    public boolean esExitoso() {
+        return error == null;
+    }
+}
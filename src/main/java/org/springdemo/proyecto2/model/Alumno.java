@@ -1,7 +1,15 @@
 package org.springdemo.proyecto2.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CurrentTimestamp;
+import org.hibernate.annotations.SourceType;
+
+import java.time.Instant;
 
 @Getter
 @Setter
@@ -9,7 +17,16 @@ import lombok.*;
 @AllArgsConstructor
 @ToString
 @Entity
-@Table(name = "alumnos")
+//caché de segundo nivel (región alumnos-entidades, ver cache-hibernate.conf); las escrituras nativas la invalidan
+//declarando la tabla alumnos, ver AlumnoRepository
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "alumnos-entidades")
+//índices para /curso/{curso} y /edad/{min}-{max}, que si no recorren toda la tabla, y para /delta
+@Table(name = "alumnos", indexes = {
+        @Index(name = "idx_alumnos_curso", columnList = "curso"),
+        @Index(name = "idx_alumnos_edad", columnList = "edad"),
+        @Index(name = "idx_alumnos_secuencia", columnList = "secuencia, id")
+})
 public class Alumno {
 
     @Id
@@ -23,4 +40,29 @@ public class Alumno {
     private int edad;
     @Column(name = "curso", length = 15)
     private String curso;
+    //se incrementa en cada actualización: bloqueo optimista y ETag de la respuesta
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+    //número del último cambio (alta o modificación), el mismo para todas las filas de una transacción;
+    //ver SecuenciaCambios y GET /api/alumnos/delta
+    @ColumnDefault("0")
+    @Column(name = "secuencia", nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long secuencia;
+    //lo pone la base de datos, también en las escrituras nativas (CURRENT_TIMESTAMP)
+    @CurrentTimestamp(source = SourceType.DB)
+    @Column(name = "actualizado_en")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant actualizadoEn;
+
+    public Alumno(Long id, String nombre, String apellido, int edad, String curso) {
+        this(id, nombre, apellido, edad, curso, null);
+    }
+
+    public Alumno(Long id, String nombre, String apellido, int edad, String curso, Long version) {
+        this(id, nombre, apellido, edad, curso, version, 0L, null);
+    }
 }
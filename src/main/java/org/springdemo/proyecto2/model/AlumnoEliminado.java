@@ -0,0 +1,28 @@
+package org.springdemo.proyecto2.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@Entity
+//lápida de un alumno eliminado: GET /api/alumnos/delta la informa a quien ya tenía el alumno.
+//Se purgan pasado alumnos.delta.retencion
+@Table(name = "alumnos_eliminados", indexes = {
+        @Index(name = "idx_alumnos_eliminados_secuencia", columnList = "secuencia, id")
+})
+public class AlumnoEliminado {
+
+    //el ID que tenía el alumno, no se genera
+    @Id
+    private Long id;
+    @Column(name = "secuencia", nullable = false)
+    private long secuencia;
+    @Column(name = "eliminado_en")
+    private Instant eliminadoEn;
+}
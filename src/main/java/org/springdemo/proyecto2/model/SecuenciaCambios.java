@@ -0,0 +1,27 @@
+package org.springdemo.proyecto2.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@Entity
+//una sola fila (id 1) con el último número de cambio entregado. Cada transacción que escribe alumnos
+//la incrementa antes que nada (AlumnoRepositoryCustom.avanzarSecuencia) y la deja bloqueada hasta el commit:
+//las transacciones que escriben confirman en el orden de su número, así GET /api/alumnos/delta no se saltea
+//un cambio que confirmó tarde. purgadaHasta es la última secuencia de bajas ya purgadas
+@Table(name = "alumnos_secuencia")
+public class SecuenciaCambios {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+    @Column(name = "valor", nullable = false)
+    private long valor;
+    @Column(name = "purgada_hasta", nullable = false)
+    private long purgadaHasta;
+}
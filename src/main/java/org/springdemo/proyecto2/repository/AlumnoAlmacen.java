@@ -0,0 +1,75 @@
+package org.springdemo.proyecto2.repository;
+
+import org.springdemo.proyecto2.dto.AlumnoFila;
+import org.springdemo.proyecto2.dto.AlumnoParcial;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.dto.DeltaAlumnos;
+import org.springdemo.proyecto2.dto.HuellaAlumnos;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// Dónde guarda AlumnoService a los alumnos: la base principal (AlumnoAlmacenJpa) o varias bases
+// (AlumnoShards, con alumnos.shards.habilitados=true).
+// Cada escritura es atómica y ya está confirmada cuando vuelve, con su número de cambio para /delta,
+// así el servicio publica el AlumnoEvento después. Los listados por cursor y los recorridos van en orden de ID
+public interface AlumnoAlmacen {
+
+    Optional<Alumno> findById(long id);
+
+    boolean existsById(long id);
+
+    // Todos los alumnos en orden de ID sin tenerlos en memoria; tamanoBloque son las filas de cada lectura
+    void recorrerTodos(int tamanoBloque, Consumer<Alumno> consumidor);
+
+    // Página de index.html con el orden del Pageable (columnas de AlumnoFila)
+    Page<AlumnoFila> findFilas(Pageable pagina);
+
+    // Si findFilas puede leer esa página de un listado con total filas; si no, la devuelve vacía
+    boolean puedeLeerPagina(Pageable pagina, long total);
+
+    List<AlumnoFila> findFilasDespuesDeId(long despuesDeId, int limite);
+
+    List<AlumnoVista> findVistasDespuesDeId(long despuesDeId, int limite);
+
+    List<AlumnoVista> findVistasByCurso(String curso);
+
+    List<AlumnoVista> findVistasByRangoEdad(int edadMinima, int edadMaxima);
+
+    // Huellas para los ETag: las mismas filas que el listado correspondiente
+    HuellaAlumnos findHuellaDespuesDeId(long despuesDeId, int limite);
+
+    HuellaAlumnos findHuellaByCurso(String curso);
+
+    HuellaAlumnos findHuellaByRangoEdad(int edadMinima, int edadMaxima);
+
+    // Asigna ID y versión 0
+    Alumno insertar(Alumno alumno);
+
+    // Todos o ninguno; si falla los alumnos pueden quedar con el ID que se les había asignado
+    int insertarLote(List<Alumno> alumnos);
+
+    // versionEsperada null = cualquier versión. Devuelve el alumno con su versión nueva; vacío si no se actualizó
+    Optional<Alumno> actualizar(long id, Alumno alumno, Long versionEsperada);
+
+    // Solo los campos presentes; devuelve la fila completa. Vacío si no se actualizó
+    Optional<Alumno> actualizarParcialmente(long id, AlumnoParcial cambios, Long versionEsperada);
+
+    // Borra el alumno y deja su lápida para /delta. Devuelve las filas borradas
+    int deleteById(long id);
+
+    // Token de /delta con la posición actual, sin cambios
+    String findTokenActual();
+
+    // Hasta limite cambios después del token. IllegalArgumentException si el token no es de este almacén;
+    // IllegalStateException si es anterior a las bajas purgadas
+    DeltaAlumnos findCambiosDesde(String token, int limite);
+
+    // Borra las lápidas anteriores a esa hora y anota hasta qué número de cambio se purgó
+    void purgarEliminados(Instant eliminadosAntesDe);
+}
@@ -0,0 +1,220 @@
+package org.springdemo.proyecto2.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springdemo.proyecto2.dto.AlumnoFila;
+import org.springdemo.proyecto2.dto.AlumnoParcial;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.dto.DeltaAlumnos;
+import org.springdemo.proyecto2.dto.HuellaAlumnos;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.model.AlumnoEliminado;
+import org.springdemo.proyecto2.model.SecuenciaCambios;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Los alumnos en la base principal, con AlumnoRepository. Cada escritura es una transacción que empieza por
+// avanzarSecuencia; las lecturas sin caché van en transacciones de solo lectura (con réplicas, a una réplica).
+// Con alumnos.shards.habilitados=true lo reemplaza AlumnoShards.
+// @Component y no @Repository: la traducción de excepciones convertiría el IllegalArgumentException de un token
+// inválido (400) y el IllegalStateException de uno purgado (410) en InvalidDataAccessApiUsageException.
+// Lo que lanza AlumnoRepository ya llega traducido
+@Component
+@ConditionalOnProperty(name = "alumnos.shards.habilitados", havingValue = "false", matchIfMissing = true)
+public class AlumnoAlmacenJpa implements AlumnoAlmacen {
+
+    private final AlumnoRepository alumnoRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public AlumnoAlmacenJpa(AlumnoRepository alumnoRepository) {
+        this.alumnoRepository = alumnoRepository;
+    }
+
+    // Sin transacción propia: un acierto de la caché de segundo nivel no toma una conexión del pool
+    @Override
+    public Optional<Alumno> findById(long id) {
+        return alumnoRepository.findById(id);
+    }
+
+    @Override
+    public boolean existsById(long id) {
+        return alumnoRepository.existsById(id);
+    }
+
+    // Un solo cursor del driver: el tamaño de cada lectura lo fija el fetch size de streamAllAlumnosQuery.
+    // Las filas no pasan por la caché de segundo nivel: toda la tabla desplazaría de alumnos-entidades las que
+    // se leen por ID
+    @Override
+    @Transactional(readOnly = true)
+    public void recorrerTodos(int tamanoBloque, Consumer<Alumno> consumidor) {
+        Session sesion = entityManager.unwrap(Session.class);
+        CacheMode anterior = sesion.getCacheMode();
+        sesion.setCacheMode(CacheMode.IGNORE);
+        try (Stream<Alumno> alumnos = alumnoRepository.streamAllAlumnosQuery()) {
+            alumnos.forEach(alumno -> {
+                consumidor.accept(alumno);
+                // Se desasocia del contexto de persistencia para que no crezca con cada fila
+                entityManager.detach(alumno);
+            });
+        } finally {
+            sesion.setCacheMode(anterior);
+        }
+    }
+
+    @Override
+    public Page<AlumnoFila> findFilas(Pageable pagina) {
+        return alumnoRepository.findFilas(pagina);
+    }
+
+    // LIMIT y OFFSET en la base: cualquier página
+    @Override
+    public boolean puedeLeerPagina(Pageable pagina, long total) {
+        return true;
+    }
+
+    @Override
+    public List<AlumnoFila> findFilasDespuesDeId(long despuesDeId, int limite) {
+        return alumnoRepository.findFilasDespuesDeId(despuesDeId, limite);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<AlumnoVista> findVistasDespuesDeId(long despuesDeId, int limite) {
+        return alumnoRepository.findVistasDespuesDeId(despuesDeId, limite);
+    }
+
+    @Override
+    public List<AlumnoVista> findVistasByCurso(String curso) {
+        return alumnoRepository.findVistasByCurso(curso);
+    }
+
+    @Override
+    public List<AlumnoVista> findVistasByRangoEdad(int edadMinima, int edadMaxima) {
+        return alumnoRepository.findVistasByRangoEdad(edadMinima, edadMaxima);
+    }
+
+    @Override
+    public HuellaAlumnos findHuellaDespuesDeId(long despuesDeId, int limite) {
+        return alumnoRepository.findHuellaDespuesDeId(despuesDeId, limite);
+    }
+
+    @Override
+    public HuellaAlumnos findHuellaByCurso(String curso) {
+        return alumnoRepository.findHuellaByCurso(curso);
+    }
+
+    @Override
+    public HuellaAlumnos findHuellaByRangoEdad(int edadMinima, int edadMaxima) {
+        return alumnoRepository.findHuellaByRangoEdad(edadMinima, edadMaxima);
+    }
+
+    @Override
+    @Transactional
+    public Alumno insertar(Alumno alumno) {
+        alumno.setSecuencia(alumnoRepository.avanzarSecuencia());
+        return alumnoRepository.save(alumno);
+    }
+
+    @Override
+    @Transactional
+    public int insertarLote(List<Alumno> alumnos) {
+        long secuencia = alumnoRepository.avanzarSecuencia();
+        alumnos.forEach(alumno -> alumno.setSecuencia(secuencia));
+        return alumnoRepository.insertarLote(alumnos);
+    }
+
+    // Un solo UPDATE: la existencia (y la versión, si se indicó) la resuelve el WHERE
+    @Override
+    @Transactional
+    public Optional<Alumno> actualizar(long id, Alumno alumno, Long versionEsperada) {
+        long secuencia = alumnoRepository.avanzarSecuencia();
+        int filas = versionEsperada == null
+                ? alumnoRepository.updateAlumnoQuery(id, alumno.getNombre(), alumno.getApellido(),
+                                                     alumno.getEdad(), alumno.getCurso())
+                : alumnoRepository.updateAlumnoConVersionQuery(id, alumno.getNombre(), alumno.getApellido(),
+                                                               alumno.getEdad(), alumno.getCurso(), versionEsperada);
+        if (filas == 0) {
+            return Optional.empty();
+        }
+        // Con If-Match la versión nueva es la siguiente; sin él se lee la que dejó el UPDATE (la fila sigue bloqueada)
+        Long versionNueva = versionEsperada != null ? versionEsperada + 1 : alumnoRepository.findVersionById(id);
+        Alumno alumnoActualizado = new Alumno(id, alumno.getNombre(), alumno.getApellido(), alumno.getEdad(),
+                                              alumno.getCurso(), versionNueva);
+        alumnoActualizado.setSecuencia(secuencia);
+        return Optional.of(alumnoActualizado);
+    }
+
+    // UPDATE de las columnas enviadas y una lectura para devolver el alumno completo
+    @Override
+    @Transactional
+    public Optional<Alumno> actualizarParcialmente(long id, AlumnoParcial cambios, Long versionEsperada) {
+        alumnoRepository.avanzarSecuencia();
+        if (alumnoRepository.actualizarParcialmente(id, cambios, versionEsperada) == 0) {
+            return Optional.empty();
+        }
+        return alumnoRepository.findById(id);
+    }
+
+    @Override
+    @Transactional
+    public int deleteById(long id) {
+        alumnoRepository.avanzarSecuencia();
+        int filas = alumnoRepository.deleteAlumnoByIdQuery(id);
+        if (filas > 0) {
+            alumnoRepository.registrarEliminado(id);
+        }
+        return filas;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String findTokenActual() {
+        long actual = alumnoRepository.findSecuenciaCambios().map(SecuenciaCambios::getValor).orElse(0L);
+        return DeltaAlumnos.codificarToken(new DeltaAlumnos.Posicion(actual, Long.MAX_VALUE));
+    }
+
+    // Alumnos y lápidas se leen en la misma transacción y se intercalan por (secuencia, id)
+    @Override
+    @Transactional(readOnly = true)
+    public DeltaAlumnos findCambiosDesde(String token, int limite) {
+        DeltaAlumnos.Posicion desde = DeltaAlumnos.decodificarToken(token);
+        List<Alumno> cambiados = alumnoRepository.findCambiadosDesde(desde.secuencia(), desde.id(), limite + 1);
+        List<AlumnoEliminado> eliminados = alumnoRepository.findEliminadosDesde(desde.secuencia(), desde.id(), limite + 1);
+        // Después de las lápidas: si una purga confirmó entre medio, se ve acá y el token se rechaza
+        long purgadaHasta = alumnoRepository.findSecuenciaCambios().map(SecuenciaCambios::getPurgadaHasta).orElse(0L);
+        if (desde.secuencia() < purgadaHasta) {
+            throw new IllegalStateException("El token es anterior a las bajas purgadas (secuencia " + purgadaHasta
+                                            + "): hay que recargar la lista completa");
+        }
+
+        // Uno de más para saber si hay otra página
+        List<DeltaAlumnos.Cambio> cambios = DeltaAlumnos.intercalar(cambiados, eliminados, limite + 1);
+        List<DeltaAlumnos.Cambio> pagina = cambios.subList(0, Math.min(limite, cambios.size()));
+        DeltaAlumnos.Posicion ultima = pagina.isEmpty() ? desde : pagina.get(pagina.size() - 1).posicion();
+        return DeltaAlumnos.de(pagina, DeltaAlumnos.codificarToken(ultima), cambios.size() > limite);
+    }
+
+    @Override
+    @Transactional
+    public void purgarEliminados(Instant eliminadosAntesDe) {
+        Long hasta = alumnoRepository.findUltimaSecuenciaEliminadaAntesDe(eliminadosAntesDe);
+        if (hasta == null) {
+            return;
+        }
+        alumnoRepository.deleteEliminadosHasta(hasta);
+        alumnoRepository.registrarPurga(hasta);
+    }
+}
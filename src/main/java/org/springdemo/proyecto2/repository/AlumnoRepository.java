@@ -1,18 +1,38 @@
 package org.springdemo.proyecto2.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springdemo.proyecto2.dto.AlumnoCursoEdad;
+import org.springdemo.proyecto2.dto.AlumnoFila;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.dto.ConteoCursoEdad;
+import org.springdemo.proyecto2.dto.HuellaAlumnos;
 import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.model.AlumnoEliminado;
+import org.springdemo.proyecto2.model.SecuenciaCambios;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface AlumnoRepository extends JpaRepository<Alumno, Long> {
+public interface AlumnoRepository extends JpaRepository<Alumno, Long>, AlumnoRepositoryCustom {
+
+    // Número de cambio de la transacción en curso (lo avanzó avanzarSecuencia) y hora de la base de datos,
+    // para que las escrituras nativas marquen las filas igual que save()
+    String SECUENCIA_ACTUAL = "COALESCE((SELECT valor FROM alumnos_secuencia WHERE id = 1), 0)";
+    String MARCA_DE_CAMBIO = "secuencia = " + SECUENCIA_ACTUAL + ", actualizado_en = CURRENT_TIMESTAMP(6)";
 
     @Query(value = "SELECT * FROM alumnos", nativeQuery = true)
     List<Alumno> findAllAlumnosQuery();
@@ -20,29 +40,182 @@ public interface AlumnoRepository extends JpaRepository<Alumno, Long> {
     @Query(value = "SELECT * FROM alumnos WHERE id = :id", nativeQuery = true)
     Alumno findAlumnoByIdQuery(@Param("id") Long id);
 
-    @Modifying
-    @Transactional
-    @Query(value = "INSERT INTO alumnos (nombre, apellido, edad, curso) VALUES (:nombre, :apellido, :edad, :curso)", nativeQuery = true)
-    int saveAlumnoQuery(@Param("nombre") String nombre, @Param("apellido") String apellido,
-                        @Param("edad") int edad, @Param("curso") String curso);
-
-    @Modifying
-    @Transactional
-    @Query(value = "UPDATE alumnos SET nombre = :nombre, apellido = :apellido, edad = :edad, curso = :curso WHERE id = :id", nativeQuery = true)
-    void updateAlumnoQuery(@Param("id") Long id, @Param("nombre") String nombre,
-                           @Param("apellido") String apellido, @Param("edad") int edad,
-                           @Param("curso") String curso);
+    // Versión que dejó un UPDATE sin versión esperada, leída en la misma transacción
+    @Query(value = "SELECT version FROM alumnos WHERE id = :id", nativeQuery = true)
+    Long findVersionById(@Param("id") Long id);
 
+    // La lápida de una baja, con el número de cambio de la transacción en curso
     @Modifying
     @Transactional
-    @Query(value = "DELETE FROM alumnos WHERE id = :id", nativeQuery = true)
-    void deleteAlumnoByIdQuery(@Param("id") Long id);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "alumnos_eliminados"))
+    @Query(value = "INSERT INTO alumnos_eliminados (id, secuencia, eliminado_en) "
+                   + "VALUES (:id, " + SECUENCIA_ACTUAL + ", CURRENT_TIMESTAMP(6))", nativeQuery = true)
+    int registrarEliminado(@Param("id") Long id);
 
+    @Transactional(readOnly = true)
     @Query(value = "SELECT * FROM alumnos WHERE curso = :curso", nativeQuery = true)
     List<Alumno> findAlumnosByCursoQuery(@Param("curso") String curso);
 
+    @Transactional(readOnly = true)
     @Query(value = "SELECT * FROM alumnos WHERE edad BETWEEN :edadMinima AND :edadMaxima", nativeQuery = true)
     List<Alumno> findAlumnosByRangoEdad(@Param("edadMinima") int edadMinima,
                                         @Param("edadMaxima") int edadMaxima);
 
-}
+    // Paginación por cursor (keyset): usa la clave primaria en lugar de OFFSET,
+    // así el coste de cada página es el mismo sin importar la profundidad.
+    // Los recorridos de toda la tabla no pasan por la caché de segundo nivel (CacheMode.IGNORE): no deben
+    // desplazar de alumnos-entidades las filas que se leen por ID
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+    @Query(value = "SELECT * FROM alumnos WHERE id > :despuesDeId ORDER BY id LIMIT :limite", nativeQuery = true)
+    List<Alumno> findAlumnosDespuesDeId(@Param("despuesDeId") long despuesDeId,
+                                        @Param("limite") int limite);
+
+    // Recorre toda la tabla en orden sin cargarla en memoria: el driver trae las filas
+    // de a "fetchSize" (requiere useCursorFetch=true en la URL de MySQL).
+    // El CacheMode de una consulta solo rige mientras se abre el cursor, no al leer las filas: quien consume el
+    // Stream fija CacheMode.IGNORE en la sesión (ver AlumnoAlmacenJpa.recorrerTodos)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = "SELECT * FROM alumnos ORDER BY id", nativeQuery = true)
+    Stream<Alumno> streamAllAlumnosQuery();
+
+    // Proyecciones de solo lectura para los listados: ninguna crea entidades gestionadas, así que no hay
+    // registro en el contexto de persistencia ni snapshot; sin flush previo aunque haya una transacción abierta.
+    // Las de curso y rango de edad se guardan en la caché de consultas hasta la próxima escritura en alumnos
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "alumnos-consultas")
+    })
+    @Query("SELECT new org.springdemo.proyecto2.dto.AlumnoVista(a.id, a.nombre, a.apellido, a.edad, a.curso, a.version) " +
+           "FROM Alumno a WHERE a.curso = :curso")
+    List<AlumnoVista> findVistasByCurso(@Param("curso") String curso);
+
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "alumnos-consultas")
+    })
+    @Query("SELECT new org.springdemo.proyecto2.dto.AlumnoVista(a.id, a.nombre, a.apellido, a.edad, a.curso, a.version) " +
+           "FROM Alumno a WHERE a.edad BETWEEN :edadMinima AND :edadMaxima")
+    List<AlumnoVista> findVistasByRangoEdad(@Param("edadMinima") int edadMinima,
+                                            @Param("edadMaxima") int edadMaxima);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    @Query("SELECT new org.springdemo.proyecto2.dto.AlumnoVista(a.id, a.nombre, a.apellido, a.edad, a.curso, a.version) " +
+           "FROM Alumno a WHERE a.id > :despuesDeId ORDER BY a.id LIMIT :limite")
+    List<AlumnoVista> findVistasDespuesDeId(@Param("despuesDeId") long despuesDeId,
+                                            @Param("limite") int limite);
+
+    // index.html solo muestra cinco columnas. Una página ordenada por cualquiera de ellas (OFFSET + COUNT),
+    // para la vista paginada; Spring Data agrega el ORDER BY del Pageable usando el alias "a"
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    @Query(value = "SELECT new org.springdemo.proyecto2.dto.AlumnoFila(a.id, a.nombre, a.apellido, a.edad, a.curso) FROM Alumno a",
+           countQuery = "SELECT COUNT(a) FROM Alumno a")
+    Page<AlumnoFila> findFilas(Pageable pageable);
+
+    // Un bloque del listado completo por keyset, para la vista que se escribe mientras se lee
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    @Query("SELECT new org.springdemo.proyecto2.dto.AlumnoFila(a.id, a.nombre, a.apellido, a.edad, a.curso) " +
+           "FROM Alumno a WHERE a.id > :despuesDeId ORDER BY a.id LIMIT :limite")
+    List<AlumnoFila> findFilasDespuesDeId(@Param("despuesDeId") long despuesDeId,
+                                          @Param("limite") int limite);
+
+    // Estadísticas en memoria: curso y edad de cada alumno por bloques de ID al construirlas,
+    // y los conteos agrupados para conciliarlas con la base de datos.
+    // Sin readOnly para que lean de la primaria: una réplica atrasada daría desvíos que no existen
+    @Transactional
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    @Query("SELECT new org.springdemo.proyecto2.dto.AlumnoCursoEdad(a.id, a.curso, a.edad, a.version) " +
+           "FROM Alumno a WHERE a.id > :despuesDeId ORDER BY a.id LIMIT :limite")
+    List<AlumnoCursoEdad> findCursoYEdadDespuesDeId(@Param("despuesDeId") long despuesDeId,
+                                                    @Param("limite") int limite);
+
+    @Transactional
+    @Query(value = "SELECT curso, edad, COUNT(*) AS total FROM alumnos GROUP BY curso, edad", nativeQuery = true)
+    List<ConteoCursoEdad> findConteoPorCursoYEdad();
+
+    // Huellas para los ETag de los listados: se calculan sin cargar entidades
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT COUNT(*) AS total, COALESCE(SUM(id), 0) AS sumaIds, COALESCE(SUM(version), 0) AS sumaVersiones " +
+                   "FROM (SELECT id, version FROM alumnos WHERE id > :despuesDeId ORDER BY id LIMIT :limite) pagina", nativeQuery = true)
+    HuellaAlumnos findHuellaDespuesDeId(@Param("despuesDeId") long despuesDeId,
+                                        @Param("limite") int limite);
+
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT COUNT(*) AS total, COALESCE(SUM(id), 0) AS sumaIds, COALESCE(SUM(version), 0) AS sumaVersiones " +
+                   "FROM alumnos WHERE curso = :curso", nativeQuery = true)
+    HuellaAlumnos findHuellaByCurso(@Param("curso") String curso);
+
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT COUNT(*) AS total, COALESCE(SUM(id), 0) AS sumaIds, COALESCE(SUM(version), 0) AS sumaVersiones " +
+                   "FROM alumnos WHERE edad BETWEEN :edadMinima AND :edadMaxima", nativeQuery = true)
+    HuellaAlumnos findHuellaByRangoEdad(@Param("edadMinima") int edadMinima,
+                                        @Param("edadMaxima") int edadMaxima);
+
+    // Delta por keyset sobre (secuencia, id), con el índice idx_alumnos_secuencia: los alumnos dados de alta
+    // o modificados después de una posición y las bajas posteriores a ella. Un cliente nuevo recorre así toda la
+    // tabla: tampoco pasa por la caché de segundo nivel
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("SELECT a FROM Alumno a WHERE a.secuencia > :secuencia OR (a.secuencia = :secuencia AND a.id > :despuesDeId) " +
+           "ORDER BY a.secuencia, a.id LIMIT :limite")
+    List<Alumno> findCambiadosDesde(@Param("secuencia") long secuencia,
+                                    @Param("despuesDeId") long despuesDeId,
+                                    @Param("limite") int limite);
+
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    @Query("SELECT e FROM AlumnoEliminado e WHERE e.secuencia > :secuencia OR (e.secuencia = :secuencia AND e.id > :despuesDeId) " +
+           "ORDER BY e.secuencia, e.id LIMIT :limite")
+    List<AlumnoEliminado> findEliminadosDesde(@Param("secuencia") long secuencia,
+                                              @Param("despuesDeId") long despuesDeId,
+                                              @Param("limite") int limite);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT s FROM SecuenciaCambios s WHERE s.id = " + SecuenciaCambios.ID)
+    Optional<SecuenciaCambios> findSecuenciaCambios();
+
+    // Purga de lápidas: se borran por secuencia para que purgada_hasta diga exactamente qué bajas ya no se informan
+    @Transactional
+    @Query("SELECT MAX(e.secuencia) FROM AlumnoEliminado e WHERE e.eliminadoEn < :limite")
+    Long findUltimaSecuenciaEliminadaAntesDe(@Param("limite") Instant limite);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AlumnoEliminado e WHERE e.secuencia <= :hasta")
+    int deleteEliminadosHasta(@Param("hasta") long hasta);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SecuenciaCambios s SET s.purgadaHasta = :hasta WHERE s.id = " + SecuenciaCambios.ID + " AND s.purgadaHasta < :hasta")
+    int registrarPurga(@Param("hasta") long hasta);
+
+}
\ No newline at end of file
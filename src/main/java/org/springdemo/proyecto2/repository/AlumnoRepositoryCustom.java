@@ -0,0 +1,34 @@
+package org.springdemo.proyecto2.repository;
+
+import org.springdemo.proyecto2.dto.AlumnoParcial;
+import org.springdemo.proyecto2.model.Alumno;
+
+import java.util.List;
+
+// Operaciones que no se pueden expresar con @Query y se implementan con JDBC directo
+public interface AlumnoRepositoryCustom {
+
+    // Toma el próximo número de cambio (SecuenciaCambios) con una sola sentencia y bloquea el contador hasta el commit.
+    // Va primero en cada transacción que escribe alumnos: sus escrituras nativas toman ese número.
+    // El bloqueo hasta el commit es a propósito: las transacciones que escriben se confirman en el orden de su número,
+    // y /delta puede avanzar su posición sin saltear un número menor que todavía no se confirmó. El costo es que las
+    // escrituras se hacen de a una desde ese UPDATE hasta el commit; por eso después solo van las escrituras de la
+    // transacción. Repartir números sin bloqueo (bloques, una SEQUENCE) obligaría a /delta a esperar a los pendientes
+    long avanzarSecuencia();
+
+    // Escrituras de una fila. Devuelven las filas afectadas: 0 significa que el alumno no existe (o cambió de versión)
+    int saveAlumnoQuery(String nombre, String apellido, int edad, String curso);
+
+    int updateAlumnoQuery(Long id, String nombre, String apellido, int edad, String curso);
+
+    int updateAlumnoConVersionQuery(Long id, String nombre, String apellido, int edad, String curso, long version);
+
+    int deleteAlumnoByIdQuery(Long id);
+
+    // Inserta todos los alumnos en un único batch JDBC y les asigna el ID generado
+    int insertarLote(List<Alumno> alumnos);
+
+    // UPDATE solo de las columnas presentes en cambios; versionEsperada null = cualquier versión.
+    // Devuelve las filas afectadas.
+    int actualizarParcialmente(Long id, AlumnoParcial cambios, Long versionEsperada);
+}
@@ -0,0 +1,207 @@
+package org.springdemo.proyecto2.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springdemo.proyecto2.dto.AlumnoParcial;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.model.SecuenciaCambios;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Spring Data combina esta clase con AlumnoRepository por el sufijo "Impl".
+// JdbcTemplate usa la misma conexión que la transacción JPA en curso.
+// Hibernate no ve estas sentencias: cada una le avisa que la tabla alumnos cambia para que invalide las consultas
+// guardadas al confirmar. A diferencia de una consulta nativa, que vacía toda la región de Alumno, de la caché de
+// segundo nivel sale solo el alumno que se escribió.
+public class AlumnoRepositoryCustomImpl implements AlumnoRepositoryCustom {
+
+    private static final String[] TABLAS = {"alumnos"};
+
+    private static final String INSERT_ALUMNO =
+            "INSERT INTO alumnos (nombre, apellido, edad, curso, version, secuencia, actualizado_en) "
+            + "VALUES (?, ?, ?, ?, 0, " + AlumnoRepository.SECUENCIA_ACTUAL + ", CURRENT_TIMESTAMP(6))";
+
+    private static final String AVANZAR_SECUENCIA =
+            "UPDATE alumnos_secuencia SET valor = LAST_INSERT_ID(valor + 1) WHERE id = " + SecuenciaCambios.ID;
+
+    private static final String UPDATE_ALUMNO =
+            "UPDATE alumnos SET nombre = ?, apellido = ?, edad = ?, curso = ?, version = version + 1, "
+            + AlumnoRepository.MARCA_DE_CAMBIO + " WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public AlumnoRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Una sola sentencia, sin un SELECT aparte: el valor nuevo vuelve como clave generada junto con la respuesta del
+    // UPDATE. En MySQL es el LAST_INSERT_ID(expr) de la conexión; H2 devuelve la columna pedida (valor) de la fila.
+    // El UPDATE deja la fila bloqueada hasta que la transacción termina (ver AlumnoRepositoryCustom)
+    @Override
+    @Transactional
+    public long avanzarSecuencia() {
+        Long valor = avanzarContador(jdbcTemplate);
+        if (valor != null) {
+            return valor;
+        }
+        // Solo la primera escritura de la base de datos: la fila todavía no existe
+        try {
+            jdbcTemplate.update("INSERT INTO alumnos_secuencia (id, valor, purgada_hasta) VALUES (" + SecuenciaCambios.ID + ", 1, 0)");
+            return 1;
+        } catch (DuplicateKeyException e) {
+            // Otra transacción creó la fila al mismo tiempo
+            return avanzarContador(jdbcTemplate);
+        }
+    }
+
+    // null si la fila del contador no existe. AlumnoShards la usa con el contador de cada shard
+    static Long avanzarContador(JdbcTemplate jdbcTemplate) {
+        KeyHolder valor = new GeneratedKeyHolder();
+        if (jdbcTemplate.update(conexion -> conexion.prepareStatement(AVANZAR_SECUENCIA, new String[]{"valor"}), valor) == 0) {
+            return null;
+        }
+        return valor.getKey().longValue();
+    }
+
+    @Override
+    @Transactional
+    public int saveAlumnoQuery(String nombre, String apellido, int edad, String curso) {
+        invalidarConsultas();
+        return jdbcTemplate.update(INSERT_ALUMNO, nombre, apellido, edad, curso);
+    }
+
+    @Override
+    @Transactional
+    public int updateAlumnoQuery(Long id, String nombre, String apellido, int edad, String curso) {
+        invalidarAlumno(id);
+        return jdbcTemplate.update(UPDATE_ALUMNO, nombre, apellido, edad, curso, id);
+    }
+
+    @Override
+    @Transactional
+    public int updateAlumnoConVersionQuery(Long id, String nombre, String apellido, int edad, String curso, long version) {
+        invalidarAlumno(id);
+        return jdbcTemplate.update(UPDATE_ALUMNO + " AND version = ?", nombre, apellido, edad, curso, id, version);
+    }
+
+    @Override
+    @Transactional
+    public int deleteAlumnoByIdQuery(Long id) {
+        invalidarAlumno(id);
+        return jdbcTemplate.update("DELETE FROM alumnos WHERE id = ?", id);
+    }
+
+    @Override
+    @Transactional
+    public int insertarLote(List<Alumno> alumnos) {
+        if (alumnos.isEmpty()) {
+            return 0;
+        }
+        // Los IDs nuevos no pueden estar en la caché de Alumno: solo cambian las consultas
+        invalidarConsultas();
+        // Con IDENTITY Hibernate no agrupa inserts, por eso el batch se arma a mano.
+        // En MySQL rewriteBatchedStatements=true lo convierte en un INSERT multi-fila.
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) conexion -> {
+            try (PreparedStatement sentencia = conexion.prepareStatement(INSERT_ALUMNO, Statement.RETURN_GENERATED_KEYS)) {
+                for (Alumno alumno : alumnos) {
+                    sentencia.setString(1, alumno.getNombre());
+                    sentencia.setString(2, alumno.getApellido());
+                    sentencia.setInt(3, alumno.getEdad());
+                    sentencia.setString(4, alumno.getCurso());
+                    sentencia.addBatch();
+                }
+                sentencia.executeBatch();
+
+                int insertados = 0;
+                try (ResultSet claves = sentencia.getGeneratedKeys()) {
+                    while (claves.next() && insertados < alumnos.size()) {
+                        // la versión se devuelve como en save(): el evento CREADO la necesita para el índice en memoria
+                        Alumno alumno = alumnos.get(insertados++);
+                        alumno.setId(claves.getLong(1));
+                        alumno.setVersion(0L);
+                    }
+                }
+                return insertados;
+            }
+        });
+    }
+
+    @Override
+    @Transactional
+    public int actualizarParcialmente(Long id, AlumnoParcial cambios, Long versionEsperada) {
+        if (cambios.estaVacio()) {
+            throw new IllegalArgumentException("No hay campos para actualizar");
+        }
+        // Los nombres de columna son fijos; solo los valores llegan del cliente
+        StringBuilder sql = new StringBuilder("UPDATE alumnos SET ");
+        List<Object> parametros = new ArrayList<>();
+        if (cambios.nombre() != null) {
+            sql.append("nombre = ?, ");
+            parametros.add(cambios.nombre());
+        }
+        if (cambios.apellido() != null) {
+            sql.append("apellido = ?, ");
+            parametros.add(cambios.apellido());
+        }
+        if (cambios.edad() != null) {
+            sql.append("edad = ?, ");
+            parametros.add(cambios.edad());
+        }
+        if (cambios.curso() != null) {
+            sql.append("curso = ?, ");
+            parametros.add(cambios.curso());
+        }
+        sql.append("version = version + 1, ").append(AlumnoRepository.MARCA_DE_CAMBIO).append(" WHERE id = ?");
+        parametros.add(id);
+        if (versionEsperada != null) {
+            sql.append(" AND version = ?");
+            parametros.add(versionEsperada);
+        }
+        invalidarAlumno(id);
+        return jdbcTemplate.update(sql.toString(), parametros.toArray());
+    }
+
+    // Lo mismo que hace Hibernate con la tabla de una consulta nativa: desde ahora y hasta el commit ninguna consulta
+    // sobre alumnos se guarda, y al terminar la transacción las que estaban guardadas dejan de valer
+    private void invalidarConsultas() {
+        SessionImplementor sesion = entityManager.unwrap(SessionImplementor.class);
+        TimestampsCache marcas = sesion.getFactory().getCache().getTimestampsCache();
+        if (marcas != null) {
+            marcas.preInvalidate(TABLAS, sesion);
+            sesion.getActionQueue().registerProcess((exito, s) -> marcas.invalidate(TABLAS, s));
+        }
+    }
+
+    // Además de las consultas, el alumno queda bloqueado en la caché de segundo nivel hasta el commit, como en una
+    // escritura de Hibernate: una lectura que empezó antes no puede volver a guardar la fila vieja. Al desbloquearlo
+    // la entrada queda vacía y la próxima lectura lo trae de la base de datos
+    private void invalidarAlumno(Long id) {
+        invalidarConsultas();
+        SessionImplementor sesion = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = sesion.getFactory().getMappingMetamodel().getEntityDescriptor(Alumno.class);
+        if (persister.canWriteToCache()) {
+            EntityDataAccess cache = persister.getCacheAccessStrategy();
+            Object clave = cache.generateCacheKey(id, persister, sesion.getFactory(), sesion.getTenantIdentifier());
+            SoftLock bloqueo = cache.lockItem(sesion, clave, null);
+            sesion.getActionQueue().registerProcess((exito, s) -> cache.unlockItem(s, clave, bloqueo));
+        }
+    }
+}
\ No newline at end of file
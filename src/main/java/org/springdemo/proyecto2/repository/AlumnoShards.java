@@ -0,0 +1,773 @@
+package org.springdemo.proyecto2.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springdemo.proyecto2.dto.AlumnoFila;
+import org.springdemo.proyecto2.dto.AlumnoParcial;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.dto.DeltaAlumnos;
+import org.springdemo.proyecto2.dto.HuellaAlumnos;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.model.AlumnoEliminado;
+import org.springdemo.proyecto2.model.SecuenciaCambios;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+// Tabla alumnos repartida entre varias bases (alumnos.shards.habilitados=true, ver ShardsConfig).
+// El ID dice dónde está la fila: los 10 bits bajos son el número del shard y el resto un ID local que cada shard
+// entrega por bloques (alumnos_ids), así dos instancias de la aplicación nunca generan el mismo ID y las operaciones
+// por ID van a un solo shard. Las altas se reparten en ronda (particion=id) o por curso (particion=curso, todos los
+// alumnos de un curso en el mismo shard); la fila se queda en su shard aunque después le cambien el curso, por eso
+// las consultas por curso y por edad se hacen en todos los shards en paralelo y se unen por ID.
+// Los listados ordenados (recorrerTodos, páginas por cursor, /delta) mezclan los shards en orden (k-way merge): cada
+// shard devuelve sus filas ya ordenadas y una cola de prioridad toma siempre la menor de las cabezas.
+// Cada shard tiene su propio número de cambio (alumnos_secuencia) y sus lápidas (alumnos_eliminados): toda escritura
+// en un shard avanza primero su número, como AlumnoAlmacenJpa en la base principal, y el token de /delta lleva una
+// posición por shard.
+// Un lote con filas de varios shards abre una transacción en cada uno, en orden de número de shard para que dos lotes
+// no se bloqueen en cruce, y los confirma uno detrás de otro. Si falla un INSERT no queda nada; si falla un commit
+// cuando otros shards ya confirmaron, sus filas se borran (con lápida, /delta pudo haberlas entregado) para que el
+// lote siga siendo todo o nada.
+public class AlumnoShards implements AlumnoAlmacen, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AlumnoShards.class);
+
+    public enum Particion {
+        ID,
+        CURSO
+    }
+
+    // Los 10 bits bajos del ID son el shard: hasta 1024 shards
+    static final int BITS_SHARD = 10;
+    public static final int MAXIMO_SHARDS = 1 << BITS_SHARD;
+
+    private static final String COLUMNAS = "id, nombre, apellido, edad, curso, version, secuencia, actualizado_en";
+
+    // Número de cambio y hora con las mismas expresiones que AlumnoRepository: dentro de la transacción que
+    // acaba de avanzar alumnos_secuencia del shard, leen el valor nuevo
+    private static final String INSERT_ALUMNO =
+            "INSERT INTO alumnos (id, nombre, apellido, edad, curso, version, secuencia, actualizado_en) "
+            + "VALUES (?, ?, ?, ?, ?, 0, " + AlumnoRepository.SECUENCIA_ACTUAL + ", CURRENT_TIMESTAMP(6))";
+
+    private static final String UPDATE_ALUMNO =
+            "UPDATE alumnos SET nombre = ?, apellido = ?, edad = ?, curso = ?, version = version + 1, "
+            + AlumnoRepository.MARCA_DE_CAMBIO + " WHERE id = ?";
+
+    private static final String INSERT_LAPIDA =
+            "INSERT INTO alumnos_eliminados (id, secuencia, eliminado_en) "
+            + "VALUES (?, " + AlumnoRepository.SECUENCIA_ACTUAL + ", CURRENT_TIMESTAMP(6))";
+
+    private static final String SECUENCIA = "SELECT valor, purgada_hasta FROM alumnos_secuencia WHERE id = " + SecuenciaCambios.ID;
+
+    private static final String HUELLA =
+            "SELECT COUNT(*), COALESCE(SUM(id), 0), COALESCE(SUM(version), 0) FROM alumnos";
+
+    private static final RowMapper<Alumno> ALUMNO = (fila, numero) -> {
+        Timestamp actualizadoEn = fila.getTimestamp("actualizado_en");
+        return new Alumno(fila.getLong("id"), fila.getString("nombre"), fila.getString("apellido"), fila.getInt("edad"),
+                          fila.getString("curso"), fila.getLong("version"), fila.getLong("secuencia"),
+                          actualizadoEn == null ? null : actualizadoEn.toInstant());
+    };
+
+    private static final RowMapper<AlumnoEliminado> ELIMINADO = (fila, numero) ->
+            new AlumnoEliminado(fila.getLong("id"), fila.getLong("secuencia"), fila.getTimestamp("eliminado_en").toInstant());
+
+    private static final RowMapper<HuellaAlumnos> HUELLA_FILA = (fila, numero) ->
+            HuellaAlumnos.de(fila.getLong(1), fila.getLong(2), fila.getLong(3));
+
+    private static final RowMapper<SecuenciaCambios> SECUENCIA_FILA = (fila, numero) ->
+            new SecuenciaCambios(SecuenciaCambios.ID, fila.getLong("valor"), fila.getLong("purgada_hasta"));
+
+    private static final RowMapper<AlumnoVista> VISTA = (fila, numero) ->
+            new AlumnoVista(fila.getLong("id"), fila.getString("nombre"), fila.getString("apellido"), fila.getInt("edad"),
+                            fila.getString("curso"), fila.getLong("version"));
+
+    private static final RowMapper<AlumnoFila> FILA = (fila, numero) ->
+            new AlumnoFila(fila.getLong("id"), fila.getString("nombre"), fila.getString("apellido"), fila.getInt("edad"),
+                           fila.getString("curso"));
+
+    private final List<Shard> shards;
+    private final Particion particion;
+    // Filas que findFilas lee como máximo de cada shard para armar una página
+    private final int profundidadMaxima;
+    // Propiedades por las que se puede ordenar el listado y cómo se comparan al mezclar. Se arma con la primera
+    // página, cuando ya se puede preguntar a un shard qué base es
+    private volatile Map<String, Comparator<AlumnoFila>> ordenDeFilas;
+    private final AtomicInteger ronda = new AtomicInteger();
+    // Una consulta por shard en paralelo; esperan la red, no usan CPU
+    private final ExecutorService consultas = Executors.newVirtualThreadPerTaskExecutor();
+
+    public AlumnoShards(List<? extends DataSource> bases, Particion particion, int tamanoBloqueIds, int profundidadMaxima) {
+        if (bases.isEmpty() || bases.size() > MAXIMO_SHARDS) {
+            throw new IllegalArgumentException("Hacen falta entre 1 y " + MAXIMO_SHARDS + " shards, hay " + bases.size());
+        }
+        if (tamanoBloqueIds <= 0) {
+            throw new IllegalArgumentException("El tamaño del bloque de IDs debe ser mayor que cero");
+        }
+        if (profundidadMaxima <= 0) {
+            throw new IllegalArgumentException("La profundidad máxima del listado debe ser mayor que cero");
+        }
+        List<Shard> lista = new ArrayList<>(bases.size());
+        for (DataSource base : bases) {
+            lista.add(new Shard(lista.size(), base, tamanoBloqueIds));
+        }
+        this.shards = List.copyOf(lista);
+        this.particion = particion;
+        this.profundidadMaxima = profundidadMaxima;
+    }
+
+    // Cierra los pools que armó ShardsConfig
+    @Override
+    public void close() {
+        consultas.shutdownNow();
+        shards.stream()
+              .map(shard -> shard.base)
+              .filter(HikariDataSource.class::isInstance)
+              .forEach(base -> ((HikariDataSource) base).close());
+    }
+
+    public int cantidad() {
+        return shards.size();
+    }
+
+    // Shard donde está (o estaría) el alumno con ese ID
+    public static int shardDe(long id) {
+        return (int) (id & (MAXIMO_SHARDS - 1));
+    }
+
+    // Las operaciones por ID van solo al shard del ID; un ID de un shard que no existe no encuentra nada
+    @Override
+    public Optional<Alumno> findById(long id) {
+        return shardDelId(id).flatMap(shard -> shard.jdbc.query("SELECT " + COLUMNAS + " FROM alumnos WHERE id = ?",
+                                                                 ALUMNO, id).stream().findFirst());
+    }
+
+    @Override
+    public boolean existsById(long id) {
+        return shardDelId(id).map(shard -> shard.jdbc.queryForObject("SELECT COUNT(*) FROM alumnos WHERE id = ?",
+                                                                      Integer.class, id) > 0)
+                             .orElse(false);
+    }
+
+    // Asigna el ID según la partición y deja la versión en 0, como save()
+    @Override
+    public Alumno insertar(Alumno alumno) {
+        Shard shard = shardParaAlta(alumno);
+        alumno.setId(shard.nuevoId());
+        shard.transaccion.executeWithoutResult(estado -> {
+            alumno.setSecuencia(shard.avanzarSecuencia());
+            shard.jdbc.update(INSERT_ALUMNO, alumno.getId(), alumno.getNombre(), alumno.getApellido(), alumno.getEdad(),
+                              alumno.getCurso());
+        });
+        alumno.setVersion(0L);
+        return alumno;
+    }
+
+    // Todas las filas o ninguna. Si falla, los alumnos quedan sin ID
+    @Override
+    public int insertarLote(List<Alumno> alumnos) {
+        // Los IDs se reservan antes de abrir las transacciones: un bloque no se devuelve si el lote se revierte
+        Map<Shard, List<Alumno>> porShard = new TreeMap<>(Comparator.comparingInt((Shard shard) -> shard.numero));
+        for (Alumno alumno : alumnos) {
+            Shard shard = shardParaAlta(alumno);
+            alumno.setId(shard.nuevoId());
+            porShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(alumno);
+        }
+        List<Map.Entry<Shard, List<Alumno>>> confirmados = new ArrayList<>();
+        try {
+            insertarEnCadena(new ArrayList<>(porShard.entrySet()).iterator(), confirmados);
+        } catch (RuntimeException e) {
+            confirmados.forEach(grupo -> deshacerAltas(grupo.getKey(), grupo.getValue(), e));
+            alumnos.forEach(alumno -> {
+                alumno.setId(null);
+                alumno.setSecuencia(0L);
+            });
+            throw e;
+        }
+        alumnos.forEach(alumno -> alumno.setVersion(0L));
+        return alumnos.size();
+    }
+
+    // Cada shard inserta dentro de la transacción del anterior: el último confirma primero. confirmados recibe cada
+    // grupo cuando su shard confirma, para deshacerlo si después falla el commit de uno anterior
+    private void insertarEnCadena(Iterator<Map.Entry<Shard, List<Alumno>>> grupos,
+                                  List<Map.Entry<Shard, List<Alumno>>> confirmados) {
+        if (!grupos.hasNext()) {
+            return;
+        }
+        Map.Entry<Shard, List<Alumno>> grupo = grupos.next();
+        Shard shard = grupo.getKey();
+        shard.transaccion.executeWithoutResult(estado -> {
+            long secuencia = shard.avanzarSecuencia();
+            grupo.getValue().forEach(alumno -> alumno.setSecuencia(secuencia));
+            shard.jdbc.batchUpdate(INSERT_ALUMNO, grupo.getValue(), grupo.getValue().size(), (sentencia, alumno) -> {
+                sentencia.setLong(1, alumno.getId());
+                sentencia.setString(2, alumno.getNombre());
+                sentencia.setString(3, alumno.getApellido());
+                sentencia.setInt(4, alumno.getEdad());
+                sentencia.setString(5, alumno.getCurso());
+            });
+            insertarEnCadena(grupos, confirmados);
+        });
+        confirmados.add(grupo);
+    }
+
+    // Borra las altas ya confirmadas de un lote que falló, como deleteById. Si el shard tampoco responde ahora, las
+    // filas quedan sin ningún evento: se registran sus IDs para borrarlas a mano
+    private void deshacerAltas(Shard shard, List<Alumno> alumnos, RuntimeException causa) {
+        try {
+            shard.transaccion.executeWithoutResult(estado -> {
+                shard.avanzarSecuencia();
+                for (Alumno alumno : alumnos) {
+                    if (shard.jdbc.update("DELETE FROM alumnos WHERE id = ?", alumno.getId()) > 0) {
+                        shard.jdbc.update(INSERT_LAPIDA, alumno.getId());
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            causa.addSuppressed(e);
+            log.error("No se pudieron borrar las altas ya confirmadas en el shard {} de un lote que falló: {}",
+                      shard.numero, alumnos.stream().map(Alumno::getId).toList(), e);
+        }
+    }
+
+    // Sin versionEsperada actualiza la versión que haya
+    @Override
+    public Optional<Alumno> actualizar(long id, Alumno alumno, Long versionEsperada) {
+        return shardDelId(id).flatMap(shard -> shard.transaccion.execute(estado -> {
+            long secuencia = shard.avanzarSecuencia();
+            int filas = versionEsperada == null
+                    ? shard.jdbc.update(UPDATE_ALUMNO, alumno.getNombre(), alumno.getApellido(), alumno.getEdad(),
+                                        alumno.getCurso(), id)
+                    : shard.jdbc.update(UPDATE_ALUMNO + " AND version = ?", alumno.getNombre(), alumno.getApellido(),
+                                        alumno.getEdad(), alumno.getCurso(), id, versionEsperada);
+            if (filas == 0) {
+                return Optional.<Alumno>empty();
+            }
+            // Con versionEsperada la nueva es la siguiente; sin ella se lee la que dejó el UPDATE (la fila sigue bloqueada)
+            Long versionNueva = versionEsperada != null
+                    ? versionEsperada + 1
+                    : shard.jdbc.queryForObject("SELECT version FROM alumnos WHERE id = ?", Long.class, id);
+            Alumno alumnoActualizado = new Alumno(id, alumno.getNombre(), alumno.getApellido(), alumno.getEdad(),
+                                                  alumno.getCurso(), versionNueva);
+            alumnoActualizado.setSecuencia(secuencia);
+            return Optional.of(alumnoActualizado);
+        }));
+    }
+
+    // UPDATE de las columnas enviadas y la fila completa leída en la misma transacción; vacío si no se actualizó
+    @Override
+    public Optional<Alumno> actualizarParcialmente(long id, AlumnoParcial cambios, Long versionEsperada) {
+        if (cambios.estaVacio()) {
+            throw new IllegalArgumentException("No hay campos para actualizar");
+        }
+        // Los nombres de columna son fijos; solo los valores llegan del cliente
+        StringBuilder sql = new StringBuilder("UPDATE alumnos SET ");
+        List<Object> parametros = new ArrayList<>();
+        if (cambios.nombre() != null) {
+            sql.append("nombre = ?, ");
+            parametros.add(cambios.nombre());
+        }
+        if (cambios.apellido() != null) {
+            sql.append("apellido = ?, ");
+            parametros.add(cambios.apellido());
+        }
+        if (cambios.edad() != null) {
+            sql.append("edad = ?, ");
+            parametros.add(cambios.edad());
+        }
+        if (cambios.curso() != null) {
+            sql.append("curso = ?, ");
+            parametros.add(cambios.curso());
+        }
+        sql.append("version = version + 1, ").append(AlumnoRepository.MARCA_DE_CAMBIO).append(" WHERE id = ?");
+        parametros.add(id);
+        if (versionEsperada != null) {
+            sql.append(" AND version = ?");
+            parametros.add(versionEsperada);
+        }
+        return shardDelId(id).flatMap(shard -> shard.transaccion.execute(estado -> {
+            shard.avanzarSecuencia();
+            if (shard.jdbc.update(sql.toString(), parametros.toArray()) == 0) {
+                return Optional.<Alumno>empty();
+            }
+            return shard.jdbc.query("SELECT " + COLUMNAS + " FROM alumnos WHERE id = ?", ALUMNO, id).stream().findFirst();
+        }));
+    }
+
+    // La lápida queda en el shard del alumno, con el número de cambio de la baja
+    @Override
+    public int deleteById(long id) {
+        return shardDelId(id).map(shard -> shard.transaccion.execute(estado -> {
+            shard.avanzarSecuencia();
+            int filas = shard.jdbc.update("DELETE FROM alumnos WHERE id = ?", id);
+            if (filas > 0) {
+                shard.jdbc.update(INSERT_LAPIDA, id);
+            }
+            return filas;
+        })).orElse(0);
+    }
+
+    // La posición actual de cada shard, en el orden de los shards
+    @Override
+    public String findTokenActual() {
+        return DeltaAlumnos.codificarToken(enTodos(shard -> new DeltaAlumnos.Posicion(shard.secuencia().getValor(),
+                                                                                      Long.MAX_VALUE)));
+    }
+
+    // Cada shard entrega sus primeros limite + 1 cambios después de su posición; la mezcla toma los primeros limite
+    // por (secuencia, id) y la posición de cada shard avanza hasta el último cambio que se tomó de él. Un token con
+    // menos posiciones que shards es de antes de agregar los últimos: esos empiezan desde el principio
+    @Override
+    public DeltaAlumnos findCambiosDesde(String token, int limite) {
+        List<DeltaAlumnos.Posicion> posiciones = new ArrayList<>(DeltaAlumnos.decodificarPosiciones(token));
+        if (posiciones.size() > shards.size()) {
+            throw new IllegalArgumentException("El token de sincronización es de " + posiciones.size()
+                                               + " shards y hay " + shards.size());
+        }
+        while (posiciones.size() < shards.size()) {
+            posiciones.add(new DeltaAlumnos.Posicion(0, 0));
+        }
+        List<List<DeltaAlumnos.Cambio>> porShard = enTodos(shard -> cambiosDesde(shard, posiciones.get(shard.numero),
+                                                                                  limite + 1));
+
+        Iterator<DeltaAlumnos.Cambio> mezcla = new Mezcla<>(porShard.stream().map(List::iterator).toList(),
+                                                           Comparator.comparing(DeltaAlumnos.Cambio::posicion));
+        List<DeltaAlumnos.Cambio> pagina = new ArrayList<>(limite);
+        while (pagina.size() < limite && mezcla.hasNext()) {
+            DeltaAlumnos.Cambio cambio = mezcla.next();
+            pagina.add(cambio);
+            posiciones.set(shardDe(cambio.posicion().id()), cambio.posicion());
+        }
+        return DeltaAlumnos.de(pagina, DeltaAlumnos.codificarToken(posiciones), mezcla.hasNext());
+    }
+
+    // Cada shard purga sus lápidas y anota hasta qué número de cambio, en su propia transacción
+    @Override
+    public void purgarEliminados(Instant eliminadosAntesDe) {
+        enTodos(shard -> shard.transaccion.execute(estado -> {
+            Long hasta = shard.jdbc.queryForObject("SELECT MAX(secuencia) FROM alumnos_eliminados WHERE eliminado_en < ?",
+                                                   Long.class, Timestamp.from(eliminadosAntesDe));
+            if (hasta == null) {
+                return false;
+            }
+            shard.jdbc.update("DELETE FROM alumnos_eliminados WHERE secuencia <= ?", hasta);
+            shard.jdbc.update("UPDATE alumnos_secuencia SET purgada_hasta = ? WHERE id = " + SecuenciaCambios.ID
+                              + " AND purgada_hasta < ?", hasta, hasta);
+            return true;
+        }));
+    }
+
+    // Curso y edad no dicen en qué shard está la fila: se pregunta a todos
+    @Override
+    public List<AlumnoVista> findVistasByCurso(String curso) {
+        return unirPorId(enTodos(shard -> shard.jdbc.query(
+                "SELECT " + COLUMNAS + " FROM alumnos WHERE curso = ? ORDER BY id", VISTA, curso)), AlumnoVista::id);
+    }
+
+    @Override
+    public List<AlumnoVista> findVistasByRangoEdad(int edadMinima, int edadMaxima) {
+        return unirPorId(enTodos(shard -> shard.jdbc.query(
+                "SELECT " + COLUMNAS + " FROM alumnos WHERE edad BETWEEN ? AND ? ORDER BY id", VISTA, edadMinima, edadMaxima)),
+                         AlumnoVista::id);
+    }
+
+    @Override
+    public HuellaAlumnos findHuellaByCurso(String curso) {
+        return sumar(enTodos(shard -> shard.jdbc.queryForObject(HUELLA + " WHERE curso = ?", HUELLA_FILA, curso)));
+    }
+
+    @Override
+    public HuellaAlumnos findHuellaByRangoEdad(int edadMinima, int edadMaxima) {
+        return sumar(enTodos(shard -> shard.jdbc.queryForObject(HUELLA + " WHERE edad BETWEEN ? AND ?", HUELLA_FILA,
+                                                                edadMinima, edadMaxima)));
+    }
+
+    // Cada shard aporta sus primeras limite filas: entre todas están las primeras limite del total
+    @Override
+    public List<AlumnoVista> findVistasDespuesDeId(long despuesDeId, int limite) {
+        return mezclar(enTodos(shard -> vistasDespuesDeId(shard, despuesDeId, limite)),
+                       Comparator.comparing(AlumnoVista::id), limite);
+    }
+
+    @Override
+    public List<AlumnoFila> findFilasDespuesDeId(long despuesDeId, int limite) {
+        return mezclar(enTodos(shard -> shard.jdbc.query(
+                "SELECT id, nombre, apellido, edad, curso FROM alumnos WHERE id > ? ORDER BY id LIMIT ?",
+                FILA, despuesDeId, limite)), Comparator.comparing(AlumnoFila::id), limite);
+    }
+
+    @Override
+    public HuellaAlumnos findHuellaDespuesDeId(long despuesDeId, int limite) {
+        List<AlumnoVista> vistas = findVistasDespuesDeId(despuesDeId, limite);
+        return HuellaAlumnos.de(vistas.size(), vistas.stream().mapToLong(AlumnoVista::id).sum(),
+                                vistas.stream().mapToLong(AlumnoVista::version).sum());
+    }
+
+    // Página de index.html con el orden que pide el Pageable. Cada shard devuelve sus filas hasta el final de la
+    // página y la mezcla descarta las anteriores, así que lo que se lee crece con la profundidad: una página más
+    // cerca del final se lee con el orden invertido desde el final, y si aun así hay que leer más de
+    // profundidadMaxima filas por shard la página queda vacía (puedeLeerPagina): index.html no enlaza esas páginas
+    // y, si se piden igual, lo avisa y manda al listado completo por ID de /todos
+    @Override
+    public Page<AlumnoFila> findFilas(Pageable pagina) {
+        Sort orden = pagina.getSort().isSorted() ? pagina.getSort() : Sort.by("id");
+        Comparator<AlumnoFila> comparador = comparadorDeFilas(orden);
+        long total = enTodos(shard -> shard.jdbc.queryForObject("SELECT COUNT(*) FROM alumnos", Long.class))
+                .stream().mapToLong(Long::longValue).sum();
+        long desde = pagina.getOffset();
+        long hasta = Math.min(desde + pagina.getPageSize(), total);
+        if (desde >= hasta || !puedeLeerPagina(pagina, total)) {
+            return new PageImpl<>(List.of(), pagina, total);
+        }
+
+        if (hasta <= total - desde) {
+            return new PageImpl<>(filasOrdenadas(orden, comparador, desde, hasta - desde), pagina, total);
+        }
+        // Desde el final: las filas [desde, hasta) son las [total - hasta, total - desde) del orden invertido
+        List<AlumnoFila> contenido = filasOrdenadas(orden.reverse(), comparador.reversed(), total - hasta, hasta - desde);
+        Collections.reverse(contenido);
+        return new PageImpl<>(contenido, pagina, total);
+    }
+
+    // Como mucho profundidadMaxima filas por shard, desde el principio o desde el final. Una página fuera de
+    // rango no necesita leer nada
+    @Override
+    public boolean puedeLeerPagina(Pageable pagina, long total) {
+        long desde = pagina.getOffset();
+        long hasta = Math.min(desde + pagina.getPageSize(), total);
+        return desde >= hasta || Math.min(hasta, total - desde) <= profundidadMaxima;
+    }
+
+    private List<AlumnoFila> filasOrdenadas(Sort orden, Comparator<AlumnoFila> comparador, long saltar, long cantidad) {
+        StringBuilder sql = new StringBuilder("SELECT id, nombre, apellido, edad, curso FROM alumnos ORDER BY ");
+        for (Sort.Order columna : orden) {
+            sql.append(columna.getProperty()).append(columna.isAscending() ? " ASC, " : " DESC, ");
+        }
+        sql.setLength(sql.length() - 2);
+        sql.append(" LIMIT ?");
+        List<List<AlumnoFila>> porShard = enTodos(shard -> shard.jdbc.query(sql.toString(), FILA, saltar + cantidad));
+
+        Iterator<AlumnoFila> mezcla = new Mezcla<>(porShard.stream().map(List::iterator).toList(), comparador);
+        for (long i = 0; i < saltar && mezcla.hasNext(); i++) {
+            mezcla.next();
+        }
+        List<AlumnoFila> contenido = new ArrayList<>((int) cantidad);
+        while (contenido.size() < cantidad && mezcla.hasNext()) {
+            contenido.add(mezcla.next());
+        }
+        return contenido;
+    }
+
+    // Los nombres de columna del ORDER BY salen de esta lista, nunca del cliente
+    private Comparator<AlumnoFila> comparadorDeFilas(Sort orden) {
+        Comparator<AlumnoFila> comparador = null;
+        for (Sort.Order columna : orden) {
+            Comparator<AlumnoFila> porColumna = ordenDeFilas().get(columna.getProperty());
+            if (porColumna == null) {
+                throw new IllegalArgumentException("No se puede ordenar por " + columna.getProperty());
+            }
+            porColumna = columna.isAscending() ? porColumna : porColumna.reversed();
+            comparador = comparador == null ? porColumna : comparador.thenComparing(porColumna);
+        }
+        return comparador;
+    }
+
+    private Map<String, Comparator<AlumnoFila>> ordenDeFilas() {
+        if (ordenDeFilas == null) {
+            String producto = shards.get(0).jdbc.execute(
+                    (ConnectionCallback<String>) conexion -> conexion.getMetaData().getDatabaseProductName());
+            Comparator<String> texto = Comparator.nullsFirst(comparadorDeTexto(producto));
+            ordenDeFilas = Map.of("id", Comparator.comparing(AlumnoFila::id),
+                                  "nombre", Comparator.comparing(AlumnoFila::nombre, texto),
+                                  "apellido", Comparator.comparing(AlumnoFila::apellido, texto),
+                                  "edad", Comparator.comparingInt(AlumnoFila::edad),
+                                  "curso", Comparator.comparing(AlumnoFila::curso, texto));
+        }
+        return ordenDeFilas;
+    }
+
+    // La mezcla tiene que ver iguales los textos que la base ve iguales, para que el ID desempate igual que en el
+    // ORDER BY. MySQL y MariaDB comparan con su intercalación por defecto, sin distinguir mayúsculas ni tildes
+    // (Intercalacion.clave); H2 y las demás por el valor de cada carácter. Todos los shards son del mismo motor
+    static Comparator<String> comparadorDeTexto(String producto) {
+        if (producto.contains("MySQL") || producto.contains("MariaDB")) {
+            return Comparator.comparing(Intercalacion::clave);
+        }
+        return Comparator.naturalOrder();
+    }
+
+    // Todos los alumnos en orden de ID sin tenerlos en memoria: cada shard se lee por bloques de IDs y se pide
+    // el siguiente bloque de un shard recién cuando la mezcla terminó el anterior
+    @Override
+    public void recorrerTodos(int tamanoBloque, Consumer<Alumno> consumidor) {
+        List<List<Alumno>> primeros = enTodos(shard -> alumnosDespuesDeId(shard, 0L, tamanoBloque));
+        List<Iterator<Alumno>> cursores = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            cursores.add(new BloquesDeShard(shards.get(i), primeros.get(i), tamanoBloque));
+        }
+        new Mezcla<>(cursores, Comparator.comparing(Alumno::getId)).forEachRemaining(consumidor);
+    }
+
+    private Optional<Shard> shardDelId(long id) {
+        int numero = shardDe(id);
+        return numero < shards.size() ? Optional.of(shards.get(numero)) : Optional.empty();
+    }
+
+    private Shard shardParaAlta(Alumno alumno) {
+        if (particion == Particion.CURSO) {
+            return shards.get(alumno.getCurso() == null ? 0 : shardDeCurso(alumno.getCurso(), shards.size()));
+        }
+        return shards.get(Math.floorMod(ronda.getAndIncrement(), shards.size()));
+    }
+
+    // Por la clave de Intercalacion: "Física" y "fisica" son el mismo curso para la base y van al mismo shard
+    static int shardDeCurso(String curso, int cantidad) {
+        return Math.floorMod(mezclarBits(Intercalacion.clave(curso).hashCode()), cantidad);
+    }
+
+    // String.hashCode está definido por la especificación, así el mismo curso va al mismo shard en todas las instancias,
+    // pero sus bits bajos se repiten entre palabras parecidas: el paso final de MurmurHash3 los reparte
+    static int mezclarBits(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static List<AlumnoVista> vistasDespuesDeId(Shard shard, long despuesDeId, int limite) {
+        return shard.jdbc.query("SELECT " + COLUMNAS + " FROM alumnos WHERE id > ? ORDER BY id LIMIT ?",
+                                VISTA, despuesDeId, limite);
+    }
+
+    private static List<Alumno> alumnosDespuesDeId(Shard shard, long despuesDeId, int limite) {
+        return shard.jdbc.query("SELECT " + COLUMNAS + " FROM alumnos WHERE id > ? ORDER BY id LIMIT ?",
+                                ALUMNO, despuesDeId, limite);
+    }
+
+    // Alumnos y lápidas del shard por keyset sobre (secuencia, id), leídos en una transacción como en AlumnoAlmacenJpa
+    private static List<DeltaAlumnos.Cambio> cambiosDesde(Shard shard, DeltaAlumnos.Posicion desde, int limite) {
+        return shard.transaccion.execute(estado -> {
+            List<Alumno> cambiados = shard.jdbc.query(
+                    "SELECT " + COLUMNAS + " FROM alumnos WHERE secuencia > ? OR (secuencia = ? AND id > ?) "
+                    + "ORDER BY secuencia, id LIMIT ?", ALUMNO, desde.secuencia(), desde.secuencia(), desde.id(), limite);
+            List<AlumnoEliminado> eliminados = shard.jdbc.query(
+                    "SELECT id, secuencia, eliminado_en FROM alumnos_eliminados WHERE secuencia > ? OR (secuencia = ? AND id > ?) "
+                    + "ORDER BY secuencia, id LIMIT ?", ELIMINADO, desde.secuencia(), desde.secuencia(), desde.id(), limite);
+            // Después de las lápidas: si una purga confirmó entre medio, se ve acá y el token se rechaza
+            long purgadaHasta = shard.secuencia().getPurgadaHasta();
+            if (desde.secuencia() < purgadaHasta) {
+                throw new IllegalStateException("El token es anterior a las bajas purgadas del shard " + shard.numero
+                                                + " (secuencia " + purgadaHasta + "): hay que recargar la lista completa");
+            }
+            return DeltaAlumnos.intercalar(cambiados, eliminados, limite);
+        });
+    }
+
+    // La misma consulta en cada shard, en paralelo; los resultados en el orden de los shards.
+    // Si un shard falla se cancelan los demás y se lanza su error
+    private <T> List<T> enTodos(Function<Shard, T> consulta) {
+        if (shards.size() == 1) {
+            return List.of(consulta.apply(shards.get(0)));
+        }
+        List<Future<T>> futuros = new ArrayList<>(shards.size());
+        shards.forEach(shard -> futuros.add(consultas.submit(() -> consulta.apply(shard))));
+        List<T> resultados = new ArrayList<>(shards.size());
+        try {
+            for (Future<T> futuro : futuros) {
+                resultados.add(futuro.get());
+            }
+            return resultados;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando a los shards", e);
+        } finally {
+            futuros.forEach(futuro -> futuro.cancel(true));
+        }
+    }
+
+    // Los IDs no se repiten entre shards: unir es mezclar sin límite
+    private static <T> List<T> unirPorId(List<List<T>> porShard, ToLongFunction<T> id) {
+        return mezclar(porShard, Comparator.comparingLong(id), Integer.MAX_VALUE);
+    }
+
+    static <T> List<T> mezclar(List<List<T>> porShard, Comparator<? super T> orden, int limite) {
+        List<T> resultado = new ArrayList<>(Math.min(limite, porShard.stream().mapToInt(List::size).sum()));
+        Iterator<T> mezcla = new Mezcla<>(porShard.stream().map(List::iterator).toList(), orden);
+        while (resultado.size() < limite && mezcla.hasNext()) {
+            resultado.add(mezcla.next());
+        }
+        return resultado;
+    }
+
+    private static HuellaAlumnos sumar(List<HuellaAlumnos> huellas) {
+        return HuellaAlumnos.de(huellas.stream().mapToLong(huella -> huella.getTotal().longValue()).sum(),
+                                huellas.stream().mapToLong(huella -> huella.getSumaIds().longValue()).sum(),
+                                huellas.stream().mapToLong(huella -> huella.getSumaVersiones().longValue()).sum());
+    }
+
+    // Mezcla de k fuentes ordenadas: la cola tiene la cabeza de cada fuente y next() saca la menor
+    // y pone en su lugar la siguiente de la misma fuente
+    static final class Mezcla<T> implements Iterator<T> {
+
+        private record Cabeza<T>(T valor, Iterator<T> resto) {
+        }
+
+        private final PriorityQueue<Cabeza<T>> cabezas;
+
+        Mezcla(List<? extends Iterator<T>> fuentes, Comparator<? super T> orden) {
+            this.cabezas = new PriorityQueue<>(Math.max(1, fuentes.size()),
+                                               (a, b) -> orden.compare(a.valor(), b.valor()));
+            fuentes.forEach(fuente -> {
+                if (fuente.hasNext()) {
+                    cabezas.add(new Cabeza<>(fuente.next(), fuente));
+                }
+            });
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !cabezas.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Cabeza<T> menor = cabezas.poll();
+            if (menor == null) {
+                throw new NoSuchElementException();
+            }
+            if (menor.resto().hasNext()) {
+                cabezas.add(new Cabeza<>(menor.resto().next(), menor.resto()));
+            }
+            return menor.valor();
+        }
+    }
+
+    // Alumnos de un shard en orden de ID, leídos por bloques (keyset) a medida que se piden
+    private static final class BloquesDeShard implements Iterator<Alumno> {
+
+        private final Shard shard;
+        private final int tamanoBloque;
+        private List<Alumno> bloque;
+        private int posicion;
+
+        BloquesDeShard(Shard shard, List<Alumno> primerBloque, int tamanoBloque) {
+            this.shard = shard;
+            this.tamanoBloque = tamanoBloque;
+            this.bloque = primerBloque;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (posicion < bloque.size()) {
+                return true;
+            }
+            // Un bloque incompleto era el último
+            if (bloque.size() < tamanoBloque) {
+                return false;
+            }
+            bloque = alumnosDespuesDeId(shard, bloque.get(bloque.size() - 1).getId(), tamanoBloque);
+            posicion = 0;
+            return !bloque.isEmpty();
+        }
+
+        @Override
+        public Alumno next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return bloque.get(posicion++);
+        }
+    }
+
+    private static final class Shard {
+
+        private final int numero;
+        private final DataSource base;
+        private final JdbcTemplate jdbc;
+        // Para las escrituras de varias sentencias
+        private final TransactionTemplate transaccion;
+        // Reserva de IDs: siempre en su propia transacción, aunque se pida dentro de otra
+        private final TransactionTemplate reserva;
+        private final int tamanoBloqueIds;
+
+        // IDs locales reservados por esta instancia que todavía no se usaron: (siguienteLocal - 1, limiteLocal]
+        private long siguienteLocal;
+        private long limiteLocal;
+
+        Shard(int numero, DataSource base, int tamanoBloqueIds) {
+            this.numero = numero;
+            this.base = base;
+            this.jdbc = new JdbcTemplate(base);
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(base);
+            this.transaccion = new TransactionTemplate(transactionManager);
+            this.reserva = new TransactionTemplate(transactionManager);
+            this.reserva.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            this.tamanoBloqueIds = tamanoBloqueIds;
+        }
+
+        SecuenciaCambios secuencia() {
+            return jdbc.queryForObject(SECUENCIA, SECUENCIA_FILA);
+        }
+
+        // Primera sentencia de cada escritura: la fila de alumnos_secuencia queda bloqueada hasta el commit, así las
+        // escrituras del shard confirman en el orden de su número (ver SecuenciaCambios)
+        long avanzarSecuencia() {
+            Long valor = AlumnoRepositoryCustomImpl.avanzarContador(jdbc);
+            if (valor == null) {
+                throw new IllegalStateException("Falta la fila de alumnos_secuencia en el shard " + numero);
+            }
+            return valor;
+        }
+
+        synchronized long nuevoId() {
+            if (siguienteLocal == 0 || siguienteLocal > limiteLocal) {
+                // El UPDATE bloquea la fila hasta el commit: dos instancias no pueden leer el mismo valor
+                limiteLocal = reserva.execute(estado -> {
+                    jdbc.update("UPDATE alumnos_ids SET valor = valor + ? WHERE id = 1", tamanoBloqueIds);
+                    return jdbc.queryForObject("SELECT valor FROM alumnos_ids WHERE id = 1", Long.class);
+                });
+                siguienteLocal = limiteLocal - tamanoBloqueIds + 1;
+            }
+            return (siguienteLocal++ << BITS_SHARD) | numero;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.springdemo.proyecto2.repository;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+// Texto como lo compara la intercalación por defecto de MySQL (utf8mb4_0900_ai_ci): sin distinguir mayúsculas
+// ni tildes, así "Matemáticas", "MATEMATICAS" y "matematicas" son el mismo curso y "Núñez" es igual a "Nunez".
+// Lo que en memoria agrupa o busca lo mismo que un WHERE o un GROUP BY de la base usa clave() en lugar del texto
+public final class Intercalacion {
+
+    private Intercalacion() {
+    }
+
+    public static String clave(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        if (esAscii(texto)) {
+            return texto.toLowerCase(Locale.ROOT);
+        }
+        // NFD separa cada letra de su tilde, diéresis o virgulilla; las marcas se descartan
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder clave = new StringBuilder(descompuesto.length());
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                clave.append(Character.toLowerCase(c));
+            }
+        }
+        return clave.toString();
+    }
+
+    private static boolean esAscii(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+package org.springdemo.proyecto2.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import org.springdemo.proyecto2.config.CacheConfig;
+import org.springdemo.proyecto2.config.DataSourceReplicado;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+// Caché de lectura para la búsqueda por ID. Guarda también los "no encontrado"
+// (Optional vacío) para que pedir IDs inexistentes no llegue a la base de datos.
+@Component
+public class AlumnoCache {
+
+    private final AsyncCache<Object, Object> cache;
+
+    public AlumnoCache(CacheManager cacheManager) {
+        this.cache = ((CaffeineCache) cacheManager.getCache(CacheConfig.CACHE_ALUMNOS)).getAsyncCache();
+    }
+
+    // La consulta no corre dentro del compute de Caffeine (un synchronized del mapa): ahí un hilo
+    // virtual quedaría fijado a su hilo portador durante toda la llamada JDBC. Dentro del mapa solo
+    // se deja un futuro; el hilo que lo dejó hace la consulta y los demás esperan ese mismo futuro.
+    // Con réplicas, la consulta va a la primaria si hubo una escritura hace poco (ver DataSourceReplicado)
+    @SuppressWarnings("unchecked")
+    public Optional<Alumno> obtener(Long id, Supplier<Optional<Alumno>> cargador) {
+        CompletableFuture<Object> nuevo = new CompletableFuture<>();
+        CompletableFuture<Object> actual = cache.get(id, (clave, ejecutor) -> nuevo);
+        if (actual == nuevo) {
+            try {
+                nuevo.complete(DataSourceReplicado.paraCache(cargador));
+            } catch (Throwable e) {
+                // Caffeine quita solo los futuros fallidos: el próximo pedido vuelve a consultar.
+                // También con un Error: si el futuro quedara sin completar, quien lo espera no volvería nunca
+                nuevo.completeExceptionally(e);
+            }
+        }
+        try {
+            return (Optional<Alumno>) actual.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    // Solo se ejecuta después del commit: si la transacción se revierte la caché queda igual.
+    // También en CREADO, por si había un "no encontrado" guardado para ese ID.
+    // Si había una carga en curso se descarta su futuro, así no queda guardado un valor viejo.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarAlumno(AlumnoEvento evento) {
+        cache.synchronous().invalidate(evento.id());
+    }
+}
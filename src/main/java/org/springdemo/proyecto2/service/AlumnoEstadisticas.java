@@ -0,0 +1,365 @@
+package org.springdemo.proyecto2.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springdemo.proyecto2.dto.AlumnoCursoEdad;
+import org.springdemo.proyecto2.dto.ConteoCursoEdad;
+import org.springdemo.proyecto2.dto.EstadisticasAlumnos;
+import org.springdemo.proyecto2.repository.AlumnoRepository;
+import org.springdemo.proyecto2.repository.Intercalacion;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Conteos por curso, histograma de edades y suma de edades de todos los alumnos, para GET /api/alumnos/stats.
+// Se mantienen con los AlumnoEvento confirmados en lugar de recalcularse: una modificación o una baja
+// restan del curso y la edad que el alumno tenía, así que se guarda el curso y la edad de cada ID.
+// Cada tanto se comparan con un GROUP BY en la base de datos y, si difieren, se reconstruyen.
+// Los cursos se agrupan como los agrupa la base (Intercalacion): "Física" y "fisica" son un solo curso,
+// que se muestra con la primera forma que se vio.
+// No existen con alumnos.shards.habilitados=true: el GROUP BY sería sobre la base principal, sin alumnos.
+@Component
+@ConditionalOnExpression("${alumnos.estadisticas.habilitadas:true} and !${alumnos.shards.habilitados:false}")
+public class AlumnoEstadisticas {
+
+    private static final Logger log = LoggerFactory.getLogger(AlumnoEstadisticas.class);
+
+    // Filas por consulta al construir
+    private static final int TAMANO_BLOQUE = 10_000;
+
+    // Clave de los alumnos sin curso: ni TreeMap ni JSON admiten claves null
+    static final String SIN_CURSO = "(sin curso)";
+
+    private static final Duration DURACION_LAPIDAS = Duration.ofMinutes(5);
+
+    private final AlumnoRepository alumnoRepository;
+
+    // Conciliaciones que encontraron diferencias con la base de datos
+    private final Counter desvios;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Datos datos = new Datos();
+    private boolean listo;
+    private boolean construyendo;
+    // Eventos que llegan mientras se construyen; se aplican al terminar
+    private final List<AlumnoEvento> pendientes = new ArrayList<>();
+    // Eventos aplicados desde el arranque: si cambia durante una conciliación, la comparación no vale
+    private long eventosAplicados;
+    // Sobreviven a las reconstrucciones, como en AlumnoIndiceMemoria
+    private final LapidasRecientes lapidas = new LapidasRecientes(DURACION_LAPIDAS);
+
+    public AlumnoEstadisticas(AlumnoRepository alumnoRepository, MeterRegistry meterRegistry) {
+        this.alumnoRepository = alumnoRepository;
+        this.desvios = Counter.builder("alumnos.estadisticas.desvios")
+                              .description("Conciliaciones en que las estadísticas en memoria no coincidían con la base de datos")
+                              .register(meterRegistry);
+    }
+
+    // Al reconstruir se siguen sirviendo (y actualizando) las anteriores hasta que las nuevas estén listas
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        lock.writeLock().lock();
+        try {
+            construyendo = true;
+            pendientes.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long inicio = System.currentTimeMillis();
+        Datos nuevos = new Datos();
+        List<AlumnoCursoEdad> bloque;
+        long despuesDeId = 0L;
+        do {
+            bloque = alumnoRepository.findCursoYEdadDespuesDeId(despuesDeId, TAMANO_BLOQUE);
+            for (AlumnoCursoEdad alumno : bloque) {
+                nuevos.agregar(alumno.id(), alumno.curso(), alumno.edad(), version(alumno.version()));
+                despuesDeId = alumno.id();
+            }
+        } while (bloque.size() == TAMANO_BLOQUE);
+
+        lock.writeLock().lock();
+        try {
+            datos = nuevos;
+            pendientes.forEach(evento -> datos.aplicar(evento, lapidas));
+            eventosAplicados += pendientes.size();
+            pendientes.clear();
+            construyendo = false;
+            listo = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Estadísticas de alumnos construidas: {} filas en {} ms", nuevos.total, System.currentTimeMillis() - inicio);
+    }
+
+    public boolean estaListo() {
+        lock.readLock().lock();
+        try {
+            return listo;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarAlumno(AlumnoEvento evento) {
+        lock.writeLock().lock();
+        try {
+            if (listo) {
+                datos.aplicar(evento, lapidas);
+                eventosAplicados++;
+            }
+            if (construyendo) {
+                pendientes.add(evento);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public EstadisticasAlumnos obtener() {
+        lock.readLock().lock();
+        try {
+            return datos.resumen();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Compara con un GROUP BY curso, edad. Si se confirmó alguna escritura mientras corría la consulta
+    // no se puede saber qué vio la base de datos, y se deja para la próxima vuelta. Devuelve true si coincidían.
+    @Scheduled(fixedDelayString = "${alumnos.estadisticas.conciliacion:PT5M}",
+               initialDelayString = "${alumnos.estadisticas.conciliacion:PT5M}")
+    public boolean conciliar() {
+        long eventosAntes;
+        lock.readLock().lock();
+        try {
+            if (!listo) {
+                return true;
+            }
+            eventosAntes = eventosAplicados;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<String, Long> porCurso = new HashMap<>();
+        Map<Integer, Long> porEdad = new HashMap<>();
+        for (ConteoCursoEdad conteo : alumnoRepository.findConteoPorCursoYEdad()) {
+            porCurso.merge(claveDeCurso(conteo.getCurso()), conteo.getTotal().longValue(), Long::sum);
+            porEdad.merge(conteo.getEdad().intValue(), conteo.getTotal().longValue(), Long::sum);
+        }
+
+        boolean coinciden;
+        lock.readLock().lock();
+        try {
+            if (eventosAplicados != eventosAntes) {
+                log.debug("Conciliación de estadísticas postergada: hubo escrituras durante la consulta");
+                return true;
+            }
+            coinciden = datos.porCurso.equals(porCurso) && datos.porEdad.equals(porEdad);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!coinciden) {
+            desvios.increment();
+            log.warn("Las estadísticas de alumnos no coinciden con la base de datos; se reconstruyen");
+            construir();
+        }
+        return coinciden;
+    }
+
+    private static long version(Long version) {
+        return version == null ? 0 : version;
+    }
+
+    private static String cursoOSinCurso(String curso) {
+        return curso == null ? SIN_CURSO : curso;
+    }
+
+    private static String claveDeCurso(String curso) {
+        return Intercalacion.clave(cursoOSinCurso(curso));
+    }
+
+    private static final class Datos {
+        // Por clave de Intercalacion, igual que el GROUP BY con el que se concilian
+        private final Map<String, Long> porCurso = new HashMap<>();
+        private final Map<Integer, Long> porEdad = new HashMap<>();
+        private final CursoYEdadPorId porId = new CursoYEdadPorId();
+        private final Map<String, String> cursos = new HashMap<>();
+        // Clave -> nombre que se muestra: el primero que llegó mientras el curso tenía alumnos
+        private final Map<String, String> nombres = new HashMap<>();
+        private long total;
+        private long sumaEdades;
+
+        // Los eventos pueden llegar desordenados, como en AlumnoIndiceMemoria: se descarta el que trae una
+        // versión anterior a la guardada y el de un ID con lápida. Así conciliar() solo corrige lo que se perdió
+        void aplicar(AlumnoEvento evento, LapidasRecientes lapidas) {
+            if (evento.tipo() == AlumnoEvento.Tipo.ELIMINADO) {
+                lapidas.registrar(evento.id());
+                quitar(evento.id());
+                return;
+            }
+            long version = version(evento.alumno().getVersion());
+            int posicion = porId.buscar(evento.id());
+            if (lapidas.contiene(evento.id()) || (posicion >= 0 && version < porId.versiones[posicion])) {
+                return;
+            }
+            quitar(evento.id());
+            agregar(evento.id(), evento.alumno().getCurso(), evento.alumno().getEdad(), version);
+        }
+
+        void agregar(long id, String curso, int edad, long version) {
+            // Todos los alumnos de un curso comparten la misma cadena
+            String cursoUnico = cursos.computeIfAbsent(claveDeCurso(curso), c -> c);
+            nombres.putIfAbsent(cursoUnico, cursoOSinCurso(curso));
+            porCurso.merge(cursoUnico, 1L, Long::sum);
+            porEdad.merge(edad, 1L, Long::sum);
+            porId.poner(id, cursoUnico, edad, version);
+            total++;
+            sumaEdades += edad;
+        }
+
+        void quitar(long id) {
+            int posicion = porId.buscar(id);
+            if (posicion < 0) {
+                return;
+            }
+            String curso = porId.cursos[posicion];
+            int edad = porId.edades[posicion];
+            porId.quitar(posicion);
+            if (restar(porCurso, curso) == null) {
+                nombres.remove(curso);
+            }
+            restar(porEdad, edad);
+            total--;
+            sumaEdades -= edad;
+        }
+
+        // El conteo que queda; null si llegó a cero
+        private static <K> Long restar(Map<K, Long> conteos, K clave) {
+            return conteos.computeIfPresent(clave, (k, conteo) -> conteo == 1 ? null : conteo - 1);
+        }
+
+        EstadisticasAlumnos resumen() {
+            TreeMap<Integer, Long> histograma = new TreeMap<>(porEdad);
+            TreeMap<String, Long> conNombre = new TreeMap<>();
+            porCurso.forEach((clave, conteo) -> conNombre.put(nombres.get(clave), conteo));
+            return new EstadisticasAlumnos(total,
+                                           conNombre,
+                                           histograma,
+                                           total == 0 ? null : histograma.firstKey(),
+                                           total == 0 ? null : (double) sumaEdades / total,
+                                           total == 0 ? null : histograma.lastKey());
+        }
+    }
+
+    // ID -> (curso, edad, versión) con direccionamiento abierto sobre arreglos primitivos: unos 40 bytes por
+    // alumno en lugar de los ~100 de un HashMap<Long, ...> con sus objetos
+    static final class CursoYEdadPorId {
+        private static final long LIBRE = Long.MIN_VALUE;
+
+        private long[] ids = nuevasClaves(1024);
+        private String[] cursos = new String[1024];
+        private int[] edades = new int[1024];
+        private long[] versiones = new long[1024];
+        private int tamano;
+
+        private static long[] nuevasClaves(int capacidad) {
+            long[] claves = new long[capacidad];
+            Arrays.fill(claves, LIBRE);
+            return claves;
+        }
+
+        void poner(long id, String curso, int edad, long version) {
+            if ((tamano + 1) * 4L > ids.length * 3L) {
+                agrandar();
+            }
+            int posicion = ubicar(id);
+            if (ids[posicion] == LIBRE) {
+                ids[posicion] = id;
+                tamano++;
+            }
+            cursos[posicion] = curso;
+            edades[posicion] = edad;
+            versiones[posicion] = version;
+        }
+
+        // Posición del ID o -1 si no está
+        int buscar(long id) {
+            int posicion = ubicar(id);
+            return ids[posicion] == LIBRE ? -1 : posicion;
+        }
+
+        // Borrado con corrimiento hacia atrás: no deja marcas de borrado que alarguen las búsquedas
+        void quitar(int posicion) {
+            int mascara = ids.length - 1;
+            int hueco = posicion;
+            int siguiente = (hueco + 1) & mascara;
+            while (ids[siguiente] != LIBRE) {
+                int ideal = dispersar(ids[siguiente]) & mascara;
+                // Se mueve al hueco si su posición ideal no está entre el hueco y donde quedó
+                if (((siguiente - ideal) & mascara) >= ((siguiente - hueco) & mascara)) {
+                    ids[hueco] = ids[siguiente];
+                    cursos[hueco] = cursos[siguiente];
+                    edades[hueco] = edades[siguiente];
+                    versiones[hueco] = versiones[siguiente];
+                    hueco = siguiente;
+                }
+                siguiente = (siguiente + 1) & mascara;
+            }
+            ids[hueco] = LIBRE;
+            cursos[hueco] = null;
+            tamano--;
+        }
+
+        int tamano() {
+            return tamano;
+        }
+
+        private int ubicar(long id) {
+            int mascara = ids.length - 1;
+            int posicion = dispersar(id) & mascara;
+            while (ids[posicion] != LIBRE && ids[posicion] != id) {
+                posicion = (posicion + 1) & mascara;
+            }
+            return posicion;
+        }
+
+        private void agrandar() {
+            long[] idsViejos = ids;
+            String[] cursosViejos = cursos;
+            int[] edadesViejas = edades;
+            long[] versionesViejas = versiones;
+            ids = nuevasClaves(idsViejos.length * 2);
+            cursos = new String[idsViejos.length * 2];
+            edades = new int[idsViejos.length * 2];
+            versiones = new long[idsViejos.length * 2];
+            tamano = 0;
+            for (int i = 0; i < idsViejos.length; i++) {
+                if (idsViejos[i] != LIBRE) {
+                    poner(idsViejos[i], cursosViejos[i], edadesViejas[i], versionesViejas[i]);
+                }
+            }
+        }
+
+        // Los IDs son consecutivos: se mezclan los bits para que no caigan todos en el mismo tramo
+        private static int dispersar(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
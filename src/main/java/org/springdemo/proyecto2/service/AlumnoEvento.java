@@ -0,0 +1,26 @@
+package org.springdemo.proyecto2.service;
+
+import org.springdemo.proyecto2.model.Alumno;
+
+// Cambio sobre un alumno. Se publica dentro de la transacción y los oyentes
+// (@TransactionalEventListener) lo reciben recién cuando la transacción confirma.
+public record AlumnoEvento(Tipo tipo, Long id, Alumno alumno) {
+
+    public enum Tipo {
+        CREADO,
+        ACTUALIZADO,
+        ELIMINADO
+    }
+
+    public static AlumnoEvento creado(Alumno alumno) {
+        return new AlumnoEvento(Tipo.CREADO, alumno.getId(), alumno);
+    }
+
+    public static AlumnoEvento actualizado(Alumno alumno) {
+        return new AlumnoEvento(Tipo.ACTUALIZADO, alumno.getId(), alumno);
+    }
+
+    public static AlumnoEvento eliminado(Long id) {
+        return new AlumnoEvento(Tipo.ELIMINADO, id, null);
+    }
+}
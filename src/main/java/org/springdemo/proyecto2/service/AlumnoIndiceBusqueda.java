@@ -0,0 +1,557 @@
+package org.springdemo.proyecto2.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springdemo.proyecto2.config.DataSourceReplicado;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.dto.CoincidenciaAlumno;
+import org.springdemo.proyecto2.repository.AlumnoRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Índice de búsqueda en memoria sobre nombre y apellido para GET /api/alumnos/search.
+// Cada palabra se normaliza (minúsculas, sin tildes ni diéresis, ñ -> n) y va a un diccionario ordenado
+// con los IDs que la contienen: una búsqueda por prefijo es un rango del diccionario. Para los errores
+// de tipeo también se indexa cada palabra sin una de sus letras, así las palabras a distancia de edición 1
+// se encuentran con unas pocas búsquedas en un mapa en lugar de recorrer el diccionario.
+// Se construye al arrancar y se mantiene con los AlumnoEvento confirmados, igual que AlumnoIndiceMemoria.
+// Se desactiva con alumnos.busqueda.habilitada=false y con alumnos.shards.habilitados=true, porque los alumnos
+// ya no están en la base de la que se carga.
+@Component
+@ConditionalOnExpression("${alumnos.busqueda.habilitada:true} and !${alumnos.shards.habilitados:false}")
+public class AlumnoIndiceBusqueda {
+
+    private static final Logger log = LoggerFactory.getLogger(AlumnoIndiceBusqueda.class);
+
+    // Filas por consulta al construir el índice
+    private static final int TAMANO_BLOQUE = 10_000;
+
+    // Palabras de la consulta que se tienen en cuenta
+    private static final int MAXIMO_PALABRAS_CONSULTA = 4;
+
+    // Con menos letras casi cualquier palabra está a distancia 1: solo coinciden exactas o por prefijo
+    private static final int LARGO_MINIMO_APROXIMADO = 4;
+
+    // Candidatos revisados como máximo por búsqueda: acota las consultas de varias palabras
+    // muy comunes por separado que casi nunca aparecen juntas
+    private static final int MAXIMO_CANDIDATOS = 10_000;
+
+    // Puntaje de cada palabra de la consulta según cómo coincide
+    private static final int EXACTO = 3;
+    private static final int PREFIJO = 2;
+    private static final int APROXIMADO = 1;
+
+    private static final Duration DURACION_LAPIDAS = Duration.ofMinutes(5);
+
+    private final AlumnoRepository alumnoRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Datos datos = new Datos();
+    private boolean listo;
+    // Eventos que llegan mientras se construye el índice; se aplican al terminar
+    private final List<AlumnoEvento> pendientes = new ArrayList<>();
+    // Sobreviven a las reconstrucciones, como en AlumnoIndiceMemoria
+    private final LapidasRecientes lapidas = new LapidasRecientes(DURACION_LAPIDAS);
+
+    public AlumnoIndiceBusqueda(AlumnoRepository alumnoRepository) {
+        this.alumnoRepository = alumnoRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        lock.writeLock().lock();
+        try {
+            listo = false;
+            pendientes.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long inicio = System.currentTimeMillis();
+        Datos nuevos = DataSourceReplicado.enPrimaria(this::cargar);
+
+        lock.writeLock().lock();
+        try {
+            datos = nuevos;
+            pendientes.forEach(evento -> datos.aplicar(evento, lapidas));
+            pendientes.clear();
+            listo = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Índice de búsqueda de alumnos construido: {} filas, {} palabras distintas en {} ms",
+                 nuevos.docPorId.size(), nuevos.porPalabra.size(), System.currentTimeMillis() - inicio);
+    }
+
+    // Lee la tabla por bloques de IDs (keyset): cada bloque es una consulta corta, sin cursor abierto.
+    // De la primaria, como AlumnoIndiceMemoria: en una réplica atrasada faltarían filas cuyo evento ya llegó
+    private Datos cargar() {
+        Datos nuevos = new Datos();
+        List<AlumnoVista> bloque;
+        long despuesDeId = 0L;
+        do {
+            bloque = alumnoRepository.findVistasDespuesDeId(despuesDeId, TAMANO_BLOQUE);
+            for (AlumnoVista vista : bloque) {
+                nuevos.agregar(vista.id(), vista.nombre(), vista.apellido(), version(vista.version()));
+                despuesDeId = vista.id();
+            }
+        } while (bloque.size() == TAMANO_BLOQUE);
+        return nuevos;
+    }
+
+    public boolean estaListo() {
+        lock.readLock().lock();
+        try {
+            return listo;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarAlumno(AlumnoEvento evento) {
+        lock.writeLock().lock();
+        try {
+            if (listo) {
+                datos.aplicar(evento, lapidas);
+            } else {
+                pendientes.add(evento);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Cada palabra de la consulta tiene que coincidir con alguna palabra del nombre o del apellido:
+    // exacta, como prefijo o con un error de tipeo. Los mejores primero; a igual puntaje, los que
+    // coinciden con palabras más parecidas y después en orden de ID.
+    public List<CoincidenciaAlumno> buscar(String consulta, int limite) {
+        String[] palabras = palabras(consulta);
+        if (palabras.length == 0) {
+            throw new IllegalArgumentException("La búsqueda necesita al menos una letra o un número");
+        }
+        if (palabras.length > MAXIMO_PALABRAS_CONSULTA) {
+            palabras = Arrays.copyOf(palabras, MAXIMO_PALABRAS_CONSULTA);
+        }
+        lock.readLock().lock();
+        try {
+            return datos.buscar(palabras, limite);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static long version(Long version) {
+        return version == null ? 0 : version;
+    }
+
+    // "María José  Núñez-Peña" -> [maria, jose, nunez, pena]
+    static String[] palabras(String texto) {
+        if (texto == null) {
+            return new String[0];
+        }
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        List<String> palabras = new ArrayList<>();
+        StringBuilder palabra = new StringBuilder();
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                // tilde, diéresis o virgulilla separada de su letra por NFD
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                palabra.append(Character.toLowerCase(c));
+            } else if (!palabra.isEmpty()) {
+                palabras.add(palabra.toString());
+                palabra.setLength(0);
+            }
+        }
+        if (!palabra.isEmpty()) {
+            palabras.add(palabra.toString());
+        }
+        return palabras.toArray(new String[0]);
+    }
+
+    // Distancia de edición (con transposición de letras vecinas) como máximo 1, sin armar la matriz
+    static boolean aDistanciaUno(String a, String b) {
+        int diferencia = a.length() - b.length();
+        if (diferencia > 1 || diferencia < -1) {
+            return false;
+        }
+        String corta = diferencia <= 0 ? a : b;
+        String larga = diferencia <= 0 ? b : a;
+        int i = 0;
+        while (i < corta.length() && corta.charAt(i) == larga.charAt(i)) {
+            i++;
+        }
+        if (i == corta.length()) {
+            // iguales, o la larga tiene una letra más al final
+            return true;
+        }
+        if (corta.length() != larga.length()) {
+            // una letra de más en la larga
+            return corta.regionMatches(i, larga, i + 1, corta.length() - i);
+        }
+        // una letra cambiada, o dos vecinas intercambiadas
+        return corta.regionMatches(i + 1, larga, i + 1, corta.length() - i - 1)
+                || (i + 1 < corta.length()
+                    && corta.charAt(i) == larga.charAt(i + 1) && corta.charAt(i + 1) == larga.charAt(i)
+                    && corta.regionMatches(i + 2, larga, i + 2, corta.length() - i - 2));
+    }
+
+    // Palabra del diccionario: su número (lo que guardan los documentos) y los documentos que la contienen
+    private static final class Termino {
+        private final int numero;
+        private final Postings docs = new Postings();
+
+        Termino(int numero) {
+            this.numero = numero;
+        }
+    }
+
+    // Palabra del diccionario que coincide con una palabra de la consulta
+    private record Coincidencia(Termino termino, int calidad) {
+    }
+
+    // Las coincidencias de una palabra de la consulta, de mejor a peor, con los números de término
+    // ordenados para saber con una búsqueda binaria cuál es la mejor entre las palabras de un documento
+    private static final class Coincidencias {
+        private final List<Coincidencia> lista;
+        private final int[] numeros;
+        private final int[] posiciones;
+        private final long totalDocs;
+
+        Coincidencias(List<Coincidencia> lista) {
+            this.lista = lista;
+            long[] claves = new long[lista.size()];
+            long total = 0;
+            for (int i = 0; i < lista.size(); i++) {
+                claves[i] = ((long) lista.get(i).termino().numero << 32) | i;
+                total += lista.get(i).termino().docs.tamano;
+            }
+            Arrays.sort(claves);
+            numeros = new int[claves.length];
+            posiciones = new int[claves.length];
+            for (int i = 0; i < claves.length; i++) {
+                numeros[i] = (int) (claves[i] >>> 32);
+                posiciones[i] = (int) claves[i];
+            }
+            totalDocs = total;
+        }
+
+        // Posición en la lista de la mejor coincidencia entre las palabras del documento, -1 si no hay
+        int mejorPosicion(int[] palabras) {
+            int mejor = Integer.MAX_VALUE;
+            for (int numero : palabras) {
+                int encontrado = Arrays.binarySearch(numeros, numero);
+                if (encontrado >= 0 && posiciones[encontrado] < mejor) {
+                    mejor = posiciones[encontrado];
+                }
+            }
+            return mejor == Integer.MAX_VALUE ? -1 : mejor;
+        }
+    }
+
+    private record Candidato(int doc, int puntaje, long orden) {
+    }
+
+    // El peor de los mejores arriba del montículo: menor puntaje y, a igual puntaje, el encontrado último
+    private static final Comparator<Candidato> PEOR_PRIMERO =
+            Comparator.comparingInt(Candidato::puntaje).thenComparing(Comparator.comparingLong(Candidato::orden).reversed());
+
+    // Cada alumno ocupa un documento (una posición en los arreglos) asignado en orden de llegada, así las
+    // listas de documentos de cada palabra quedan en orden de ID. Las palabras de un documento se guardan
+    // como números de término: revisar un candidato es leer un int[] y hacer búsquedas binarias sobre
+    // arreglos chicos, sin recorrer objetos. Una baja deja un hueco que se recupera al reconstruir.
+    private static final class Datos {
+        private long[] idPorDoc = new long[1024];
+        private long[] versionPorDoc = new long[1024];
+        private int[][] palabrasPorDoc = new int[1024][];
+        private String[] nombrePorDoc = new String[1024];
+        private String[] apellidoPorDoc = new String[1024];
+        private int documentos;
+        private final Map<Long, Integer> docPorId = new HashMap<>();
+        // palabra normalizada -> término, y número de término -> palabra
+        private final TreeMap<String, Termino> porPalabra = new TreeMap<>();
+        private final List<String> palabraPorNumero = new ArrayList<>();
+        private final ArrayDeque<Integer> numerosLibres = new ArrayDeque<>();
+        // palabra sin una de sus letras -> palabras de las que sale
+        private final Map<String, Set<String>> porVariante = new HashMap<>();
+        // Los nombres y apellidos se repiten mucho: cada texto distinto se guarda una sola vez
+        private final Map<String, String> textos = new HashMap<>();
+
+        // Los eventos pueden llegar desordenados, como en AlumnoIndiceMemoria: se descarta el que trae
+        // una versión anterior a la del documento y el de un ID con lápida
+        void aplicar(AlumnoEvento evento, LapidasRecientes lapidas) {
+            if (evento.tipo() == AlumnoEvento.Tipo.ELIMINADO) {
+                lapidas.registrar(evento.id());
+                quitar(evento.id());
+                return;
+            }
+            long version = version(evento.alumno().getVersion());
+            Integer existente = docPorId.get(evento.id());
+            if (lapidas.contiene(evento.id()) || (existente != null && version < versionPorDoc[existente])) {
+                return;
+            }
+            agregar(evento.id(), evento.alumno().getNombre(), evento.alumno().getApellido(), version);
+        }
+
+        // Un alumno que ya estaba conserva su documento (y su lugar en el orden)
+        void agregar(long id, String nombre, String apellido, long version) {
+            Integer existente = docPorId.get(id);
+            int doc;
+            if (existente != null) {
+                doc = existente;
+                quitarPalabras(doc);
+            } else {
+                doc = nuevoDocumento(id);
+            }
+            Set<String> distintas = new LinkedHashSet<>(Arrays.asList(palabras(nombre)));
+            distintas.addAll(Arrays.asList(palabras(apellido)));
+            int[] numeros = new int[distintas.size()];
+            int i = 0;
+            for (String palabra : distintas) {
+                Termino termino = porPalabra.get(palabra);
+                if (termino == null) {
+                    termino = nuevoTermino(palabra);
+                }
+                termino.docs.insertar(doc);
+                numeros[i++] = termino.numero;
+            }
+            palabrasPorDoc[doc] = numeros;
+            versionPorDoc[doc] = version;
+            nombrePorDoc[doc] = unico(nombre);
+            apellidoPorDoc[doc] = unico(apellido);
+        }
+
+        void quitar(long id) {
+            Integer doc = docPorId.remove(id);
+            if (doc == null) {
+                return;
+            }
+            quitarPalabras(doc);
+            palabrasPorDoc[doc] = null;
+            nombrePorDoc[doc] = null;
+            apellidoPorDoc[doc] = null;
+        }
+
+        private int nuevoDocumento(long id) {
+            if (documentos == idPorDoc.length) {
+                int capacidad = documentos * 2;
+                idPorDoc = Arrays.copyOf(idPorDoc, capacidad);
+                versionPorDoc = Arrays.copyOf(versionPorDoc, capacidad);
+                palabrasPorDoc = Arrays.copyOf(palabrasPorDoc, capacidad);
+                nombrePorDoc = Arrays.copyOf(nombrePorDoc, capacidad);
+                apellidoPorDoc = Arrays.copyOf(apellidoPorDoc, capacidad);
+            }
+            int doc = documentos++;
+            idPorDoc[doc] = id;
+            docPorId.put(id, doc);
+            return doc;
+        }
+
+        private Termino nuevoTermino(String palabra) {
+            String unica = unico(palabra);
+            Integer libre = numerosLibres.poll();
+            Termino termino = new Termino(libre != null ? libre : palabraPorNumero.size());
+            if (libre != null) {
+                palabraPorNumero.set(libre, unica);
+            } else {
+                palabraPorNumero.add(unica);
+            }
+            porPalabra.put(unica, termino);
+            for (String variante : variantes(unica)) {
+                porVariante.computeIfAbsent(variante, v -> new HashSet<>()).add(unica);
+            }
+            return termino;
+        }
+
+        private void quitarPalabras(int doc) {
+            for (int numero : palabrasPorDoc[doc]) {
+                String palabra = palabraPorNumero.get(numero);
+                Termino termino = porPalabra.get(palabra);
+                termino.docs.eliminar(doc);
+                if (termino.docs.tamano > 0) {
+                    continue;
+                }
+                porPalabra.remove(palabra);
+                palabraPorNumero.set(numero, null);
+                numerosLibres.add(numero);
+                for (String variante : variantes(palabra)) {
+                    Set<String> origen = porVariante.get(variante);
+                    origen.remove(palabra);
+                    if (origen.isEmpty()) {
+                        porVariante.remove(variante);
+                    }
+                }
+            }
+        }
+
+        private String unico(String texto) {
+            return texto == null ? null : textos.computeIfAbsent(texto, t -> t);
+        }
+
+        List<CoincidenciaAlumno> buscar(String[] consulta, int limite) {
+            Coincidencias[] porPalabraDeConsulta = new Coincidencias[consulta.length];
+            // La palabra con menos documentos guía la búsqueda; las demás solo se verifican en cada candidato
+            int guia = 0;
+            for (int i = 0; i < consulta.length; i++) {
+                List<Coincidencia> lista = coincidencias(consulta[i]);
+                if (lista.isEmpty()) {
+                    return List.of();
+                }
+                porPalabraDeConsulta[i] = new Coincidencias(lista);
+                if (porPalabraDeConsulta[i].totalDocs < porPalabraDeConsulta[guia].totalDocs) {
+                    guia = i;
+                }
+            }
+
+            // Las coincidencias de la guía van de mejor a peor, así que apenas el peor de los mejores
+            // alcanza lo máximo que puede sumar un candidato nuevo ya no hace falta seguir. Cada una de
+            // las otras palabras suma como mucho su mejor coincidencia en el diccionario.
+            Coincidencias coincidenciasGuia = porPalabraDeConsulta[guia];
+            int maximoDelResto = 0;
+            for (int i = 0; i < consulta.length; i++) {
+                if (i != guia) {
+                    maximoDelResto += porPalabraDeConsulta[i].lista.get(0).calidad();
+                }
+            }
+            PriorityQueue<Candidato> mejores = new PriorityQueue<>(limite, PEOR_PRIMERO);
+            int revisados = 0;
+            long orden = 0;
+            buscar:
+            for (int posicion = 0; posicion < coincidenciasGuia.lista.size(); posicion++) {
+                Coincidencia coincidencia = coincidenciasGuia.lista.get(posicion);
+                int cota = coincidencia.calidad() + maximoDelResto;
+                Postings docs = coincidencia.termino().docs;
+                for (int i = 0; i < docs.tamano; i++) {
+                    if (mejores.size() == limite && mejores.peek().puntaje() >= cota) {
+                        break buscar;
+                    }
+                    int doc = docs.docs[i];
+                    int[] palabras = palabrasPorDoc[doc];
+                    // Un documento con varias palabras que coinciden con la guía se revisa una sola vez, con la mejor
+                    if (coincidenciasGuia.mejorPosicion(palabras) != posicion) {
+                        continue;
+                    }
+                    if (++revisados > MAXIMO_CANDIDATOS) {
+                        break buscar;
+                    }
+                    int puntaje = coincidencia.calidad();
+                    for (int j = 0; j < consulta.length && puntaje > 0; j++) {
+                        if (j != guia) {
+                            int mejor = porPalabraDeConsulta[j].mejorPosicion(palabras);
+                            puntaje = mejor < 0 ? 0 : puntaje + porPalabraDeConsulta[j].lista.get(mejor).calidad();
+                        }
+                    }
+                    if (puntaje == 0) {
+                        continue;
+                    }
+                    Candidato candidato = new Candidato(doc, puntaje, orden++);
+                    if (mejores.size() < limite) {
+                        mejores.add(candidato);
+                    } else if (PEOR_PRIMERO.compare(candidato, mejores.peek()) > 0) {
+                        mejores.poll();
+                        mejores.add(candidato);
+                    }
+                }
+            }
+
+            List<Candidato> ordenados = new ArrayList<>(mejores);
+            ordenados.sort(PEOR_PRIMERO.reversed());
+            double puntajeMaximo = EXACTO * consulta.length;
+            List<CoincidenciaAlumno> resultado = new ArrayList<>(ordenados.size());
+            for (Candidato candidato : ordenados) {
+                int doc = candidato.doc();
+                resultado.add(new CoincidenciaAlumno(idPorDoc[doc], nombrePorDoc[doc], apellidoPorDoc[doc],
+                                                     candidato.puntaje() / puntajeMaximo));
+            }
+            return resultado;
+        }
+
+        // Palabras del diccionario que coinciden: la exacta, después las que la tienen como prefijo
+        // (en orden alfabético, así las más cortas van primero) y por último las que están a distancia 1
+        private List<Coincidencia> coincidencias(String palabra) {
+            List<Coincidencia> coincidencias = new ArrayList<>();
+            Termino exacto = porPalabra.get(palabra);
+            if (exacto != null) {
+                coincidencias.add(new Coincidencia(exacto, EXACTO));
+            }
+            for (Termino conPrefijo : porPalabra.subMap(palabra, false, palabra + Character.MAX_VALUE, false).values()) {
+                coincidencias.add(new Coincidencia(conPrefijo, PREFIJO));
+            }
+            if (palabra.length() >= LARGO_MINIMO_APROXIMADO) {
+                // Una letra de más en el diccionario, una de menos, una cambiada o dos vecinas intercambiadas
+                Set<String> aproximadas = new HashSet<>(porVariante.getOrDefault(palabra, Set.of()));
+                for (String variante : variantes(palabra)) {
+                    if (porPalabra.containsKey(variante)) {
+                        aproximadas.add(variante);
+                    }
+                    aproximadas.addAll(porVariante.getOrDefault(variante, Set.of()));
+                }
+                aproximadas.stream()
+                           .filter(aproximada -> !aproximada.startsWith(palabra) && aDistanciaUno(palabra, aproximada))
+                           .sorted()
+                           .forEach(aproximada -> coincidencias.add(new Coincidencia(porPalabra.get(aproximada), APROXIMADO)));
+            }
+            return coincidencias;
+        }
+
+        // Sin repetidas: en "carreras" quitar cualquiera de las dos r vecinas da lo mismo
+        private static Set<String> variantes(String palabra) {
+            Set<String> variantes = new HashSet<>();
+            for (int i = 0; i < palabra.length(); i++) {
+                variantes.add(palabra.substring(0, i) + palabra.substring(i + 1));
+            }
+            return variantes;
+        }
+    }
+
+    // Documentos de una palabra, ordenados, en un arreglo primitivo. Al construir llegan en orden y se agregan al final
+    static final class Postings {
+        private int[] docs = new int[4];
+        private int tamano;
+
+        void insertar(int doc) {
+            int posicion = tamano > 0 && docs[tamano - 1] < doc ? -(tamano + 1) : Arrays.binarySearch(docs, 0, tamano, doc);
+            if (posicion >= 0) {
+                return;
+            }
+            posicion = -posicion - 1;
+            if (tamano == docs.length) {
+                docs = Arrays.copyOf(docs, tamano * 2);
+            }
+            System.arraycopy(docs, posicion, docs, posicion + 1, tamano - posicion);
+            docs[posicion] = doc;
+            tamano++;
+        }
+
+        void eliminar(int doc) {
+            int posicion = Arrays.binarySearch(docs, 0, tamano, doc);
+            if (posicion < 0) {
+                return;
+            }
+            System.arraycopy(docs, posicion + 1, docs, posicion, tamano - posicion - 1);
+            tamano--;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package org.springdemo.proyecto2.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springdemo.proyecto2.config.DataSourceReplicado;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.dto.HuellaAlumnos;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.repository.AlumnoRepository;
+import org.springdemo.proyecto2.repository.Intercalacion;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Copia en memoria de la tabla alumnos con índices por curso y por edad.
+// Se construye al arrancar y se mantiene con los AlumnoEvento confirmados,
+// así /curso/{curso} y /edad/{min}-{max} se responden sin ir a la base de datos.
+// Guarda AlumnoVista (inmutables): lo que devuelve se puede entregar sin copiarlo. El curso se busca como lo
+// compara la base de datos (Intercalacion), sin distinguir mayúsculas ni tildes.
+// Se activa con alumnos.indice-memoria.habilitado=true, salvo con shards (se cargaría de la base principal).
+@Component
+@ConditionalOnExpression("${alumnos.indice-memoria.habilitado:false} and !${alumnos.shards.habilitados:false}")
+public class AlumnoIndiceMemoria {
+
+    private static final Logger log = LoggerFactory.getLogger(AlumnoIndiceMemoria.class);
+    private static final Duration DURACION_LAPIDAS = Duration.ofMinutes(5);
+
+    private final AlumnoRepository alumnoRepository;
+    private final TransactionTemplate transaccionLectura;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Datos datos = new Datos();
+    private boolean listo;
+    // Eventos que llegan mientras se construye el índice; se aplican al terminar
+    private final List<AlumnoEvento> pendientes = new ArrayList<>();
+    // Sobreviven a las reconstrucciones: un ACTUALIZADO tardío no debe devolver una fila borrada antes
+    private final LapidasRecientes lapidas = new LapidasRecientes(DURACION_LAPIDAS);
+
+    public AlumnoIndiceMemoria(AlumnoRepository alumnoRepository, PlatformTransactionManager transactionManager) {
+        this.alumnoRepository = alumnoRepository;
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        lock.writeLock().lock();
+        try {
+            listo = false;
+            pendientes.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long inicio = System.currentTimeMillis();
+        Datos nuevos = new Datos();
+        recorrerBaseDeDatos(alumno -> nuevos.cargar(AlumnoVista.de(alumno)));
+        nuevos.porEdad.ordenar();
+
+        lock.writeLock().lock();
+        try {
+            datos = nuevos;
+            pendientes.forEach(evento -> datos.aplicar(evento, lapidas));
+            pendientes.clear();
+            listo = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Índice en memoria de alumnos construido: {} filas en {} ms",
+                 nuevos.porId.size(), System.currentTimeMillis() - inicio);
+    }
+
+    public boolean estaListo() {
+        lock.readLock().lock();
+        try {
+            return listo;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarAlumno(AlumnoEvento evento) {
+        lock.writeLock().lock();
+        try {
+            if (listo) {
+                datos.aplicar(evento, lapidas);
+            } else {
+                pendientes.add(evento);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<AlumnoVista> buscarPorCurso(String curso) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Long> ids = datos.porCurso.getOrDefault(Intercalacion.clave(curso), Collections.emptyNavigableSet());
+            List<AlumnoVista> alumnos = new ArrayList<>(ids.size());
+            ids.forEach(id -> alumnos.add(datos.porId.get(id)));
+            return alumnos;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<AlumnoVista> buscarPorRangoEdad(int edadMinima, int edadMaxima) {
+        lock.readLock().lock();
+        try {
+            long[] ids = datos.porEdad.rango(edadMinima, edadMaxima);
+            // Mismo orden que devuelve la base de datos al recorrer la tabla
+            Arrays.sort(ids);
+            List<AlumnoVista> alumnos = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                alumnos.add(datos.porId.get(id));
+            }
+            return alumnos;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Huellas de los ETag de /curso/{curso} y /edad/{min}-{max} sobre las mismas filas que devuelven las búsquedas:
+    // total, suma de IDs y suma de versiones, como las de AlumnoRepository, así el ETag no cambia si el índice se apaga
+    public HuellaAlumnos huellaPorCurso(String curso) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Long> ids = datos.porCurso.getOrDefault(Intercalacion.clave(curso), Collections.emptyNavigableSet());
+            long sumaIds = 0;
+            long sumaVersiones = 0;
+            for (Long id : ids) {
+                sumaIds += id;
+                sumaVersiones += version(datos.porId.get(id));
+            }
+            return HuellaAlumnos.de(ids.size(), sumaIds, sumaVersiones);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public HuellaAlumnos huellaPorRangoEdad(int edadMinima, int edadMaxima) {
+        lock.readLock().lock();
+        try {
+            long[] ids = datos.porEdad.rango(edadMinima, edadMaxima);
+            long sumaIds = 0;
+            long sumaVersiones = 0;
+            for (long id : ids) {
+                sumaIds += id;
+                sumaVersiones += version(datos.porId.get(id));
+            }
+            return HuellaAlumnos.de(ids.length, sumaIds, sumaVersiones);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // SUM(version) no cuenta los NULL
+    private static long version(AlumnoVista alumno) {
+        return alumno.version() == null ? 0 : alumno.version();
+    }
+
+    // Compara el índice con la base de datos fila por fila. Con escrituras concurrentes
+    // puede informar diferencias transitorias; si persisten, conviene reconstruir.
+    public Map<String, Object> verificarConsistencia() {
+        Map<Long, AlumnoVista> copia;
+        lock.readLock().lock();
+        try {
+            copia = new HashMap<>(datos.porId);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Long> faltantes = new ArrayList<>();
+        List<Long> distintos = new ArrayList<>();
+        long[] filasEnBaseDeDatos = {0};
+        recorrerBaseDeDatos(alumno -> {
+            filasEnBaseDeDatos[0]++;
+            AlumnoVista enMemoria = copia.remove(alumno.getId());
+            if (enMemoria == null) {
+                faltantes.add(alumno.getId());
+            } else if (!mismosDatos(enMemoria, alumno)) {
+                distintos.add(alumno.getId());
+            }
+        });
+        List<Long> sobrantes = new ArrayList<>(copia.keySet());
+        Collections.sort(sobrantes);
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("consistente", faltantes.isEmpty() && sobrantes.isEmpty() && distintos.isEmpty());
+        resultado.put("filasEnBaseDeDatos", filasEnBaseDeDatos[0]);
+        resultado.put("faltantesEnMemoria", limitar(faltantes));
+        resultado.put("sobrantesEnMemoria", limitar(sobrantes));
+        resultado.put("distintos", limitar(distintos));
+        return resultado;
+    }
+
+    // De la primaria aunque la transacción sea readOnly: la carga y la verificación se comparan con los eventos
+    // ya confirmados, y una réplica atrasada no los tendría
+    private void recorrerBaseDeDatos(Consumer<Alumno> consumidor) {
+        DataSourceReplicado.enPrimaria(() -> transaccionLectura.execute(estado -> {
+            try (Stream<Alumno> alumnos = alumnoRepository.streamAllAlumnosQuery()) {
+                alumnos.forEach(alumno -> {
+                    consumidor.accept(alumno);
+                    entityManager.detach(alumno);
+                });
+            }
+            return null;
+        }));
+    }
+
+    private static List<Long> limitar(List<Long> ids) {
+        return ids.size() <= 100 ? ids : ids.subList(0, 100);
+    }
+
+    private static boolean mismosDatos(AlumnoVista enMemoria, Alumno alumno) {
+        return enMemoria.edad() == alumno.getEdad()
+                && Objects.equals(enMemoria.version(), alumno.getVersion())
+                && Objects.equals(enMemoria.nombre(), alumno.getNombre())
+                && Objects.equals(enMemoria.apellido(), alumno.getApellido())
+                && Objects.equals(enMemoria.curso(), alumno.getCurso());
+    }
+
+    private static final class Datos {
+        private final Map<Long, AlumnoVista> porId = new HashMap<>();
+        // Por clave de Intercalacion: "Física" y "fisica" son el mismo curso
+        private final Map<String, NavigableSet<Long>> porCurso = new HashMap<>();
+        private final IndiceEdad porEdad = new IndiceEdad();
+
+        // La versión es la que trae el evento: el servicio la publica con la que dejó la escritura.
+        // Los eventos llegan en el orden en que confirma cada hilo, no en el de las escrituras: se descarta
+        // el que trae una versión anterior a la guardada (la v2 después de la v3, el CREADO después del
+        // primer ACTUALIZADO) y el de un ID con lápida
+        void aplicar(AlumnoEvento evento, LapidasRecientes lapidas) {
+            if (evento.tipo() == AlumnoEvento.Tipo.ELIMINADO) {
+                lapidas.registrar(evento.id());
+                quitar(evento.id());
+                return;
+            }
+            AlumnoVista nuevo = AlumnoVista.de(evento.alumno());
+            AlumnoVista actual = porId.get(evento.id());
+            if (lapidas.contiene(evento.id()) || (actual != null && version(nuevo) < version(actual))) {
+                return;
+            }
+            quitar(evento.id());
+            agregar(nuevo);
+        }
+
+        void agregar(AlumnoVista alumno) {
+            porId.put(alumno.id(), alumno);
+            porCurso.computeIfAbsent(Intercalacion.clave(alumno.curso()), curso -> new TreeSet<>()).add(alumno.id());
+            porEdad.insertar(alumno.edad(), alumno.id());
+        }
+
+        // Carga inicial: el índice de edad se ordena una sola vez al final
+        void cargar(AlumnoVista alumno) {
+            porId.put(alumno.id(), alumno);
+            porCurso.computeIfAbsent(Intercalacion.clave(alumno.curso()), curso -> new TreeSet<>()).add(alumno.id());
+            porEdad.agregarAlFinal(alumno.edad(), alumno.id());
+        }
+
+        void quitar(Long id) {
+            AlumnoVista anterior = porId.remove(id);
+            if (anterior == null) {
+                return;
+            }
+            String curso = Intercalacion.clave(anterior.curso());
+            NavigableSet<Long> ids = porCurso.get(curso);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                porCurso.remove(curso);
+            }
+            porEdad.eliminar(anterior.edad(), id);
+        }
+    }
+
+    // Índice ordenado por (edad, id) en dos arreglos primitivos paralelos:
+    // un rango de edades es un tramo contiguo que se ubica con dos búsquedas binarias
+    static final class IndiceEdad {
+        private int[] edades = new int[1024];
+        private long[] ids = new long[1024];
+        private int tamano;
+
+        void insertar(int edad, long id) {
+            int posicion = buscar(edad, id);
+            if (posicion >= 0) {
+                return;
+            }
+            posicion = -posicion - 1;
+            if (tamano == edades.length) {
+                edades = Arrays.copyOf(edades, tamano * 2);
+                ids = Arrays.copyOf(ids, tamano * 2);
+            }
+            System.arraycopy(edades, posicion, edades, posicion + 1, tamano - posicion);
+            System.arraycopy(ids, posicion, ids, posicion + 1, tamano - posicion);
+            edades[posicion] = edad;
+            ids[posicion] = id;
+            tamano++;
+        }
+
+        void eliminar(int edad, long id) {
+            int posicion = buscar(edad, id);
+            if (posicion < 0) {
+                return;
+            }
+            System.arraycopy(edades, posicion + 1, edades, posicion, tamano - posicion - 1);
+            System.arraycopy(ids, posicion + 1, ids, posicion, tamano - posicion - 1);
+            tamano--;
+        }
+
+        long[] rango(int edadMinima, int edadMaxima) {
+            if (edadMinima > edadMaxima) {
+                return new long[0];
+            }
+            int desde = -buscar(edadMinima, Long.MIN_VALUE) - 1;
+            int hasta = -buscar(edadMaxima, Long.MAX_VALUE) - 1;
+            return Arrays.copyOfRange(ids, desde, hasta);
+        }
+
+        int tamano() {
+            return tamano;
+        }
+
+        void agregarAlFinal(int edad, long id) {
+            if (tamano == edades.length) {
+                edades = Arrays.copyOf(edades, tamano * 2);
+                ids = Arrays.copyOf(ids, tamano * 2);
+            }
+            edades[tamano] = edad;
+            ids[tamano] = id;
+            tamano++;
+        }
+
+        // Ordena lo cargado con agregarAlFinal. Los IDs llegan en orden ascendente, así que
+        // basta ordenar por (edad, posición de llegada), empaquetados en un long
+        void ordenar() {
+            long[] claves = new long[tamano];
+            for (int i = 0; i < tamano; i++) {
+                claves[i] = ((long) edades[i] << 32) | i;
+            }
+            Arrays.parallelSort(claves);
+            long[] idsOrdenados = new long[edades.length];
+            for (int i = 0; i < tamano; i++) {
+                int llegada = (int) claves[i];
+                edades[i] = (int) (claves[i] >> 32);
+                idsOrdenados[i] = ids[llegada];
+            }
+            ids = idsOrdenados;
+        }
+
+        // Igual que Arrays.binarySearch: posición si existe, (-(punto de inserción) - 1) si no
+        private int buscar(int edad, long id) {
+            int bajo = 0;
+            int alto = tamano - 1;
+            while (bajo <= alto) {
+                int medio = (bajo + alto) >>> 1;
+                int comparacion = edades[medio] != edad
+                        ? Integer.compare(edades[medio], edad)
+                        : Long.compare(ids[medio], id);
+                if (comparacion < 0) {
+                    bajo = medio + 1;
+                } else if (comparacion > 0) {
+                    alto = medio - 1;
+                } else {
+                    return medio;
+                }
+            }
+            return -(bajo + 1);
+        }
+    }
+}
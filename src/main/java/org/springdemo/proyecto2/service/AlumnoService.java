@@ -1,29 +1,84 @@
 package org.springdemo.proyecto2.service;
 
+import org.springdemo.proyecto2.dto.AlumnoFila;
+import org.springdemo.proyecto2.dto.AlumnoParcial;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.dto.CoincidenciaAlumno;
+import org.springdemo.proyecto2.dto.DeltaAlumnos;
+import org.springdemo.proyecto2.dto.EstadisticasAlumnos;
+import org.springdemo.proyecto2.dto.PaginaAlumnos;
+import org.springdemo.proyecto2.dto.ResultadoLote;
 import org.springdemo.proyecto2.model.Alumno;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface AlumnoService {
 
     // Obtener todos los alumnos
     List<Alumno> obtenerTodosLosAlumnos();
 
+    // Obtener una página del listado de index.html, ordenada por una de sus columnas
+    Page<AlumnoFila> obtenerPaginaDelListado(int pagina, Integer tamano, String orden, String direccion);
+
+    // Si esa página del listado se puede mostrar (con shards, las del medio de un listado grande no)
+    boolean puedeMostrarPaginaDelListado(Pageable pagina, long total);
+
+    // Recorrer el listado completo de index.html por bloques, sin cargarlo entero en memoria
+    ListadoPorBloques recorrerListadoDeAlumnos();
+
+    // Obtener una página de alumnos a partir de un cursor opaco
+    PaginaAlumnos obtenerAlumnosPaginados(String cursor, Integer limite);
+
+    // Obtener los alumnos creados o modificados y los IDs eliminados desde un token de sincronización
+    DeltaAlumnos obtenerCambiosDesde(String token, Integer limite);
+
+    // Recorrer todos los alumnos en orden de ID con memoria constante
+    void exportarAlumnos(Consumer<Alumno> consumidor);
+
     // Obtener un alumno por su ID
     Alumno obtenerAlumnoPorId(Long id);
 
     // Guardar un nuevo alumno
     Alumno guardarAlumno(Alumno alumno);
 
+    // Guardar muchos alumnos en lotes, cada uno en su propia transacción
+    List<ResultadoLote> guardarAlumnosEnLote(Iterator<Alumno> alumnos);
+
+    // Guardar un lote en una sola transacción; si falla no se guarda ninguno
+    ResultadoLote guardarLote(int numeroLote, List<Alumno> lote);
+
     // Actualizar un alumno existente
     Alumno actualizarAlumno(Long id, Alumno alumno);
 
+    // Actualizar un alumno solo si sigue en la versión esperada (null = cualquier versión)
+    Alumno actualizarAlumno(Long id, Alumno alumno, Long versionEsperada);
+
+    // Actualizar solo los campos presentes (PATCH)
+    Alumno actualizarAlumnoParcialmente(Long id, AlumnoParcial cambios, Long versionEsperada);
+
     // Eliminar un alumno por su ID
     void eliminarAlumno(Long id);
 
     // Obtener alumnos por curso
-    List<Alumno> obtenerAlumnosPorCurso(String curso);
+    List<AlumnoVista> obtenerAlumnosPorCurso(String curso);
 
     // Obtener alumnos por rango de edades
-    List<Alumno> obtenerAlumnosPorRangoEdad(int edadMinima, int edadMaxima);
-}
+    List<AlumnoVista> obtenerAlumnosPorRangoEdad(int edadMinima, int edadMaxima);
+
+    // Buscar alumnos por nombre y apellido (prefijos, sin tildes ni mayúsculas, con un error de tipeo), los mejores primero
+    List<CoincidenciaAlumno> buscarAlumnos(String consulta, Integer limite);
+
+    // Conteos por curso, histograma y mínimo/promedio/máximo de edad
+    EstadisticasAlumnos obtenerEstadisticas();
+
+    // ETag de cada listado, calculados sin cargar los alumnos
+    String calcularEtagPagina(String cursor, Integer limite);
+
+    String calcularEtagPorCurso(String curso);
+
+    String calcularEtagPorRangoEdad(int edadMinima, int edadMaxima);
+}
\ No newline at end of file
@@ -1,30 +1,212 @@
 package org.springdemo.proyecto2.service;
 
+import io.micrometer.core.annotation.Timed;
+import org.springdemo.proyecto2.config.DataSourceReplicado;
+import org.springdemo.proyecto2.dto.AlumnoFila;
+import org.springdemo.proyecto2.dto.AlumnoParcial;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.dto.CoincidenciaAlumno;
+import org.springdemo.proyecto2.dto.DeltaAlumnos;
+import org.springdemo.proyecto2.dto.EstadisticasAlumnos;
+import org.springdemo.proyecto2.dto.PaginaAlumnos;
+import org.springdemo.proyecto2.dto.ResultadoLote;
 import org.springdemo.proyecto2.model.Alumno;
-import org.springdemo.proyecto2.repository.AlumnoRepository;
+import org.springdemo.proyecto2.repository.AlumnoAlmacen;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+// Los alumnos están en un AlumnoAlmacen: la base principal o, con alumnos.shards.habilitados=true, los shards.
+// Cada escritura del almacén ya confirmó cuando vuelve: el AlumnoEvento se publica después
 @Service
+//un timer por método (tags class/method/exception) en alumnos.servicio, con histograma para percentiles
+@Timed(value = "alumnos.servicio", histogram = true)
 public class AlumnoServiceImpl implements AlumnoService {
 
+    // Columnas de index.html por las que se puede ordenar
+    private static final Set<String> COLUMNAS_DEL_LISTADO = Set.of("id", "nombre", "apellido", "edad", "curso");
+
+    @Autowired
+    private AlumnoAlmacen alumnoAlmacen;
+
     @Autowired
-    private AlumnoRepository alumnoRepository;
+    private AlumnoCache alumnoCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Solo existe con alumnos.indice-memoria.habilitado=true (y sin shards)
+    @Autowired(required = false)
+    private AlumnoIndiceMemoria indiceMemoria;
+
+    // Solo existe con alumnos.busqueda.habilitada=true (por defecto) y sin shards
+    @Autowired(required = false)
+    private AlumnoIndiceBusqueda indiceBusqueda;
+
+    // Solo existe con alumnos.estadisticas.habilitadas=true (por defecto) y sin shards
+    @Autowired(required = false)
+    private AlumnoEstadisticas estadisticas;
+
+    // Solo existe con alumnos.coalescencia.habilitada=true (por defecto)
+    @Autowired(required = false)
+    private ConsultasCompartidas consultasCompartidas;
+
+    // Tamaño de página cuando el cliente no indica ?limit=
+    @Value("${alumnos.paginacion.tamano-por-defecto:50}")
+    private int tamanoPaginaPorDefecto;
+
+    // Máximo que impone el servidor aunque el cliente pida más
+    @Value("${alumnos.paginacion.tamano-maximo:500}")
+    private int tamanoPaginaMaximo;
+
+    // Vista paginada de index.html
+    @Value("${alumnos.listado.tamano-por-defecto:50}")
+    private int tamanoListadoPorDefecto;
+
+    @Value("${alumnos.listado.tamano-maximo:200}")
+    private int tamanoListadoMaximo;
+
+    // Filas por consulta en el listado completo de index.html (con shards, también en la exportación)
+    @Value("${alumnos.listado.tamano-bloque:500}")
+    private int tamanoBloqueListado;
+
+    // Resultados de GET /api/alumnos/search
+    @Value("${alumnos.busqueda.limite-por-defecto:10}")
+    private int limiteBusquedaPorDefecto;
+
+    @Value("${alumnos.busqueda.limite-maximo:50}")
+    private int limiteBusquedaMaximo;
+
+    // Filas por lote (y por transacción) en la carga masiva
+    @Value("${alumnos.carga-masiva.tamano-lote:500}")
+    private int tamanoLote;
+
+    // Cuánto se guardan las lápidas de las bajas: un token de /delta más viejo obliga a recargar todo
+    @Value("${alumnos.delta.retencion:P30D}")
+    private Duration retencionEliminados;
 
     @Override
-    @Transactional(readOnly = true)
     public List<Alumno> obtenerTodosLosAlumnos() {
-        return alumnoRepository.findAll();
+        List<Alumno> alumnos = new ArrayList<>();
+        alumnoAlmacen.recorrerTodos(tamanoBloqueListado, alumnos::add);
+        return alumnos;
+    }
+
+    // La transacción de solo lectura la abre el almacén. Columnas y dirección fuera de la lista
+    // se reemplazan por las de por defecto en lugar de fallar: los parámetros vienen de un enlace
+    @Override
+    public Page<AlumnoFila> obtenerPaginaDelListado(int pagina, Integer tamano, String orden, String direccion) {
+        int tamanoAcotado = Math.max(1, Math.min(tamano == null ? tamanoListadoPorDefecto : tamano, tamanoListadoMaximo));
+        String columna = COLUMNAS_DEL_LISTADO.contains(orden) ? orden : "id";
+        Sort.Direction sentido = Sort.Direction.fromOptionalString(direccion).orElse(Sort.Direction.ASC);
+        // El ID desempata para que una fila no aparezca en dos páginas
+        Sort sort = columna.equals("id") ? Sort.by(sentido, "id") : Sort.by(sentido, columna).and(Sort.by("id"));
+        // El OFFSET tiene que entrar en un int (JPA y LIMIT): más allá la página queda vacía en lugar de fallar
+        int paginaAcotada = Math.max(0, Math.min(pagina, (Integer.MAX_VALUE - tamanoAcotado) / tamanoAcotado));
+        return alumnoAlmacen.findFilas(PageRequest.of(paginaAcotada, tamanoAcotado, sort));
+    }
+
+    @Override
+    public boolean puedeMostrarPaginaDelListado(Pageable pagina, long total) {
+        return alumnoAlmacen.puedeLeerPagina(pagina, total);
+    }
+
+    @Override
+    public ListadoPorBloques recorrerListadoDeAlumnos() {
+        return new ListadoPorBloques(alumnoAlmacen::findFilasDespuesDeId, tamanoBloqueListado);
+    }
+
+    @Override
+    public PaginaAlumnos obtenerAlumnosPaginados(String cursor, Integer limite) {
+        long despuesDeId = PaginaAlumnos.decodificarCursor(cursor);
+        int tamano = tamanoDePagina(limite);
+
+        // Se pide una fila de más para saber si existe una página siguiente
+        List<AlumnoVista> alumnos = alumnoAlmacen.findVistasDespuesDeId(despuesDeId, tamano + 1);
+        if (alumnos.size() <= tamano) {
+            return new PaginaAlumnos(alumnos, null);
+        }
+        List<AlumnoVista> pagina = alumnos.subList(0, tamano);
+        String siguienteCursor = PaginaAlumnos.codificarCursor(pagina.get(tamano - 1).id());
+        return new PaginaAlumnos(List.copyOf(pagina), siguienteCursor);
+    }
+
+    // Sin token devuelve solo la posición actual: el cliente la guarda, recarga la lista completa y después
+    // pide los cambios desde ahí (lo que cambió durante la recarga llega dos veces, no se pierde)
+    @Override
+    public DeltaAlumnos obtenerCambiosDesde(String token, Integer limite) {
+        if (token == null || token.isBlank()) {
+            return new DeltaAlumnos(List.of(), List.of(), alumnoAlmacen.findTokenActual(), false);
+        }
+        return alumnoAlmacen.findCambiosDesde(token, tamanoDePagina(limite));
+    }
+
+    // Borra las lápidas más viejas que alumnos.delta.retencion y anota hasta qué secuencia se purgó
+    @Scheduled(fixedDelayString = "${alumnos.delta.purga:PT1H}")
+    public void purgarEliminados() {
+        alumnoAlmacen.purgarEliminados(Instant.now().minus(retencionEliminados));
+    }
+
+    @Override
+    public String calcularEtagPagina(String cursor, Integer limite) {
+        // Mismas filas que lee obtenerAlumnosPaginados, incluida la de más
+        return alumnoAlmacen.findHuellaDespuesDeId(PaginaAlumnos.decodificarCursor(cursor), tamanoDePagina(limite) + 1)
+                            .comoEtag();
+    }
+
+    // Con el índice en memoria la huella sale de las mismas filas que va a devolver, sin ir a la base de datos
+    @Override
+    public String calcularEtagPorCurso(String curso) {
+        if (indiceMemoriaListo()) {
+            return indiceMemoria.huellaPorCurso(curso).comoEtag();
+        }
+        return compartida("etag-curso", curso, () -> alumnoAlmacen.findHuellaByCurso(curso).comoEtag());
     }
 
     @Override
-    @Transactional(readOnly = true)
+    public String calcularEtagPorRangoEdad(int edadMinima, int edadMaxima) {
+        if (indiceMemoriaListo()) {
+            return indiceMemoria.huellaPorRangoEdad(edadMinima, edadMaxima).comoEtag();
+        }
+        return compartida("etag-edad", List.of(edadMinima, edadMaxima),
+                          () -> alumnoAlmacen.findHuellaByRangoEdad(edadMinima, edadMaxima).comoEtag());
+    }
+
+    private int tamanoDePagina(Integer limite) {
+        int tamano = limite == null ? tamanoPaginaPorDefecto : limite;
+        if (tamano <= 0) {
+            throw new IllegalArgumentException("El límite debe ser mayor que cero");
+        }
+        return Math.min(tamano, tamanoPaginaMaximo);
+    }
+
+    @Override
+    public void exportarAlumnos(Consumer<Alumno> consumidor) {
+        alumnoAlmacen.recorrerTodos(tamanoBloqueListado, consumidor);
+    }
+
+    // Un acierto de caché no debe tomar una conexión del pool
+    @Override
     public Alumno obtenerAlumnoPorId(Long id) {
-        Optional<Alumno> alumnoOptional = alumnoRepository.findById(id);
+        Optional<Alumno> alumnoOptional = alumnoCache.obtener(id, () -> alumnoAlmacen.findById(id));
         if (alumnoOptional.isPresent()) {
             return alumnoOptional.get();
         } else {
@@ -33,41 +215,147 @@ public class AlumnoServiceImpl implements AlumnoService {
     }
 
     @Override
-    @Transactional
     public Alumno guardarAlumno(Alumno alumno) {
-        return alumnoRepository.save(alumno);
+        Alumno alumnoGuardado = alumnoAlmacen.insertar(alumno);
+        eventPublisher.publishEvent(AlumnoEvento.creado(alumnoGuardado));
+        return alumnoGuardado;
+    }
+
+    @Override
+    public List<ResultadoLote> guardarAlumnosEnLote(Iterator<Alumno> alumnos) {
+        List<ResultadoLote> resultados = new ArrayList<>();
+        List<Alumno> lote = new ArrayList<>(tamanoLote);
+        try {
+            while (alumnos.hasNext()) {
+                lote.add(alumnos.next());
+                if (lote.size() == tamanoLote) {
+                    resultados.add(guardarLote(resultados.size() + 1, lote));
+                    lote = new ArrayList<>(tamanoLote);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Error leyendo la entrada: se guarda lo que ya se había leído y se informa el corte
+            if (!lote.isEmpty()) {
+                resultados.add(guardarLote(resultados.size() + 1, lote));
+            }
+            resultados.add(ResultadoLote.fallido(resultados.size() + 1, 0, "Entrada inválida: " + e.getMessage()));
+            return resultados;
+        }
+        if (!lote.isEmpty()) {
+            resultados.add(guardarLote(resultados.size() + 1, lote));
+        }
+        return resultados;
+    }
+
+    // Un lote que falla se revierte solo; los demás lotes siguen adelante. Con shards los IDs no crecen de un
+    // shard a otro: primero y último son los del lote en el orden recibido
+    @Override
+    public ResultadoLote guardarLote(int numeroLote, List<Alumno> lote) {
+        try {
+            int insertados = alumnoAlmacen.insertarLote(lote);
+            lote.forEach(alumno -> eventPublisher.publishEvent(AlumnoEvento.creado(alumno)));
+            return ResultadoLote.exitoso(numeroLote, lote.size(), insertados,
+                                         lote.get(0).getId(), lote.get(lote.size() - 1).getId());
+        } catch (RuntimeException e) {
+            lote.forEach(alumno -> {
+                alumno.setId(null);
+                alumno.setVersion(null);
+                alumno.setSecuencia(0L);
+            });
+            return e instanceof DataIntegrityViolationException
+                    ? ResultadoLote.rechazado(numeroLote, lote.size(), e.getMessage())
+                    : ResultadoLote.fallido(numeroLote, lote.size(), e.getMessage());
+        }
     }
 
     @Override
-    @Transactional
     public Alumno actualizarAlumno(Long id, Alumno alumno) {
-        if (alumnoRepository.existsById(id)) {
-            alumno.setId(id);
-            return alumnoRepository.save(alumno);
-        } else {
-            throw new RuntimeException("No se puede actualizar. Alumno no encontrado con ID: " + id);
+        return actualizarAlumno(id, alumno, null);
+    }
+
+    // Con shards el alumno se queda en su shard aunque cambie el curso
+    @Override
+    public Alumno actualizarAlumno(Long id, Alumno alumno, Long versionEsperada) {
+        Alumno alumnoActualizado = alumnoAlmacen.actualizar(id, alumno, versionEsperada)
+                                                .orElseThrow(() -> errorDeActualizacion(id, versionEsperada));
+        eventPublisher.publishEvent(AlumnoEvento.actualizado(alumnoActualizado));
+        return alumnoActualizado;
+    }
+
+    @Override
+    public Alumno actualizarAlumnoParcialmente(Long id, AlumnoParcial cambios, Long versionEsperada) {
+        Alumno alumnoActualizado = alumnoAlmacen.actualizarParcialmente(id, cambios, versionEsperada)
+                                                .orElseThrow(() -> errorDeActualizacion(id, versionEsperada));
+        eventPublisher.publishEvent(AlumnoEvento.actualizado(alumnoActualizado));
+        return alumnoActualizado;
+    }
+
+    // Solo en el camino de error se consulta si el alumno existe, para distinguir 404 de 412
+    private RuntimeException errorDeActualizacion(Long id, Long versionEsperada) {
+        if (versionEsperada != null && alumnoAlmacen.existsById(id)) {
+            return new OptimisticLockingFailureException("El alumno con ID " + id
+                                                        + " fue modificado: ya no está en la versión " + versionEsperada);
         }
+        return new RuntimeException("No se puede actualizar. Alumno no encontrado con ID: " + id);
     }
 
     @Override
-    @Transactional
     public void eliminarAlumno(Long id) {
-        if (alumnoRepository.existsById(id)){
-            alumnoRepository.deleteById(id);
-        } else {
+        if (alumnoAlmacen.deleteById(id) == 0) {
             throw new RuntimeException("No se pude eliminar. Alumno no encontrado por ID: " + id);
         }
+        eventPublisher.publishEvent(AlumnoEvento.eliminado(id));
+    }
+
+    // La transacción de solo lectura la abre el almacén, así el índice en memoria
+    // responde sin tomar una conexión del pool
+    @Override
+    public List<AlumnoVista> obtenerAlumnosPorCurso(String curso) {
+        if (indiceMemoriaListo()) {
+            return indiceMemoria.buscarPorCurso(curso);
+        }
+        return compartida("curso", curso, () -> List.copyOf(alumnoAlmacen.findVistasByCurso(curso)));
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public List<Alumno> obtenerAlumnosPorCurso(String curso) {
-        return alumnoRepository.findAlumnosByCursoQuery(curso);
+    public List<AlumnoVista> obtenerAlumnosPorRangoEdad(int edadMinima, int edadMaxima) {
+        if (indiceMemoriaListo()) {
+            return indiceMemoria.buscarPorRangoEdad(edadMinima, edadMaxima);
+        }
+        return compartida("edad", List.of(edadMinima, edadMaxima),
+                          () -> List.copyOf(alumnoAlmacen.findVistasByRangoEdad(edadMinima, edadMaxima)));
+    }
+
+    // Sin ConsultasCompartidas (alumnos.coalescencia.habilitada=false) cada petición hace su propia consulta.
+    // Los listados quedan en la caché de consultas de Hibernate: con réplicas se leen como carga de caché
+    private <T> T compartida(String consulta, Object parametros, Supplier<T> cargador) {
+        Supplier<T> carga = () -> DataSourceReplicado.paraCache(cargador);
+        return consultasCompartidas == null ? carga.get() : consultasCompartidas.obtener(consulta, parametros, carga);
     }
 
+    // Sin camino a la base de datos: un LIKE no ignora tildes en todas las bases ni puntúa los resultados
     @Override
-    @Transactional(readOnly = true)
-    public List<Alumno> obtenerAlumnosPorRangoEdad(int edadMinima, int edadMaxima) {
-        return alumnoRepository.findAlumnosByRangoEdad(edadMinima,edadMaxima);
+    public List<CoincidenciaAlumno> buscarAlumnos(String consulta, Integer limite) {
+        int tope = limite == null ? limiteBusquedaPorDefecto : limite;
+        if (tope <= 0) {
+            throw new IllegalArgumentException("El límite debe ser mayor que cero");
+        }
+        if (indiceBusqueda == null || !indiceBusqueda.estaListo()) {
+            throw new IllegalStateException("El índice de búsqueda no está disponible");
+        }
+        return indiceBusqueda.buscar(consulta, Math.min(tope, limiteBusquedaMaximo));
+    }
+
+    // Tampoco va a la base de datos: un GROUP BY por pedido recorrería la tabla entera
+    @Override
+    public EstadisticasAlumnos obtenerEstadisticas() {
+        if (estadisticas == null || !estadisticas.estaListo()) {
+            throw new IllegalStateException("Las estadísticas de alumnos no están disponibles");
+        }
+        return estadisticas.obtener();
+    }
+
+    private boolean indiceMemoriaListo() {
+        return indiceMemoria != null && indiceMemoria.estaListo();
     }
 }
@@ -0,0 +1,112 @@
+package org.springdemo.proyecto2.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springdemo.proyecto2.config.DataSourceReplicado;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Lecturas idénticas que llegan a la vez (/curso/{curso} y /edad/{min}-{max} con su ETag) comparten una sola
+// consulta: el primero deja un futuro en el mapa y consulta en su propio hilo; los que piden la misma clave
+// mientras tanto esperan ese futuro y reciben el mismo resultado o la misma excepción. No es una caché:
+// la clave sale del mapa en cuanto hay resultado, y un alta, modificación o baja confirmada vacía el mapa
+// para que nadie que llegue después del commit reciba una lectura anterior.
+// Métrica alumnos.coalescencia{consulta, resultado}: ejecutada (fue a la base de datos), compartida (se ahorró
+// una consulta) y vencida (esperó más de alumnos.coalescencia.espera)
+@Component
+@ConditionalOnProperty(name = "alumnos.coalescencia.habilitada", havingValue = "true", matchIfMissing = true)
+public class ConsultasCompartidas {
+
+    private record Clave(String consulta, Object parametros) {
+    }
+
+    private final Map<Clave, CompletableFuture<Object>> enCurso = new ConcurrentHashMap<>();
+    private final Map<String, Counter> contadores = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Duration espera;
+
+    public ConsultasCompartidas(MeterRegistry meterRegistry,
+                                @Value("${alumnos.coalescencia.espera:PT10S}") Duration espera) {
+        this.meterRegistry = meterRegistry;
+        this.espera = espera;
+    }
+
+    // parametros tiene que tener equals (String, List.of(...)); el resultado se comparte, no se debe modificar
+    @SuppressWarnings("unchecked")
+    public <T> T obtener(String consulta, Object parametros, Supplier<T> cargador) {
+        // Quien tiene que leer de la primaria (LecturaPropiaFilter) no puede recibir lo que otro leyó de una réplica
+        if (DataSourceReplicado.primariaForzada()) {
+            contar(consulta, "ejecutada");
+            return cargador.get();
+        }
+
+        Clave clave = new Clave(consulta, parametros);
+        CompletableFuture<Object> nuevo = new CompletableFuture<>();
+        CompletableFuture<Object> actual = enCurso.putIfAbsent(clave, nuevo);
+        if (actual == null) {
+            contar(consulta, "ejecutada");
+            T valor;
+            try {
+                valor = cargador.get();
+            } catch (RuntimeException | Error e) {
+                enCurso.remove(clave, nuevo);
+                nuevo.completeExceptionally(e);
+                throw e;
+            }
+            // Primero se saca del mapa: quien llega después ya no recibe este resultado
+            enCurso.remove(clave, nuevo);
+            nuevo.complete(valor);
+            return valor;
+        }
+
+        try {
+            T valor = (T) actual.get(espera.toMillis(), TimeUnit.MILLISECONDS);
+            contar(consulta, "compartida");
+            return valor;
+        } catch (ExecutionException e) {
+            contar(consulta, "compartida");
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            // Se suelta la clave: el próximo pedido vuelve a consultar en lugar de esperar a la misma consulta trabada
+            enCurso.remove(clave, actual);
+            contar(consulta, "vencida");
+            throw new IllegalStateException("La consulta " + consulta + " " + parametros + " no respondió en " + espera, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando la consulta " + consulta + " " + parametros, e);
+        }
+    }
+
+    // Solo después del commit; los que ya esperaban siguen con su futuro
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarAlumno(AlumnoEvento evento) {
+        enCurso.clear();
+    }
+
+    private void contar(String consulta, String resultado) {
+        contadores.computeIfAbsent(consulta + "/" + resultado,
+                                   nombre -> Counter.builder("alumnos.coalescencia")
+                                                    .description("Lecturas que fueron a la base de datos, que compartieron una consulta en curso o que se cansaron de esperarla")
+                                                    .tag("consulta", consulta)
+                                                    .tag("resultado", resultado)
+                                                    .register(meterRegistry))
+                  .increment();
+    }
+}
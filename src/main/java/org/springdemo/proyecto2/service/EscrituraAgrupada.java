@@ -0,0 +1,206 @@
+package org.springdemo.proyecto2.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springdemo.proyecto2.dto.ResultadoLote;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Altas agrupadas (group commit) para POST /api/alumnos en los picos de inscripción: en lugar de una transacción
+// y un commit por alumno, las altas simultáneas esperan en una cola acotada y un solo hilo las guarda juntas con
+// guardarLote (un INSERT en batch y un commit) cada alumnos.escritura-agrupada.espera o cada maximo-lote filas.
+// Cada petición recibe su alumno con el ID recién después del commit compartido. Si la base rechaza el lote por
+// sus datos se reintenta de a una fila, así solo falla el alta que tiene el problema; si falla la base misma
+// (conexión, bloqueo, tiempo de espera) todo el lote recibe una DataAccessException.
+// Con la cola llena guardar lanza TaskRejectedException (429); al apagar se guarda lo que quedó en la cola.
+// Métricas: alumnos.escritura-agrupada.filas (filas por commit), .cola y .rechazadas
+@Component
+@ConditionalOnProperty(name = "alumnos.escritura-agrupada.habilitada", havingValue = "true")
+public class EscrituraAgrupada {
+
+    private static final Logger log = LoggerFactory.getLogger(EscrituraAgrupada.class);
+
+    // Cada cuánto el hilo escritor mira si se está cerrando cuando no hay altas
+    private static final long VIGILANCIA_MS = 100;
+
+    private record Pendiente(Alumno alumno, CompletableFuture<Alumno> resultado) {
+    }
+
+    private final AlumnoService alumnoService;
+    private final int maximoLote;
+    private final Duration espera;
+    private final Duration respuestaMaxima;
+    private final Duration apagado;
+    private final BlockingQueue<Pendiente> cola;
+    private final Thread escritor;
+    private final DistributionSummary filasPorCommit;
+    private final Counter rechazadas;
+
+    private volatile boolean cerrando;
+    private int numeroLote;
+
+    public EscrituraAgrupada(AlumnoService alumnoService, MeterRegistry meterRegistry,
+                             @Value("${alumnos.escritura-agrupada.capacidad:10000}") int capacidad,
+                             @Value("${alumnos.escritura-agrupada.maximo-lote:500}") int maximoLote,
+                             @Value("${alumnos.escritura-agrupada.espera:PT0.005S}") Duration espera,
+                             @Value("${alumnos.escritura-agrupada.respuesta-maxima:PT10S}") Duration respuestaMaxima,
+                             @Value("${alumnos.escritura-agrupada.apagado:PT30S}") Duration apagado) {
+        this.alumnoService = alumnoService;
+        this.maximoLote = maximoLote;
+        this.espera = espera;
+        this.respuestaMaxima = respuestaMaxima;
+        this.apagado = apagado;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.filasPorCommit = DistributionSummary.builder("alumnos.escritura-agrupada.filas")
+                                                 .description("Altas confirmadas en cada commit compartido")
+                                                 .register(meterRegistry);
+        this.rechazadas = Counter.builder("alumnos.escritura-agrupada.rechazadas")
+                                 .description("Altas rechazadas con 429 porque la cola estaba llena")
+                                 .register(meterRegistry);
+        Gauge.builder("alumnos.escritura-agrupada.cola", cola, BlockingQueue::size)
+             .description("Altas esperando el próximo commit")
+             .register(meterRegistry);
+        this.escritor = Thread.ofPlatform().name("escritura-agrupada").start(this::escribir);
+    }
+
+    // Deja de aceptar altas, guarda las que quedan en la cola y espera al escritor como mucho alumnos.escritura-agrupada.apagado
+    @PreDestroy
+    public void cerrar() throws InterruptedException {
+        cerrando = true;
+        escritor.join(apagado.toMillis());
+        // Solo si el escritor no llegó a tiempo, o si alguna entró mientras se cerraba
+        List<Pendiente> restantes = new ArrayList<>();
+        cola.drainTo(restantes);
+        restantes.forEach(pendiente -> pendiente.resultado().completeExceptionally(
+                new IllegalStateException("La aplicación se cerró antes de guardar el alumno")));
+    }
+
+    // Devuelve el alumno con su ID una vez confirmado el lote en el que entró.
+    // TaskRejectedException si la cola está llena; IllegalArgumentException si la base rechazó el alta;
+    // DataAccessException si falló la base; IllegalStateException si se está cerrando
+    // o si el commit no llegó en alumnos.escritura-agrupada.respuesta-maxima
+    public Alumno guardar(Alumno alumno) {
+        if (cerrando) {
+            throw new IllegalStateException("La aplicación se está cerrando");
+        }
+        Pendiente pendiente = new Pendiente(alumno, new CompletableFuture<>());
+        if (!cola.offer(pendiente)) {
+            rechazadas.increment();
+            throw new TaskRejectedException("Hay demasiadas altas esperando su commit");
+        }
+        // Si cerrar() empezó mientras se encolaba, puede que ya haya vaciado la cola: si el alta sigue ahí
+        // nadie la va a guardar. Si ya no está, la tomó el escritor o cerrar() y la va a completar
+        if (cerrando && cola.remove(pendiente)) {
+            throw new IllegalStateException("La aplicación se está cerrando");
+        }
+        try {
+            return pendiente.resultado().get(respuestaMaxima.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            // El alta sigue en camino: puede confirmarse después de esta respuesta
+            throw new IllegalStateException("El alta no se confirmó en " + respuestaMaxima, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando el commit del alta", e);
+        }
+    }
+
+    private void escribir() {
+        while (true) {
+            List<Pendiente> lote;
+            try {
+                lote = juntarLote();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (lote.isEmpty()) {
+                if (cerrando) {
+                    return;
+                }
+                continue;
+            }
+            confirmar(lote);
+        }
+    }
+
+    // Espera la primera alta; después junta las que lleguen durante alumnos.escritura-agrupada.espera, hasta maximoLote
+    private List<Pendiente> juntarLote() throws InterruptedException {
+        List<Pendiente> lote = new ArrayList<>(maximoLote);
+        Pendiente primera = cola.poll(VIGILANCIA_MS, TimeUnit.MILLISECONDS);
+        if (primera == null) {
+            return lote;
+        }
+        lote.add(primera);
+        long limite = System.nanoTime() + espera.toNanos();
+        while (lote.size() < maximoLote) {
+            // Lo que ya está en la cola entra sin esperar
+            if (cola.drainTo(lote, maximoLote - lote.size()) > 0) {
+                continue;
+            }
+            long resto = limite - System.nanoTime();
+            Pendiente siguiente = resto > 0 ? cola.poll(resto, TimeUnit.NANOSECONDS) : null;
+            if (siguiente == null) {
+                break;
+            }
+            lote.add(siguiente);
+        }
+        return lote;
+    }
+
+    private void confirmar(List<Pendiente> lote) {
+        try {
+            ResultadoLote resultado = alumnoService.guardarLote(++numeroLote, alumnosDe(lote));
+            if (resultado.esExitoso()) {
+                filasPorCommit.record(lote.size());
+                lote.forEach(pendiente -> pendiente.resultado().complete(pendiente.alumno()));
+                return;
+            }
+            if (!resultado.datosInvalidos()) {
+                // Reintentar de a una contra una base que no responde solo alarga la espera
+                DataAccessException error = new DataAccessResourceFailureException(resultado.error());
+                lote.forEach(pendiente -> pendiente.resultado().completeExceptionally(error));
+                return;
+            }
+            if (lote.size() == 1) {
+                lote.get(0).resultado().completeExceptionally(new IllegalArgumentException(resultado.error()));
+                return;
+            }
+            log.warn("Falló un lote de {} altas agrupadas, se reintenta de a una: {}", lote.size(), resultado.error());
+            lote.forEach(pendiente -> confirmar(List.of(pendiente)));
+        } catch (RuntimeException e) {
+            // El escritor no se puede caer: quien espera recibe el error
+            lote.forEach(pendiente -> pendiente.resultado().completeExceptionally(e));
+        }
+    }
+
+    private static List<Alumno> alumnosDe(List<Pendiente> lote) {
+        List<Alumno> alumnos = new ArrayList<>(lote.size());
+        lote.forEach(pendiente -> alumnos.add(pendiente.alumno()));
+        return alumnos;
+    }
+}
@@ -0,0 +1,257 @@
+package org.springdemo.proyecto2.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Feed de cambios para GET /api/alumnos/changes (Server-Sent Events): quien copia la lista de alumnos la lee una
+// vez y después recibe solo las altas, modificaciones y bajas, en lugar de volver a pedirla entera cada pocos segundos.
+// Cada cambio confirmado se serializa una sola vez, recibe un número de secuencia y queda en una ventana con los
+// últimos alumnos.cambios.retencion. Cada suscriptor tiene su propio búfer de alumnos.cambios.buffer eventos que
+// vacía un hilo virtual: el commit solo encola y nunca espera a un cliente lento.
+// Se le pide resincronizar (evento resync y se cierra la conexión) a quien se le llena el búfer y a quien quiere
+// seguir (Last-Event-ID) desde un cambio que ya salió de la ventana o de un arranque anterior de la aplicación:
+// tiene que volver a leer la lista y reconectarse con el id del resync.
+// Métricas: alumnos.cambios.suscriptores y alumnos.cambios.resync{motivo}
+@Service
+public class FeedCambiosAlumnos {
+
+    // tipo es el nombre del evento SSE; sin tipo es un latido (comentario que no llega a la aplicación del cliente)
+    private record Cambio(long secuencia, String tipo, String datos) {
+    }
+
+    private static final Cambio LATIDO = new Cambio(0, null, null);
+
+    // El id de cada evento es "<arranque>-<secuencia>": la secuencia vuelve a empezar en cada arranque
+    private final String arranque = Long.toString(System.currentTimeMillis(), 36);
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final int retencion;
+    private final int capacidadBuffer;
+    private final int maximoSuscriptores;
+    private final Duration duracion;
+
+    // Protegidas por this: un suscriptor que se conecta mientras se publica un cambio no lo pierde ni lo recibe dos veces
+    private final ArrayDeque<Cambio> ventana = new ArrayDeque<>();
+    private long secuencia;
+
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final SimpleAsyncTaskExecutor envios = new SimpleAsyncTaskExecutor("cambios-");
+
+    public FeedCambiosAlumnos(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                              @Value("${alumnos.cambios.retencion:1000}") int retencion,
+                              @Value("${alumnos.cambios.buffer:256}") int capacidadBuffer,
+                              @Value("${alumnos.cambios.maximo-suscriptores:500}") int maximoSuscriptores,
+                              @Value("${alumnos.cambios.duracion:PT30M}") Duration duracion) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.retencion = retencion;
+        this.capacidadBuffer = capacidadBuffer;
+        this.maximoSuscriptores = maximoSuscriptores;
+        this.duracion = duracion;
+        // Un envío bloqueado por un cliente lento no ocupa un hilo de plataforma
+        envios.setVirtualThreads(true);
+        Gauge.builder("alumnos.cambios.suscriptores", suscriptores, Set::size)
+             .description("Conexiones abiertas a GET /api/alumnos/changes")
+             .register(meterRegistry);
+    }
+
+    // Antes de que se detenga Tomcat: el apagado ordenado esperaría a que terminen estas conexiones
+    @EventListener(ContextClosedEvent.class)
+    public void cerrar() {
+        suscriptores.forEach(suscriptor -> suscriptor.emitter.complete());
+        suscriptores.clear();
+    }
+
+    // Sin ultimoId empieza con un evento ready que trae la posición actual; con ultimoId repite lo que falta
+    // desde la ventana o pide resincronizar. IllegalStateException si ya hay alumnos.cambios.maximo-suscriptores
+    public SseEmitter suscribir(String ultimoId) {
+        if (suscriptores.size() >= maximoSuscriptores) {
+            throw new IllegalStateException("Ya hay " + maximoSuscriptores + " suscriptores al feed de cambios");
+        }
+        Suscriptor suscriptor = new Suscriptor(new SseEmitter(duracion.toMillis()));
+        synchronized (this) {
+            if (ultimoId == null || ultimoId.isBlank()) {
+                suscriptor.encolar(new Cambio(secuencia, "ready", "{}"));
+            } else {
+                Long desde = secuenciaDe(ultimoId.strip());
+                long primeraRetenida = ventana.isEmpty() ? secuencia + 1 : ventana.peekFirst().secuencia();
+                if (desde == null || desde > secuencia || desde + 1 < primeraRetenida) {
+                    suscriptor.pedirResync("ventana");
+                } else {
+                    ventana.stream().filter(cambio -> cambio.secuencia() > desde).forEach(suscriptor::encolar);
+                }
+            }
+            if (suscriptor.resync == null) {
+                suscriptores.add(suscriptor);
+            }
+        }
+        return suscriptor.emitter;
+    }
+
+    // Solo después del commit: un cambio que se deshace no llega a nadie
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarAlumno(AlumnoEvento evento) {
+        String tipo = switch (evento.tipo()) {
+            case CREADO -> "created";
+            case ACTUALIZADO -> "updated";
+            case ELIMINADO -> "deleted";
+        };
+        String datos = serializar(evento.alumno() != null ? evento.alumno() : Map.of("id", evento.id()));
+        synchronized (this) {
+            Cambio cambio = new Cambio(++secuencia, tipo, datos);
+            ventana.addLast(cambio);
+            if (ventana.size() > retencion) {
+                ventana.removeFirst();
+            }
+            suscriptores.forEach(suscriptor -> suscriptor.encolar(cambio));
+        }
+    }
+
+    // Mantiene viva la conexión a través de proxies y detecta los clientes que se fueron sin avisar
+    @Scheduled(fixedDelayString = "${alumnos.cambios.latido:PT15S}")
+    public void latir() {
+        suscriptores.forEach(Suscriptor::latir);
+    }
+
+    private synchronized long posicionActual() {
+        return secuencia;
+    }
+
+    private Long secuenciaDe(String id) {
+        int guion = id.lastIndexOf('-');
+        if (guion < 0 || !id.substring(0, guion).equals(arranque)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(id.substring(guion + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String serializar(Object valor) {
+        try {
+            return objectMapper.writeValueAsString(valor);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el cambio: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private final class Suscriptor {
+
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<Cambio> pendientes = new ArrayBlockingQueue<>(capacidadBuffer);
+        // Solo un hilo escribe en la conexión a la vez
+        private final AtomicBoolean enviando = new AtomicBoolean();
+        private volatile String resync;
+        private volatile boolean cerrado;
+
+        Suscriptor(SseEmitter emitter) {
+            this.emitter = emitter;
+            emitter.onCompletion(this::quitar);
+            emitter.onTimeout(this::quitar);
+            emitter.onError(error -> quitar());
+        }
+
+        void encolar(Cambio cambio) {
+            if (resync != null) {
+                return;
+            }
+            if (!pendientes.offer(cambio)) {
+                pedirResync("lento");
+                return;
+            }
+            programarEnvio();
+        }
+
+        void latir() {
+            // Si hay eventos en camino no hace falta; si el búfer está lleno no es un cambio que se pierda
+            if (pendientes.isEmpty() && pendientes.offer(LATIDO)) {
+                programarEnvio();
+            }
+        }
+
+        void pedirResync(String motivo) {
+            if (resync == null) {
+                resync = motivo;
+                Counter.builder("alumnos.cambios.resync")
+                       .description("Suscriptores a los que se les pidió volver a leer la lista")
+                       .tag("motivo", motivo)
+                       .register(meterRegistry)
+                       .increment();
+            }
+            programarEnvio();
+        }
+
+        private void programarEnvio() {
+            if (!cerrado && enviando.compareAndSet(false, true)) {
+                envios.execute(this::enviar);
+            }
+        }
+
+        private void enviar() {
+            try {
+                Cambio cambio;
+                while (resync == null && (cambio = pendientes.poll()) != null) {
+                    emitter.send(evento(cambio));
+                }
+                if (resync != null) {
+                    // Lo pendiente se descarta: el cliente vuelve a leer la lista y sigue desde esta posición
+                    pendientes.clear();
+                    emitter.send(SseEmitter.event()
+                                           .id(arranque + "-" + posicionActual())
+                                           .name("resync")
+                                           .data(serializar(Map.of("motivo", resync)), MediaType.APPLICATION_JSON));
+                    emitter.complete();
+                    quitar();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // El cliente cerró la conexión o el emisor ya había terminado por tiempo
+                quitar();
+            } finally {
+                enviando.set(false);
+            }
+            // Lo que se encoló (o el resync que se pidió) entre el último poll y soltar la marca
+            if (!pendientes.isEmpty() || resync != null) {
+                programarEnvio();
+            }
+        }
+
+        private SseEmitter.SseEventBuilder evento(Cambio cambio) {
+            if (cambio.tipo() == null) {
+                return SseEmitter.event().comment("latido");
+            }
+            return SseEmitter.event()
+                             .id(arranque + "-" + cambio.secuencia())
+                             .name(cambio.tipo())
+                             .data(cambio.datos(), MediaType.APPLICATION_JSON);
+        }
+
+        private void quitar() {
+            cerrado = true;
+            suscriptores.remove(this);
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package org.springdemo.proyecto2.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springdemo.proyecto2.dto.ErrorDeFila;
+import org.springdemo.proyecto2.dto.EstadoImportacion;
+import org.springdemo.proyecto2.dto.ResultadoLote;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Importación de alumnos desde un archivo CSV o NDJSON subido a POST /api/alumnos/import.
+// El archivo no pasa por memoria ni se copia: Tomcat lo deja en disco al recibir el multipart y se abre antes de
+// responder. Al terminar la petición Spring borra ese archivo, pero lo abierto se sigue leyendo (en Linux el borrado
+// solo quita el nombre), línea por línea en segundo plano.
+// Cada fila se valida contra las columnas de Alumno; las inválidas se anotan con su número de línea y las demás
+// se guardan en lotes de alumnos.carga-masiva.tamano-lote, cada uno en su propia transacción. Si la base de datos
+// rechaza un lote por sus datos se reintenta de a una fila, así solo se rechazan las que fallan; si falla la base
+// misma la importación termina FALLIDA con lo guardado hasta ahí.
+@Service
+public class ImportacionAlumnos {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionAlumnos.class);
+
+    // Largo de las columnas de Alumno (@Column)
+    static final int LARGO_NOMBRE = 50;
+    static final int LARGO_APELLIDO = 50;
+    static final int LARGO_CURSO = 15;
+
+    public enum Formato { CSV, NDJSON }
+
+    enum Estado { EN_COLA, EN_CURSO, TERMINADA, FALLIDA }
+
+    private final AlumnoService alumnoService;
+    private final ObjectMapper objectMapper;
+    private final int tamanoLote;
+    private final int maximoErrores;
+    private final Duration retencion;
+
+    // Como mucho alumnos.importacion.simultaneas importaciones a la vez, cada una con una conexión por lote
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private final Map<String, Trabajo> trabajos = new ConcurrentHashMap<>();
+
+    public ImportacionAlumnos(AlumnoService alumnoService, ObjectMapper objectMapper,
+                              @Value("${alumnos.carga-masiva.tamano-lote:500}") int tamanoLote,
+                              @Value("${alumnos.importacion.simultaneas:2}") int simultaneas,
+                              @Value("${alumnos.importacion.en-cola:10}") int enCola,
+                              @Value("${alumnos.importacion.maximo-errores:1000}") int maximoErrores,
+                              @Value("${alumnos.importacion.retencion:PT1H}") Duration retencion,
+                              @Value("${alumnos.importacion.espera-al-cerrar:PT30S}") Duration esperaAlCerrar) {
+        this.alumnoService = alumnoService;
+        this.objectMapper = objectMapper;
+        this.tamanoLote = tamanoLote;
+        this.maximoErrores = maximoErrores;
+        this.retencion = retencion;
+        executor.setCorePoolSize(simultaneas);
+        executor.setMaxPoolSize(simultaneas);
+        executor.setQueueCapacity(enCola);
+        executor.setThreadNamePrefix("importacion-");
+        // Al cerrar la aplicación las importaciones en curso y en cola siguen hasta alumnos.importacion.espera-al-cerrar
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationMillis(esperaAlCerrar.toMillis());
+        executor.initialize();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdown();
+    }
+
+    // Deja el archivo en cola y devuelve el estado inicial; el ID sirve para consultar el avance.
+    // IllegalArgumentException si el archivo está vacío o no se reconoce el formato,
+    // IllegalStateException si ya hay alumnos.importacion.en-cola importaciones esperando
+    public EstadoImportacion iniciar(MultipartFile archivo, String formato) throws IOException {
+        Formato elegido = elegirFormato(formato, archivo.getOriginalFilename(), archivo.getContentType());
+        if (archivo.isEmpty()) {
+            throw new IllegalArgumentException("El archivo está vacío");
+        }
+        InputStream contenido = archivo.getInputStream();
+
+        Trabajo trabajo = new Trabajo(UUID.randomUUID().toString(), elegido, maximoErrores);
+        trabajos.put(trabajo.id, trabajo);
+        try {
+            executor.execute(() -> procesar(trabajo, contenido));
+        } catch (TaskRejectedException e) {
+            trabajos.remove(trabajo.id);
+            cerrar(contenido);
+            throw new IllegalStateException("Hay demasiadas importaciones en curso", e);
+        }
+        return trabajo.estado();
+    }
+
+    public EstadoImportacion obtener(String id) {
+        Trabajo trabajo = trabajos.get(id);
+        if (trabajo == null) {
+            throw new RuntimeException("Importación no encontrada con ID: " + id);
+        }
+        return trabajo.estado();
+    }
+
+    // Los trabajos terminados se olvidan pasada alumnos.importacion.retencion
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void olvidarTerminadas() {
+        Instant limite = Instant.now().minus(retencion);
+        trabajos.values().removeIf(trabajo -> trabajo.terminadaAntesDe(limite));
+    }
+
+    // formato=csv|ndjson manda; si no viene, la extensión del archivo y después su tipo de contenido
+    static Formato elegirFormato(String formato, String nombreArchivo, String tipoContenido) {
+        if (formato != null && !formato.isBlank()) {
+            try {
+                return Formato.valueOf(formato.strip().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Formato desconocido: " + formato + " (csv o ndjson)");
+            }
+        }
+        String nombre = nombreArchivo == null ? "" : nombreArchivo.toLowerCase(Locale.ROOT);
+        String tipo = tipoContenido == null ? "" : tipoContenido.toLowerCase(Locale.ROOT);
+        if (nombre.endsWith(".csv") || tipo.startsWith("text/csv")) {
+            return Formato.CSV;
+        }
+        if (nombre.endsWith(".ndjson") || nombre.endsWith(".jsonl") || tipo.startsWith(MediaType.APPLICATION_NDJSON_VALUE)) {
+            return Formato.NDJSON;
+        }
+        throw new IllegalArgumentException("No se reconoce el formato de " + nombreArchivo + ": indicar formato=csv o formato=ndjson");
+    }
+
+    private void procesar(Trabajo trabajo, InputStream contenido) {
+        long inicio = System.currentTimeMillis();
+        trabajo.empezar();
+        List<Alumno> lote = new ArrayList<>(tamanoLote);
+        List<Long> lineasDelLote = new ArrayList<>(tamanoLote);
+        String error = null;
+        long numeroLinea = 0;
+        // El decodificador informa los bytes que no son UTF-8 en lugar de reemplazarlos
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(contenido, StandardCharsets.UTF_8.newDecoder()))) {
+            // En CSV se arma con la cabecera
+            Function<String, Alumno> convertir = trabajo.formato == Formato.NDJSON ? this::desdeJson : null;
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                numeroLinea++;
+                if (numeroLinea == 1 && linea.startsWith("\uFEFF")) {
+                    linea = linea.substring(1);
+                }
+                if (linea.isBlank()) {
+                    continue;
+                }
+                if (convertir == null) {
+                    convertir = desdeCsv(linea);
+                    continue;
+                }
+                trabajo.leerFila();
+                try {
+                    lote.add(convertir.apply(linea));
+                    lineasDelLote.add(numeroLinea);
+                } catch (IllegalArgumentException e) {
+                    trabajo.rechazar(numeroLinea, e.getMessage());
+                }
+                if (lote.size() == tamanoLote) {
+                    guardar(trabajo, lote, lineasDelLote);
+                    lote = new ArrayList<>(tamanoLote);
+                    lineasDelLote = new ArrayList<>(tamanoLote);
+                }
+            }
+            if (convertir == null) {
+                error = "El archivo CSV no tiene cabecera";
+            }
+        } catch (CharacterCodingException e) {
+            error = "El archivo no está en UTF-8 (línea " + (numeroLinea + 1) + ")";
+        } catch (ErrorDeBaseDeDatos e) {
+            // El lote que falló no se vuelve a intentar
+            error = e.getMessage();
+            lote.clear();
+        } catch (IOException | RuntimeException e) {
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+        // Lo leído antes de un error de lectura también se guarda
+        if (!lote.isEmpty()) {
+            try {
+                guardar(trabajo, lote, lineasDelLote);
+            } catch (ErrorDeBaseDeDatos e) {
+                error = e.getMessage();
+            }
+        }
+        trabajo.terminar(error);
+        log.info("Importación {} {}: {} filas, {} rechazadas en {} ms{}", trabajo.id, trabajo.estado,
+                 trabajo.filasLeidas, trabajo.rechazados, System.currentTimeMillis() - inicio,
+                 error == null ? "" : " (" + error + ")");
+    }
+
+    // Un lote que la base de datos rechaza por sus datos se reintenta de a una fila para rechazar solo las que
+    // fallan. Un error de la base misma no es culpa de ninguna fila: ErrorDeBaseDeDatos corta la importación
+    private void guardar(Trabajo trabajo, List<Alumno> lote, List<Long> lineas) {
+        ResultadoLote resultado = alumnoService.guardarLote(trabajo.siguienteLote(), lote);
+        if (resultado.esExitoso()) {
+            trabajo.insertar(resultado.insertados());
+            return;
+        }
+        if (!resultado.datosInvalidos()) {
+            throw new ErrorDeBaseDeDatos(lineas.get(0), resultado.error());
+        }
+        for (int i = 0; i < lote.size(); i++) {
+            ResultadoLote deLaFila = alumnoService.guardarLote(trabajo.siguienteLote(), List.of(lote.get(i)));
+            if (deLaFila.esExitoso()) {
+                trabajo.insertar(deLaFila.insertados());
+            } else if (deLaFila.datosInvalidos()) {
+                trabajo.rechazar(lineas.get(i), deLaFila.error());
+            } else {
+                throw new ErrorDeBaseDeDatos(lineas.get(i), deLaFila.error());
+            }
+        }
+    }
+
+    // La cabecera dice en qué posición está cada campo (curso es opcional; otras columnas se ignoran).
+    // El separador es la coma o, si la cabecera no tiene comas, el punto y coma (Excel en español)
+    static Function<String, Alumno> desdeCsv(String cabecera) {
+        char separador = cabecera.indexOf(',') < 0 && cabecera.indexOf(';') >= 0 ? ';' : ',';
+        List<String> columnas = separarCsv(cabecera, separador).stream()
+                                                                .map(columna -> columna.strip().toLowerCase(Locale.ROOT))
+                                                                .toList();
+        int nombre = columnas.indexOf("nombre");
+        int apellido = columnas.indexOf("apellido");
+        int edad = columnas.indexOf("edad");
+        int curso = columnas.indexOf("curso");
+        if (nombre < 0 || apellido < 0 || edad < 0) {
+            throw new IllegalArgumentException("La cabecera del CSV debe tener las columnas nombre, apellido y edad (y opcionalmente curso): "
+                                               + cabecera);
+        }
+        return linea -> {
+            List<String> campos = separarCsv(linea, separador);
+            if (campos.size() != columnas.size()) {
+                throw new IllegalArgumentException("Se esperaban " + columnas.size() + " columnas y hay " + campos.size());
+            }
+            return crearAlumno(campos.get(nombre), campos.get(apellido), campos.get(edad),
+                               curso < 0 ? null : campos.get(curso));
+        };
+    }
+
+    // Campos entre comillas pueden tener el separador y comillas dobladas (""), pero no saltos de línea
+    static List<String> separarCsv(String linea, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c != '"') {
+                    campo.append(c);
+                } else if (i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else {
+                    entreComillas = false;
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        if (entreComillas) {
+            throw new IllegalArgumentException("Comillas sin cerrar");
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    private Alumno desdeJson(String linea) {
+        JsonNode nodo;
+        try {
+            nodo = objectMapper.readTree(linea);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON inválido: " + e.getOriginalMessage());
+        }
+        if (!nodo.isObject()) {
+            throw new IllegalArgumentException("Se esperaba un objeto JSON");
+        }
+        return crearAlumno(campoJson(nodo, "nombre"), campoJson(nodo, "apellido"),
+                           campoJson(nodo, "edad"), campoJson(nodo, "curso"));
+    }
+
+    private static String campoJson(JsonNode nodo, String campo) {
+        JsonNode valor = nodo.get(campo);
+        return valor == null || valor.isNull() ? null : valor.asText();
+    }
+
+    // Las mismas reglas para CSV y NDJSON; el primer campo inválido rechaza la fila
+    static Alumno crearAlumno(String nombre, String apellido, String edad, String curso) {
+        return new Alumno(null,
+                          texto("nombre", nombre, LARGO_NOMBRE, true),
+                          texto("apellido", apellido, LARGO_APELLIDO, true),
+                          edad(edad),
+                          texto("curso", curso, LARGO_CURSO, false));
+    }
+
+    // VARCHAR cuenta caracteres, no unidades UTF-16
+    private static String texto(String campo, String valor, int largoMaximo, boolean obligatorio) {
+        String recortado = valor == null ? "" : valor.strip();
+        if (recortado.isEmpty()) {
+            if (obligatorio) {
+                throw new IllegalArgumentException(campo + " es obligatorio");
+            }
+            return null;
+        }
+        int largo = recortado.codePointCount(0, recortado.length());
+        if (largo > largoMaximo) {
+            throw new IllegalArgumentException(campo + " tiene " + largo + " caracteres (máximo " + largoMaximo + ")");
+        }
+        return recortado;
+    }
+
+    private static int edad(String valor) {
+        if (valor == null || valor.isBlank()) {
+            throw new IllegalArgumentException("edad es obligatoria");
+        }
+        int edad;
+        try {
+            edad = Integer.parseInt(valor.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("edad no es un número entero: " + valor.strip());
+        }
+        if (edad < 0) {
+            throw new IllegalArgumentException("edad no puede ser negativa: " + edad);
+        }
+        return edad;
+    }
+
+    private static void cerrar(InputStream contenido) {
+        try {
+            contenido.close();
+        } catch (IOException e) {
+            log.warn("No se pudo cerrar el archivo de la importación: {}", e.getMessage());
+        }
+    }
+
+    private static final class ErrorDeBaseDeDatos extends RuntimeException {
+        private ErrorDeBaseDeDatos(long linea, String causa) {
+            super("Error de la base de datos al guardar desde la línea " + linea + ": " + causa);
+        }
+    }
+
+    // Lo escribe el hilo de la importación y lo leen las peticiones de GET /api/alumnos/import/{id}
+    private static final class Trabajo {
+        private final String id;
+        private final Formato formato;
+        private final int maximoErrores;
+        private final Instant creada = Instant.now();
+        private final List<ErrorDeFila> errores = new ArrayList<>();
+        private Estado estado = Estado.EN_COLA;
+        private long filasLeidas;
+        private long insertados;
+        private long rechazados;
+        private long erroresOmitidos;
+        private int lotes;
+        private Instant terminada;
+        private String error;
+
+        private Trabajo(String id, Formato formato, int maximoErrores) {
+            this.id = id;
+            this.formato = formato;
+            this.maximoErrores = maximoErrores;
+        }
+
+        synchronized void empezar() {
+            estado = Estado.EN_CURSO;
+        }
+
+        synchronized void leerFila() {
+            filasLeidas++;
+        }
+
+        synchronized int siguienteLote() {
+            return ++lotes;
+        }
+
+        synchronized void insertar(int filas) {
+            insertados += filas;
+        }
+
+        synchronized void rechazar(long fila, String motivo) {
+            rechazados++;
+            if (errores.size() < maximoErrores) {
+                errores.add(new ErrorDeFila(fila, motivo));
+            } else {
+                erroresOmitidos++;
+            }
+        }
+
+        synchronized void terminar(String motivo) {
+            estado = motivo == null ? Estado.TERMINADA : Estado.FALLIDA;
+            error = motivo;
+            terminada = Instant.now();
+        }
+
+        synchronized boolean terminadaAntesDe(Instant limite) {
+            return terminada != null && terminada.isBefore(limite);
+        }
+
+        synchronized EstadoImportacion estado() {
+            return new EstadoImportacion(id, formato.name().toLowerCase(Locale.ROOT), estado.name(), filasLeidas,
+                                         insertados, rechazados, List.copyOf(errores), erroresOmitidos,
+                                         creada, terminada, error);
+        }
+    }
+}
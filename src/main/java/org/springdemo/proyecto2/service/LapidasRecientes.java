@@ -0,0 +1,39 @@
+package org.springdemo.proyecto2.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+// IDs borrados hace poco, para los oyentes de AlumnoEvento que mantienen una copia en memoria.
+// Los eventos se entregan al confirmar cada transacción, en el hilo de cada petición, y pueden llegar
+// desordenados: un ACTUALIZADO que llega después del ELIMINADO del mismo ID no debe devolver la fila.
+// Los IDs no se reutilizan, así que basta recordarlos un rato. No es thread-safe: se usa bajo el lock del oyente.
+final class LapidasRecientes {
+
+    private final long duracionNanos;
+    // ID -> instante del borrado, en orden de llegada: las vencidas quedan al principio
+    private final LinkedHashMap<Long, Long> lapidas = new LinkedHashMap<>();
+
+    LapidasRecientes(Duration duracion) {
+        this.duracionNanos = duracion.toNanos();
+    }
+
+    void registrar(Long id) {
+        long ahora = System.nanoTime();
+        purgar(ahora);
+        lapidas.remove(id);
+        lapidas.put(id, ahora);
+    }
+
+    boolean contiene(Long id) {
+        purgar(System.nanoTime());
+        return lapidas.containsKey(id);
+    }
+
+    private void purgar(long ahora) {
+        Iterator<Long> instantes = lapidas.values().iterator();
+        while (instantes.hasNext() && ahora - instantes.next() > duracionNanos) {
+            instantes.remove();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.springdemo.proyecto2.service;
+
+import org.springdemo.proyecto2.dto.AlumnoFila;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Listado completo de index.html leído por bloques de IDs (keyset). Cada bloque es una consulta corta
+// con su propia conexión y el siguiente se pide recién cuando la plantilla terminó de escribir el anterior,
+// así las primeras filas llegan al navegador mientras el resto se sigue leyendo y nunca hay más de un
+// bloque en memoria.
+// El primer bloque se lee al crearlo: si la base de datos falla, falla antes de empezar a escribir la página.
+public class ListadoPorBloques implements Iterable<AlumnoFila> {
+
+    @FunctionalInterface
+    public interface LectorDeBloques {
+        List<AlumnoFila> leer(long despuesDeId, int limite);
+    }
+
+    private final LectorDeBloques lector;
+
+    private final int tamanoBloque;
+
+    private final List<AlumnoFila> primerBloque;
+
+    public ListadoPorBloques(LectorDeBloques lector, int tamanoBloque) {
+        if (tamanoBloque <= 0) {
+            throw new IllegalArgumentException("El tamaño de bloque debe ser mayor que cero");
+        }
+        this.lector = lector;
+        this.tamanoBloque = tamanoBloque;
+        this.primerBloque = lector.leer(0L, tamanoBloque);
+    }
+
+    // Para el mensaje de "no hay alumnos" de la plantilla
+    public boolean isEmpty() {
+        return primerBloque.isEmpty();
+    }
+
+    @Override
+    public Iterator<AlumnoFila> iterator() {
+        return new Iterator<>() {
+
+            private List<AlumnoFila> bloque = primerBloque;
+
+            private int posicion;
+
+            @Override
+            public boolean hasNext() {
+                if (posicion < bloque.size()) {
+                    return true;
+                }
+                // Un bloque incompleto es el último: no hace falta otra consulta para saberlo
+                if (bloque.size() < tamanoBloque) {
+                    return false;
+                }
+                bloque = lector.leer(bloque.get(bloque.size() - 1).id(), tamanoBloque);
+                posicion = 0;
+                return !bloque.isEmpty();
+            }
+
+            @Override
+            public AlumnoFila next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return bloque.get(posicion++);
+            }
+        };
+    }
+}
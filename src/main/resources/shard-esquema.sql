@@ -0,0 +1,41 @@
+-- Tablas de cada shard (alumnos.shards.habilitados=true). ShardsConfig lo ejecuta al arrancar en cada base:
+-- todo es IF NOT EXISTS o IGNORE, así que volver a correrlo no cambia nada.
+-- El ID no es AUTO_INCREMENT: lo arma AlumnoShards con el número del shard en los bits bajos
+CREATE TABLE IF NOT EXISTS alumnos (
+    id BIGINT PRIMARY KEY,
+    nombre VARCHAR(50),
+    apellido VARCHAR(50),
+    edad INTEGER NOT NULL,
+    curso VARCHAR(15),
+    version BIGINT DEFAULT 0 NOT NULL,
+    secuencia BIGINT DEFAULT 0 NOT NULL,
+    actualizado_en TIMESTAMP(6),
+    INDEX idx_alumnos_curso (curso),
+    INDEX idx_alumnos_edad (edad),
+    INDEX idx_alumnos_secuencia (secuencia, id)
+);
+
+-- Último ID local reservado en el shard: cada instancia reserva bloques con un UPDATE
+CREATE TABLE IF NOT EXISTS alumnos_ids (
+    id INTEGER PRIMARY KEY,
+    valor BIGINT NOT NULL
+);
+
+INSERT IGNORE INTO alumnos_ids (id, valor) VALUES (1, 0);
+
+-- Número de cambio del shard para /delta (ver SecuenciaCambios): cada escritura en el shard lo avanza primero
+CREATE TABLE IF NOT EXISTS alumnos_secuencia (
+    id INTEGER PRIMARY KEY,
+    valor BIGINT NOT NULL,
+    purgada_hasta BIGINT NOT NULL
+);
+
+INSERT IGNORE INTO alumnos_secuencia (id, valor, purgada_hasta) VALUES (1, 0, 0);
+
+-- Lápidas de las bajas del shard, hasta que las purga alumnos.delta.retencion
+CREATE TABLE IF NOT EXISTS alumnos_eliminados (
+    id BIGINT PRIMARY KEY,
+    secuencia BIGINT NOT NULL,
+    eliminado_en TIMESTAMP(6),
+    INDEX idx_alumnos_eliminados_secuencia (secuencia, id)
+);
@@ -0,0 +1,175 @@
+package org.springdemo.proyecto2;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tiempo desde que se lanza el proceso hasta la primera respuesta 2xx de GET /api/alumnos?limit=1, en cada modo
+// de arranque: jar, jar con AOT, jar con CDS, los dos juntos y la imagen nativa. Cada modo se mide solo si existe
+// lo que genera su perfil de Maven:
+//   mvn -Paot,cds package -DskipTests        (target/cds con el jar descomprimido y proyecto2.jsa)
+//   mvn -Pnative native:compile -DskipTests   (target/proyecto2)
+//   mvn test -Dgroups=benchmark -DexcludedGroups=none -Dtest=ArranqueBenchmarkTest
+// Los modos con JVM usan H2 (perfil "h2", el driver se agrega al classpath después del jar para no invalidar
+// el archivo CDS). La imagen nativa no trae H2: se mide solo si se le pasa una base con
+// -Darranque.nativo.argumentos="--spring.datasource.url=jdbc:mysql://... --spring.datasource.password=..."
+@Tag("benchmark")
+class ArranqueBenchmarkTest {
+
+    private static final int REPETICIONES = Integer.getInteger("arranque.repeticiones", 3);
+    private static final Duration ESPERA_MAXIMA = Duration.ofMinutes(2);
+
+    private static final Path TARGET = Paths.get("target");
+    private static final Path CDS = TARGET.resolve("cds");
+    private static final Path ARCHIVO_CDS = CDS.resolve("proyecto2.jsa");
+    private static final Path NATIVO = TARGET.resolve("proyecto2");
+
+    private final HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    @Test
+    void compararTiempoHastaLaPrimeraPeticion() throws Exception {
+        Path jar = jarDescomprimido();
+        Assumptions.assumeTrue(jar != null, "Falta target/cds: mvn -Paot,cds package -DskipTests");
+
+        List<String> jvm = new ArrayList<>(List.of(Paths.get(System.getProperty("java.home"), "bin", "java").toString()));
+        List<String> aplicacion = List.of("-cp", String.join(File.pathSeparator, jar.toString(), ubicacion(org.h2.Driver.class),
+                                                             ubicacion(ArranqueBenchmarkTest.class)),
+                                          Proyecto2Application.class.getName(), "--spring.profiles.active=h2");
+        boolean conAot = tieneAot(jar);
+        boolean conCds = Files.exists(ARCHIVO_CDS);
+
+        Map<String, List<String>> modos = new LinkedHashMap<>();
+        modos.put("jar", concatenar(jvm, List.of(), aplicacion));
+        if (conAot) {
+            modos.put("aot", concatenar(jvm, List.of("-Dspring.aot.enabled=true"), aplicacion));
+        }
+        if (conCds) {
+            modos.put("cds", concatenar(jvm, List.of("-XX:SharedArchiveFile=" + ARCHIVO_CDS), aplicacion));
+        }
+        if (conAot && conCds) {
+            modos.put("aot+cds", concatenar(jvm, List.of("-XX:SharedArchiveFile=" + ARCHIVO_CDS,
+                                                         "-Dspring.aot.enabled=true"), aplicacion));
+        }
+        String argumentosNativo = System.getProperty("arranque.nativo.argumentos");
+        if (Files.isExecutable(NATIVO) && argumentosNativo != null) {
+            modos.put("nativo", concatenar(List.of(NATIVO.toString()), List.of(), List.of(argumentosNativo.trim().split("\\s+"))));
+        }
+
+        Map<String, Double> medianas = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> modo : modos.entrySet()) {
+            medianas.put(modo.getKey(), medir(modo.getKey(), modo.getValue()));
+        }
+
+        System.out.println("Tiempo hasta la primera petición exitosa (mediana de " + REPETICIONES + " arranques):");
+        medianas.forEach((modo, ms) -> System.out.printf("  %-8s %,8.0f ms (%.2fx)%n", modo, ms, medianas.get("jar") / ms));
+        if (!modos.containsKey("aot")) {
+            System.out.println("  aot      omitido: el jar no tiene las clases de process-aot (perfil aot)");
+        }
+        if (!modos.containsKey("nativo")) {
+            System.out.println("  nativo   omitido: hace falta target/proyecto2 y -Darranque.nativo.argumentos");
+        }
+    }
+
+    private double medir(String modo, List<String> comando) throws Exception {
+        long[] tiempos = new long[REPETICIONES];
+        for (int i = 0; i < REPETICIONES; i++) {
+            tiempos[i] = arrancarYPedir(modo, comando);
+        }
+        Arrays.sort(tiempos);
+        return tiempos[tiempos.length / 2] / 1_000_000.0;
+    }
+
+    // Nanosegundos desde que se lanza el proceso hasta el primer 2xx (204 con la tabla vacía); el proceso se detiene después
+    private long arrancarYPedir(String modo, List<String> comando) throws Exception {
+        int puerto = puertoLibre();
+        List<String> conPuerto = concatenar(comando, List.of(), List.of("--server.port=" + puerto,
+                                                                         "--spring.main.banner-mode=off"));
+        URI ruta = URI.create("http://localhost:" + puerto + "/api/alumnos?limit=1");
+        File log = TARGET.resolve("arranque-" + modo.replace('+', '-') + ".log").toFile();
+
+        long inicio = System.nanoTime();
+        Process proceso = new ProcessBuilder(conPuerto).redirectErrorStream(true)
+                                                       .redirectOutput(log)
+                                                       .start();
+        try {
+            long limite = inicio + ESPERA_MAXIMA.toNanos();
+            while (System.nanoTime() < limite) {
+                assertTrue(proceso.isAlive(), modo + " terminó antes de responder, ver " + log);
+                if (responde(ruta)) {
+                    return System.nanoTime() - inicio;
+                }
+                Thread.sleep(10);
+            }
+            return fail(modo + " no respondió en " + ESPERA_MAXIMA + ", ver " + log);
+        } finally {
+            proceso.destroy();
+            if (!proceso.waitFor(30, TimeUnit.SECONDS)) {
+                proceso.destroyForcibly();
+            }
+        }
+    }
+
+    private boolean responde(URI ruta) throws InterruptedException {
+        try {
+            return cliente.send(HttpRequest.newBuilder(ruta).timeout(Duration.ofSeconds(5)).GET().build(),
+                                HttpResponse.BodyHandlers.discarding()).statusCode() / 100 == 2;
+        } catch (IOException e) {
+            // Tomcat todavía no escucha
+            return false;
+        }
+    }
+
+    private static Path jarDescomprimido() throws IOException {
+        if (!Files.isDirectory(CDS)) {
+            return null;
+        }
+        try (var archivos = Files.list(CDS)) {
+            return archivos.filter(archivo -> archivo.toString().endsWith(".jar")).findFirst().orElse(null);
+        }
+    }
+
+    private static boolean tieneAot(Path jar) throws IOException {
+        try (JarFile archivo = new JarFile(jar.toFile())) {
+            return archivo.getEntry(Proyecto2Application.class.getName().replace('.', '/')
+                                    + "__ApplicationContextInitializer.class") != null;
+        }
+    }
+
+    private static String ubicacion(Class<?> clase) throws Exception {
+        return Paths.get(clase.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    }
+
+    private static int puertoLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static List<String> concatenar(List<String> a, List<String> b, List<String> c) {
+        List<String> todo = new ArrayList<>(a);
+        todo.addAll(b);
+        todo.addAll(c);
+        return todo;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package org.springdemo.proyecto2.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springdemo.proyecto2.dto.AlumnoFila;
+import org.springdemo.proyecto2.dto.ConteoCursoEdad;
+import org.springdemo.proyecto2.dto.HuellaAlumnos;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springframework.aop.SpringProxy;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.core.DecoratingProxy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AotConfigTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @BeforeEach
+    void setUp() {
+        new AotConfig.Pistas().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void registerHints_DebeCubrirLasProyeccionesDeLasConsultasNativas() {
+        for (Class<?> proyeccion : new Class<?>[]{ConteoCursoEdad.class, HuellaAlumnos.class}) {
+            assertTrue(RuntimeHintsPredicates.proxies()
+                                             .forInterfaces(proyeccion, SpringProxy.class, Advised.class, DecoratingProxy.class)
+                                             .test(hints), proyeccion.getSimpleName());
+        }
+    }
+
+    @Test
+    void registerHints_DebeCubrirElJsonLasPlantillasYLosRecursosDeHibernate() throws Exception {
+        // Jackson lee y escribe Alumno con sus getters y setters; Thymeleaf lee los componentes de AlumnoFila
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(Alumno.class.getMethod("getApellido")).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(Alumno.class.getMethod("setApellido", String.class)).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(AlumnoFila.class.getMethod("apellido")).test(hints));
+
+        assertTrue(RuntimeHintsPredicates.resource().forResource("templates/index.html").test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource("import.sql").test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource("cache-hibernate.conf").test(hints));
+    }
+}
\ No newline at end of file
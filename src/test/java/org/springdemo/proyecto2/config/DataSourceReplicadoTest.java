@@ -0,0 +1,173 @@
+package org.springdemo.proyecto2.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DataSourceReplicadoTest {
+
+    @Mock
+    private DataSource primaria;
+
+    @Mock
+    private HikariDataSource replica1;
+
+    @Mock
+    private HikariDataSource replica2;
+
+    @Mock
+    private Connection conexionPrimaria;
+
+    @Mock
+    private Connection conexionReplica1;
+
+    @Mock
+    private Connection conexionReplica2;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        lenient().when(primaria.getConnection()).thenReturn(conexionPrimaria);
+        lenient().when(replica1.getConnection()).thenReturn(conexionReplica1);
+        lenient().when(replica2.getConnection()).thenReturn(conexionReplica2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        DataSourceReplicado.forzarPrimaria(false);
+    }
+
+    @Test
+    void getConnection_FueraDeUnaTransaccionReadOnly_DebeUsarLaPrimaria() throws SQLException {
+        DataSourceReplicado dataSource = new DataSourceReplicado(primaria, List.of(replica1, replica2), DataSourceReplicado.Seleccion.RONDA);
+
+        assertSame(conexionPrimaria, dataSource.getConnection());
+        verifyNoInteractions(replica1, replica2);
+    }
+
+    @Test
+    void getConnection_EnRonda_DebeAlternarLasReplicas() throws SQLException {
+        // Given
+        DataSourceReplicado dataSource = new DataSourceReplicado(primaria, List.of(replica1, replica2), DataSourceReplicado.Seleccion.RONDA);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // When & Then
+        assertSame(conexionReplica1, dataSource.getConnection());
+        assertSame(conexionReplica2, dataSource.getConnection());
+        assertSame(conexionReplica1, dataSource.getConnection());
+        verifyNoInteractions(primaria);
+    }
+
+    @Test
+    void getConnection_ConMenosConexiones_DebeElegirLaReplicaMenosOcupada() throws SQLException {
+        // Given
+        HikariPoolMXBean pool1 = mock(HikariPoolMXBean.class);
+        HikariPoolMXBean pool2 = mock(HikariPoolMXBean.class);
+        when(replica1.getHikariPoolMXBean()).thenReturn(pool1);
+        when(replica2.getHikariPoolMXBean()).thenReturn(pool2);
+        when(pool1.getActiveConnections()).thenReturn(7);
+        when(pool2.getActiveConnections()).thenReturn(2);
+        DataSourceReplicado dataSource = new DataSourceReplicado(primaria, List.of(replica1, replica2), DataSourceReplicado.Seleccion.MENOS_CONEXIONES);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // When & Then
+        assertSame(conexionReplica2, dataSource.getConnection());
+    }
+
+    @Test
+    void getConnection_ConLaPrimariaForzada_DebeUsarLaPrimariaAunqueSeaReadOnly() throws SQLException {
+        DataSourceReplicado dataSource = new DataSourceReplicado(primaria, List.of(replica1), DataSourceReplicado.Seleccion.RONDA);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        DataSourceReplicado.forzarPrimaria(true);
+
+        assertSame(conexionPrimaria, dataSource.getConnection());
+        verifyNoInteractions(replica1);
+    }
+
+    @Test
+    void enPrimaria_DebeForzarLaPrimariaSoloDuranteLaLectura() throws SQLException {
+        DataSourceReplicado dataSource = new DataSourceReplicado(primaria, List.of(replica1), DataSourceReplicado.Seleccion.RONDA);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(conexionPrimaria, DataSourceReplicado.enPrimaria(() -> conexion(dataSource)));
+        assertFalse(DataSourceReplicado.primariaForzada());
+        assertSame(conexionReplica1, dataSource.getConnection());
+    }
+
+    @Test
+    void getConnection_CargaDeCacheDespuesDeEscribir_DebeUsarLaPrimariaDuranteElAtraso() throws Exception {
+        // Given
+        DataSourceReplicado dataSource = new DataSourceReplicado(primaria, List.of(replica1), DataSourceReplicado.Seleccion.RONDA,
+                                                                 Duration.ofMillis(200));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // When & Then: sin escrituras la carga lee de la réplica
+        assertSame(conexionReplica1, DataSourceReplicado.paraCache(() -> conexion(dataSource)));
+        dataSource.alCambiarAlumno(null);
+        // Durante el atraso la carga de caché va a la primaria y las demás lecturas siguen en la réplica
+        assertSame(conexionPrimaria, DataSourceReplicado.paraCache(() -> conexion(dataSource)));
+        assertSame(conexionReplica1, dataSource.getConnection());
+        Thread.sleep(300);
+        assertSame(conexionReplica1, DataSourceReplicado.paraCache(() -> conexion(dataSource)));
+    }
+
+    @Test
+    void getConnection_SiLaReplicaFalla_DebeExpulsarlaHastaQueVuelvaAResponder() throws SQLException {
+        // Given
+        DataSourceReplicado dataSource = new DataSourceReplicado(primaria, List.of(replica1, replica2), DataSourceReplicado.Seleccion.RONDA);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(replica1.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        // When: la lectura que falla va a la primaria y las siguientes solo a la réplica 2
+        assertSame(conexionPrimaria, dataSource.getConnection());
+        assertEquals(1, dataSource.replicasDisponibles());
+        assertSame(conexionReplica2, dataSource.getConnection());
+        assertSame(conexionReplica2, dataSource.getConnection());
+
+        // Then: la verificación la vuelve a admitir cuando responde
+        reset(replica1);
+        when(replica1.getConnection()).thenReturn(conexionReplica1);
+        when(conexionReplica1.isValid(anyInt())).thenReturn(true);
+        when(conexionReplica2.isValid(anyInt())).thenReturn(true);
+        dataSource.verificar();
+        assertEquals(2, dataSource.replicasDisponibles());
+    }
+
+    @Test
+    void getConnection_SinReplicasDisponibles_DebeUsarLaPrimaria() throws SQLException {
+        // Given
+        DataSourceReplicado dataSource = new DataSourceReplicado(primaria, List.of(replica1), DataSourceReplicado.Seleccion.RONDA);
+        when(conexionReplica1.isValid(anyInt())).thenReturn(false);
+        dataSource.verificar();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // When & Then
+        assertEquals(0, dataSource.replicasDisponibles());
+        assertSame(conexionPrimaria, dataSource.getConnection());
+    }
+
+    private static Connection conexion(DataSource dataSource) {
+        try {
+            return dataSource.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
\ No newline at end of file
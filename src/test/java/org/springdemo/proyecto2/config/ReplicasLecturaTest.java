@@ -0,0 +1,100 @@
+package org.springdemo.proyecto2.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.service.AlumnoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Dos bases H2 sin replicación entre ellas: una fila que está solo en una muestra de dónde se leyó
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "replicas"})
+class ReplicasLecturaTest {
+
+    // alumnos.replicas.atraso-maximo del perfil replicas
+    private static final long ATRASO_MAXIMO_MS = 1000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AlumnoService alumnoService;
+
+    @Autowired
+    private HikariDataSource primariaDataSource;
+
+    @Value("${alumnos.replicas.urls}")
+    private String urlReplica;
+
+    private JdbcTemplate primaria;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        primaria = new JdbcTemplate(primariaDataSource);
+        replica = new JdbcTemplate(new DriverManagerDataSource(urlReplica, "sa", ""));
+        primaria.update("DELETE FROM alumnos");
+        replica.update("DELETE FROM alumnos");
+        replica.update("INSERT INTO alumnos (nombre, apellido, edad, curso) VALUES ('Solo', 'Replica', 30, 'Arte')");
+    }
+
+    @Test
+    void testEscriturasVanALaPrimariaYLecturasALaReplica() throws Exception {
+        // Given: lejos de la última escritura de otra prueba
+        Thread.sleep(ATRASO_MAXIMO_MS);
+
+        // When
+        List<AlumnoVista> antes = alumnoService.obtenerAlumnosPorCurso("Arte");
+        Alumno guardado = alumnoService.guardarAlumno(new Alumno(null, "Solo", "Primaria", 20, "Arte"));
+        List<AlumnoVista> despues = alumnoService.obtenerAlumnosPorCurso("Arte");
+
+        // Then: justo después de escribir, lo que va a las cachés se lee de la primaria
+        assertEquals(1, primaria.queryForObject("SELECT COUNT(*) FROM alumnos WHERE apellido = 'Primaria'", Integer.class));
+        assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM alumnos WHERE apellido = 'Primaria'", Integer.class));
+        assertEquals(List.of("Replica"), antes.stream().map(AlumnoVista::apellido).toList());
+        assertEquals(List.of("Primaria"), despues.stream().map(AlumnoVista::apellido).toList());
+        assertEquals("Primaria", alumnoService.obtenerAlumnoPorId(guardado.getId()).getApellido());
+    }
+
+    @Test
+    void testDespuesDeEscribirElClienteLeeDeLaPrimaria() throws Exception {
+        // Given
+        Cookie escritura = mockMvc.perform(post("/api/alumnos")
+                                          .contentType(MediaType.APPLICATION_JSON)
+                                          .content("{\"nombre\":\"Solo\",\"apellido\":\"Primaria\",\"edad\":20,\"curso\":\"Arte\"}"))
+                                  .andExpect(status().isCreated())
+                                  .andExpect(cookie().maxAge(LecturaPropiaFilter.COOKIE, 5))
+                                  .andReturn().getResponse().getCookie(LecturaPropiaFilter.COOKIE);
+
+        // When: pasado el atraso máximo, solo la cookie manda a la primaria
+        Thread.sleep(ATRASO_MAXIMO_MS);
+        String conCookie = mockMvc.perform(get("/api/alumnos/curso/Arte").cookie(escritura))
+                                  .andReturn().getResponse().getContentAsString();
+        String sinCookie = mockMvc.perform(get("/api/alumnos/curso/Arte"))
+                                  .andReturn().getResponse().getContentAsString();
+
+        // Then
+        assertTrue(conCookie.contains("Primaria") && !conCookie.contains("Replica"));
+        assertTrue(sinCookie.contains("Replica") && !sinCookie.contains("Primaria"));
+    }
+}
\ No newline at end of file
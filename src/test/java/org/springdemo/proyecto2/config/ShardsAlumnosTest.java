@@ -0,0 +1,192 @@
+package org.springdemo.proyecto2.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springdemo.proyecto2.dto.DeltaAlumnos;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.repository.AlumnoAlmacen;
+import org.springdemo.proyecto2.repository.AlumnoShards;
+import org.springdemo.proyecto2.service.AlumnoService;
+import org.springdemo.proyecto2.service.AlumnoServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// La API completa sobre tres bases H2 (particion=curso): la base principal no debe recibir ningún alumno nuevo
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "shards"})
+class ShardsAlumnosTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AlumnoService alumnoService;
+
+    @Autowired
+    private AlumnoAlmacen alumnoAlmacen;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${alumnos.shards.urls}")
+    private List<String> urls;
+
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        shards.clear();
+        urls.forEach(url -> shards.add(new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""))));
+        shards.forEach(shard -> {
+            shard.update("DELETE FROM alumnos");
+            shard.update("DELETE FROM alumnos_eliminados");
+        });
+    }
+
+    @Test
+    void testAltasConsultasYBajasVanALosShards() throws Exception {
+        // Given
+        assertInstanceOf(AlumnoServiceImpl.class, AopTestUtils.getUltimateTargetObject(alumnoService));
+        assertInstanceOf(AlumnoShards.class, alumnoAlmacen);
+        // Los datos iniciales de import.sql sí están en la base principal
+        int enLaPrincipal = new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM alumnos", Integer.class);
+        List<Long> ids = new ArrayList<>();
+        for (String[] alumno : new String[][]{{"Ana", "Arte"}, {"Luis", "Historia"}, {"Eva", "Arte"},
+                                              {"Juan", "Musica"}, {"Rosa", "Fisica"}, {"Pablo", "Arte"}}) {
+            String creado = mockMvc.perform(post("/api/alumnos")
+                                           .contentType(MediaType.APPLICATION_JSON)
+                                           .content("{\"nombre\":\"" + alumno[0] + "\",\"apellido\":\"Gomez\",\"edad\":20,"
+                                                    + "\"curso\":\"" + alumno[1] + "\"}"))
+                                   .andExpect(status().isCreated())
+                                   .andReturn().getResponse().getContentAsString();
+            ids.add(objectMapper.readTree(creado).get("id").asLong());
+        }
+
+        // When
+        JsonNode arte = objectMapper.readTree(mockMvc.perform(get("/api/alumnos/curso/Arte"))
+                                                     .andExpect(status().isOk())
+                                                     .andReturn().getResponse().getContentAsString());
+        mockMvc.perform(put("/api/alumnos/" + ids.get(1))
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"nombre\":\"Luis\",\"apellido\":\"Diaz\",\"edad\":21,\"curso\":\"Arte\"}"))
+               .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/alumnos/" + ids.get(3))).andExpect(status().isNoContent());
+
+        // Then: los alumnos de Arte estaban todos en un shard; Luis se queda en el suyo aunque cambió de curso
+        assertEquals(3, arte.size());
+        assertEquals(1, Stream.of(ids.get(0), ids.get(2), ids.get(5)).map(AlumnoShards::shardDe).distinct().count());
+        assertEquals(4, alumnoService.obtenerAlumnosPorCurso("Arte").size());
+        assertEquals("Diaz", alumnoService.obtenerAlumnoPorId(ids.get(1)).getApellido());
+        assertThrows(RuntimeException.class, () -> alumnoService.obtenerAlumnoPorId(ids.get(3)));
+        assertEquals(5, shards.stream().mapToInt(shard -> shard.queryForObject("SELECT COUNT(*) FROM alumnos", Integer.class)).sum());
+        assertEquals(enLaPrincipal, new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM alumnos", Integer.class));
+    }
+
+    @Test
+    void testListadosOrdenadosYCargaMasivaSobreLosShards() throws Exception {
+        // Given: un lote de la carga masiva con alumnos de tres cursos, uno por shard
+        List<Alumno> alumnos = Stream.iterate(0, i -> i + 1).limit(30)
+                                     .map(i -> new Alumno(null, "Ana", "Apellido" + i, 18 + i % 10,
+                                                          List.of("Arte", "Fisica", "Quimica").get(i % 3)))
+                                     .toList();
+        alumnoService.guardarAlumnosEnLote(alumnos.iterator()).forEach(resultado -> assertTrue(resultado.esExitoso()));
+
+        // When
+        List<Long> todos = alumnoService.obtenerTodosLosAlumnos().stream().map(Alumno::getId).toList();
+        JsonNode primera = objectMapper.readTree(mockMvc.perform(get("/api/alumnos?limit=20"))
+                                                        .andExpect(status().isOk())
+                                                        .andReturn().getResponse().getContentAsString());
+        JsonNode segunda = objectMapper.readTree(mockMvc.perform(get("/api/alumnos?limit=20&after="
+                                                                     + primera.get("siguienteCursor").asText()))
+                                                        .andExpect(status().isOk())
+                                                        .andReturn().getResponse().getContentAsString());
+
+        // Then: las dos páginas son el listado completo en orden de ID
+        List<Long> paginados = new ArrayList<>();
+        primera.get("alumnos").forEach(alumno -> paginados.add(alumno.get("id").asLong()));
+        segunda.get("alumnos").forEach(alumno -> paginados.add(alumno.get("id").asLong()));
+        assertEquals(30, todos.size());
+        assertEquals(todos.stream().sorted().toList(), todos);
+        assertEquals(todos, paginados);
+        assertEquals(3, shards.stream().filter(shard -> shard.queryForObject("SELECT COUNT(*) FROM alumnos", Integer.class) > 0).count());
+        assertEquals(6, alumnoService.obtenerAlumnosPorRangoEdad(20, 21).size());
+
+        // Y en index.html, con 10 filas por shard como máximo: la página 2 (filas 5 a 9) no enlaza la siguiente
+        // y la 3, pedida a mano, avisa en lugar de salir vacía
+        String segundaPagina = mockMvc.perform(get("/").param("pagina", "1").param("tamano", "5"))
+                                      .andExpect(status().isOk())
+                                      .andReturn().getResponse().getContentAsString();
+        String delMedio = mockMvc.perform(get("/").param("pagina", "2").param("tamano", "5"))
+                                 .andExpect(status().isOk())
+                                 .andReturn().getResponse().getContentAsString();
+        assertTrue(segundaPagina.contains("Apellido"));
+        assertTrue(segundaPagina.contains("no se pueden ordenar"));
+        assertTrue(delMedio.contains("demasiado lejos del principio"));
+        assertFalse(delMedio.contains("No hay alumnos registrados"));
+    }
+
+    @Test
+    void testDeltaConUnaPosicionPorShard() throws Exception {
+        // Given: el token antes de los cambios, con una posición por shard
+        String token = objectMapper.readTree(mockMvc.perform(get("/api/alumnos/delta"))
+                                                    .andExpect(status().isOk())
+                                                    .andReturn().getResponse().getContentAsString())
+                                   .get("siguienteToken").asText();
+        List<Long> ids = new ArrayList<>();
+        for (String curso : new String[]{"Arte", "Historia", "Quimica", "Arte"}) {
+            ids.add(alumnoService.guardarAlumno(new Alumno(null, "Ana", "Gomez", 20, curso)).getId());
+        }
+        alumnoService.eliminarAlumno(ids.get(1));
+
+        // When: de a dos cambios por pedido
+        List<Long> cambiados = new ArrayList<>();
+        List<Long> eliminados = new ArrayList<>();
+        JsonNode delta;
+        do {
+            delta = objectMapper.readTree(mockMvc.perform(get("/api/alumnos/delta").param("since", token).param("limit", "2"))
+                                                 .andExpect(status().isOk())
+                                                 .andReturn().getResponse().getContentAsString());
+            delta.get("alumnos").forEach(alumno -> cambiados.add(alumno.get("id").asLong()));
+            delta.get("eliminados").forEach(id -> eliminados.add(id.asLong()));
+            token = delta.get("siguienteToken").asText();
+        } while (delta.get("hayMas").asBoolean());
+
+        // Then: cada cambio llega una vez; el alumno eliminado solo como baja
+        assertEquals(Stream.of(ids.get(0), ids.get(2), ids.get(3)).sorted().toList(), cambiados.stream().sorted().toList());
+        assertEquals(List.of(ids.get(1)), eliminados);
+        assertEquals(urls.size(), DeltaAlumnos.decodificarPosiciones(token).size());
+    }
+
+    @Test
+    void testLoQueNecesitaUnaSolaBaseNoEstaDisponible() throws Exception {
+        mockMvc.perform(get("/api/alumnos/stats")).andExpect(status().isServiceUnavailable());
+        mockMvc.perform(get("/api/alumnos/search").param("q", "ana")).andExpect(status().isServiceUnavailable());
+    }
+}
\ No newline at end of file
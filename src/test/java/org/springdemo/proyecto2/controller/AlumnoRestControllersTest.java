@@ -0,0 +1,98 @@
+package org.springdemo.proyecto2.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.repository.AlumnoAlmacenJpa;
+import org.springdemo.proyecto2.repository.AlumnoRepository;
+import org.springdemo.proyecto2.service.AlumnoServiceImpl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AlumnoRestControllersTest {
+
+    // Con -Xmx256m (ver surefire en pom.xml) un millón de alumnos en una lista no entra en memoria
+    private static final long TOTAL_ALUMNOS = 1_000_000L;
+
+    @Mock
+    private AlumnoRepository alumnoRepository;
+
+    // stubOnly: Mockito no guarda cada llamada a detach(), así el test no acumula memoria
+    @Mock(stubOnly = true)
+    private EntityManager entityManager;
+
+    @Mock
+    private Session sesion;
+
+    private AlumnoRestControllers alumnoRestControllers;
+
+    @BeforeEach
+    void setUp() {
+        AlumnoAlmacenJpa alumnoAlmacen = new AlumnoAlmacenJpa(alumnoRepository);
+        ReflectionTestUtils.setField(alumnoAlmacen, "entityManager", entityManager);
+        AlumnoServiceImpl alumnoService = new AlumnoServiceImpl();
+        ReflectionTestUtils.setField(alumnoService, "alumnoAlmacen", alumnoAlmacen);
+        alumnoRestControllers = new AlumnoRestControllers();
+        ReflectionTestUtils.setField(alumnoRestControllers, "alumnoService", alumnoService);
+        ReflectionTestUtils.setField(alumnoRestControllers, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void exportarAlumnos_UnMillonDeFilas_DebeEscribirUnaLineaPorAlumno() throws IOException {
+        // Given: el repositorio genera las filas de a una, como lo haría el cursor de la base de datos
+        when(entityManager.unwrap(Session.class)).thenReturn(sesion);
+        when(alumnoRepository.streamAllAlumnosQuery()).thenReturn(
+                LongStream.rangeClosed(1, TOTAL_ALUMNOS)
+                          .mapToObj(i -> new Alumno(i, "Nombre" + i, "Apellido" + i, (int) (18 + i % 40), "Curso" + i % 12)));
+
+        // When
+        ResponseEntity<StreamingResponseBody> respuesta = alumnoRestControllers.exportarAlumnos();
+        ContadorDeLineas salida = new ContadorDeLineas();
+        respuesta.getBody().writeTo(salida);
+
+        // Then
+        assertEquals(MediaType.APPLICATION_NDJSON, respuesta.getHeaders().getContentType());
+        assertEquals(TOTAL_ALUMNOS, salida.lineas);
+        assertTrue(salida.bytes > TOTAL_ALUMNOS * 50);
+    }
+
+    // Descarta lo escrito y solo cuenta bytes y saltos de línea
+    private static class ContadorDeLineas extends OutputStream {
+        private long lineas;
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lineas++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lineas++;
+                }
+            }
+        }
+    }
+}
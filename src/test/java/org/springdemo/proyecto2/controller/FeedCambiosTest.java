@@ -0,0 +1,173 @@
+package org.springdemo.proyecto2.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.service.AlumnoEvento;
+import org.springdemo.proyecto2.service.AlumnoService;
+import org.springdemo.proyecto2.service.FeedCambiosAlumnos;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Contra Tomcat real: los eventos tienen que salir por la conexión a medida que se confirman los cambios
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                properties = {"alumnos.cambios.buffer=4", "alumnos.cambios.retencion=3"})
+@ActiveProfiles("h2")
+@Timeout(30)
+class FeedCambiosTest {
+
+    private record Evento(String id, String nombre, String datos) {
+    }
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private AlumnoService alumnoService;
+
+    @Autowired
+    private FeedCambiosAlumnos feedCambiosAlumnos;
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    @Test
+    void changes_DebeEmitirAltasModificacionesYBajasConfirmadas() throws Exception {
+        try (Conexion conexion = conectar(null)) {
+            // Given
+            assertEquals("ready", conexion.siguiente().nombre());
+
+            // When
+            Alumno alumno = alumnoService.guardarAlumno(new Alumno(null, "Ana", "Gomez", 20, "Arte"));
+            alumnoService.actualizarAlumno(alumno.getId(), new Alumno(null, "Ana", "Gomez", 21, "Arte"), null);
+            alumnoService.eliminarAlumno(alumno.getId());
+
+            // Then
+            Evento creado = conexion.siguiente();
+            Evento actualizado = conexion.siguiente();
+            Evento eliminado = conexion.siguiente();
+            assertEquals(List.of("created", "updated", "deleted"),
+                         List.of(creado.nombre(), actualizado.nombre(), eliminado.nombre()));
+            assertTrue(creado.datos().contains("\"apellido\":\"Gomez\""));
+            assertTrue(actualizado.datos().contains("\"edad\":21"));
+            assertEquals("{\"id\":" + alumno.getId() + "}", eliminado.datos());
+        }
+    }
+
+    @Test
+    void changes_ConLastEventId_DebeSeguirDesdeElUltimoRecibido() throws Exception {
+        // Given
+        String ultimoId;
+        try (Conexion conexion = conectar(null)) {
+            ultimoId = conexion.siguiente().id();
+        }
+        feedCambiosAlumnos.alCambiarAlumno(AlumnoEvento.eliminado(1L));
+        feedCambiosAlumnos.alCambiarAlumno(AlumnoEvento.eliminado(2L));
+
+        // When & Then
+        try (Conexion conexion = conectar(ultimoId)) {
+            assertEquals("{\"id\":1}", conexion.siguiente().datos());
+            assertEquals("{\"id\":2}", conexion.siguiente().datos());
+        }
+    }
+
+    @Test
+    void changes_ConUnIdFueraDeLaVentana_DebePedirResync() throws Exception {
+        // Given: la ventana guarda 3 cambios
+        String ultimoId;
+        try (Conexion conexion = conectar(null)) {
+            ultimoId = conexion.siguiente().id();
+        }
+        for (long id = 1; id <= 4; id++) {
+            feedCambiosAlumnos.alCambiarAlumno(AlumnoEvento.eliminado(id));
+        }
+
+        // When & Then: también un id de otro arranque
+        for (String id : List.of(ultimoId, "otro-arranque-5")) {
+            try (Conexion conexion = conectar(id)) {
+                Evento resync = conexion.siguiente();
+                assertEquals("resync", resync.nombre());
+                assertEquals("{\"motivo\":\"ventana\"}", resync.datos());
+                assertNull(conexion.siguiente(), "Después del resync se cierra la conexión");
+            }
+        }
+    }
+
+    @Test
+    void changes_UnClienteQueNoLee_DebeRecibirResyncYQuedarDesconectado() throws Exception {
+        try (Conexion conexion = conectar(null)) {
+            // Given: el cliente no lee mientras se publican más cambios de los que entran en los búferes de TCP
+            String apellido = "x".repeat(10_000);
+            for (int i = 0; i < 2_000; i++) {
+                feedCambiosAlumnos.alCambiarAlumno(AlumnoEvento.creado(new Alumno((long) i, "Ana", apellido, 20, "Arte")));
+            }
+
+            // When: lee todo lo que quedó en camino
+            Evento ultimo = null;
+            for (Evento evento = conexion.siguiente(); evento != null; evento = conexion.siguiente()) {
+                ultimo = evento;
+            }
+
+            // Then
+            assertNotNull(ultimo);
+            assertEquals("resync", ultimo.nombre());
+            assertEquals("{\"motivo\":\"lento\"}", ultimo.datos());
+        }
+    }
+
+    private Conexion conectar(String ultimoId) throws Exception {
+        HttpRequest.Builder pedido = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/api/alumnos/changes"))
+                                                .timeout(Duration.ofSeconds(10));
+        if (ultimoId != null) {
+            pedido.header("Last-Event-ID", ultimoId);
+        }
+        HttpResponse<InputStream> respuesta = cliente.send(pedido.build(), HttpResponse.BodyHandlers.ofInputStream());
+        assertEquals(200, respuesta.statusCode());
+        assertTrue(respuesta.headers().firstValue("Content-Type").orElseThrow().startsWith("text/event-stream"));
+        return new Conexion(new BufferedReader(new InputStreamReader(respuesta.body(), StandardCharsets.UTF_8)));
+    }
+
+    private record Conexion(BufferedReader lector) implements AutoCloseable {
+
+        // Siguiente evento (los comentarios se saltean) o null si el servidor cerró la conexión
+        Evento siguiente() throws Exception {
+            String id = null;
+            String nombre = null;
+            List<String> datos = new ArrayList<>();
+            for (String linea = lector.readLine(); linea != null; linea = lector.readLine()) {
+                if (linea.isEmpty()) {
+                    if (nombre != null) {
+                        return new Evento(id, nombre, String.join("\n", datos));
+                    }
+                } else if (linea.startsWith("id:")) {
+                    id = linea.substring(3);
+                } else if (linea.startsWith("event:")) {
+                    nombre = linea.substring(6);
+                } else if (linea.startsWith("data:")) {
+                    datos.add(linea.substring(5));
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws Exception {
+            lector.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,134 @@
+package org.springdemo.proyecto2.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.repository.AlumnoRepository;
+import org.springdemo.proyecto2.service.AlumnoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Contra Tomcat real: la compresión la hace el conector y MockMvc no pasa por él
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("h2")
+class FormatosRespuestaTest {
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private AlumnoRepository alumnoRepository;
+
+    @Autowired
+    private AlumnoService alumnoService;
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    private Alumno alumno;
+
+    @BeforeEach
+    void setUp() {
+        alumnoRepository.deleteAllInBatch();
+        alumnoService.guardarAlumnosEnLote(IntStream.range(0, 100)
+                                                    .mapToObj(i -> new Alumno(null, "Nombre" + i, "Apellido" + i, 20, "Arte"))
+                                                    .iterator());
+        alumno = alumnoService.guardarAlumno(new Alumno(null, "Ana", "Gomez", 30, "Historia"));
+    }
+
+    @Test
+    void sinAccept_DebeResponderJson() throws Exception {
+        HttpResponse<String> respuesta = cliente.send(pedir("/api/alumnos/curso/Arte").build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, respuesta.statusCode());
+        assertEquals("application/json", respuesta.headers().firstValue("Content-Type").orElseThrow());
+        assertTrue(respuesta.body().startsWith("[{\"id\":"));
+    }
+
+    @Test
+    void conAcceptCbor_DebeResponderCborConSuPropioEtag() throws Exception {
+        // When
+        HttpResponse<byte[]> json = cliente.send(pedir("/api/alumnos/curso/Arte").build(), HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> cbor = cliente.send(pedir("/api/alumnos/curso/Arte").header("Accept", "application/cbor").build(),
+                                                 HttpResponse.BodyHandlers.ofByteArray());
+
+        // Then: el mismo contenido, más chico y con otro ETag
+        assertEquals("application/cbor", cbor.headers().firstValue("Content-Type").orElseThrow());
+        JsonNode alumnos = new CBORMapper().readTree(cbor.body());
+        assertEquals(100, alumnos.size());
+        assertEquals("Arte", alumnos.get(0).get("curso").asText());
+        assertTrue(cbor.body().length < json.body().length);
+
+        String etagJson = json.headers().firstValue("ETag").orElseThrow();
+        String etagCbor = cbor.headers().firstValue("ETag").orElseThrow();
+        assertEquals(etagJson.substring(0, etagJson.length() - 1) + "-cbor\"", etagCbor);
+        // Tomcat agrega accept-encoding al comprimir y escribe el encabezado en minúsculas
+        assertTrue(cbor.headers().allValues("Vary").stream()
+                       .flatMap(vary -> Arrays.stream(vary.split(",")))
+                       .anyMatch(campo -> campo.strip().equalsIgnoreCase("Accept")));
+
+        // Then: cada ETag solo revalida su propio formato
+        assertEquals(304, cliente.send(pedir("/api/alumnos/curso/Arte").header("Accept", "application/cbor")
+                                                                           .header("If-None-Match", etagCbor).build(),
+                                       HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(200, cliente.send(pedir("/api/alumnos/curso/Arte").header("Accept", "application/cbor")
+                                                                           .header("If-None-Match", etagJson).build(),
+                                       HttpResponse.BodyHandlers.discarding()).statusCode());
+    }
+
+    @Test
+    void conAcceptSmile_DebeResponderSmile() throws Exception {
+        HttpResponse<byte[]> smile = cliente.send(pedir("/api/alumnos/" + alumno.getId())
+                                                          .header("Accept", "application/x-jackson-smile").build(),
+                                                  HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals("application/x-jackson-smile", smile.headers().firstValue("Content-Type").orElseThrow());
+        assertEquals("Gomez", new SmileMapper().readTree(smile.body()).get("apellido").asText());
+        assertEquals("\"0-smile\"", smile.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    void ifMatch_ConElEtagDeUnFormatoBinario_DebeAceptarLaVersion() throws Exception {
+        HttpResponse<String> respuesta = cliente.send(
+                pedir("/api/alumnos/" + alumno.getId())
+                        .header("Content-Type", "application/json")
+                        .header("If-Match", "\"0-cbor\"")
+                        .PUT(HttpRequest.BodyPublishers.ofString("{\"nombre\":\"Ana\",\"apellido\":\"Gomez\",\"edad\":31,\"curso\":\"Historia\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, respuesta.statusCode());
+        assertEquals("\"1\"", respuesta.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    void respuestasGrandes_DebenComprimirseConGzip() throws Exception {
+        // When
+        HttpResponse<byte[]> listado = cliente.send(pedir("/api/alumnos/curso/Arte").header("Accept-Encoding", "gzip").build(),
+                                                    HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> unAlumno = cliente.send(pedir("/api/alumnos/" + alumno.getId()).header("Accept-Encoding", "gzip").build(),
+                                                     HttpResponse.BodyHandlers.ofByteArray());
+
+        // Then: el listado supera min-response-size; un alumno solo no
+        assertEquals("gzip", listado.headers().firstValue("Content-Encoding").orElse(null));
+        assertTrue(listado.headers().firstValue("ETag").orElseThrow().startsWith("W/"));
+        assertTrue(unAlumno.headers().firstValue("Content-Encoding").isEmpty());
+    }
+
+    private HttpRequest.Builder pedir(String ruta) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + ruta));
+    }
+}
\ No newline at end of file
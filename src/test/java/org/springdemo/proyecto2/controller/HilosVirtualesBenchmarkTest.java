@@ -0,0 +1,121 @@
+package org.springdemo.proyecto2.controller;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springdemo.proyecto2.Proyecto2Application;
+import org.springdemo.proyecto2.perf.GeneradorAlumnos;
+import org.springdemo.proyecto2.repository.AlumnoRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compara hilos de plataforma contra hilos virtuales con 1000 clientes concurrentes contra Tomcat real.
+// Con H2 en memoria las consultas tardan microsegundos y el límite es el pool de conexiones; con la
+// latencia de red de MySQL la diferencia a favor de los hilos virtuales crece.
+// No corre en el build normal: mvn test -Dgroups=benchmark -DexcludedGroups=none -Dtest=HilosVirtualesBenchmarkTest
+@Tag("benchmark")
+class HilosVirtualesBenchmarkTest {
+
+    private static final int CLIENTES = 1_000;
+    private static final int PETICIONES_POR_CLIENTE = 20;
+    private static final int TOTAL_ALUMNOS = 5_000;
+
+    private record Resultado(double peticionesPorSegundo, double p50Ms, double p99Ms, int errores) {
+    }
+
+    @Test
+    void compararHilosDePlataformaContraHilosVirtuales() throws Exception {
+        Resultado plataforma = medir(false);
+        Resultado virtuales = medir(true);
+
+        System.out.printf("Hilos de plataforma: %,.0f pet/s, p50 %.1f ms, p99 %.1f ms, %d errores%n",
+                          plataforma.peticionesPorSegundo(), plataforma.p50Ms(), plataforma.p99Ms(), plataforma.errores());
+        System.out.printf("Hilos virtuales:     %,.0f pet/s, p50 %.1f ms, p99 %.1f ms, %d errores%n",
+                          virtuales.peticionesPorSegundo(), virtuales.p50Ms(), virtuales.p99Ms(), virtuales.errores());
+        // con hilos de plataforma se informan los errores (conexiones rechazadas al saturarse Tomcat), no se exigen
+        assertEquals(0, virtuales.errores());
+    }
+
+    private Resultado medir(boolean hilosVirtuales) throws Exception {
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(Proyecto2Application.class)
+                .profiles("h2")
+                .properties("server.port=0",
+                            "spring.threads.virtual.enabled=" + hilosVirtuales,
+                            "spring.main.banner-mode=off")
+                .run()) {
+            AlumnoRepository alumnoRepository = contexto.getBean(AlumnoRepository.class);
+            alumnoRepository.deleteAllInBatch();
+            new GeneradorAlumnos().cargar(alumnoRepository, TOTAL_ALUMNOS);
+            String base = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port") + "/api/alumnos";
+
+            // Mezcla de lecturas que llegan a la base: una página, un curso chico y un rango de edad
+            List<URI> rutas = List.of(URI.create(base + "?limit=20"),
+                                      URI.create(base + "/curso/Arte"),
+                                      URI.create(base + "/edad/40-41"));
+
+            try (HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+                 ExecutorService clientes = Executors.newVirtualThreadPerTaskExecutor()) {
+                ejecutarClientes(cliente, clientes, rutas, 2); // calentamiento
+                long inicio = System.nanoTime();
+                List<Long> tiempos = ejecutarClientes(cliente, clientes, rutas, PETICIONES_POR_CLIENTE);
+                double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+
+                long[] ordenados = tiempos.stream().filter(t -> t >= 0).mapToLong(Long::longValue).toArray();
+                Arrays.sort(ordenados);
+                int errores = (int) tiempos.stream().filter(t -> t < 0).count();
+                return new Resultado(tiempos.size() / segundos,
+                                     percentil(ordenados, 0.50), percentil(ordenados, 0.99), errores);
+            }
+        }
+    }
+
+    // Cada cliente hace sus peticiones una tras otra; devuelve la duración de cada una (negativa si falló)
+    private static List<Long> ejecutarClientes(HttpClient cliente, ExecutorService clientes,
+                                               List<URI> rutas, int peticionesPorCliente) throws Exception {
+        AtomicInteger siguiente = new AtomicInteger();
+        List<Future<List<Long>>> futuros = new ArrayList<>(CLIENTES);
+        for (int c = 0; c < CLIENTES; c++) {
+            futuros.add(clientes.submit(() -> {
+                List<Long> tiempos = new ArrayList<>(peticionesPorCliente);
+                for (int i = 0; i < peticionesPorCliente; i++) {
+                    URI ruta = rutas.get(siguiente.getAndIncrement() % rutas.size());
+                    long inicio = System.nanoTime();
+                    try {
+                        HttpResponse<Void> respuesta = cliente.send(HttpRequest.newBuilder(ruta).GET().build(),
+                                                                    HttpResponse.BodyHandlers.discarding());
+                        tiempos.add(respuesta.statusCode() == 200 ? System.nanoTime() - inicio : -1L);
+                    } catch (Exception e) {
+                        tiempos.add(-1L);
+                    }
+                }
+                return tiempos;
+            }));
+        }
+        List<Long> todos = new ArrayList<>(CLIENTES * peticionesPorCliente);
+        for (Future<List<Long>> futuro : futuros) {
+            todos.addAll(futuro.get());
+        }
+        return todos;
+    }
+
+    private static double percentil(long[] ordenados, double percentil) {
+        if (ordenados.length == 0) {
+            return 0;
+        }
+        return ordenados[(int) Math.min(ordenados.length - 1, Math.round(percentil * (ordenados.length - 1)))] / 1_000_000.0;
+    }
+}
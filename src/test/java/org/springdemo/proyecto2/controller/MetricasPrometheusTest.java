@@ -0,0 +1,61 @@
+package org.springdemo.proyecto2.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability // sin esto las pruebas no registran métricas
+@ActiveProfiles("h2")
+class MetricasPrometheusTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testPrometheusPublicaMetricasDeRutasServicioHibernateYPool() throws Exception {
+        // Given
+        mockMvc.perform(post("/api/alumnos")
+                       .contentType(MediaType.APPLICATION_JSON)
+                       .content("{\"nombre\":\"John\",\"apellido\":\"Doe\",\"edad\":20,\"curso\":\"Matematicas\"}"))
+               .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/alumnos/curso/Matematicas")).andExpect(status().isOk());
+
+        // When
+        String metricas = mockMvc.perform(get("/actuator/prometheus"))
+                                 .andExpect(status().isOk())
+                                 .andReturn().getResponse().getContentAsString();
+
+        // Then
+        assertAll(
+                // histograma por ruta
+                () -> assertTrue(metricas.contains("http_server_requests_seconds_bucket{")
+                                 && metricas.contains("uri=\"/api/alumnos/curso/{curso}\"")),
+                // timer por método del servicio
+                () -> assertTrue(metricas.contains("alumnos_servicio_seconds_count{")
+                                 && metricas.contains("method=\"obtenerAlumnosPorCurso\"")),
+                // estadísticas de Hibernate
+                () -> assertTrue(metricas.contains("hibernate_query_executions_total")),
+                () -> assertTrue(metricas.contains("hibernate_flushes_total")),
+                // caché de segundo nivel y de consultas, por región
+                () -> assertTrue(metricas.contains("hibernate_second_level_cache_requests_total{")
+                                 && metricas.contains("region=\"alumnos-entidades\"")),
+                () -> assertTrue(metricas.contains("hibernate_cache_query_region_requests_total{")
+                                 && metricas.contains("region=\"alumnos-consultas\"")),
+                // pool de conexiones
+                () -> assertTrue(metricas.contains("hikaricp_connections_pending")),
+                () -> assertTrue(metricas.contains("hikaricp_connections_acquire_seconds_bucket"))
+        );
+    }
+}
@@ -0,0 +1,293 @@
+package org.springdemo.proyecto2.perf;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.repository.AlumnoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import javax.sql.DataSource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+// Sentencias SQL por petición (todas las del pool: Hibernate y JdbcTemplate) y latencia de cada ruta de AlumnoRestControllers
+// sobre una tabla con muchos alumnos. Un N+1 o una consulta que pasa a recorrer toda la tabla hace fallar el build.
+// No corre en el build normal: mvn -Pperf test [-Dalumnos.perf.total=1000000]
+@Tag("perf")
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("perf")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AlumnoRestControllersPerfTest {
+
+    private static final int CALENTAMIENTO = 30;
+    private static final int REPETICIONES = 20;
+    private static final String CURSO = "Historia";
+    // Toda escritura avanza antes el contador de cambios de /delta (ver AlumnoRepositoryCustomImpl)
+    private static final int CONTADOR_DE_CAMBIOS = 1;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AlumnoRepository alumnoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${alumnos.perf.total}")
+    private int totalAlumnos;
+
+    // Multiplica todos los límites de latencia, para máquinas más lentas (-Dalumnos.perf.factor-limite=2)
+    @Value("${alumnos.perf.factor-limite}")
+    private double factorLimite;
+
+    // ID del primer alumno generado: los datos de import.sql ya consumieron los primeros del AUTO_INCREMENT
+    private long primerId;
+
+    // IDs que las pruebas de escritura van consumiendo, para no pisarse entre ellas
+    private final AtomicLong siguienteId = new AtomicLong();
+
+    @BeforeAll
+    void cargarDatos() {
+        alumnoRepository.deleteAllInBatch();
+        new GeneradorAlumnos().cargar(alumnoRepository, totalAlumnos);
+        primerId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM alumnos", Long.class);
+        siguienteId.set(primerId);
+    }
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(nombre -> cacheManager.getCache(nombre).clear());
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void paginaDeAlumnos() throws Exception {
+        // ETag de la página + la página: 2 sentencias, sin importar el tamaño de la tabla
+        Medicion medicion = medir(i -> get("/api/alumnos").param("limit", "50"));
+        verificar(medicion, 2, limite(25, 50));
+    }
+
+    @Test
+    void exportarAlumnos() throws Exception {
+        // Una sola consulta por streaming aunque la tabla tenga millones de filas
+        Medicion medicion = medir(3, i -> get("/api/alumnos/export"));
+        verificar(medicion, 1, limite(100, totalAlumnos));
+    }
+
+    @Test
+    void alumnoPorId() throws Exception {
+        // Con las caches vacías (la de Spring y la de segundo nivel): un SELECT por clave primaria
+        Medicion medicion = medir(i -> {
+            cacheManager.getCache("alumnos").clear();
+            entityManagerFactory.getCache().evict(Alumno.class);
+            return get("/api/alumnos/{id}", primerId + i * 97 % totalAlumnos);
+        });
+        verificar(medicion, 1, limite(25, 1));
+    }
+
+    @Test
+    void crearAlumno() throws Exception {
+        Medicion medicion = medir(i -> post("/api/alumnos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nombre\":\"Perf\",\"apellido\":\"Test\",\"edad\":20,\"curso\":\"Arte\"}"));
+        verificar(medicion, CONTADOR_DE_CAMBIOS + 1, limite(25, 1));
+    }
+
+    @Test
+    void crearAlumnosEnLote() throws Exception {
+        // 1000 filas en lotes de alumnos.carga-masiva.tamano-lote (500): un INSERT en batch por lote, no uno por fila
+        StringBuilder cuerpo = new StringBuilder();
+        GeneradorAlumnos generador = new GeneradorAlumnos(1L);
+        for (int i = 0; i < 1_000; i++) {
+            var alumno = generador.siguiente();
+            cuerpo.append("{\"nombre\":\"").append(alumno.getNombre())
+                  .append("\",\"apellido\":\"").append(alumno.getApellido())
+                  .append("\",\"edad\":").append(alumno.getEdad())
+                  .append(",\"curso\":\"").append(alumno.getCurso()).append("\"}\n");
+        }
+        Medicion medicion = medir(3, i -> post("/api/alumnos/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(cuerpo.toString()));
+        verificar(medicion, 2 * (CONTADOR_DE_CAMBIOS + 1), limite(100, 1_000));
+    }
+
+    @Test
+    void actualizarAlumno() throws Exception {
+        long id = siguienteId.getAndIncrement();
+        Medicion medicion = medir(i -> put("/api/alumnos/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nombre\":\"Perf\",\"apellido\":\"Test\",\"edad\":" + (20 + i % 10) + ",\"curso\":\"Arte\"}"));
+        // El UPDATE y, sin If-Match, la lectura de la versión nueva para el ETag
+        verificar(medicion, CONTADOR_DE_CAMBIOS + 2, limite(25, 1));
+    }
+
+    @Test
+    void actualizarAlumnoParcialmente() throws Exception {
+        // El UPDATE (por JdbcTemplate) y la lectura de la fila completa
+        long id = siguienteId.getAndIncrement();
+        Medicion medicion = medir(i -> patch("/api/alumnos/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"edad\":" + (20 + i % 10) + "}"));
+        verificar(medicion, CONTADOR_DE_CAMBIOS + 2, limite(25, 1));
+    }
+
+    @Test
+    void eliminarAlumno() throws Exception {
+        long primero = primerId + totalAlumnos - 1 - CALENTAMIENTO - REPETICIONES;
+        // El DELETE y la lápida para /delta
+        Medicion medicion = medir(i -> delete("/api/alumnos/{id}", primero + i));
+        verificar(medicion, CONTADOR_DE_CAMBIOS + 2, limite(25, 1));
+    }
+
+    @Test
+    void alumnosPorCurso() throws Exception {
+        // Solo el ETag del curso: el listado sale de la caché de consultas desde el calentamiento
+        Medicion medicion = medir(5, i -> get("/api/alumnos/curso/{curso}", CURSO));
+        verificar(medicion, 1, limite(25, contar("SELECT COUNT(*) FROM alumnos WHERE curso = ?", CURSO)));
+    }
+
+    @Test
+    void alumnosPorRangoEdad() throws Exception {
+        Medicion medicion = medir(5, i -> get("/api/alumnos/edad/{min}-{max}", 40, 45));
+        verificar(medicion, 1, limite(25, contar("SELECT COUNT(*) FROM alumnos WHERE edad BETWEEN ? AND ?", 40, 45)));
+    }
+
+    private record Medicion(double medianaMs, double sentenciasPorPeticion, int ultimoEstado) {
+    }
+
+    private Medicion medir(LongFunction<RequestBuilder> peticion) throws Exception {
+        return medir(REPETICIONES, peticion);
+    }
+
+    // Calienta, luego mide cada petición por separado y cuenta las sentencias de todas las repeticiones
+    private Medicion medir(int repeticiones, LongFunction<RequestBuilder> peticion) throws Exception {
+        // las rutas pesadas se repiten menos y también se calientan menos
+        int calentamiento = Math.min(CALENTAMIENTO, repeticiones * 2);
+        for (int i = 0; i < calentamiento; i++) {
+            ejecutar(peticion.apply(i));
+        }
+        ContadorDeSentencias.SENTENCIAS.set(0);
+        double[] tiempos = new double[repeticiones];
+        int estado = 0;
+        for (int i = 0; i < repeticiones; i++) {
+            long inicio = System.nanoTime();
+            estado = ejecutar(peticion.apply(calentamiento + i)).getResponse().getStatus();
+            tiempos[i] = (System.nanoTime() - inicio) / 1_000_000.0;
+        }
+        Arrays.sort(tiempos);
+        long sentencias = ContadorDeSentencias.SENTENCIAS.get();
+        return new Medicion(tiempos[repeticiones / 2], (double) sentencias / repeticiones, estado);
+    }
+
+    private MvcResult ejecutar(RequestBuilder peticion) throws Exception {
+        MvcResult resultado = mockMvc.perform(peticion).andReturn();
+        if (resultado.getRequest().isAsyncStarted()) {
+            // StreamingResponseBody: esperar a que se escriba todo el cuerpo
+            resultado.getAsyncResult();
+            resultado = mockMvc.perform(asyncDispatch(resultado)).andReturn();
+        }
+        return resultado;
+    }
+
+    // Un costo fijo por petición más un costo por fila devuelta (30 microsegundos): una consulta que
+    // recorre toda la tabla para devolver pocas filas se pasa del límite
+    private double limite(double fijoMs, long filas) {
+        return (fijoMs + filas * 0.03) * factorLimite;
+    }
+
+    private long contar(String sql, Object... parametros) {
+        return jdbcTemplate.queryForObject(sql, Long.class, parametros);
+    }
+
+    private static void verificar(Medicion medicion, long sentenciasEsperadas, double limiteMs) {
+        System.out.printf("mediana %.2f ms (límite %.2f ms), %.2f sentencias por petición%n",
+                          medicion.medianaMs(), limiteMs, medicion.sentenciasPorPeticion());
+        assertAll(
+                () -> assertTrue(medicion.ultimoEstado() < 400, "Estado HTTP " + medicion.ultimoEstado()),
+                () -> assertEquals(sentenciasEsperadas, medicion.sentenciasPorPeticion(), 0.0, "Sentencias SQL por petición"),
+                () -> assertTrue(medicion.medianaMs() <= limiteMs,
+                                 String.format("Mediana %.2f ms supera el límite de %.2f ms", medicion.medianaMs(), limiteMs))
+        );
+    }
+
+    // Envuelve el DataSource y cuenta cada sentencia que se prepara en sus conexiones, venga de Hibernate o de
+    // JdbcTemplate: las estadísticas de Hibernate no ven la carga masiva, el PATCH ni el contador de cambios
+    @TestConfiguration
+    static class ContadorDeSentencias {
+
+        static final AtomicLong SENTENCIAS = new AtomicLong();
+
+        private static final Set<String> CREAN_SENTENCIAS = Set.of("prepareStatement", "prepareCall", "createStatement");
+
+        @Bean
+        static BeanPostProcessor contadorDeSentencias() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String nombre) {
+                    if (!(bean instanceof DataSource base)) {
+                        return bean;
+                    }
+                    return envolver(DataSource.class, base, (metodo, resultado) ->
+                            resultado instanceof Connection conexion
+                                    ? envolver(Connection.class, conexion, (metodoConexion, sentencia) -> {
+                                        if (CREAN_SENTENCIAS.contains(metodoConexion)) {
+                                            SENTENCIAS.incrementAndGet();
+                                        }
+                                        return sentencia;
+                                    })
+                                    : resultado);
+                }
+            };
+        }
+
+        private interface Despues {
+            Object aplicar(String metodo, Object resultado);
+        }
+
+        private static <T> T envolver(Class<T> tipo, T objetivo, Despues despues) {
+            InvocationHandler manejador = (proxy, metodo, argumentos) -> {
+                try {
+                    return despues.aplicar(metodo.getName(), metodo.invoke(objetivo, argumentos));
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            };
+            return tipo.cast(Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, manejador));
+        }
+    }
+}
\ No newline at end of file
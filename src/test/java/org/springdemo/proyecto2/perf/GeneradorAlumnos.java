@@ -0,0 +1,85 @@
+package org.springdemo.proyecto2.perf;
+
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.repository.AlumnoRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Genera alumnos sintéticos de forma determinista (misma semilla -> mismos datos) y los carga por lotes
+public class GeneradorAlumnos {
+
+    public static final long SEMILLA = 20241201L;
+
+    private static final int TAMANO_LOTE = 1_000;
+
+    private static final String[] NOMBRES = {"John", "Jane", "Carlos", "Ana", "Luis", "Maria", "Pedro", "Sofia",
+            "Miguel", "Elena", "Lucia", "Diego", "Valentina", "Mateo", "Camila", "Javier"};
+
+    private static final String[] APELLIDOS = {"Doe", "Smith", "Perez", "Gonzalez", "Martinez", "Lopez", "Garcia",
+            "Rodriguez", "Fernandez", "Sanchez", "Romero", "Torres", "Diaz", "Alvarez", "Ruiz", "Moreno"};
+
+    // Mismos cursos que import.sql, con más alumnos en los cursos troncales
+    private static final String[] CURSOS = {"Matematicas", "Ciencias", "Historia", "Literatura", "Quimica",
+            "Filosofia", "Informatica", "Biologia", "Fisica", "Arte"};
+    private static final int[] PESOS_CURSOS = {22, 16, 10, 9, 8, 5, 14, 7, 6, 3};
+
+    private final Random random;
+    private final int pesoTotal;
+
+    public GeneradorAlumnos() {
+        this(SEMILLA);
+    }
+
+    public GeneradorAlumnos(long semilla) {
+        this.random = new Random(semilla);
+        int suma = 0;
+        for (int peso : PESOS_CURSOS) {
+            suma += peso;
+        }
+        this.pesoTotal = suma;
+    }
+
+    public Alumno siguiente() {
+        return new Alumno(null,
+                          NOMBRES[random.nextInt(NOMBRES.length)],
+                          APELLIDOS[random.nextInt(APELLIDOS.length)],
+                          siguienteEdad(),
+                          siguienteCurso());
+    }
+
+    // Inserta la cantidad pedida con insertarLote (JDBC batch), sin acumular todo en memoria
+    public void cargar(AlumnoRepository alumnoRepository, int cantidad) {
+        List<Alumno> lote = new ArrayList<>(TAMANO_LOTE);
+        for (int i = 0; i < cantidad; i++) {
+            lote.add(siguiente());
+            if (lote.size() == TAMANO_LOTE) {
+                alumnoRepository.insertarLote(lote);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            alumnoRepository.insertarLote(lote);
+        }
+    }
+
+    // La mayoría entre 18 y 25 años, con una cola de alumnos mayores hasta 60
+    private int siguienteEdad() {
+        if (random.nextInt(10) < 8) {
+            return 18 + (int) Math.round(Math.abs(random.nextGaussian()) * 3.0) % 8;
+        }
+        return 26 + random.nextInt(35);
+    }
+
+    private String siguienteCurso() {
+        int valor = random.nextInt(pesoTotal);
+        for (int i = 0; i < CURSOS.length; i++) {
+            valor -= PESOS_CURSOS[i];
+            if (valor < 0) {
+                return CURSOS[i];
+            }
+        }
+        return CURSOS[CURSOS.length - 1];
+    }
+}
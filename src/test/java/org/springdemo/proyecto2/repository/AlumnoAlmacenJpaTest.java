@@ -0,0 +1,211 @@
+package org.springdemo.proyecto2.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springdemo.proyecto2.dto.AlumnoParcial;
+import org.springdemo.proyecto2.dto.DeltaAlumnos;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.model.AlumnoEliminado;
+import org.springdemo.proyecto2.model.SecuenciaCambios;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AlumnoAlmacenJpaTest {
+
+    @Mock
+    private AlumnoRepository alumnoRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private Session sesion;
+
+    private AlumnoAlmacenJpa alumnoAlmacen;
+
+    @BeforeEach
+    void setUp() {
+        alumnoAlmacen = new AlumnoAlmacenJpa(alumnoRepository);
+        ReflectionTestUtils.setField(alumnoAlmacen, "entityManager", entityManager);
+    }
+
+    @Test
+    void insertar_DebeGuardarConElNumeroDeCambioNuevo() {
+        // Given
+        Alumno nuevo = new Alumno(null, "Nuevo", "Alumno", 21, "Historia");
+        when(alumnoRepository.avanzarSecuencia()).thenReturn(7L);
+        when(alumnoRepository.save(nuevo)).thenReturn(nuevo);
+
+        // When
+        Alumno resultado = alumnoAlmacen.insertar(nuevo);
+
+        // Then
+        assertEquals(7L, resultado.getSecuencia());
+        verify(alumnoRepository).save(nuevo);
+    }
+
+    @Test
+    void insertarLote_DebeUsarUnSoloNumeroDeCambioParaTodoElLote() {
+        // Given
+        List<Alumno> lote = List.of(new Alumno(null, "A", "A", 20, "X"), new Alumno(null, "B", "B", 21, "X"));
+        when(alumnoRepository.avanzarSecuencia()).thenReturn(3L);
+        when(alumnoRepository.insertarLote(lote)).thenReturn(2);
+
+        // When
+        int insertados = alumnoAlmacen.insertarLote(lote);
+
+        // Then
+        assertEquals(2, insertados);
+        assertTrue(lote.stream().allMatch(alumno -> alumno.getSecuencia() == 3L));
+        verify(alumnoRepository, times(1)).avanzarSecuencia();
+    }
+
+    @Test
+    void actualizar_SinVersion_DebeLeerLaVersionQueDejoElUpdate() {
+        // Given
+        when(alumnoRepository.avanzarSecuencia()).thenReturn(9L);
+        when(alumnoRepository.updateAlumnoQuery(1L, "Juan", "Pérez", 21, "Matemáticas")).thenReturn(1);
+        when(alumnoRepository.findVersionById(1L)).thenReturn(5L);
+
+        // When
+        Alumno resultado = alumnoAlmacen.actualizar(1L, new Alumno(null, "Juan", "Pérez", 21, "Matemáticas"), null)
+                                        .orElseThrow();
+
+        // Then: un solo UPDATE, sin lecturas previas
+        assertEquals(1L, resultado.getId());
+        assertEquals(5L, resultado.getVersion());
+        assertEquals(9L, resultado.getSecuencia());
+        verify(alumnoRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void actualizar_ConVersionIgual_DebeDevolverLaSiguienteSinLeerla() {
+        // Given
+        when(alumnoRepository.updateAlumnoConVersionQuery(1L, "Juan", "Pérez", 21, "Matemáticas", 3L)).thenReturn(1);
+
+        // When
+        Alumno resultado = alumnoAlmacen.actualizar(1L, new Alumno(1L, "Juan", "Pérez", 21, "Matemáticas"), 3L)
+                                        .orElseThrow();
+
+        // Then
+        assertEquals(21, resultado.getEdad());
+        assertEquals(4L, resultado.getVersion());
+        verify(alumnoRepository, never()).findVersionById(anyLong());
+    }
+
+    @Test
+    void actualizar_SinFilas_DebeDevolverVacio() {
+        // Given
+        when(alumnoRepository.updateAlumnoConVersionQuery(1L, "Juan", "Pérez", 21, "Matemáticas", 2L)).thenReturn(0);
+
+        // When & Then
+        assertTrue(alumnoAlmacen.actualizar(1L, new Alumno(1L, "Juan", "Pérez", 21, "Matemáticas"), 2L).isEmpty());
+        verify(alumnoRepository, never()).existsById(anyLong());
+    }
+
+    @Test
+    void actualizarParcialmente_DebeDevolverLaFilaCompleta() {
+        // Given
+        AlumnoParcial cambios = new AlumnoParcial(null, null, 25, null);
+        Alumno enBaseDeDatos = new Alumno(1L, "Juan", "Pérez", 25, "Matemáticas", 1L);
+        when(alumnoRepository.actualizarParcialmente(1L, cambios, null)).thenReturn(1);
+        when(alumnoRepository.findById(1L)).thenReturn(Optional.of(enBaseDeDatos));
+
+        // When & Then
+        assertEquals(Optional.of(enBaseDeDatos), alumnoAlmacen.actualizarParcialmente(1L, cambios, null));
+        verify(alumnoRepository).avanzarSecuencia();
+    }
+
+    @Test
+    void actualizarParcialmente_SinFilas_NoDebeLeerElAlumno() {
+        // Given
+        AlumnoParcial cambios = new AlumnoParcial("Nuevo", null, null, null);
+        when(alumnoRepository.actualizarParcialmente(99L, cambios, null)).thenReturn(0);
+
+        // When & Then
+        assertTrue(alumnoAlmacen.actualizarParcialmente(99L, cambios, null).isEmpty());
+        verify(alumnoRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void deleteById_DebeDejarLaLapidaSoloSiBorroLaFila() {
+        // Given
+        when(alumnoRepository.deleteAlumnoByIdQuery(1L)).thenReturn(1);
+        when(alumnoRepository.deleteAlumnoByIdQuery(99L)).thenReturn(0);
+
+        // When & Then
+        assertEquals(1, alumnoAlmacen.deleteById(1L));
+        assertEquals(0, alumnoAlmacen.deleteById(99L));
+        verify(alumnoRepository).registrarEliminado(1L);
+        verify(alumnoRepository, never()).registrarEliminado(99L);
+        verify(alumnoRepository, never()).existsById(anyLong());
+    }
+
+    @Test
+    void recorrerTodos_DebeEntregarCadaAlumnoYDesasociarlo() {
+        // Given
+        List<Alumno> alumnos = List.of(new Alumno(1L, "Juan", "Pérez", 20, "Matemáticas"),
+                                       new Alumno(2L, "María", "García", 22, "Física"));
+        when(alumnoRepository.streamAllAlumnosQuery()).thenReturn(alumnos.stream());
+        when(entityManager.unwrap(Session.class)).thenReturn(sesion);
+        when(sesion.getCacheMode()).thenReturn(CacheMode.NORMAL);
+        List<Alumno> recorridos = new ArrayList<>();
+
+        // When
+        alumnoAlmacen.recorrerTodos(500, recorridos::add);
+
+        // Then: sin pasar por la caché de segundo nivel, y la sesión vuelve a su modo
+        assertEquals(alumnos, recorridos);
+        alumnos.forEach(alumno -> verify(entityManager).detach(alumno));
+        InOrder orden = inOrder(sesion, alumnoRepository);
+        orden.verify(sesion).setCacheMode(CacheMode.IGNORE);
+        orden.verify(alumnoRepository).streamAllAlumnosQuery();
+        orden.verify(sesion).setCacheMode(CacheMode.NORMAL);
+    }
+
+    @Test
+    void findCambiosDesde_DebeIntercalarAltasYBajasHastaElLimite() {
+        // Given: dos cambios y una baja después de la secuencia 4; se piden 2
+        Alumno primero = new Alumno(5L, "Ana", "Gomez", 20, "Arte", 0L, 5L, null);
+        Alumno tercero = new Alumno(2L, "Luis", "Diaz", 21, "Arte", 1L, 7L, null);
+        String token = DeltaAlumnos.codificarToken(new DeltaAlumnos.Posicion(4, Long.MAX_VALUE));
+        when(alumnoRepository.findCambiadosDesde(4, Long.MAX_VALUE, 3)).thenReturn(List.of(primero, tercero));
+        when(alumnoRepository.findEliminadosDesde(4, Long.MAX_VALUE, 3))
+                .thenReturn(List.of(new AlumnoEliminado(9L, 6L, Instant.now())));
+        when(alumnoRepository.findSecuenciaCambios()).thenReturn(Optional.of(new SecuenciaCambios(1, 7L, 0L)));
+
+        // When
+        DeltaAlumnos delta = alumnoAlmacen.findCambiosDesde(token, 2);
+
+        // Then
+        assertEquals(List.of(primero), delta.alumnos());
+        assertEquals(List.of(9L), delta.eliminados());
+        assertTrue(delta.hayMas());
+        assertEquals(new DeltaAlumnos.Posicion(6, 9), DeltaAlumnos.decodificarToken(delta.siguienteToken()));
+    }
+
+    @Test
+    void findCambiosDesde_ConTokenAnteriorALaPurga_DebeLanzarExcepcion() {
+        // Given
+        String token = DeltaAlumnos.codificarToken(new DeltaAlumnos.Posicion(2, Long.MAX_VALUE));
+        when(alumnoRepository.findSecuenciaCambios()).thenReturn(Optional.of(new SecuenciaCambios(1, 9L, 5L)));
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> alumnoAlmacen.findCambiosDesde(token, 2));
+    }
+}
\ No newline at end of file
@@ -2,9 +2,17 @@ package org.springdemo.proyecto2.repository;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springdemo.proyecto2.dto.AlumnoCursoEdad;
+import org.springdemo.proyecto2.dto.AlumnoFila;
+import org.springdemo.proyecto2.dto.AlumnoParcial;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.dto.ConteoCursoEdad;
 import org.springdemo.proyecto2.model.Alumno;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.List;
@@ -299,6 +307,50 @@ class AlumnoRepositoryTest {
         alumnosMatematicas.forEach(System.out::println);
     }
 
+    @Test
+    void testFindVistasByCursoYRangoEdad() {
+        // Las proyecciones devuelven las mismas columnas que la entidad, version incluida
+        List<AlumnoVista> vistasMatematicas = alumnoRepository.findVistasByCurso("Matematicas");
+        List<AlumnoVista> vistasEnRango = alumnoRepository.findVistasByRangoEdad(21, 25);
+
+        assertEquals(List.of(AlumnoVista.de(alumno1)), vistasMatematicas);
+        assertEquals(List.of(AlumnoVista.de(alumno2)), vistasEnRango);
+    }
+
+    @Test
+    void testFindFilasPaginadasYOrdenadas() {
+        // Solo las columnas de index.html; el orden y el tamaño los pone el Pageable
+        Page<AlumnoFila> pagina = alumnoRepository.findFilas(PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "edad")));
+
+        assertEquals(2, pagina.getTotalElements());
+        assertEquals(2, pagina.getTotalPages());
+        assertEquals(alumno2.getId(), pagina.getContent().get(0).id());
+        assertEquals("Smith", pagina.getContent().get(0).apellido());
+    }
+
+    @Test
+    void testFindFilasDespuesDeId() {
+        // Bloques por keyset: el segundo empieza después del último ID del primero
+        List<AlumnoFila> primerBloque = alumnoRepository.findFilasDespuesDeId(0L, 1);
+        List<AlumnoFila> segundoBloque = alumnoRepository.findFilasDespuesDeId(primerBloque.get(0).id(), 1);
+
+        assertEquals(alumno1.getId(), primerBloque.get(0).id());
+        assertEquals(alumno2.getId(), segundoBloque.get(0).id());
+        assertTrue(alumnoRepository.findFilasDespuesDeId(alumno2.getId(), 1).isEmpty());
+    }
+
+    @Test
+    void testFindCursoYEdadYConteoPorCursoYEdad() {
+        List<AlumnoCursoEdad> bloque = alumnoRepository.findCursoYEdadDespuesDeId(0L, 10);
+        assertEquals(List.of(new AlumnoCursoEdad(alumno1.getId(), "Matematicas", 20, 0L),
+                             new AlumnoCursoEdad(alumno2.getId(), "Ciencias", 22, 0L)), bloque);
+
+        List<ConteoCursoEdad> conteos = alumnoRepository.findConteoPorCursoYEdad();
+        assertEquals(2, conteos.size());
+        assertTrue(conteos.stream().allMatch(c -> c.getTotal().longValue() == 1));
+        assertTrue(conteos.stream().anyMatch(c -> "Ciencias".equals(c.getCurso()) && c.getEdad().intValue() == 22));
+    }
+
     @Test
     void testFindAlumnosByRangoEdad() {
         // Buscar alumnos cuyo rango de edad sea entre 18 y 22 años
@@ -325,4 +377,76 @@ class AlumnoRepositoryTest {
         alumnosRangoEdad.forEach(System.out::println);
     }
 
+    @Test
+    void testFindAlumnosDespuesDeId() {
+        // Primera página de tamaño 1: solo debe venir el primer alumno
+        List<Alumno> primeraPagina = alumnoRepository.findAlumnosDespuesDeId(0L, 1);
+        assertEquals(1, primeraPagina.size());
+        assertEquals(alumno1.getId(), primeraPagina.get(0).getId());
+
+        // La siguiente página empieza después del último ID visto
+        List<Alumno> segundaPagina = alumnoRepository.findAlumnosDespuesDeId(primeraPagina.get(0).getId(), 10);
+        assertEquals(1, segundaPagina.size());
+        assertEquals(alumno2.getId(), segundaPagina.get(0).getId());
+
+        // Después del último no queda nada
+        assertTrue(alumnoRepository.findAlumnosDespuesDeId(alumno2.getId(), 10).isEmpty());
+    }
+
+    @Test
+    void testUpdateAlumnoConVersionQuery() {
+        // La versión inicial es 0: con otra versión no se actualiza nada
+        assertEquals(0, alumnoRepository.updateAlumnoConVersionQuery(alumno1.getId(), "X", "Y", 30, "Arte", 5L));
+
+        // Con la versión correcta se actualiza una fila y la versión sube
+        assertEquals(1, alumnoRepository.updateAlumnoConVersionQuery(alumno1.getId(), "X", "Y", 30, "Arte", 0L));
+        Alumno alumnoActualizado = alumnoRepository.findAlumnoByIdQuery(alumno1.getId());
+        assertEquals("X", alumnoActualizado.getNombre());
+        assertEquals(1L, alumnoActualizado.getVersion());
+    }
+
+    @Test
+    void testActualizarParcialmente() {
+        // Solo cambia la edad; el resto de columnas queda igual
+        int filas = alumnoRepository.actualizarParcialmente(alumno1.getId(), new AlumnoParcial(null, null, 40, null), null);
+
+        assertEquals(1, filas);
+        Alumno alumnoActualizado = alumnoRepository.findAlumnoByIdQuery(alumno1.getId());
+        assertEquals(40, alumnoActualizado.getEdad());
+        assertEquals(alumno1.getNombre(), alumnoActualizado.getNombre());
+        assertEquals(alumno1.getCurso(), alumnoActualizado.getCurso());
+
+        // Un ID inexistente no afecta filas
+        assertEquals(0, alumnoRepository.actualizarParcialmente(-1L, new AlumnoParcial("Z", null, null, null), null));
+    }
+
+    @Test
+    void testInsertarLote() {
+        // Given
+        List<Alumno> lote = List.of(new Alumno(null, "Carlos", "Perez", 21, "Historia"),
+                                    new Alumno(null, "Lucia", "Gomez", 23, "Historia"));
+
+        // When
+        int insertados = alumnoRepository.insertarLote(lote);
+
+        // Then: como save(), cada alumno vuelve con su ID y la versión 0, y en la tabla quedan en la versión 0
+        assertEquals(2, insertados);
+        for (Alumno alumno : lote) {
+            assertNotNull(alumno.getId());
+            assertEquals(0L, alumno.getVersion());
+            assertEquals(0L, alumnoRepository.findById(alumno.getId()).orElseThrow().getVersion());
+        }
+    }
+
+    @Test
+    void testAvanzarSecuencia() {
+        // When
+        long primero = alumnoRepository.avanzarSecuencia();
+        long segundo = alumnoRepository.avanzarSecuencia();
+
+        // Then: números seguidos, y el contador queda en el último
+        assertEquals(primero + 1, segundo);
+        assertEquals(segundo, alumnoRepository.findSecuenciaCambios().orElseThrow().getValor());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,410 @@
+package org.springdemo.proyecto2.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springdemo.proyecto2.dto.AlumnoFila;
+import org.springdemo.proyecto2.dto.AlumnoParcial;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.dto.DeltaAlumnos;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tres bases H2 en memoria, nuevas en cada prueba
+class AlumnoShardsTest {
+
+    private static final String[] CURSOS = {"Arte", "Historia", "Musica", "Fisica", "Quimica"};
+
+    private final List<DriverManagerDataSource> bases = new ArrayList<>();
+    private AlumnoShards shards;
+
+    @BeforeEach
+    void setUp() {
+        ResourceDatabasePopulator esquema = new ResourceDatabasePopulator(new ClassPathResource("shard-esquema.sql"));
+        for (int i = 0; i < 3; i++) {
+            DriverManagerDataSource base = new DriverManagerDataSource(
+                    "jdbc:h2:mem:shardtest" + System.nanoTime() + "_" + i + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+            esquema.execute(base);
+            bases.add(base);
+        }
+        shards = new AlumnoShards(bases, AlumnoShards.Particion.ID, 4, 6);
+    }
+
+    @AfterEach
+    void tearDown() {
+        shards.close();
+        bases.forEach(base -> new JdbcTemplate(base).execute("SHUTDOWN"));
+    }
+
+    @Test
+    void insertar_DebeRepartirLasAltasConIdsUnicosQueDicenElShard() {
+        // When: más altas que un bloque de IDs por shard
+        List<Alumno> alumnos = IntStream.range(0, 30)
+                                        .mapToObj(i -> shards.insertar(new Alumno(null, "Ana", "Apellido" + i, 20, "Arte")))
+                                        .toList();
+
+        // Then
+        Set<Long> ids = new HashSet<>();
+        alumnos.forEach(alumno -> ids.add(alumno.getId()));
+        assertEquals(30, ids.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(10, filas(i));
+        }
+        for (Alumno alumno : alumnos) {
+            JdbcTemplate suShard = new JdbcTemplate(bases.get(AlumnoShards.shardDe(alumno.getId())));
+            assertEquals(1, suShard.queryForObject("SELECT COUNT(*) FROM alumnos WHERE id = ?", Integer.class, alumno.getId()));
+            assertEquals(alumno.getApellido(), shards.findById(alumno.getId()).orElseThrow().getApellido());
+        }
+    }
+
+    @Test
+    void insertar_DosInstanciasSobreLosMismosShards_NoDebenRepetirIds() {
+        // Given: otra instancia de la aplicación con sus propios bloques
+        AlumnoShards otra = new AlumnoShards(bases, AlumnoShards.Particion.ID, 4, 6);
+
+        // When
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(shards.insertar(new Alumno(null, "Ana", "Gomez", 20, "Arte")).getId());
+            ids.add(otra.insertar(new Alumno(null, "Luis", "Diaz", 21, "Arte")).getId());
+        }
+
+        // Then
+        assertEquals(40, ids.size());
+    }
+
+    @Test
+    void insertar_ConParticionPorCurso_DebeDejarCadaCursoEnUnSoloShard() {
+        // Given
+        shards = new AlumnoShards(bases, AlumnoShards.Particion.CURSO, 4, 6);
+
+        // When
+        for (int i = 0; i < 25; i++) {
+            shards.insertar(new Alumno(null, "Ana", "Apellido" + i, 20, CURSOS[i % CURSOS.length]));
+        }
+
+        // Then
+        for (String curso : CURSOS) {
+            long shardsConElCurso = IntStream.range(0, 3)
+                                             .filter(i -> new JdbcTemplate(bases.get(i)).queryForObject(
+                                                     "SELECT COUNT(*) FROM alumnos WHERE curso = ?", Integer.class, curso) > 0)
+                                             .count();
+            assertEquals(1, shardsConElCurso, curso);
+            assertEquals(5, shards.findVistasByCurso(curso).size());
+        }
+    }
+
+    @Test
+    void insertar_ConParticionPorCurso_DebeJuntarLasFormasDelMismoCurso() {
+        // Given
+        shards = new AlumnoShards(bases, AlumnoShards.Particion.CURSO, 4, 6);
+
+        // When
+        Alumno conTilde = shards.insertar(new Alumno(null, "Ana", "Gomez", 20, "Física"));
+        Alumno sinTilde = shards.insertar(new Alumno(null, "Luis", "Diaz", 21, "fisica"));
+
+        // Then: el mismo shard, y con cualquier cantidad de shards
+        assertEquals(AlumnoShards.shardDe(conTilde.getId()), AlumnoShards.shardDe(sinTilde.getId()));
+        for (int cantidad = 1; cantidad <= 64; cantidad++) {
+            assertEquals(AlumnoShards.shardDeCurso("Física", cantidad), AlumnoShards.shardDeCurso("fisica", cantidad));
+            assertEquals(AlumnoShards.shardDeCurso("Física", cantidad), AlumnoShards.shardDeCurso("FISICA", cantidad));
+        }
+    }
+
+    @Test
+    void findVistasByCursoYEdad_DebenJuntarLosShardsOrdenadosPorId() {
+        // Given
+        for (int i = 0; i < 12; i++) {
+            shards.insertar(new Alumno(null, "Ana", "Apellido" + i, 18 + i, i % 2 == 0 ? "Arte" : "Historia"));
+        }
+
+        // When
+        List<AlumnoVista> arte = shards.findVistasByCurso("Arte");
+        List<AlumnoVista> edades = shards.findVistasByRangoEdad(20, 25);
+
+        // Then
+        assertEquals(6, arte.size());
+        assertTrue(arte.stream().allMatch(alumno -> alumno.curso().equals("Arte")));
+        assertEquals(6, edades.size());
+        assertTrue(edades.stream().allMatch(alumno -> alumno.edad() >= 20 && alumno.edad() <= 25));
+        assertOrdenadoPorId(arte.stream().map(AlumnoVista::id).toList());
+        assertOrdenadoPorId(edades.stream().map(AlumnoVista::id).toList());
+        assertEquals(6L, shards.findHuellaByCurso("Arte").getTotal());
+        assertEquals(arte.stream().mapToLong(AlumnoVista::id).sum(), shards.findHuellaByCurso("Arte").getSumaIds());
+    }
+
+    @Test
+    void findVistasDespuesDeIdYRecorrerTodos_DebenMezclarLosShardsEnOrdenDeId() {
+        // Given
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            ids.add(shards.insertar(new Alumno(null, "Ana", "Apellido" + i, 20, "Arte")).getId());
+        }
+        ids.sort(null);
+
+        // When: páginas de 7 por cursor y el recorrido completo de a 3 filas por shard
+        List<Long> paginados = new ArrayList<>();
+        long cursor = 0;
+        List<AlumnoVista> pagina;
+        do {
+            pagina = shards.findVistasDespuesDeId(cursor, 7);
+            pagina.forEach(alumno -> paginados.add(alumno.id()));
+            cursor = pagina.isEmpty() ? cursor : pagina.get(pagina.size() - 1).id();
+        } while (pagina.size() == 7);
+        List<Long> recorridos = new ArrayList<>();
+        shards.recorrerTodos(3, alumno -> recorridos.add(alumno.getId()));
+
+        // Then
+        assertEquals(ids, paginados);
+        assertEquals(ids, recorridos);
+    }
+
+    @Test
+    void findFilas_DebeOrdenarLaPaginaPorLaColumnaPedidaEntreTodosLosShards() {
+        // Given
+        String[] apellidos = {"Ruiz", "Gomez", "Diaz", "Vera", "Sosa", "Alvarez", "Perez", "Lopez", "Nuñez"};
+        for (String apellido : apellidos) {
+            shards.insertar(new Alumno(null, "Ana", apellido, 20, "Arte"));
+        }
+
+        // When: la segunda página de 4, por apellido descendente
+        Page<AlumnoFila> pagina = shards.findFilas(PageRequest.of(1, 4, Sort.by(Sort.Direction.DESC, "apellido").and(Sort.by("id"))));
+
+        // Then
+        assertEquals(List.of("Nuñez", "Lopez", "Gomez", "Diaz"), pagina.getContent().stream().map(AlumnoFila::apellido).toList());
+        assertEquals(9, pagina.getTotalElements());
+        assertEquals(3, pagina.getTotalPages());
+    }
+
+    @Test
+    void findFilas_CercaDelFinalDebeLeerDesdeElFinalYMasAdentroQuedarVacia() {
+        // Given: 20 alumnos y como máximo 6 filas por shard
+        for (int i = 0; i < 20; i++) {
+            shards.insertar(new Alumno(null, "Ana", "Apellido" + (char) ('A' + i), 20, "Arte"));
+        }
+        Sort porApellido = Sort.by("apellido").and(Sort.by("id"));
+
+        // When
+        Page<AlumnoFila> ultima = shards.findFilas(PageRequest.of(6, 3, porApellido));
+        Page<AlumnoFila> anteultima = shards.findFilas(PageRequest.of(5, 3, porApellido));
+        Page<AlumnoFila> delMedio = shards.findFilas(PageRequest.of(3, 3, porApellido));
+
+        // Then: las del final salen en orden aunque se leyeron al revés; la del medio pasa de la profundidad máxima
+        assertEquals(List.of("ApellidoS", "ApellidoT"), ultima.getContent().stream().map(AlumnoFila::apellido).toList());
+        assertEquals(List.of("ApellidoP", "ApellidoQ", "ApellidoR"),
+                     anteultima.getContent().stream().map(AlumnoFila::apellido).toList());
+        assertTrue(delMedio.getContent().isEmpty());
+        assertEquals(20, delMedio.getTotalElements());
+        // y lo dice, para que index.html no la enlace
+        assertFalse(shards.puedeLeerPagina(delMedio.getPageable(), 20));
+        assertTrue(shards.puedeLeerPagina(PageRequest.of(1, 3, porApellido), 20));
+        assertTrue(shards.puedeLeerPagina(anteultima.getPageable(), 20));
+        assertTrue(shards.puedeLeerPagina(PageRequest.of(9, 3, porApellido), 20));
+    }
+
+    @Test
+    void comparadorDeTexto_DebeCompararComoLaBase() {
+        // MySQL: sin distinguir mayúsculas ni tildes
+        Comparator<String> mysql = AlumnoShards.comparadorDeTexto("MySQL");
+        assertEquals(0, mysql.compare("Núñez", "nunez"));
+        assertTrue(mysql.compare("alvarez", "Lopez") < 0);
+        // H2: por el valor de cada carácter, las mayúsculas antes
+        Comparator<String> h2 = AlumnoShards.comparadorDeTexto("H2");
+        assertTrue(h2.compare("Lopez", "alvarez") < 0);
+        assertTrue(h2.compare("Nunez", "Núñez") < 0);
+    }
+
+    @Test
+    void actualizarYEliminar_DebenIrSoloAlShardDelId() {
+        // Given
+        Alumno alumno = shards.insertar(new Alumno(null, "Ana", "Gomez", 20, "Arte"));
+
+        // When
+        assertEquals(Optional.of(1L), shards.actualizar(alumno.getId(), new Alumno(null, "Ana", "Gomez", 21, "Historia"), 0L)
+                                            .map(Alumno::getVersion));
+        assertTrue(shards.actualizar(alumno.getId(), new Alumno(null, "Ana", "Gomez", 22, "Historia"), 0L).isEmpty());
+        assertEquals(Optional.of(2L), shards.actualizar(alumno.getId(), new Alumno(null, "Ana", "Gomez", 21, "Historia"), null)
+                                            .map(Alumno::getVersion));
+        Alumno parcial = shards.actualizarParcialmente(alumno.getId(), new AlumnoParcial(null, "Vera", null, null), 2L)
+                               .orElseThrow();
+
+        // Then
+        assertEquals("Vera", parcial.getApellido());
+        assertEquals("Historia", parcial.getCurso());
+        assertEquals(3L, parcial.getVersion());
+        assertEquals(1, shards.deleteById(alumno.getId()));
+        assertFalse(shards.existsById(alumno.getId()));
+        assertEquals(0, shards.deleteById(alumno.getId()));
+        // Un ID de un shard que no existe
+        assertTrue(shards.findById(1023).isEmpty());
+    }
+
+    @Test
+    void insertarLote_SiFallaUnShard_NoDebeQuedarNingunaFila() {
+        // Given: el último alumno no entra en la columna apellido (50)
+        List<Alumno> lote = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            lote.add(new Alumno(null, "Ana", "Apellido" + i, 20, "Arte"));
+        }
+        lote.add(new Alumno(null, "Luis", "X".repeat(60), 21, "Arte"));
+
+        // When
+        assertThrows(RuntimeException.class, () -> shards.insertarLote(lote));
+
+        // Then
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, filas(i));
+        }
+        assertTrue(lote.stream().allMatch(alumno -> alumno.getId() == null));
+
+        // Y un lote válido entra entero
+        lote.remove(lote.size() - 1);
+        assertEquals(5, shards.insertarLote(lote));
+        assertEquals(5, IntStream.range(0, 3).map(this::filas).sum());
+    }
+
+    @Test
+    void insertarLote_SiFallaElCommitDeUnShard_DebeBorrarLoQueConfirmaronLosDemas() {
+        // Given: el shard 0 confirma último y su commit falla
+        List<DataSource> conCommitFallido = new ArrayList<>(bases);
+        conCommitFallido.set(0, conCommitQueFalla(bases.get(0)));
+        List<Alumno> lote = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            lote.add(new Alumno(null, "Ana", "Apellido" + i, 20, "Arte"));
+        }
+
+        // When
+        try (AlumnoShards conFallo = new AlumnoShards(conCommitFallido, AlumnoShards.Particion.ID, 4, 6)) {
+            assertThrows(RuntimeException.class, () -> conFallo.insertarLote(lote));
+        }
+
+        // Then: ninguna fila, y los shards que habían confirmado dejan lápidas para /delta
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, filas(i));
+        }
+        assertTrue(lote.stream().allMatch(alumno -> alumno.getId() == null));
+        assertEquals(List.of(0, 2, 2), IntStream.range(0, 3).mapToObj(this::lapidas).toList());
+    }
+
+    @Test
+    void findCambiosDesde_DebeMezclarLosCambiosDeCadaShardSinPerderNiRepetir() {
+        // Given: el token de antes de los cambios, con una posición por shard
+        String token = shards.findTokenActual();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(shards.insertar(new Alumno(null, "Ana", "Apellido" + i, 20, "Arte")).getId());
+        }
+        shards.actualizar(ids.get(0), new Alumno(null, "Ana", "Vera", 21, "Arte"), null);
+        shards.deleteById(ids.get(1));
+        shards.insertarLote(new ArrayList<>(List.of(new Alumno(null, "Luis", "Diaz", 22, "Arte"),
+                                                    new Alumno(null, "Eva", "Sosa", 23, "Arte"))));
+
+        // When: de a tres cambios por pedido
+        List<Long> cambiados = new ArrayList<>();
+        List<Long> eliminados = new ArrayList<>();
+        DeltaAlumnos delta;
+        do {
+            delta = shards.findCambiosDesde(token, 3);
+            assertTrue(delta.alumnos().size() + delta.eliminados().size() <= 3);
+            delta.alumnos().forEach(alumno -> cambiados.add(alumno.getId()));
+            eliminados.addAll(delta.eliminados());
+            token = delta.siguienteToken();
+        } while (delta.hayMas());
+
+        // Then: cada alumno vivo una vez con sus datos actuales y la baja como lápida
+        assertEquals(11, cambiados.size());
+        assertEquals(11, new HashSet<>(cambiados).size());
+        assertFalse(cambiados.contains(ids.get(1)));
+        assertEquals(List.of(ids.get(1)), eliminados);
+        assertEquals(3, DeltaAlumnos.decodificarPosiciones(token).size());
+        // Y desde el último token no hay nada nuevo
+        assertTrue(shards.findCambiosDesde(token, 3).alumnos().isEmpty());
+    }
+
+    @Test
+    void findCambiosDesde_ConTokenDeMasShardsOAnteriorALaPurga_DebeRechazarlo() {
+        // Given
+        Alumno alumno = shards.insertar(new Alumno(null, "Ana", "Gomez", 20, "Arte"));
+        String token = shards.findTokenActual();
+        shards.deleteById(alumno.getId());
+        String cuatroShards = DeltaAlumnos.codificarToken(List.of(new DeltaAlumnos.Posicion(0, 0), new DeltaAlumnos.Posicion(0, 0),
+                                                                  new DeltaAlumnos.Posicion(0, 0), new DeltaAlumnos.Posicion(0, 0)));
+
+        // When: se purgan todas las lápidas
+        shards.purgarEliminados(Instant.now().plusSeconds(60));
+
+        // Then
+        assertThrows(IllegalArgumentException.class, () -> shards.findCambiosDesde(cuatroShards, 3));
+        assertThrows(IllegalStateException.class, () -> shards.findCambiosDesde(token, 3));
+        JdbcTemplate suShard = new JdbcTemplate(bases.get(AlumnoShards.shardDe(alumno.getId())));
+        assertEquals(0, suShard.queryForObject("SELECT COUNT(*) FROM alumnos_eliminados", Integer.class));
+        // Un token nuevo sigue sirviendo
+        assertFalse(shards.findCambiosDesde(shards.findTokenActual(), 3).hayMas());
+    }
+
+    private int filas(int shard) {
+        return new JdbcTemplate(bases.get(shard)).queryForObject("SELECT COUNT(*) FROM alumnos", Integer.class);
+    }
+
+    private int lapidas(int shard) {
+        return new JdbcTemplate(bases.get(shard)).queryForObject("SELECT COUNT(*) FROM alumnos_eliminados", Integer.class);
+    }
+
+    // El commit falla (y la base descarta la transacción) en las conexiones que insertaron alumnos; la reserva de
+    // IDs confirma normalmente
+    private static DataSource conCommitQueFalla(DataSource base) {
+        return new DelegatingDataSource(base) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection conexion = super.getConnection();
+                boolean[] insertoAlumnos = {false};
+                return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                        (proxy, metodo, argumentos) -> {
+                            if (metodo.getName().equals("prepareStatement")
+                                    && ((String) argumentos[0]).startsWith("INSERT INTO alumnos (")) {
+                                insertoAlumnos[0] = true;
+                            }
+                            if (metodo.getName().equals("commit") && insertoAlumnos[0]) {
+                                conexion.rollback();
+                                throw new SQLException("Commit fallido");
+                            }
+                            try {
+                                return metodo.invoke(conexion, argumentos);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+            }
+        };
+    }
+
+    private static void assertOrdenadoPorId(List<Long> ids) {
+        List<Long> ordenados = new ArrayList<>(ids);
+        ordenados.sort(null);
+        assertEquals(ordenados, ids);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,167 @@
+package org.springdemo.proyecto2.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springdemo.proyecto2.dto.AlumnoParcial;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Cada llamada al repositorio es su propia transacción: lo que se lee dos veces sale de la caché,
+// y lo que se lee después de una escritura nativa o JDBC ya no
+@SpringBootTest
+@ActiveProfiles("h2")
+class CacheSegundoNivelTest {
+
+    @Autowired
+    private AlumnoRepository alumnoRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AlumnoAlmacen alumnoAlmacen;
+
+    private Statistics estadisticas;
+    private Alumno alumno;
+
+    @BeforeEach
+    void setUp() {
+        alumnoRepository.deleteAll();
+        alumno = alumnoRepository.save(new Alumno(null, "John", "Doe", 20, "Matematicas"));
+
+        entityManagerFactory.getCache().evictAll();
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+    }
+
+    @Test
+    void testFindByIdDesdeLaCacheDeSegundoNivel() {
+        // When
+        alumnoRepository.findById(alumno.getId());
+        Alumno segundaLectura = alumnoRepository.findById(alumno.getId()).orElseThrow();
+
+        // Then
+        assertEquals("Doe", segundaLectura.getApellido());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(1, estadisticas.getDomainDataRegionStatistics("alumnos-entidades").getHitCount());
+    }
+
+    @Test
+    void testConsultasPorCursoYEdadDesdeLaCacheDeConsultas() {
+        // When
+        alumnoRepository.findVistasByCurso("Matematicas");
+        List<AlumnoVista> porCurso = alumnoRepository.findVistasByCurso("Matematicas");
+        alumnoRepository.findVistasByRangoEdad(18, 25);
+        List<AlumnoVista> porEdad = alumnoRepository.findVistasByRangoEdad(18, 25);
+
+        // Then
+        assertEquals(List.of(alumno.getId()), porCurso.stream().map(AlumnoVista::id).toList());
+        assertEquals(List.of(alumno.getId()), porEdad.stream().map(AlumnoVista::id).toList());
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+        assertEquals(2, estadisticas.getQueryRegionStatistics("alumnos-consultas").getHitCount());
+    }
+
+    @Test
+    void testActualizarYEliminarNativosInvalidanLaCache() {
+        // Given
+        leerTodoUnaVez();
+
+        // When & Then: UPDATE nativo
+        alumnoRepository.updateAlumnoQuery(alumno.getId(), "John", "Doe", 30, "Historia");
+        assertEquals("Historia", alumnoRepository.findById(alumno.getId()).orElseThrow().getCurso());
+        assertTrue(alumnoRepository.findVistasByCurso("Matematicas").isEmpty());
+        assertTrue(alumnoRepository.findVistasByRangoEdad(18, 25).isEmpty());
+
+        // When & Then: DELETE nativo
+        alumnoRepository.findById(alumno.getId());
+        alumnoRepository.deleteAlumnoByIdQuery(alumno.getId());
+        assertTrue(alumnoRepository.findById(alumno.getId()).isEmpty());
+        assertTrue(alumnoRepository.findVistasByCurso("Historia").isEmpty());
+    }
+
+    @Test
+    void testInsercionesNativasYPorJdbcInvalidanLasConsultas() {
+        // Given
+        leerTodoUnaVez();
+
+        // When & Then: INSERT nativo
+        alumnoRepository.saveAlumnoQuery("Jane", "Smith", 22, "Matematicas");
+        assertEquals(2, alumnoRepository.findVistasByCurso("Matematicas").size());
+
+        // When & Then: lote por JDBC
+        List<Alumno> lote = new ArrayList<>(List.of(new Alumno(null, "Ana", "Gomez", 21, "Matematicas")));
+        alumnoRepository.insertarLote(lote);
+        assertEquals(3, alumnoRepository.findVistasByCurso("Matematicas").size());
+        assertEquals(3, alumnoRepository.findVistasByRangoEdad(18, 25).size());
+    }
+
+    @Test
+    void testActualizacionParcialPorJdbcInvalidaLaCache() {
+        // Given
+        leerTodoUnaVez();
+
+        // When
+        alumnoRepository.actualizarParcialmente(alumno.getId(), new AlumnoParcial(null, null, 40, null), null);
+
+        // Then
+        assertEquals(40, alumnoRepository.findById(alumno.getId()).orElseThrow().getEdad());
+        assertTrue(alumnoRepository.findVistasByRangoEdad(18, 25).isEmpty());
+    }
+
+    @Test
+    void testEscribirUnAlumnoSoloLoSacaAElDeLaCache() {
+        // Given
+        Alumno otro = alumnoRepository.save(new Alumno(null, "Jane", "Smith", 22, "Historia"));
+        alumnoRepository.findById(alumno.getId());
+        alumnoRepository.findById(otro.getId());
+
+        // When
+        alumnoRepository.updateAlumnoQuery(alumno.getId(), "John", "Doe", 30, "Historia");
+        alumnoRepository.actualizarParcialmente(alumno.getId(), new AlumnoParcial(null, null, 31, null), null);
+        estadisticas.clear();
+        Alumno releido = alumnoRepository.findById(alumno.getId()).orElseThrow();
+        alumnoRepository.findById(otro.getId());
+
+        // Then: solo el alumno escrito vuelve a la base de datos
+        assertEquals(31, releido.getEdad());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(1, estadisticas.getDomainDataRegionStatistics("alumnos-entidades").getHitCount());
+    }
+
+    @Test
+    void testRecorridosDeTodaLaTablaNoPasanPorLaCache() {
+        // When
+        List<Alumno> recorridos = new ArrayList<>();
+        alumnoAlmacen.recorrerTodos(500, recorridos::add);
+        alumnoRepository.findAlumnosDespuesDeId(0L, 10);
+        alumnoRepository.findCambiadosDesde(0L, 0L, 10);
+
+        // Then
+        assertEquals(1, recorridos.size());
+        assertFalse(entityManagerFactory.getCache().contains(Alumno.class, alumno.getId()));
+        assertEquals(0, estadisticas.getSecondLevelCachePutCount());
+
+        // Y las lecturas por ID siguen guardándose
+        alumnoRepository.findById(alumno.getId());
+        assertTrue(entityManagerFactory.getCache().contains(Alumno.class, alumno.getId()));
+    }
+
+    // Deja el alumno y las dos consultas en la caché
+    private void leerTodoUnaVez() {
+        alumnoRepository.findById(alumno.getId());
+        alumnoRepository.findVistasByCurso("Matematicas");
+        alumnoRepository.findVistasByRangoEdad(18, 25);
+        assertEquals(3, estadisticas.getSecondLevelCachePutCount() + estadisticas.getQueryCachePutCount());
+    }
+}
\ No newline at end of file
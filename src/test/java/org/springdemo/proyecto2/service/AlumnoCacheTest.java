@@ -0,0 +1,94 @@
+package org.springdemo.proyecto2.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springdemo.proyecto2.config.CacheConfig;
+import org.springdemo.proyecto2.model.Alumno;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlumnoCacheTest {
+
+    private AlumnoCache alumnoCache;
+
+    @BeforeEach
+    void setUp() {
+        alumnoCache = new AlumnoCache(new CacheConfig().cacheManager("maximumSize=100"));
+    }
+
+    @Test
+    void obtener_CargaFallidaNoQuedaGuardada() {
+        // Given
+        Alumno alumno = new Alumno(1L, "Juan", "Pérez", 20, "Matemáticas");
+
+        // When
+        RuntimeException excepcion = assertThrows(RuntimeException.class,
+                () -> alumnoCache.obtener(1L, () -> { throw new RuntimeException("Base de datos caída"); }));
+        Optional<Alumno> resultado = alumnoCache.obtener(1L, () -> Optional.of(alumno));
+
+        // Then
+        assertEquals("Base de datos caída", excepcion.getMessage());
+        assertEquals(Optional.of(alumno), resultado);
+    }
+
+    @Test
+    void obtener_CargaConErrorNoDejaEsperandoAlSiguiente() throws Exception {
+        // Given
+        Alumno alumno = new Alumno(1L, "Juan", "Pérez", 20, "Matemáticas");
+
+        // When: una carga termina con un Error en lugar de una RuntimeException
+        StackOverflowError error = assertThrows(StackOverflowError.class,
+                () -> alumnoCache.obtener(1L, () -> { throw new StackOverflowError("Carga rota"); }));
+        CompletableFuture<Optional<Alumno>> siguiente = CompletableFuture.supplyAsync(() ->
+                alumnoCache.obtener(1L, () -> Optional.of(alumno)));
+
+        // Then: el futuro fallido no quedó en la caché, así que el siguiente pedido vuelve a cargar
+        assertEquals("Carga rota", error.getMessage());
+        assertEquals(Optional.of(alumno), siguiente.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void obtener_InvalidarDuranteLaCargaNoGuardaElValorViejo() throws Exception {
+        // Given
+        Alumno viejo = new Alumno(1L, "Juan", "Pérez", 20, "Matemáticas");
+        Alumno nuevo = new Alumno(1L, "Juan", "Pérez", 21, "Matemáticas");
+        CountDownLatch cargando = new CountDownLatch(1);
+        CountDownLatch continuar = new CountDownLatch(1);
+        CompletableFuture<Optional<Alumno>> lecturaEnCurso = CompletableFuture.supplyAsync(() ->
+                alumnoCache.obtener(1L, () -> {
+                    cargando.countDown();
+                    esperar(continuar);
+                    return Optional.of(viejo);
+                }));
+        assertTrue(cargando.await(5, TimeUnit.SECONDS));
+
+        // When: se confirma una actualización mientras la lectura sigue en la base de datos
+        alumnoCache.alCambiarAlumno(AlumnoEvento.actualizado(nuevo));
+        continuar.countDown();
+        lecturaEnCurso.get(5, TimeUnit.SECONDS);
+        AtomicInteger cargas = new AtomicInteger();
+        Optional<Alumno> resultado = alumnoCache.obtener(1L, () -> {
+            cargas.incrementAndGet();
+            return Optional.of(nuevo);
+        });
+
+        // Then
+        assertEquals(1, cargas.get());
+        assertEquals(21, resultado.orElseThrow().getEdad());
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
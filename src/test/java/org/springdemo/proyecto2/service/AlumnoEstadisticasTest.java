@@ -0,0 +1,208 @@
+package org.springdemo.proyecto2.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springdemo.proyecto2.dto.AlumnoCursoEdad;
+import org.springdemo.proyecto2.dto.ConteoCursoEdad;
+import org.springdemo.proyecto2.dto.EstadisticasAlumnos;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.repository.AlumnoRepository;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AlumnoEstadisticasTest {
+
+    @Mock
+    private AlumnoRepository alumnoRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AlumnoEstadisticas estadisticas;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        estadisticas = new AlumnoEstadisticas(alumnoRepository, meterRegistry);
+
+        // Un solo bloque: menos filas que el tamaño de bloque
+        when(alumnoRepository.findCursoYEdadDespuesDeId(eq(0L), anyInt())).thenReturn(List.of(
+                new AlumnoCursoEdad(1L, "Matemáticas", 20, 0L),
+                new AlumnoCursoEdad(2L, "Física", 22, 0L),
+                new AlumnoCursoEdad(3L, "Matemáticas", 19, 0L),
+                new AlumnoCursoEdad(4L, null, 20, 0L)));
+        estadisticas.construir();
+    }
+
+    @Test
+    void construir_DebeContarPorCursoYEdad() {
+        EstadisticasAlumnos resumen = estadisticas.obtener();
+
+        assertTrue(estadisticas.estaListo());
+        assertEquals(4, resumen.total());
+        assertEquals(Map.of("Matemáticas", 2L, "Física", 1L, AlumnoEstadisticas.SIN_CURSO, 1L), resumen.porCurso());
+        assertEquals(List.of(19, 20, 22), List.copyOf(resumen.histogramaEdad().keySet()));
+        assertEquals(2L, resumen.histogramaEdad().get(20));
+        assertEquals(19, resumen.edadMinima());
+        assertEquals(20.25, resumen.edadPromedio());
+        assertEquals(22, resumen.edadMaxima());
+    }
+
+    @Test
+    void alCambiarAlumno_DebeRestarElEstadoAnteriorYSumarElNuevo() {
+        // Creado
+        estadisticas.alCambiarAlumno(AlumnoEvento.creado(new Alumno(5L, "Íñigo", "Zubizarreta", 30, "Física")));
+        // Actualizado: el 3 pasa de Matemáticas/19 a Historia/21
+        estadisticas.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(3L, "José", "Pérez", 21, "Historia")));
+        // Eliminado, y eliminado de nuevo: la segunda baja no resta nada
+        estadisticas.alCambiarAlumno(AlumnoEvento.eliminado(2L));
+        estadisticas.alCambiarAlumno(AlumnoEvento.eliminado(2L));
+
+        EstadisticasAlumnos resumen = estadisticas.obtener();
+        assertEquals(4, resumen.total());
+        assertEquals(Map.of("Matemáticas", 1L, "Física", 1L, "Historia", 1L, AlumnoEstadisticas.SIN_CURSO, 1L),
+                     resumen.porCurso());
+        assertEquals(Map.of(20, 2L, 21, 1L, 30, 1L), resumen.histogramaEdad());
+        assertEquals(20, resumen.edadMinima());
+        assertEquals(22.75, resumen.edadPromedio());
+        assertEquals(30, resumen.edadMaxima());
+    }
+
+    @Test
+    void alCambiarAlumno_SinAlumnos_DebeDejarMinimoPromedioYMaximoVacios() {
+        for (long id = 1; id <= 4; id++) {
+            estadisticas.alCambiarAlumno(AlumnoEvento.eliminado(id));
+        }
+
+        EstadisticasAlumnos resumen = estadisticas.obtener();
+        assertEquals(0, resumen.total());
+        assertTrue(resumen.porCurso().isEmpty());
+        assertNull(resumen.edadMinima());
+        assertNull(resumen.edadPromedio());
+        assertNull(resumen.edadMaxima());
+    }
+
+    @Test
+    void conciliar_SiCoincideConLaBase_NoDebeReconstruir() {
+        when(alumnoRepository.findConteoPorCursoYEdad()).thenReturn(List.of(
+                conteo("Matemáticas", 20, 1), conteo("Matemáticas", 19, 1),
+                conteo("Física", 22, 1), conteo(null, 20, 1)));
+
+        assertTrue(estadisticas.conciliar());
+        assertEquals(0.0, meterRegistry.counter("alumnos.estadisticas.desvios").count());
+        verify(alumnoRepository, times(1)).findCursoYEdadDespuesDeId(anyLong(), anyInt());
+    }
+
+    @Test
+    void conciliar_ConDesvio_DebeContarloYReconstruirDesdeLaBase() {
+        // Given: en la base hay un alumno que nunca llegó como evento
+        when(alumnoRepository.findConteoPorCursoYEdad()).thenReturn(List.of(
+                conteo("Matemáticas", 20, 1), conteo("Matemáticas", 19, 1),
+                conteo("Física", 22, 2), conteo(null, 20, 1)));
+        when(alumnoRepository.findCursoYEdadDespuesDeId(eq(0L), anyInt())).thenReturn(List.of(
+                new AlumnoCursoEdad(1L, "Matemáticas", 20, 0L),
+                new AlumnoCursoEdad(2L, "Física", 22, 0L),
+                new AlumnoCursoEdad(3L, "Matemáticas", 19, 0L),
+                new AlumnoCursoEdad(4L, null, 20, 0L),
+                new AlumnoCursoEdad(9L, "Física", 22, 0L)));
+
+        // When
+        boolean coincidian = estadisticas.conciliar();
+
+        // Then
+        assertFalse(coincidian);
+        assertEquals(1.0, meterRegistry.counter("alumnos.estadisticas.desvios").count());
+        assertEquals(5, estadisticas.obtener().total());
+        assertEquals(2L, estadisticas.obtener().porCurso().get("Física"));
+    }
+
+    @Test
+    void conciliar_ConCursosEscritosDistinto_DebeAgruparlosComoLaBase() {
+        // Given: el mismo curso con otras mayúsculas y sin tilde
+        estadisticas.alCambiarAlumno(AlumnoEvento.creado(new Alumno(5L, "Ana", "Ruiz", 20, "MATEMATICAS")));
+        // MySQL los agrupa en una fila; una base con comparación binaria (H2) los deja separados
+        when(alumnoRepository.findConteoPorCursoYEdad())
+                .thenReturn(List.of(conteo("Matemáticas", 20, 2), conteo("Matemáticas", 19, 1),
+                                    conteo("Física", 22, 1), conteo(null, 20, 1)))
+                .thenReturn(List.of(conteo("Matemáticas", 20, 1), conteo("MATEMATICAS", 20, 1),
+                                    conteo("Matemáticas", 19, 1), conteo("Física", 22, 1), conteo(null, 20, 1)));
+
+        // When & Then: no hay desvío, y el curso se muestra con la primera forma que se vio
+        assertTrue(estadisticas.conciliar());
+        assertTrue(estadisticas.conciliar());
+        assertEquals(0.0, meterRegistry.counter("alumnos.estadisticas.desvios").count());
+        assertEquals(Map.of("Matemáticas", 3L, "Física", 1L, AlumnoEstadisticas.SIN_CURSO, 1L),
+                     estadisticas.obtener().porCurso());
+    }
+
+    @Test
+    void construir_AlReconstruir_DebeSeguirSirviendoLasAnteriores() {
+        // Given: la reconstrucción lee la base mientras llega un alta
+        when(alumnoRepository.findCursoYEdadDespuesDeId(eq(0L), anyInt())).thenAnswer(invocacion -> {
+            assertTrue(estadisticas.estaListo());
+            assertEquals(4, estadisticas.obtener().total());
+            estadisticas.alCambiarAlumno(AlumnoEvento.creado(new Alumno(5L, "Ana", "Ruiz", 30, "Arte")));
+            assertEquals(5, estadisticas.obtener().total());
+            return List.of(new AlumnoCursoEdad(1L, "Matemáticas", 20, 0L));
+        });
+
+        // When
+        estadisticas.construir();
+
+        // Then: las nuevas tienen lo que leyó la base más el alta que llegó durante la lectura
+        assertTrue(estadisticas.estaListo());
+        assertEquals(Map.of("Matemáticas", 1L, "Arte", 1L), estadisticas.obtener().porCurso());
+    }
+
+    @Test
+    void alCambiarAlumno_DebeIgnorarEventosQueLleganDesordenados() {
+        // Given: dos PUT sobre el 1; el evento de la versión 3 confirma antes que el de la 2
+        estadisticas.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(1L, "Juan", "Pérez", 25, "Historia", 3L)));
+        estadisticas.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(1L, "Juan", "Pérez", 24, "Física", 2L)));
+
+        // And: el 2 se borra y después llega el ACTUALIZADO de un PUT anterior
+        estadisticas.alCambiarAlumno(AlumnoEvento.eliminado(2L));
+        estadisticas.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(2L, "María", "García", 22, "Física", 1L)));
+
+        // Then
+        EstadisticasAlumnos resumen = estadisticas.obtener();
+        assertEquals(3, resumen.total());
+        assertEquals(Map.of("Matemáticas", 1L, "Historia", 1L, AlumnoEstadisticas.SIN_CURSO, 1L), resumen.porCurso());
+        assertEquals(Map.of(19, 1L, 20, 1L, 25, 1L), resumen.histogramaEdad());
+    }
+
+    @Test
+    void cursoYEdadPorId_DebeSeguirEncontrandoLosIdsDespuesDeBorrarYCrecer() {
+        AlumnoEstadisticas.CursoYEdadPorId porId = new AlumnoEstadisticas.CursoYEdadPorId();
+        for (long id = 1; id <= 5_000; id++) {
+            porId.poner(id, "C" + (id % 7), (int) (id % 50), 0L);
+        }
+        for (long id = 1; id <= 5_000; id += 3) {
+            porId.quitar(porId.buscar(id));
+        }
+
+        assertEquals(3_333, porId.tamano());
+        for (long id = 1; id <= 5_000; id++) {
+            assertEquals(id % 3 == 1, porId.buscar(id) < 0, "id " + id);
+        }
+    }
+
+    private static ConteoCursoEdad conteo(String curso, int edad, long total) {
+        return new ConteoCursoEdad() {
+            public String getCurso() { return curso; }
+            public Number getEdad() { return edad; }
+            public Number getTotal() { return total; }
+        };
+    }
+}
\ No newline at end of file
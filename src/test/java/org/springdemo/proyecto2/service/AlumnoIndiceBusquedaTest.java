@@ -0,0 +1,129 @@
+package org.springdemo.proyecto2.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.dto.CoincidenciaAlumno;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.repository.AlumnoRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AlumnoIndiceBusquedaTest {
+
+    @Mock
+    private AlumnoRepository alumnoRepository;
+
+    private AlumnoIndiceBusqueda indiceBusqueda;
+
+    @BeforeEach
+    void setUp() {
+        indiceBusqueda = new AlumnoIndiceBusqueda(alumnoRepository);
+
+        // Un solo bloque: menos filas que el tamaño de bloque
+        when(alumnoRepository.findVistasDespuesDeId(eq(0L), anyInt())).thenReturn(List.of(
+                new AlumnoVista(1L, "José", "Núñez", 20, "Matemáticas", 0L),
+                new AlumnoVista(2L, "María José", "García López", 22, "Física", 0L),
+                new AlumnoVista(3L, "Joselito", "Pérez", 19, "Matemáticas", 0L),
+                new AlumnoVista(4L, "Ana", "González", 20, "Historia", 0L),
+                new AlumnoVista(5L, "Anabel", "Gonzales", 21, "Arte", 0L)));
+        indiceBusqueda.construir();
+    }
+
+    @Test
+    void palabras_DebeIgnorarTildesMayusculasYSeparadores() {
+        assertArrayEquals(new String[]{"maria", "jose", "nunez", "pena"},
+                          AlumnoIndiceBusqueda.palabras("  MARÍA José\tNúñez-Peña "));
+        assertEquals(0, AlumnoIndiceBusqueda.palabras(" -- ").length);
+    }
+
+    @Test
+    void aDistanciaUno_DebeAceptarUnaLetraDeMasDeMenosCambiadaOIntercambiada() {
+        assertTrue(AlumnoIndiceBusqueda.aDistanciaUno("gonzalez", "gonzales"));
+        assertTrue(AlumnoIndiceBusqueda.aDistanciaUno("gonzalez", "gonzalz"));
+        assertTrue(AlumnoIndiceBusqueda.aDistanciaUno("gonzalez", "gonzaelz"));
+        assertTrue(AlumnoIndiceBusqueda.aDistanciaUno("perz", "perez"));
+        assertFalse(AlumnoIndiceBusqueda.aDistanciaUno("gonzalez", "gonsales"));
+        assertFalse(AlumnoIndiceBusqueda.aDistanciaUno("perez", "lopez"));
+    }
+
+    @Test
+    void buscar_SinTildesNiMayusculas_DebeOrdenarExactasAntesQuePrefijos() {
+        // "jose" es exacta en 1 y 2 y prefijo de "joselito" en 3
+        assertEquals(List.of(1L, 2L, 3L), ids(indiceBusqueda.buscar("JOSÉ", 10)));
+        assertEquals(1.0, indiceBusqueda.buscar("jose", 10).get(0).puntaje());
+        assertEquals(List.of(1L), ids(indiceBusqueda.buscar("nunez", 10)));
+    }
+
+    @Test
+    void buscar_VariasPalabras_DebenCoincidirTodas() {
+        assertEquals(List.of(2L), ids(indiceBusqueda.buscar("jose garc", 10)));
+        assertEquals(List.of(2L), ids(indiceBusqueda.buscar("lopez maria", 10)));
+        assertTrue(indiceBusqueda.buscar("jose gonzalez", 10).isEmpty());
+    }
+
+    @Test
+    void buscar_ConUnErrorDeTipeo_DebeEncontrarLaPalabraParecidaDespuesDeLaExacta() {
+        // "gonzales" es exacta para 5 y está a distancia 1 de "gonzalez" (4)
+        assertEquals(List.of(5L, 4L), ids(indiceBusqueda.buscar("Gonzales", 10)));
+        // las palabras cortas no se corrigen
+        assertTrue(indiceBusqueda.buscar("anq", 10).isEmpty());
+    }
+
+    @Test
+    void buscar_DebeRespetarElLimite() {
+        assertEquals(List.of(4L, 5L), ids(indiceBusqueda.buscar("an", 2)));
+        assertEquals(List.of(1L), ids(indiceBusqueda.buscar("jose", 1)));
+    }
+
+    @Test
+    void buscar_SinLetrasNiNumeros_DebeLanzarExcepcion() {
+        assertThrows(IllegalArgumentException.class, () -> indiceBusqueda.buscar(" ¿? ", 10));
+    }
+
+    @Test
+    void alCambiarAlumno_DebeMantenerElIndiceAlDia() {
+        // Creado
+        indiceBusqueda.alCambiarAlumno(AlumnoEvento.creado(new Alumno(6L, "Íñigo", "Zubizarreta", 21, "Física")));
+        assertEquals(List.of(6L), ids(indiceBusqueda.buscar("inigo zubi", 10)));
+
+        // Actualizado: cambia el apellido, el anterior deja de encontrarse
+        indiceBusqueda.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(1L, "José", "Ortega", 20, "Matemáticas")));
+        assertTrue(indiceBusqueda.buscar("nunez", 10).isEmpty());
+        assertEquals(List.of(1L), ids(indiceBusqueda.buscar("ortega", 10)));
+
+        // Eliminado
+        indiceBusqueda.alCambiarAlumno(AlumnoEvento.eliminado(6L));
+        assertTrue(indiceBusqueda.buscar("inigo", 10).isEmpty());
+    }
+
+    @Test
+    void alCambiarAlumno_DebeIgnorarEventosQueLleganDesordenados() {
+        // Given: dos PUT sobre el 1; el evento de la versión 3 confirma antes que el de la 2
+        indiceBusqueda.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(1L, "José", "Ortega", 20, "Matemáticas", 3L)));
+        indiceBusqueda.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(1L, "José", "Iglesias", 20, "Matemáticas", 2L)));
+
+        // And: el 4 se borra y después llega el ACTUALIZADO de un PUT anterior
+        indiceBusqueda.alCambiarAlumno(AlumnoEvento.eliminado(4L));
+        indiceBusqueda.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(4L, "Ana", "Herrera", 20, "Historia", 1L)));
+
+        // Then
+        assertEquals(List.of(1L), ids(indiceBusqueda.buscar("ortega", 10)));
+        assertTrue(indiceBusqueda.buscar("iglesias", 10).isEmpty());
+        assertTrue(indiceBusqueda.buscar("herrera", 10).isEmpty());
+        assertEquals(List.of(5L), ids(indiceBusqueda.buscar("ana", 10)));
+    }
+
+    private static List<Long> ids(List<CoincidenciaAlumno> coincidencias) {
+        return coincidencias.stream().map(CoincidenciaAlumno::id).toList();
+    }
+}
@@ -0,0 +1,190 @@
+package org.springdemo.proyecto2.service;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springdemo.proyecto2.config.DataSourceReplicado;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.repository.AlumnoRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AlumnoIndiceMemoriaTest {
+
+    @Mock
+    private AlumnoRepository alumnoRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private AlumnoIndiceMemoria indiceMemoria;
+
+    @BeforeEach
+    void setUp() {
+        indiceMemoria = new AlumnoIndiceMemoria(alumnoRepository, transactionManager);
+        ReflectionTestUtils.setField(indiceMemoria, "entityManager", entityManager);
+
+        // La base de datos entrega las filas ordenadas por ID
+        when(alumnoRepository.streamAllAlumnosQuery()).thenReturn(Stream.of(
+                new Alumno(1L, "Juan", "Pérez", 20, "Matemáticas"),
+                new Alumno(2L, "María", "García", 22, "Física"),
+                new Alumno(3L, "Pedro", "López", 19, "Matemáticas"),
+                new Alumno(4L, "Ana", "Ruiz", 20, "Historia")));
+        indiceMemoria.construir();
+    }
+
+    @Test
+    void construir_DebeQuedarListoConTodasLasFilas() {
+        assertTrue(indiceMemoria.estaListo());
+        assertEquals(List.of(1L, 3L), ids(indiceMemoria.buscarPorCurso("Matemáticas")));
+        assertTrue(indiceMemoria.buscarPorCurso("Química").isEmpty());
+    }
+
+    @Test
+    void buscarPorRangoEdad_DebeIncluirAmbosExtremosYOrdenarPorId() {
+        assertEquals(List.of(1L, 3L, 4L), ids(indiceMemoria.buscarPorRangoEdad(19, 20)));
+        assertEquals(List.of(2L), ids(indiceMemoria.buscarPorRangoEdad(21, 30)));
+        assertTrue(indiceMemoria.buscarPorRangoEdad(30, 40).isEmpty());
+        assertTrue(indiceMemoria.buscarPorRangoEdad(25, 18).isEmpty());
+    }
+
+    @Test
+    void alCambiarAlumno_DebeMantenerLosIndicesAlDia() {
+        // Creado
+        indiceMemoria.alCambiarAlumno(AlumnoEvento.creado(new Alumno(5L, "Luis", "Martínez", 21, "Física")));
+        assertEquals(List.of(2L, 5L), ids(indiceMemoria.buscarPorCurso("Física")));
+
+        // Actualizado: cambia de curso y de edad
+        indiceMemoria.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(1L, "Juan", "Pérez", 30, "Historia")));
+        assertEquals(List.of(3L), ids(indiceMemoria.buscarPorCurso("Matemáticas")));
+        assertEquals(List.of(1L, 4L), ids(indiceMemoria.buscarPorCurso("Historia")));
+        assertEquals(List.of(3L, 4L, 5L), ids(indiceMemoria.buscarPorRangoEdad(19, 21)));
+        assertEquals(List.of(1L), ids(indiceMemoria.buscarPorRangoEdad(30, 30)));
+
+        // Eliminado
+        indiceMemoria.alCambiarAlumno(AlumnoEvento.eliminado(3L));
+        assertTrue(indiceMemoria.buscarPorCurso("Matemáticas").isEmpty());
+        assertEquals(List.of(4L, 5L), ids(indiceMemoria.buscarPorRangoEdad(19, 21)));
+    }
+
+    @Test
+    void verificarConsistencia_DebeDetectarDiferenciasConLaBaseDeDatos() {
+        // Given: la base de datos ya no tiene el 4, tiene un 5 nuevo y el 2 cambió de curso
+        when(alumnoRepository.streamAllAlumnosQuery()).thenReturn(Stream.of(
+                new Alumno(1L, "Juan", "Pérez", 20, "Matemáticas"),
+                new Alumno(2L, "María", "García", 22, "Química"),
+                new Alumno(3L, "Pedro", "López", 19, "Matemáticas"),
+                new Alumno(5L, "Luis", "Martínez", 21, "Física")));
+
+        // When
+        Map<String, Object> resultado = indiceMemoria.verificarConsistencia();
+
+        // Then
+        assertEquals(false, resultado.get("consistente"));
+        assertEquals(List.of(5L), resultado.get("faltantesEnMemoria"));
+        assertEquals(List.of(4L), resultado.get("sobrantesEnMemoria"));
+        assertEquals(List.of(2L), resultado.get("distintos"));
+    }
+
+    @Test
+    void verificarConsistencia_DebeLeerDeLaPrimaria() {
+        // Given: una réplica atrasada no tendría las filas cuyos eventos ya se aplicaron
+        when(alumnoRepository.streamAllAlumnosQuery()).thenAnswer(invocacion -> {
+            assertTrue(DataSourceReplicado.primariaForzada());
+            return Stream.of(new Alumno(1L, "Juan", "Pérez", 20, "Matemáticas"));
+        });
+
+        // When
+        indiceMemoria.verificarConsistencia();
+
+        // Then
+        assertFalse(DataSourceReplicado.primariaForzada());
+    }
+
+    @Test
+    void alCambiarAlumno_DebeGuardarLaVersionDelEvento() {
+        // Given: la fila 1 está en la versión 3
+        indiceMemoria.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(1L, "Juan", "Pérez", 20, "Matemáticas", 3L)));
+
+        // When: otra instancia también la modificó, así que este UPDATE la dejó en la 5
+        indiceMemoria.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(1L, "Juan", "Pérez", 21, "Matemáticas", 5L)));
+
+        // Then
+        assertEquals(5L, indiceMemoria.buscarPorCurso("Matemáticas").get(0).version());
+    }
+
+    @Test
+    void buscarPorCurso_DebeIgnorarMayusculasYTildesComoLaBaseDeDatos() {
+        // Given
+        indiceMemoria.alCambiarAlumno(AlumnoEvento.creado(new Alumno(5L, "Luis", "Martínez", 21, "MATEMATICAS")));
+
+        // Then
+        assertEquals(List.of(1L, 3L, 5L), ids(indiceMemoria.buscarPorCurso("matematicas")));
+        assertEquals(List.of(1L, 3L, 5L), ids(indiceMemoria.buscarPorCurso("Matemáticas")));
+        assertEquals(List.of(2L), ids(indiceMemoria.buscarPorCurso("FÍSICA")));
+
+        // Y al cambiar de curso sale de la clave que comparte con las demás filas
+        indiceMemoria.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(5L, "Luis", "Martínez", 21, "Historia", 1L)));
+        assertEquals(List.of(1L, 3L), ids(indiceMemoria.buscarPorCurso("MATEMÁTICAS")));
+    }
+
+    @Test
+    void huellas_DebenSerLasDeLasFilasQueDevuelvenLasBusquedas() {
+        // Given: el 3 pasa a la versión 2
+        indiceMemoria.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(3L, "Pedro", "López", 19, "Matemáticas", 2L)));
+
+        // Then: total, suma de IDs y suma de versiones, como la consulta de AlumnoRepository
+        assertEquals("W/\"2-4-2\"", indiceMemoria.huellaPorCurso("MATEMATICAS").comoEtag());
+        assertEquals("W/\"3-8-2\"", indiceMemoria.huellaPorRangoEdad(19, 20).comoEtag());
+        assertEquals("W/\"0-0-0\"", indiceMemoria.huellaPorCurso("Química").comoEtag());
+    }
+
+    @Test
+    void alCambiarAlumno_DebeIgnorarEventosQueLleganDesordenados() {
+        // Given: dos PUT sobre el 1; el evento de la versión 3 confirma antes que el de la 2
+        indiceMemoria.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(1L, "Juan", "Pérez", 23, "Historia", 3L)));
+        indiceMemoria.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(1L, "Juan", "Pérez", 22, "Física", 2L)));
+
+        // And: un POST y un PUT sobre el 5; el ACTUALIZADO llega antes que el CREADO
+        indiceMemoria.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(5L, "Luis", "Martínez", 31, "Historia", 1L)));
+        indiceMemoria.alCambiarAlumno(AlumnoEvento.creado(new Alumno(5L, "Luis", "Martínez", 21, "Física", 0L)));
+
+        // Then: quedan las versiones más nuevas
+        assertEquals(List.of(1L, 4L, 5L), ids(indiceMemoria.buscarPorCurso("Historia")));
+        assertEquals(List.of(2L), ids(indiceMemoria.buscarPorCurso("Física")));
+        assertEquals(List.of(1L), ids(indiceMemoria.buscarPorRangoEdad(23, 23)));
+        assertEquals(List.of(5L), ids(indiceMemoria.buscarPorRangoEdad(31, 31)));
+    }
+
+    @Test
+    void alCambiarAlumno_NoDebeDevolverUnaFilaBorradaPorUnEventoTardio() {
+        // Given
+        indiceMemoria.alCambiarAlumno(AlumnoEvento.eliminado(3L));
+
+        // When: llega después el ACTUALIZADO de un PUT que confirmó antes del DELETE
+        indiceMemoria.alCambiarAlumno(AlumnoEvento.actualizado(new Alumno(3L, "Pedro", "López", 19, "Matemáticas", 1L)));
+
+        // Then
+        assertEquals(List.of(1L), ids(indiceMemoria.buscarPorCurso("Matemáticas")));
+        assertEquals(List.of(1L, 4L), ids(indiceMemoria.buscarPorRangoEdad(19, 20)));
+    }
+
+    private static List<Long> ids(List<AlumnoVista> alumnos) {
+        return alumnos.stream().map(AlumnoVista::id).toList();
+    }
+}
\ No newline at end of file
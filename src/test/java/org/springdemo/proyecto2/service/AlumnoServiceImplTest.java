@@ -4,15 +4,40 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springdemo.proyecto2.dto.AlumnoFila;
+import org.springdemo.proyecto2.dto.AlumnoParcial;
+import org.springdemo.proyecto2.dto.AlumnoVista;
+import org.springdemo.proyecto2.dto.CoincidenciaAlumno;
+import org.springdemo.proyecto2.dto.DeltaAlumnos;
+import org.springdemo.proyecto2.dto.EstadisticasAlumnos;
+import org.springdemo.proyecto2.dto.HuellaAlumnos;
+import org.springdemo.proyecto2.dto.PaginaAlumnos;
+import org.springdemo.proyecto2.dto.ResultadoLote;
 import org.springdemo.proyecto2.model.Alumno;
-import org.springdemo.proyecto2.repository.AlumnoRepository;
-
+import org.springdemo.proyecto2.repository.AlumnoAlmacen;
+import org.springdemo.proyecto2.config.CacheConfig;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.ArrayList;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.Matchers.any;
@@ -23,7 +48,23 @@ import static org.mockito.Mockito.*;
 class AlumnoServiceImplTest {
 
     @Mock
-    private AlumnoRepository alumnoRepository;
+    private AlumnoAlmacen alumnoAlmacen;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    // Caché real en memoria para comprobar aciertos y desalojos
+    @Spy
+    private AlumnoCache alumnoCache = new AlumnoCache(new CacheConfig().cacheManager("maximumSize=100"));
+
+    @Mock
+    private AlumnoIndiceMemoria indiceMemoria;
+
+    @Mock
+    private AlumnoIndiceBusqueda indiceBusqueda;
+
+    @Mock
+    private AlumnoEstadisticas estadisticas;
 
     @InjectMocks
     private AlumnoServiceImpl alumnoService;
@@ -33,6 +74,16 @@ class AlumnoServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        // Valores que en la aplicación llegan desde application.properties
+        ReflectionTestUtils.setField(alumnoService, "tamanoPaginaPorDefecto", 2);
+        ReflectionTestUtils.setField(alumnoService, "tamanoPaginaMaximo", 3);
+        ReflectionTestUtils.setField(alumnoService, "tamanoLote", 2);
+        ReflectionTestUtils.setField(alumnoService, "tamanoListadoPorDefecto", 2);
+        ReflectionTestUtils.setField(alumnoService, "tamanoListadoMaximo", 3);
+        ReflectionTestUtils.setField(alumnoService, "tamanoBloqueListado", 2);
+        ReflectionTestUtils.setField(alumnoService, "limiteBusquedaPorDefecto", 2);
+        ReflectionTestUtils.setField(alumnoService, "limiteBusquedaMaximo", 3);
+
         // Configuración de datos de prueba
         alumnoTest = new Alumno();
         alumnoTest.setId(1L);
@@ -51,21 +102,141 @@ class AlumnoServiceImplTest {
     @Test
     void obtenerTodosLosAlumnos_DebeRetornarListaDeAlumnos() {
         // Given
-        when(alumnoRepository.findAll()).thenReturn(alumnosList);
+        doAnswer(invocacion -> {
+            Consumer<Alumno> consumidor = invocacion.getArgument(1);
+            alumnosList.forEach(consumidor);
+            return null;
+        }).when(alumnoAlmacen).recorrerTodos(eq(2), ArgumentMatchers.any());
 
         // When
         List<Alumno> resultado = alumnoService.obtenerTodosLosAlumnos();
 
-        // Then
+        // Then: recorrido por bloques del tamaño del listado
         assertNotNull(resultado);
-        assertEquals(3, resultado.size());
-        verify(alumnoRepository).findAll();
+        assertEquals(alumnosList, resultado);
+    }
+
+    @Test
+    void obtenerPaginaDelListado_DebeAcotarTamanoYOrdenarConDesempatePorId() {
+        // Given
+        when(alumnoAlmacen.findFilas(ArgumentMatchers.any(Pageable.class))).thenReturn(Page.empty());
+
+        // When
+        alumnoService.obtenerPaginaDelListado(1, 100, "apellido", "desc");
+
+        // Then
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(alumnoAlmacen).findFilas(pageable.capture());
+        assertEquals(PageRequest.of(1, 3, Sort.by(Sort.Direction.DESC, "apellido").and(Sort.by("id"))),
+                     pageable.getValue());
+    }
+
+    @Test
+    void obtenerPaginaDelListado_ConParametrosInvalidos_DebeUsarLosDePorDefecto() {
+        // Given
+        when(alumnoAlmacen.findFilas(ArgumentMatchers.any(Pageable.class))).thenReturn(Page.empty());
+
+        // When: columna fuera de la lista, dirección desconocida, página negativa y sin tamaño
+        alumnoService.obtenerPaginaDelListado(-5, null, "version; DROP TABLE alumnos", "arriba");
+
+        // Then
+        verify(alumnoAlmacen).findFilas(PageRequest.of(0, 2, Sort.by(Sort.Direction.ASC, "id")));
+    }
+
+    @Test
+    void obtenerPaginaDelListado_ConPaginaEnorme_NoDebeDesbordarElOffset() {
+        // Given
+        when(alumnoAlmacen.findFilas(ArgumentMatchers.any(Pageable.class))).thenReturn(Page.empty());
+
+        // When
+        alumnoService.obtenerPaginaDelListado(Integer.MAX_VALUE, 3, "id", "asc");
+
+        // Then: la página se acota para que OFFSET + tamaño entre en un int
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(alumnoAlmacen).findFilas(pageable.capture());
+        assertTrue(pageable.getValue().getOffset() + pageable.getValue().getPageSize() <= Integer.MAX_VALUE);
+        assertEquals((Integer.MAX_VALUE - 3) / 3, pageable.getValue().getPageNumber());
+    }
+
+    @Test
+    void recorrerListadoDeAlumnos_DebeLeerPorBloquesSoloAlAvanzar() {
+        // Given
+        List<AlumnoFila> filas = alumnosList.stream()
+                                            .map(a -> new AlumnoFila(a.getId(), a.getNombre(), a.getApellido(),
+                                                                     a.getEdad(), a.getCurso()))
+                                            .toList();
+        when(alumnoAlmacen.findFilasDespuesDeId(0L, 2)).thenReturn(filas.subList(0, 2));
+        when(alumnoAlmacen.findFilasDespuesDeId(2L, 2)).thenReturn(filas.subList(2, 3));
+
+        // When
+        ListadoPorBloques listado = alumnoService.recorrerListadoDeAlumnos();
+
+        // Then: al crearlo solo se lee el primer bloque
+        assertFalse(listado.isEmpty());
+        verify(alumnoAlmacen, never()).findFilasDespuesDeId(2L, 2);
+
+        List<AlumnoFila> recorridas = new ArrayList<>();
+        listado.forEach(recorridas::add);
+        assertEquals(filas, recorridas);
+        // el bloque incompleto es el último: no hay una tercera consulta
+        verify(alumnoAlmacen, times(2)).findFilasDespuesDeId(anyLong(), eq(2));
+    }
+
+    @Test
+    void buscarAlumnos_DebeUsarElIndiceConElLimiteAcotado() {
+        // Given
+        List<CoincidenciaAlumno> coincidencias = List.of(new CoincidenciaAlumno(1L, "Juan", "Pérez", 1.0));
+        when(indiceBusqueda.estaListo()).thenReturn(true);
+        when(indiceBusqueda.buscar("juan", 3)).thenReturn(coincidencias);
+
+        // When
+        List<CoincidenciaAlumno> resultado = alumnoService.buscarAlumnos("juan", 100);
+
+        // Then
+        assertEquals(coincidencias, resultado);
+        verifyNoInteractions(alumnoAlmacen);
+    }
+
+    @Test
+    void buscarAlumnos_ConElIndiceSinConstruir_DebeLanzarExcepcion() {
+        // Given
+        when(indiceBusqueda.estaListo()).thenReturn(false);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> alumnoService.buscarAlumnos("juan", null));
+        assertThrows(IllegalArgumentException.class, () -> alumnoService.buscarAlumnos("juan", 0));
+        verify(indiceBusqueda, never()).buscar(anyString(), anyInt());
+    }
+
+    @Test
+    void obtenerEstadisticas_DebeLeerlasDeMemoria() {
+        // Given
+        EstadisticasAlumnos resumen = new EstadisticasAlumnos(1, Map.of("Matemáticas", 1L), Map.of(20, 1L), 20, 20.0, 20);
+        when(estadisticas.estaListo()).thenReturn(true);
+        when(estadisticas.obtener()).thenReturn(resumen);
+
+        // When
+        EstadisticasAlumnos resultado = alumnoService.obtenerEstadisticas();
+
+        // Then
+        assertEquals(resumen, resultado);
+        verifyNoInteractions(alumnoAlmacen);
+    }
+
+    @Test
+    void obtenerEstadisticas_SinConstruir_DebeLanzarExcepcion() {
+        // Given
+        when(estadisticas.estaListo()).thenReturn(false);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> alumnoService.obtenerEstadisticas());
+        verify(estadisticas, never()).obtener();
     }
 
     @Test
     void obtenerAlumnoPorId_CuandoExisteAlumno_DebeRetornarAlumno() {
         // Given
-        when(alumnoRepository.findById(1L)).thenReturn(Optional.of(alumnoTest));
+        when(alumnoAlmacen.findById(1L)).thenReturn(Optional.of(alumnoTest));
 
         // When
         Alumno resultado = alumnoService.obtenerAlumnoPorId(1L);
@@ -74,13 +245,13 @@ class AlumnoServiceImplTest {
         assertNotNull(resultado);
         assertEquals(1L, resultado.getId());
         assertEquals("Juan", resultado.getNombre());
-        verify(alumnoRepository).findById(1L);
+        verify(alumnoAlmacen).findById(1L);
     }
 
     @Test
     void obtenerAlumnoPorId_CuandoNoExisteAlumno_DebeLanzarExcepcion() {
         // Given
-        when(alumnoRepository.findById(99L)).thenReturn(Optional.empty());
+        when(alumnoAlmacen.findById(99L)).thenReturn(Optional.empty());
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -88,7 +259,7 @@ class AlumnoServiceImplTest {
         });
 
         assertEquals("Alumno no encontrado con ID: 99", exception.getMessage());
-        verify(alumnoRepository).findById(99L);
+        verify(alumnoAlmacen).findById(99L);
     }
 
     @Test
@@ -96,7 +267,7 @@ class AlumnoServiceImplTest {
         // Given
         Alumno nuevoAlumno = new Alumno(null, "Nuevo", "Alumno", 21, "Historia");
         Alumno alumnoGuardado = new Alumno(4L, "Nuevo", "Alumno", 21, "Historia");
-        when(alumnoRepository.save(nuevoAlumno)).thenReturn(alumnoGuardado);
+        when(alumnoAlmacen.insertar(nuevoAlumno)).thenReturn(alumnoGuardado);
 
         // When
         Alumno resultado = alumnoService.guardarAlumno(nuevoAlumno);
@@ -105,7 +276,8 @@ class AlumnoServiceImplTest {
         assertNotNull(resultado);
         assertNotNull(resultado.getId());
         assertEquals("Nuevo", resultado.getNombre());
-        verify(alumnoRepository).save(nuevoAlumno);
+        verify(alumnoAlmacen).insertar(nuevoAlumno);
+        verify(eventPublisher).publishEvent(AlumnoEvento.creado(alumnoGuardado));
     }
 
     @Test
@@ -113,17 +285,33 @@ class AlumnoServiceImplTest {
         // Given
         Long id = 1L;
         Alumno alumnoActualizado = new Alumno(id, "Juan Actualizado", "Pérez", 21, "Matemáticas");
-        when(alumnoRepository.existsById(id)).thenReturn(true);
-        when(alumnoRepository.save(alumnoActualizado)).thenReturn(alumnoActualizado);
+        when(alumnoAlmacen.actualizar(id, alumnoActualizado, null))
+                .thenReturn(Optional.of(new Alumno(id, "Juan Actualizado", "Pérez", 21, "Matemáticas", 5L)));
 
         // When
         Alumno resultado = alumnoService.actualizarAlumno(id, alumnoActualizado);
 
-        // Then
+        // Then: sin lecturas previas; la versión que dejó el UPDATE va en el alumno y en el evento
         assertNotNull(resultado);
+        assertEquals(id, resultado.getId());
         assertEquals("Juan Actualizado", resultado.getNombre());
-        verify(alumnoRepository).existsById(id);
-        verify(alumnoRepository).save(alumnoActualizado);
+        assertEquals(5L, resultado.getVersion());
+        verify(alumnoAlmacen, never()).existsById(anyLong());
+        verify(alumnoAlmacen, never()).findById(anyLong());
+        verify(eventPublisher).publishEvent(AlumnoEvento.actualizado(resultado));
+    }
+
+    @Test
+    void actualizarAlumno_ConVersionDistinta_DebeLanzarConflicto() {
+        // Given: el cliente vio la versión 2 pero en la base de datos ya está la 3
+        Long id = 1L;
+        when(alumnoAlmacen.actualizar(eq(id), ArgumentMatchers.any(Alumno.class), eq(2L))).thenReturn(Optional.empty());
+        when(alumnoAlmacen.existsById(id)).thenReturn(true);
+
+        // When & Then
+        assertThrows(OptimisticLockingFailureException.class, () ->
+                alumnoService.actualizarAlumno(id, new Alumno(id, "Juan", "Pérez", 21, "Matemáticas"), 2L));
+        verify(eventPublisher, never()).publishEvent(ArgumentMatchers.any());
     }
 
     @Test
@@ -131,7 +319,7 @@ class AlumnoServiceImplTest {
         // Given
         Long id = 99L;
         Alumno alumnoInexistente = new Alumno(id, "Test", "Test", 20, "Test");
-        when(alumnoRepository.existsById(id)).thenReturn(false);
+        when(alumnoAlmacen.actualizar(id, alumnoInexistente, null)).thenReturn(Optional.empty());
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -139,32 +327,59 @@ class AlumnoServiceImplTest {
         });
 
         assertEquals("No se puede actualizar. Alumno no encontrado con ID: 99", exception.getMessage());
-        verify(alumnoRepository).existsById(id);
+        verify(eventPublisher, never()).publishEvent(ArgumentMatchers.any());
+        verify(alumnoAlmacen, never()).existsById(anyLong());
+    }
+
+    @Test
+    void actualizarAlumnoParcialmente_DebeActualizarYDevolverElAlumnoCompleto() {
+        // Given
+        Long id = 1L;
+        AlumnoParcial cambios = new AlumnoParcial(null, null, 25, null);
+        Alumno enBaseDeDatos = new Alumno(id, "Juan", "Pérez", 25, "Matemáticas", 1L);
+        when(alumnoAlmacen.actualizarParcialmente(id, cambios, null)).thenReturn(Optional.of(enBaseDeDatos));
 
-        ArgumentCaptor<Alumno> alumnoCaptor = ArgumentCaptor.forClass(Alumno.class);
-        verify(alumnoRepository, never()).save(alumnoCaptor.capture());
+        // When
+        Alumno resultado = alumnoService.actualizarAlumnoParcialmente(id, cambios, null);
+
+        // Then
+        assertEquals(enBaseDeDatos, resultado);
+        verify(eventPublisher).publishEvent(AlumnoEvento.actualizado(enBaseDeDatos));
+    }
+
+    @Test
+    void actualizarAlumnoParcialmente_CuandoNoExisteAlumno_DebeLanzarExcepcion() {
+        // Given
+        AlumnoParcial cambios = new AlumnoParcial("Nuevo", null, null, null);
+        when(alumnoAlmacen.actualizarParcialmente(99L, cambios, null)).thenReturn(Optional.empty());
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class, () ->
+                alumnoService.actualizarAlumnoParcialmente(99L, cambios, null));
+        assertEquals("No se puede actualizar. Alumno no encontrado con ID: 99", exception.getMessage());
+        verify(eventPublisher, never()).publishEvent(ArgumentMatchers.any());
     }
 
     @Test
     void eliminarAlumno_CuandoExisteAlumno_DebeEliminarAlumno() {
         // Given
         Long id = 1L;
-        when(alumnoRepository.existsById(id)).thenReturn(true);
-        doNothing().when(alumnoRepository).deleteById(id);
+        when(alumnoAlmacen.deleteById(id)).thenReturn(1);
 
         // When
         alumnoService.eliminarAlumno(id);
 
         // Then
-        verify(alumnoRepository).existsById(id);
-        verify(alumnoRepository).deleteById(id);
+        verify(alumnoAlmacen).deleteById(id);
+        verify(alumnoAlmacen, never()).existsById(anyLong());
+        verify(eventPublisher).publishEvent(AlumnoEvento.eliminado(id));
     }
 
     @Test
     void eliminarAlumno_CuandoNoExisteAlumno_DebeLanzarExcepcion() {
         // Given
         Long id = 99L;
-        when(alumnoRepository.existsById(id)).thenReturn(false);
+        when(alumnoAlmacen.deleteById(id)).thenReturn(0);
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -172,27 +387,28 @@ class AlumnoServiceImplTest {
         });
 
         assertEquals("No se pude eliminar. Alumno no encontrado por ID: 99", exception.getMessage());
-        verify(alumnoRepository).existsById(id);
-        verify(alumnoRepository, never()).deleteById(anyLong());
+        verify(alumnoAlmacen).deleteById(id);
+        verify(eventPublisher, never()).publishEvent(ArgumentMatchers.any());
     }
 
     @Test
     void obtenerAlumnosPorCurso_DebeRetornarListaDeAlumnosDelCurso() {
         // Given
         String curso = "Matemáticas";
-        List<Alumno> alumnosMatematicas = alumnosList.stream()
-                                                     .filter(a -> a.getCurso().equals(curso))
-                                                     .collect(Collectors.toList());
-        when(alumnoRepository.findAlumnosByCursoQuery(curso)).thenReturn(alumnosMatematicas);
+        List<AlumnoVista> alumnosMatematicas = alumnosList.stream()
+                                                          .filter(a -> a.getCurso().equals(curso))
+                                                          .map(AlumnoVista::de)
+                                                          .collect(Collectors.toList());
+        when(alumnoAlmacen.findVistasByCurso(curso)).thenReturn(alumnosMatematicas);
 
         // When
-        List<Alumno> resultado = alumnoService.obtenerAlumnosPorCurso(curso);
+        List<AlumnoVista> resultado = alumnoService.obtenerAlumnosPorCurso(curso);
 
         // Then
         assertNotNull(resultado);
         assertEquals(2, resultado.size());
-        assertTrue(resultado.stream().allMatch(a -> a.getCurso().equals(curso)));
-        verify(alumnoRepository).findAlumnosByCursoQuery(curso);
+        assertTrue(resultado.stream().allMatch(a -> a.curso().equals(curso)));
+        verify(alumnoAlmacen).findVistasByCurso(curso);
     }
 
     @Test
@@ -200,19 +416,277 @@ class AlumnoServiceImplTest {
         // Given
         int edadMinima = 19;
         int edadMaxima = 21;
-        List<Alumno> alumnosEnRango = alumnosList.stream()
-                                                 .filter(a -> a.getEdad() >= edadMinima && a.getEdad() <= edadMaxima)
-                                                 .collect(Collectors.toList());
-        when(alumnoRepository.findAlumnosByRangoEdad(edadMinima, edadMaxima)).thenReturn(alumnosEnRango);
+        List<AlumnoVista> alumnosEnRango = alumnosList.stream()
+                                                      .filter(a -> a.getEdad() >= edadMinima && a.getEdad() <= edadMaxima)
+                                                      .map(AlumnoVista::de)
+                                                      .collect(Collectors.toList());
+        when(alumnoAlmacen.findVistasByRangoEdad(edadMinima, edadMaxima)).thenReturn(alumnosEnRango);
 
         // When
-        List<Alumno> resultado = alumnoService.obtenerAlumnosPorRangoEdad(edadMinima, edadMaxima);
+        List<AlumnoVista> resultado = alumnoService.obtenerAlumnosPorRangoEdad(edadMinima, edadMaxima);
 
         // Then
         assertNotNull(resultado);
         assertEquals(2, resultado.size());
-        assertTrue(resultado.stream().allMatch(a -> a.getEdad() >= edadMinima && a.getEdad() <= edadMaxima));
-        verify(alumnoRepository).findAlumnosByRangoEdad(edadMinima, edadMaxima);
+        assertTrue(resultado.stream().allMatch(a -> a.edad() >= edadMinima && a.edad() <= edadMaxima));
+        verify(alumnoAlmacen).findVistasByRangoEdad(edadMinima, edadMaxima);
+    }
+
+    @Test
+    void obtenerAlumnosPaginados_CuandoHayMasFilas_DebeRetornarCursorSiguiente() {
+        // Given: se piden 2 y el repositorio devuelve 3 (una de más)
+        when(alumnoAlmacen.findVistasDespuesDeId(0L, 3)).thenReturn(vistas(alumnosList));
+
+        // When
+        PaginaAlumnos pagina = alumnoService.obtenerAlumnosPaginados(null, null);
+
+        // Then
+        assertEquals(2, pagina.alumnos().size());
+        assertNotNull(pagina.siguienteCursor());
+        assertEquals(2L, PaginaAlumnos.decodificarCursor(pagina.siguienteCursor()));
+    }
+
+    @Test
+    void obtenerAlumnosPaginados_UltimaPagina_NoDebeRetornarCursor() {
+        // Given
+        String cursor = PaginaAlumnos.codificarCursor(2L);
+        when(alumnoAlmacen.findVistasDespuesDeId(2L, 3)).thenReturn(List.of(AlumnoVista.de(alumnosList.get(2))));
+
+        // When
+        PaginaAlumnos pagina = alumnoService.obtenerAlumnosPaginados(cursor, 2);
+
+        // Then
+        assertEquals(1, pagina.alumnos().size());
+        assertNull(pagina.siguienteCursor());
+    }
+
+    @Test
+    void obtenerAlumnosPaginados_DebeLimitarAlTamanoMaximo() {
+        // Given: el cliente pide 1000 pero el máximo es 3
+        when(alumnoAlmacen.findVistasDespuesDeId(0L, 4)).thenReturn(vistas(alumnosList));
+
+        // When
+        alumnoService.obtenerAlumnosPaginados(null, 1000);
+
+        // Then
+        verify(alumnoAlmacen).findVistasDespuesDeId(0L, 4);
+    }
+
+    @Test
+    void obtenerAlumnosPaginados_CursorInvalido_DebeLanzarExcepcion() {
+        assertThrows(IllegalArgumentException.class, () -> alumnoService.obtenerAlumnosPaginados("no-es-un-cursor", 2));
+        verify(alumnoAlmacen, never()).findVistasDespuesDeId(anyLong(), anyInt());
+    }
+
+    @Test
+    void exportarAlumnos_DebeEntregarCadaAlumnoDelRecorrido() {
+        // Given
+        doAnswer(invocacion -> {
+            Consumer<Alumno> consumidor = invocacion.getArgument(1);
+            alumnosList.forEach(consumidor);
+            return null;
+        }).when(alumnoAlmacen).recorrerTodos(eq(2), ArgumentMatchers.any());
+        List<Alumno> exportados = new ArrayList<>();
+
+        // When
+        alumnoService.exportarAlumnos(exportados::add);
+
+        // Then
+        assertEquals(alumnosList, exportados);
+    }
+
+    @Test
+    void guardarAlumnosEnLote_DebeDividirEnLotesDelTamanoConfigurado() {
+        // Given: 3 alumnos con lotes de 2 -> dos lotes
+        List<Alumno> nuevos = List.of(new Alumno(null, "A", "A", 20, "X"),
+                                      new Alumno(null, "B", "B", 21, "X"),
+                                      new Alumno(null, "C", "C", 22, "X"));
+        when(alumnoAlmacen.insertarLote(anyList())).thenAnswer(invocacion -> {
+            List<Alumno> lote = invocacion.getArgument(0);
+            lote.forEach(alumno -> alumno.setId((long) alumno.getEdad()));
+            return lote.size();
+        });
+
+        // When
+        List<ResultadoLote> resultados = alumnoService.guardarAlumnosEnLote(nuevos.iterator());
+
+        // Then
+        assertEquals(2, resultados.size());
+        assertEquals(ResultadoLote.exitoso(1, 2, 2, 20L, 21L), resultados.get(0));
+        assertEquals(ResultadoLote.exitoso(2, 1, 1, 22L, 22L), resultados.get(1));
+        verify(eventPublisher, times(3)).publishEvent(ArgumentMatchers.any(AlumnoEvento.class));
+    }
+
+    @Test
+    void guardarAlumnosEnLote_CuandoFallaUnLote_DebeSeguirConLosDemas() {
+        // Given: el primer lote falla en la base de datos y el segundo no
+        List<Alumno> nuevos = List.of(new Alumno(null, "A", "A", 20, "X"),
+                                      new Alumno(null, "B", "B", 21, "X"),
+                                      new Alumno(null, "C", "C", 22, "X"));
+        when(alumnoAlmacen.insertarLote(anyList()))
+                .thenThrow(new DataIntegrityViolationException("Data too long for column 'curso'"))
+                .thenReturn(1);
+
+        // When
+        List<ResultadoLote> resultados = alumnoService.guardarAlumnosEnLote(nuevos.iterator());
+
+        // Then: el lote rechazado no publica eventos y sus alumnos quedan sin ID
+        assertFalse(resultados.get(0).esExitoso());
+        assertEquals("Data too long for column 'curso'", resultados.get(0).error());
+        assertTrue(resultados.get(1).esExitoso());
+        assertNull(nuevos.get(0).getId());
+        verify(eventPublisher, times(1)).publishEvent(ArgumentMatchers.any(AlumnoEvento.class));
+    }
+
+    @Test
+    void obtenerCambiosDesde_SinToken_DebeDevolverSoloLaPosicionActual() {
+        // Given
+        when(alumnoAlmacen.findTokenActual()).thenReturn("token-actual");
+
+        // When
+        DeltaAlumnos delta = alumnoService.obtenerCambiosDesde(null, null);
+
+        // Then
+        assertEquals(new DeltaAlumnos(List.of(), List.of(), "token-actual", false), delta);
+        verify(alumnoAlmacen, never()).findCambiosDesde(anyString(), anyInt());
+    }
+
+    @Test
+    void obtenerCambiosDesde_ConToken_DebePedirAlAlmacenConElLimiteAcotado() {
+        // Given
+        DeltaAlumnos cambios = new DeltaAlumnos(List.of(alumnoTest), List.of(7L), "siguiente", true);
+        when(alumnoAlmacen.findCambiosDesde("token", 3)).thenReturn(cambios);
+
+        // When & Then
+        assertEquals(cambios, alumnoService.obtenerCambiosDesde("token", 1000));
+        assertThrows(IllegalArgumentException.class, () -> alumnoService.obtenerCambiosDesde("token", 0));
+    }
+
+    @Test
+    void purgarEliminados_DebePurgarLoAnteriorALaRetencion() {
+        // Given
+        ReflectionTestUtils.setField(alumnoService, "retencionEliminados", Duration.ofDays(30));
+        Instant antes = Instant.now().minus(Duration.ofDays(30));
+
+        // When
+        alumnoService.purgarEliminados();
+
+        // Then
+        ArgumentCaptor<Instant> limite = ArgumentCaptor.forClass(Instant.class);
+        verify(alumnoAlmacen).purgarEliminados(limite.capture());
+        assertFalse(limite.getValue().isBefore(antes));
+        assertFalse(limite.getValue().isAfter(Instant.now().minus(Duration.ofDays(30))));
+    }
+
+    @Test
+    void obtenerAlumnoPorId_SegundaLlamada_DebeResponderDesdeLaCache() {
+        // Given
+        when(alumnoAlmacen.findById(1L)).thenReturn(Optional.of(alumnoTest));
+
+        // When
+        alumnoService.obtenerAlumnoPorId(1L);
+        Alumno resultado = alumnoService.obtenerAlumnoPorId(1L);
+
+        // Then: la base de datos se consultó una sola vez
+        assertEquals("Juan", resultado.getNombre());
+        verify(alumnoAlmacen, times(1)).findById(1L);
+    }
+
+    @Test
+    void obtenerAlumnoPorId_NoEncontrado_DebeGuardarseEnLaCache() {
+        // Given
+        when(alumnoAlmacen.findById(99L)).thenReturn(Optional.empty());
+
+        // When
+        assertThrows(RuntimeException.class, () -> alumnoService.obtenerAlumnoPorId(99L));
+        assertThrows(RuntimeException.class, () -> alumnoService.obtenerAlumnoPorId(99L));
+
+        // Then
+        verify(alumnoAlmacen, times(1)).findById(99L);
+    }
+
+    @Test
+    void obtenerAlumnoPorId_DespuesDeUnCambio_DebeVolverAConsultar() {
+        // Given
+        when(alumnoAlmacen.findById(1L)).thenReturn(Optional.of(alumnoTest));
+        alumnoService.obtenerAlumnoPorId(1L);
+
+        // When: el oyente recibe el evento después del commit
+        alumnoCache.alCambiarAlumno(AlumnoEvento.actualizado(alumnoTest));
+        alumnoService.obtenerAlumnoPorId(1L);
+
+        // Then
+        verify(alumnoAlmacen, times(2)).findById(1L);
+    }
+
+    @Test
+    void obtenerAlumnosPorCurso_ConIndiceEnMemoria_NoDebeConsultarLaBaseDeDatos() {
+        // Given
+        when(indiceMemoria.estaListo()).thenReturn(true);
+        when(indiceMemoria.buscarPorCurso("Matemáticas")).thenReturn(List.of(AlumnoVista.de(alumnoTest)));
+
+        // When
+        List<AlumnoVista> resultado = alumnoService.obtenerAlumnosPorCurso("Matemáticas");
+
+        // Then
+        assertEquals(List.of(AlumnoVista.de(alumnoTest)), resultado);
+        verify(alumnoAlmacen, never()).findVistasByCurso(anyString());
+    }
+
+    @Test
+    void obtenerAlumnosPorRangoEdad_ConIndiceEnMemoria_NoDebeConsultarLaBaseDeDatos() {
+        // Given
+        when(indiceMemoria.estaListo()).thenReturn(true);
+        when(indiceMemoria.buscarPorRangoEdad(19, 21)).thenReturn(List.of(AlumnoVista.de(alumnoTest)));
+
+        // When
+        List<AlumnoVista> resultado = alumnoService.obtenerAlumnosPorRangoEdad(19, 21);
+
+        // Then
+        assertEquals(List.of(AlumnoVista.de(alumnoTest)), resultado);
+        verify(alumnoAlmacen, never()).findVistasByRangoEdad(anyInt(), anyInt());
+    }
+
+    @Test
+    void calcularEtagPorCurso_DebeCambiarSiCambiaLaHuella() {
+        // Given
+        when(alumnoAlmacen.findHuellaByCurso("Matemáticas"))
+                .thenReturn(huella(2, 4, 0))
+                .thenReturn(huella(2, 4, 1));
+
+        // When
+        String antes = alumnoService.calcularEtagPorCurso("Matemáticas");
+        String despues = alumnoService.calcularEtagPorCurso("Matemáticas");
+
+        // Then
+        assertEquals("W/\"2-4-0\"", antes);
+        assertNotEquals(antes, despues);
+    }
+
+    @Test
+    void calcularEtagPorCursoYEdad_ConIndiceEnMemoria_NoDebenConsultarLaBaseDeDatos() {
+        // Given
+        when(indiceMemoria.estaListo()).thenReturn(true);
+        when(indiceMemoria.huellaPorCurso("Matemáticas")).thenReturn(huella(2, 4, 0));
+        when(indiceMemoria.huellaPorRangoEdad(19, 21)).thenReturn(huella(1, 1, 3));
+
+        // When & Then
+        assertEquals("W/\"2-4-0\"", alumnoService.calcularEtagPorCurso("Matemáticas"));
+        assertEquals("W/\"1-1-3\"", alumnoService.calcularEtagPorRangoEdad(19, 21));
+        verify(alumnoAlmacen, never()).findHuellaByCurso(anyString());
+        verify(alumnoAlmacen, never()).findHuellaByRangoEdad(anyInt(), anyInt());
+    }
+
+    private static List<AlumnoVista> vistas(List<Alumno> alumnos) {
+        return alumnos.stream().map(AlumnoVista::de).toList();
+    }
+
+    private static HuellaAlumnos huella(long total, long sumaIds, long sumaVersiones) {
+        return new HuellaAlumnos() {
+            public Number getTotal() { return total; }
+            public Number getSumaIds() { return sumaIds; }
+            public Number getSumaVersiones() { return sumaVersiones; }
+        };
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package org.springdemo.proyecto2.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springdemo.proyecto2.dto.ResultadoLote;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springdemo.proyecto2.repository.AlumnoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compara filas/segundo entre el camino de a una fila (saveAlumnoQuery) y la carga masiva.
+// No corre en el build normal: mvn test -Dgroups=benchmark -DexcludedGroups=none -Dtest=CargaMasivaBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("h2")
+class CargaMasivaBenchmarkTest {
+
+    private static final int TOTAL_ALUMNOS = 20_000;
+
+    @Autowired
+    private AlumnoRepository alumnoRepository;
+
+    @Autowired
+    private AlumnoService alumnoService;
+
+    @BeforeEach
+    void setUp() {
+        alumnoRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void compararInsercionDeAUnaFilaContraCargaMasiva() {
+        // Calentamiento para que JIT y pool de conexiones no cuenten en la medición
+        alumnoService.guardarAlumnosEnLote(generarAlumnos(2_000).iterator());
+        alumnoRepository.deleteAllInBatch();
+
+        long inicio = System.nanoTime();
+        for (Alumno alumno : generarAlumnos(TOTAL_ALUMNOS)) {
+            alumnoRepository.saveAlumnoQuery(alumno.getNombre(), alumno.getApellido(), alumno.getEdad(), alumno.getCurso());
+        }
+        double filasPorSegundoUnaFila = filasPorSegundo(inicio);
+        assertEquals(TOTAL_ALUMNOS, alumnoRepository.count());
+        alumnoRepository.deleteAllInBatch();
+
+        inicio = System.nanoTime();
+        List<ResultadoLote> resultados = alumnoService.guardarAlumnosEnLote(generarAlumnos(TOTAL_ALUMNOS).iterator());
+        double filasPorSegundoLote = filasPorSegundo(inicio);
+        assertTrue(resultados.stream().allMatch(ResultadoLote::esExitoso));
+        assertEquals(TOTAL_ALUMNOS, alumnoRepository.count());
+
+        System.out.printf("Una fila por llamada: %,.0f filas/s%n", filasPorSegundoUnaFila);
+        System.out.printf("Carga masiva (%d lotes): %,.0f filas/s (x%.1f)%n",
+                          resultados.size(), filasPorSegundoLote, filasPorSegundoLote / filasPorSegundoUnaFila);
+    }
+
+    private static double filasPorSegundo(long inicio) {
+        return TOTAL_ALUMNOS / ((System.nanoTime() - inicio) / 1_000_000_000.0);
+    }
+
+    private static List<Alumno> generarAlumnos(int cantidad) {
+        return IntStream.range(0, cantidad)
+                        .mapToObj(i -> new Alumno(null, "Nombre" + i, "Apellido" + i, 18 + i % 40, "Curso" + i % 12))
+                        .toList();
+    }
+}
@@ -0,0 +1,178 @@
+package org.springdemo.proyecto2.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springdemo.proyecto2.config.DataSourceReplicado;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsultasCompartidasTest {
+
+    private static final int PETICIONES = 20;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConsultasCompartidas consultas;
+    private ExecutorService hilos;
+
+    // La consulta queda trabada hasta que el test la suelta
+    private final CountDownLatch consultaEmpezada = new CountDownLatch(1);
+    private final CountDownLatch soltarConsulta = new CountDownLatch(1);
+    private final AtomicInteger consultasHechas = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        consultas = new ConsultasCompartidas(meterRegistry, Duration.ofSeconds(5));
+        hilos = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        soltarConsulta.countDown();
+        hilos.shutdownNow();
+        DataSourceReplicado.forzarPrimaria(false);
+    }
+
+    @Test
+    void obtener_PeticionesSimultaneas_DebenCompartirUnaSolaConsulta() throws Exception {
+        // Given: una petición consultando y otras 19 con la misma clave esperándola
+        List<Future<List<String>>> resultados = lanzarMientrasConsulta(() -> List.of("Ana", "Luis"));
+
+        // When
+        soltarConsulta.countDown();
+
+        // Then
+        for (Future<List<String>> resultado : resultados) {
+            assertEquals(List.of("Ana", "Luis"), resultado.get());
+        }
+        assertEquals(1, consultasHechas.get());
+        assertEquals(1, contador("ejecutada"));
+        assertEquals(PETICIONES - 1, contador("compartida"));
+    }
+
+    @Test
+    void obtener_SiLaConsultaFalla_TodosDebenRecibirLaMismaExcepcionYLaSiguienteVuelveAConsultar() throws Exception {
+        // Given
+        List<Future<List<String>>> resultados = lanzarMientrasConsulta(() -> {
+            throw new IllegalArgumentException("Connection reset");
+        });
+
+        // When
+        soltarConsulta.countDown();
+
+        // Then
+        for (Future<List<String>> resultado : resultados) {
+            ExecutionException e = assertThrows(ExecutionException.class, resultado::get);
+            assertInstanceOf(IllegalArgumentException.class, e.getCause());
+            assertEquals("Connection reset", e.getCause().getMessage());
+        }
+        assertEquals(List.of("Eva"), consultas.obtener("curso", "Arte", () -> List.of("Eva")));
+        assertEquals(2, contador("ejecutada"));
+    }
+
+    @Test
+    void obtener_SiLaConsultaTardaMasQueLaEspera_DebeFallarYSoltarLaClave() throws Exception {
+        // Given
+        consultas = new ConsultasCompartidas(meterRegistry, Duration.ofMillis(50));
+        Future<List<String>> trabada = hilos.submit(() -> consultas.obtener("curso", "Arte", this::consultaTrabada));
+        consultaEmpezada.await();
+
+        // When
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                                               () -> consultas.obtener("curso", "Arte", () -> List.of("Otra")));
+
+        // Then: la siguiente petición consulta de nuevo en lugar de esperar a la trabada
+        assertTrue(e.getMessage().contains("no respondió"));
+        assertEquals(1, contador("vencida"));
+        assertEquals(List.of("Eva"), consultas.obtener("curso", "Arte", () -> List.of("Eva")));
+        soltarConsulta.countDown();
+        assertEquals(List.of("Ana"), trabada.get());
+    }
+
+    @Test
+    void obtener_DespuesDeUnCambio_NoDebeCompartirLaConsultaAnterior() throws Exception {
+        // Given
+        Future<List<String>> anterior = hilos.submit(() -> consultas.obtener("curso", "Arte", this::consultaTrabada));
+        consultaEmpezada.await();
+
+        // When
+        consultas.alCambiarAlumno(AlumnoEvento.eliminado(1L));
+
+        // Then
+        assertEquals(List.of("Eva"), consultas.obtener("curso", "Arte", () -> List.of("Eva")));
+        soltarConsulta.countDown();
+        assertEquals(List.of("Ana"), anterior.get());
+        assertEquals(0, contador("compartida"));
+    }
+
+    @Test
+    void obtener_ConClavesDistintasOLaPrimariaForzada_NoDebeCompartir() throws Exception {
+        // Given
+        Future<List<String>> arte = hilos.submit(() -> consultas.obtener("curso", "Arte", this::consultaTrabada));
+        consultaEmpezada.await();
+
+        // When & Then
+        assertEquals(List.of("Eva"), consultas.obtener("curso", "Historia", () -> List.of("Eva")));
+        assertEquals(List.of("Eva"), consultas.obtener("edad", "Arte", () -> List.of("Eva")));
+        DataSourceReplicado.forzarPrimaria(true);
+        assertEquals(List.of("Eva"), consultas.obtener("curso", "Arte", () -> List.of("Eva")));
+        soltarConsulta.countDown();
+        assertEquals(List.of("Ana"), arte.get());
+        assertEquals(0, contador("compartida"));
+    }
+
+    // Lanza PETICIONES pedidos de la misma clave y vuelve cuando todos los que no consultan están esperando
+    private List<Future<List<String>>> lanzarMientrasConsulta(Supplier<List<String>> resultado) throws Exception {
+        List<Future<List<String>>> resultados = new ArrayList<>();
+        resultados.add(hilos.submit(() -> consultas.obtener("curso", "Arte", () -> {
+            consultaTrabada();
+            return resultado.get();
+        })));
+        consultaEmpezada.await();
+
+        List<Thread> esperando = new CopyOnWriteArrayList<>();
+        for (int i = 1; i < PETICIONES; i++) {
+            resultados.add(hilos.submit(() -> {
+                esperando.add(Thread.currentThread());
+                return consultas.obtener("curso", "Arte", () -> List.of("No debería consultar"));
+            }));
+        }
+        long limite = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < limite
+               && (esperando.size() < PETICIONES - 1
+                   || !esperando.stream().allMatch(hilo -> hilo.getState() == Thread.State.TIMED_WAITING))) {
+            Thread.sleep(5);
+        }
+        return resultados;
+    }
+
+    private List<String> consultaTrabada() {
+        consultasHechas.incrementAndGet();
+        consultaEmpezada.countDown();
+        try {
+            soltarConsulta.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return List.of("Ana");
+    }
+
+    private double contador(String resultado) {
+        return meterRegistry.find("alumnos.coalescencia").tag("resultado", resultado).counters()
+                            .stream().mapToDouble(c -> c.count()).sum();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,207 @@
+package org.springdemo.proyecto2.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springdemo.proyecto2.dto.ResultadoLote;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EscrituraAgrupadaTest {
+
+    private static final int PETICIONES = 20;
+
+    @Mock
+    private AlumnoService alumnoService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private EscrituraAgrupada escritura;
+    private ExecutorService hilos;
+
+    // Apellidos de cada lote que llegó al servicio
+    private final List<List<String>> lotes = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong ultimoId = new AtomicLong();
+
+    // Con un apellido "Lento" el commit queda trabado hasta que el test lo suelta
+    private final CountDownLatch commitEmpezado = new CountDownLatch(1);
+    private final CountDownLatch soltarCommit = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        hilos = Executors.newCachedThreadPool();
+        lenient().when(alumnoService.guardarLote(anyInt(), anyList())).thenAnswer(invocacion -> {
+            List<Alumno> lote = invocacion.getArgument(1);
+            lotes.add(lote.stream().map(Alumno::getApellido).toList());
+            if (lote.stream().anyMatch(alumno -> alumno.getApellido().equals("Lento"))) {
+                commitEmpezado.countDown();
+                soltarCommit.await();
+            }
+            if (lote.stream().anyMatch(alumno -> alumno.getApellido().equals("Duplicado"))) {
+                return ResultadoLote.rechazado(invocacion.getArgument(0), lote.size(), "Duplicate entry");
+            }
+            if (lote.stream().anyMatch(alumno -> alumno.getApellido().equals("SinConexion"))) {
+                return ResultadoLote.fallido(invocacion.getArgument(0), lote.size(), "Connection is not available");
+            }
+            lote.forEach(alumno -> alumno.setId(ultimoId.incrementAndGet()));
+            return ResultadoLote.exitoso(invocacion.getArgument(0), lote.size(), lote.size(),
+                                         lote.get(0).getId(), lote.get(lote.size() - 1).getId());
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        soltarCommit.countDown();
+        if (escritura != null) {
+            escritura.cerrar();
+        }
+        hilos.shutdownNow();
+    }
+
+    @Test
+    void guardar_AltasSimultaneas_DebenCompartirElCommitYRecibirCadaUnaSuId() throws Exception {
+        // Given: se juntan durante 200ms
+        escritura = crear(100, 500, Duration.ofMillis(200));
+
+        // When
+        List<Future<Alumno>> resultados = new ArrayList<>();
+        for (int i = 0; i < PETICIONES; i++) {
+            String apellido = "Apellido" + i;
+            resultados.add(hilos.submit(() -> escritura.guardar(new Alumno(null, "Ana", apellido, 20, "Arte"))));
+        }
+
+        // Then: menos commits que altas, y cada una con un ID propio
+        HashSet<Long> ids = new HashSet<>();
+        for (Future<Alumno> resultado : resultados) {
+            ids.add(resultado.get().getId());
+        }
+        assertEquals(PETICIONES, ids.size());
+        assertTrue(lotes.size() < PETICIONES, "Commits: " + lotes.size());
+        assertEquals(PETICIONES, lotes.stream().mapToInt(List::size).sum());
+        assertEquals(PETICIONES, meterRegistry.get("alumnos.escritura-agrupada.filas").summary().totalAmount());
+    }
+
+    @Test
+    void guardar_SiElLoteFalla_DebeReintentarDeAUnaYFallarSoloLaFilaMala() throws Exception {
+        // Given: las tres entran en el mismo lote
+        escritura = crear(100, 500, Duration.ofMillis(200));
+
+        // When
+        Future<Alumno> gomez = hilos.submit(() -> escritura.guardar(new Alumno(null, "Ana", "Gomez", 20, "Arte")));
+        Future<Alumno> duplicado = hilos.submit(() -> escritura.guardar(new Alumno(null, "Luis", "Duplicado", 21, "Arte")));
+        Future<Alumno> ruiz = hilos.submit(() -> escritura.guardar(new Alumno(null, "Eva", "Ruiz", 22, "Arte")));
+
+        // Then
+        assertNotNull(gomez.get().getId());
+        assertNotNull(ruiz.get().getId());
+        ExecutionException e = assertThrows(ExecutionException.class, duplicado::get);
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertEquals("Duplicate entry", e.getCause().getMessage());
+        assertEquals(List.of("Duplicado"), lotes.stream().filter(lote -> lote.contains("Duplicado")).toList().getLast());
+    }
+
+    @Test
+    void guardar_SiFallaLaBase_NoDebeReintentarYTodoElLoteRecibeDataAccessException() throws Exception {
+        // Given: las dos entran en el mismo lote
+        escritura = crear(100, 500, Duration.ofMillis(200));
+
+        // When
+        Future<Alumno> gomez = hilos.submit(() -> escritura.guardar(new Alumno(null, "Ana", "Gomez", 20, "Arte")));
+        Future<Alumno> sinConexion = hilos.submit(() -> escritura.guardar(new Alumno(null, "Luis", "SinConexion", 21, "Arte")));
+
+        // Then: ninguna es un alta inválida (400), y el lote no se reintentó de a una
+        for (Future<Alumno> resultado : List.of(gomez, sinConexion)) {
+            ExecutionException e = assertThrows(ExecutionException.class, resultado::get);
+            assertInstanceOf(DataAccessException.class, e.getCause());
+            assertEquals("Connection is not available", e.getCause().getMessage());
+        }
+        assertEquals(1, lotes.size());
+    }
+
+    @Test
+    void guardar_ConLaColaLlena_DebeLanzarTaskRejectedException() throws Exception {
+        // Given: un commit trabado y la única plaza de la cola ocupada
+        escritura = crear(1, 500, Duration.ZERO);
+        Future<Alumno> trabada = hilos.submit(() -> escritura.guardar(new Alumno(null, "Ana", "Lento", 20, "Arte")));
+        commitEmpezado.await();
+        Future<Alumno> enCola = hilos.submit(() -> escritura.guardar(new Alumno(null, "Luis", "Diaz", 21, "Arte")));
+        esperarCola(1);
+
+        // When & Then
+        assertThrows(TaskRejectedException.class,
+                     () -> escritura.guardar(new Alumno(null, "Eva", "Ruiz", 22, "Arte")));
+        assertEquals(1, meterRegistry.get("alumnos.escritura-agrupada.rechazadas").counter().count());
+        soltarCommit.countDown();
+        assertNotNull(trabada.get().getId());
+        assertNotNull(enCola.get().getId());
+    }
+
+    @Test
+    void cerrar_DebeGuardarLoQueQuedoEnLaColaYRechazarLasAltasNuevas() throws Exception {
+        // Given
+        escritura = crear(10, 500, Duration.ZERO);
+        Future<Alumno> trabada = hilos.submit(() -> escritura.guardar(new Alumno(null, "Ana", "Lento", 20, "Arte")));
+        commitEmpezado.await();
+        Future<Alumno> enCola = hilos.submit(() -> escritura.guardar(new Alumno(null, "Luis", "Diaz", 21, "Arte")));
+        esperarCola(1);
+
+        // When: se cierra mientras el commit sigue trabado
+        AtomicReference<Thread> cerrando = new AtomicReference<>();
+        Future<?> cierre = hilos.submit(() -> {
+            cerrando.set(Thread.currentThread());
+            escritura.cerrar();
+            return null;
+        });
+        long limite = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < limite
+               && (cerrando.get() == null || cerrando.get().getState() != Thread.State.TIMED_WAITING)) {
+            Thread.sleep(5);
+        }
+        assertThrows(IllegalStateException.class,
+                     () -> escritura.guardar(new Alumno(null, "Rosa", "Vera", 23, "Arte")));
+        soltarCommit.countDown();
+        cierre.get();
+
+        // Then: la que esperaba en la cola se guardó antes de terminar
+        assertNotNull(trabada.get().getId());
+        assertNotNull(enCola.get().getId());
+        assertEquals(List.of(List.of("Lento"), List.of("Diaz")), lotes);
+    }
+
+    private EscrituraAgrupada crear(int capacidad, int maximoLote, Duration espera) {
+        return new EscrituraAgrupada(alumnoService, meterRegistry, capacidad, maximoLote, espera,
+                                     Duration.ofSeconds(10), Duration.ofSeconds(10));
+    }
+
+    private void esperarCola(int tamano) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < limite
+               && meterRegistry.get("alumnos.escritura-agrupada.cola").gauge().value() < tamano) {
+            Thread.sleep(5);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,206 @@
+package org.springdemo.proyecto2.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springdemo.proyecto2.dto.ErrorDeFila;
+import org.springdemo.proyecto2.dto.EstadoImportacion;
+import org.springdemo.proyecto2.dto.ResultadoLote;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportacionAlumnosTest {
+
+    @Mock
+    private AlumnoService alumnoService;
+
+    private ImportacionAlumnos importacion;
+
+    // Apellidos de cada lote que llegó al servicio
+    private final List<List<String>> lotes = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        // Lotes de 2 y como mucho 3 errores guardados
+        importacion = new ImportacionAlumnos(alumnoService, new ObjectMapper(), 2, 1, 10, 3, Duration.ofHours(1), Duration.ofSeconds(5));
+        lenient().when(alumnoService.guardarLote(anyInt(), anyList())).thenAnswer(invocacion -> {
+            List<Alumno> lote = invocacion.getArgument(1);
+            lotes.add(lote.stream().map(Alumno::getApellido).toList());
+            return ResultadoLote.exitoso(invocacion.getArgument(0), lote.size(), lote.size(), 1L, (long) lote.size());
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        importacion.cerrar();
+    }
+
+    @Test
+    void iniciar_ConUnCsv_DebeGuardarPorLotesSegunLaCabecera() throws Exception {
+        // Given: columnas en otro orden, una extra, campos entre comillas y BOM de Excel
+        String csv = "\uFEFFcurso,edad,apellido,nombre,email\n"
+                     + "Matematicas,20,Gomez,Ana,ana@x.com\n"
+                     + "\"Arte, Diseño\",21,\"O\"\"Neil\",Luis,\n"
+                     + "\n"
+                     + ",22,Ruiz,Eva,\n";
+
+        // When
+        EstadoImportacion estado = esperarFin(importacion.iniciar(archivo("alumnos.csv", csv), null));
+
+        // Then
+        assertEquals("TERMINADA", estado.estado());
+        assertEquals("csv", estado.formato());
+        assertEquals(3, estado.filasLeidas());
+        assertEquals(3, estado.insertados());
+        assertEquals(List.of(List.of("Gomez", "O\"Neil"), List.of("Ruiz")), lotes);
+        verify(alumnoService).guardarLote(eq(1), argThat(lote -> "Arte, Diseño".equals(lote.get(1).getCurso())));
+        verify(alumnoService).guardarLote(eq(2), argThat(lote -> lote.get(0).getCurso() == null));
+    }
+
+    @Test
+    void iniciar_ConFilasInvalidas_DebeRechazarlasYSeguirConLasDemas() throws Exception {
+        // Given: separador ';' y una fila mala por cada regla
+        String csv = "nombre;apellido;edad;curso\n"
+                     + "Ana;Gomez;20;Matematicas\n"
+                     + ";Perez;20;Arte\n"
+                     + "Luis;Diaz;veinte;Arte\n"
+                     + "Eva;Ruiz;20;Ingenieria Civil y Ambiental\n"
+                     + "Juan;Sosa;20\n"
+                     + "Rosa;Vera;-1;Arte\n"
+                     + "Marta;Lopez;22;Arte\n";
+
+        // When
+        EstadoImportacion estado = esperarFin(importacion.iniciar(archivo("alumnos.csv", csv), null));
+
+        // Then: errores por número de línea, solo los primeros 3
+        assertEquals("TERMINADA", estado.estado());
+        assertEquals(7, estado.filasLeidas());
+        assertEquals(2, estado.insertados());
+        assertEquals(5, estado.rechazados());
+        assertEquals(List.of(new ErrorDeFila(3, "nombre es obligatorio"),
+                             new ErrorDeFila(4, "edad no es un número entero: veinte"),
+                             new ErrorDeFila(5, "curso tiene 28 caracteres (máximo 15)")),
+                     estado.errores());
+        assertEquals(2, estado.erroresOmitidos());
+        assertEquals(List.of(List.of("Gomez", "Lopez")), lotes);
+    }
+
+    @Test
+    void iniciar_ConUnNdjson_DebeValidarCadaLinea() throws Exception {
+        // Given
+        String ndjson = "{\"nombre\":\"Ana\",\"apellido\":\"Gomez\",\"edad\":20,\"curso\":\"Arte\"}\n"
+                        + "{\"nombre\":\"Luis\",\"apellido\":\n"
+                        + "[1,2]\n"
+                        + "{\"nombre\":\"Eva\",\"apellido\":\"Ruiz\",\"edad\":\"21\"}\n";
+
+        // When
+        EstadoImportacion estado = esperarFin(importacion.iniciar(archivo("alumnos.ndjson", ndjson), null));
+
+        // Then
+        assertEquals("ndjson", estado.formato());
+        assertEquals(2, estado.insertados());
+        assertEquals(List.of(2L, 3L), estado.errores().stream().map(ErrorDeFila::fila).toList());
+        assertTrue(estado.errores().get(0).error().startsWith("JSON inválido"));
+        assertEquals("Se esperaba un objeto JSON", estado.errores().get(1).error());
+    }
+
+    @Test
+    void iniciar_CuandoFallaUnLote_DebeReintentarFilaPorFila() throws Exception {
+        // Given: la base de datos rechaza a Diaz, en un lote o solo
+        when(alumnoService.guardarLote(anyInt(), anyList())).thenAnswer(invocacion -> {
+            List<Alumno> lote = invocacion.getArgument(1);
+            if (lote.stream().anyMatch(alumno -> alumno.getApellido().equals("Diaz"))) {
+                return ResultadoLote.rechazado(invocacion.getArgument(0), lote.size(), "Duplicate entry");
+            }
+            return ResultadoLote.exitoso(invocacion.getArgument(0), lote.size(), lote.size(), 1L, 1L);
+        });
+        String csv = "nombre,apellido,edad\nAna,Gomez,20\nLuis,Diaz,21\nEva,Ruiz,22\n";
+
+        // When
+        EstadoImportacion estado = esperarFin(importacion.iniciar(archivo("alumnos.csv", csv), null));
+
+        // Then: el primer lote se reintenta de a uno y el segundo entra entero
+        assertEquals(2, estado.insertados());
+        assertEquals(List.of(new ErrorDeFila(3, "Duplicate entry")), estado.errores());
+        verify(alumnoService, times(4)).guardarLote(anyInt(), anyList());
+    }
+
+    @Test
+    void iniciar_CuandoFallaLaBaseDeDatos_NoDebeRechazarFilasYDebeTerminarFallida() throws Exception {
+        // Given: el segundo lote no llega a la base de datos
+        when(alumnoService.guardarLote(anyInt(), anyList())).thenAnswer(invocacion -> {
+            List<Alumno> lote = invocacion.getArgument(1);
+            if (invocacion.<Integer>getArgument(0) == 2) {
+                return ResultadoLote.fallido(2, lote.size(), "Connection is not available");
+            }
+            return ResultadoLote.exitoso(invocacion.getArgument(0), lote.size(), lote.size(), 1L, 2L);
+        });
+        String csv = "nombre,apellido,edad\nAna,Gomez,20\nLuis,Diaz,21\nEva,Ruiz,22\nJuan,Sosa,23\nRosa,Vera,24\n";
+
+        // When
+        EstadoImportacion estado = esperarFin(importacion.iniciar(archivo("alumnos.csv", csv), null));
+
+        // Then: ni reintento de a una fila ni más lotes
+        assertEquals("FALLIDA", estado.estado());
+        assertEquals(2, estado.insertados());
+        assertEquals(0, estado.rechazados());
+        assertTrue(estado.error().contains("línea 4") && estado.error().contains("Connection is not available"));
+        verify(alumnoService, times(2)).guardarLote(anyInt(), anyList());
+    }
+
+    @Test
+    void iniciar_ConUnaCabeceraSinLasColumnas_DebeFallar() throws Exception {
+        // When
+        EstadoImportacion estado = esperarFin(importacion.iniciar(archivo("alumnos.csv", "nombre,curso\nAna,Arte\n"), null));
+
+        // Then
+        assertEquals("FALLIDA", estado.estado());
+        assertTrue(estado.error().startsWith("La cabecera del CSV debe tener las columnas nombre, apellido y edad"));
+        verifyNoInteractions(alumnoService);
+    }
+
+    @Test
+    void iniciar_SinFormatoReconocible_DebeLanzarIllegalArgumentException() {
+        MockMultipartFile sinExtension = archivo("alumnos.txt", "nombre,apellido,edad\n");
+
+        assertThrows(IllegalArgumentException.class, () -> importacion.iniciar(sinExtension, null));
+        assertThrows(IllegalArgumentException.class, () -> importacion.iniciar(sinExtension, "xml"));
+        assertThrows(IllegalArgumentException.class, () -> importacion.iniciar(archivo("alumnos.csv", ""), null));
+    }
+
+    @Test
+    void obtener_ConUnIdDesconocido_DebeLanzarRuntimeException() {
+        assertThrows(RuntimeException.class, () -> importacion.obtener("no-existe"));
+    }
+
+    private static MockMultipartFile archivo(String nombre, String contenido) {
+        return new MockMultipartFile("archivo", nombre, null, contenido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private EstadoImportacion esperarFin(EstadoImportacion inicial) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5_000;
+        EstadoImportacion estado = importacion.obtener(inicial.id());
+        while (estado.terminada() == null && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+            estado = importacion.obtener(inicial.id());
+        }
+        assertNotNull(estado.terminada(), "La importación no terminó");
+        return estado;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+package org.springdemo.proyecto2.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springdemo.proyecto2.dto.AlumnoParcial;
+import org.springdemo.proyecto2.dto.DeltaAlumnos;
+import org.springdemo.proyecto2.model.Alumno;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Contra H2: el número de cambio lo ponen las escrituras nativas y JDBC, no solo save()
+@SpringBootTest
+@ActiveProfiles("h2")
+class SincronizacionDeltaTest {
+
+    @Autowired
+    private AlumnoService alumnoService;
+
+    @AfterEach
+    void tearDown() {
+        cambiarRetencion(Duration.ofDays(30));
+    }
+
+    @Test
+    void obtenerCambiosDesde_DebeDevolverSoloLoQueCambioDespuesDelToken() {
+        // Given: un alumno de antes del token y cambios de todo tipo después
+        Alumno anterior = alumnoService.guardarAlumno(new Alumno(null, "Eva", "Ruiz", 30, "Arte"));
+        String token = alumnoService.obtenerCambiosDesde(null, null).siguienteToken();
+
+        alumnoService.guardarAlumnosEnLote(Stream.of(new Alumno(null, "Ana", "Gomez", 20, "Arte"),
+                                                     new Alumno(null, "Luis", "Diaz", 21, "Arte"),
+                                                     new Alumno(null, "Juan", "Sosa", 22, "Arte")).iterator());
+        Alumno ana = alumnoService.guardarAlumno(new Alumno(null, "Ana", "Vera", 23, "Historia"));
+        alumnoService.actualizarAlumnoParcialmente(ana.getId(), new AlumnoParcial(null, null, 24, null), null);
+        alumnoService.actualizarAlumno(anterior.getId(), new Alumno(null, "Eva", "Ruiz", 31, "Arte"));
+        alumnoService.eliminarAlumno(ana.getId());
+
+        // When: de a 2, así una página corta el lote, que comparte el número de cambio
+        Map<Long, Alumno> cambiados = new LinkedHashMap<>();
+        List<Long> eliminados = new ArrayList<>();
+        DeltaAlumnos delta;
+        int paginas = 0;
+        do {
+            delta = alumnoService.obtenerCambiosDesde(token, 2);
+            delta.alumnos().forEach(alumno -> cambiados.put(alumno.getId(), alumno));
+            eliminados.addAll(delta.eliminados());
+            token = delta.siguienteToken();
+            paginas++;
+        } while (delta.hayMas());
+
+        // Then: en orden de cambio, una vez cada uno y con sus datos actuales
+        assertEquals(List.of("Gomez", "Diaz", "Sosa", "Ruiz"), cambiados.values().stream().map(Alumno::getApellido).toList());
+        assertEquals(31, cambiados.get(anterior.getId()).getEdad());
+        assertNotNull(cambiados.get(anterior.getId()).getActualizadoEn());
+        assertEquals(List.of(ana.getId()), eliminados);
+        assertEquals(3, paginas);
+
+        // Then: sin cambios nuevos el token no se mueve
+        DeltaAlumnos sinCambios = alumnoService.obtenerCambiosDesde(token, 2);
+        assertTrue(sinCambios.alumnos().isEmpty());
+        assertTrue(sinCambios.eliminados().isEmpty());
+        assertEquals(token, sinCambios.siguienteToken());
+    }
+
+    @Test
+    void obtenerCambiosDesde_ConUnTokenAnteriorALasBajasPurgadas_DebeLanzarIllegalStateException() {
+        // Given
+        String token = alumnoService.obtenerCambiosDesde(null, null).siguienteToken();
+        Alumno alumno = alumnoService.guardarAlumno(new Alumno(null, "Ana", "Gomez", 20, "Arte"));
+        alumnoService.eliminarAlumno(alumno.getId());
+
+        // When
+        cambiarRetencion(Duration.ZERO);
+        ((AlumnoServiceImpl) alumnoService).purgarEliminados();
+
+        // Then: el token viejo ya no sirve; uno nuevo sí
+        assertThrows(IllegalStateException.class, () -> alumnoService.obtenerCambiosDesde(token, null));
+        String nuevo = alumnoService.obtenerCambiosDesde(null, null).siguienteToken();
+        assertTrue(alumnoService.obtenerCambiosDesde(nuevo, null).eliminados().isEmpty());
+    }
+
+    @Test
+    void obtenerCambiosDesde_ConUnTokenInvalido_DebeLanzarIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> alumnoService.obtenerCambiosDesde("no-es-un-token", null));
+        // "delta:1", sin el ID
+        assertThrows(IllegalArgumentException.class, () -> alumnoService.obtenerCambiosDesde("ZGVsdGE6MQ", null));
+    }
+
+    private void cambiarRetencion(Duration retencion) {
+        AlumnoServiceImpl servicio = AopTestUtils.getUltimateTargetObject(alumnoService);
+        ReflectionTestUtils.setField(servicio, "retencionEliminados", retencion);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,9 @@
+-- Tabla alumnos de la réplica de prueba, igual a la que crea Hibernate en la primaria
+CREATE TABLE IF NOT EXISTS alumnos (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    nombre VARCHAR(50),
+    apellido VARCHAR(50),
+    edad INTEGER NOT NULL,
+    curso VARCHAR(15),
+    version BIGINT DEFAULT 0 NOT NULL
+);